@@ -21,7 +21,8 @@ package com.here.xyz.connectors;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
-import com.google.common.hash.Hashing;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.here.xyz.Payload;
 import com.here.xyz.Typed;
 import com.here.xyz.XyzSerializable;
@@ -63,7 +64,11 @@ public abstract class AbstractConnectorHandler implements RequestStreamHandler {
    * The number of the bytes to read from an input stream and preview as a String in the logs.
    */
   private static final int INPUT_PREVIEW_BYTE_SIZE = 4 * 1024; // 4K
-  private static final String ETAG_STRING = ",\"etag\":\"_\"}";
+  /**
+   * The writer used to serialize the responses. The target stream is not closed by the writer, as the e-tag is appended afterwards.
+   */
+  private static final ThreadLocal<ObjectWriter> RESPONSE_WRITER = ThreadLocal.withInitial(() ->
+      XyzSerializable.DEFAULT_MAPPER.get().writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET));
   /**
    * The maximal response size in bytes that can be sent back without relocating the response.
    */
@@ -175,31 +180,46 @@ public abstract class AbstractConnectorHandler implements RequestStreamHandler {
   /**
    * Write the output object to the output stream.
    *
-   * If the serialized object is too large it will be relocated and a RelocatedEvent will be written instead.
+   * The object is serialized directly into a stream, which calculates the e-tag and compresses the bytes, when the response becomes
+   * large. If the serialized object is too large it will be relocated and a RelocatedEvent will be written instead.
+   *
+   * <p>In embedded mode without an e-tag to compare, the object is serialized directly into the output, so that the response is never
+   * held in memory. If the serialization fails in this case, the bytes, which were already written, can not be taken back and the output
+   * contains an incomplete response, which the caller fails to parse. In all other cases nothing is written, if the serialization
+   * fails.</p>
    */
-  @SuppressWarnings("UnstableApiUsage")
   void writeDataOut(OutputStream output, Typed dataOut, String ifNoneMatch) {
+    if (dataOut == null) {
+      return;
+    }
+    if (dataOut instanceof StreamedFeatureCollection) {
+      writeStreamedDataOut(output, (StreamedFeatureCollection) dataOut, ifNoneMatch);
+      return;
+    }
+
     try {
-      byte[] bytes = dataOut == null ? null : dataOut.serialize().getBytes();
-      if (bytes == null) {
-        return;
-      }
       logger.info("{} - Writing data out for response with type: {}", streamId, dataOut.getClass().getSimpleName());
 
-      // Calculate ETag
-      String hash = Hashing.murmur3_128().newHasher().putBytes(bytes).hash().toString();
-      byte[] etagBytes = ETAG_STRING.replace("_", hash).getBytes();
-      if (hash.equals(ifNoneMatch)) {
-        bytes = new NotModifiedResponse().serialize().getBytes();
+      // Without relocation and e-tag comparison, the response can be written directly into the output
+      if (embedded && ifNoneMatch == null) {
+        final EtagOutputStream etagStream = new EtagOutputStream(output);
+        RESPONSE_WRITER.get().writeValue(etagStream, dataOut);
+        etagStream.finish();
+        return;
       }
 
-      // Transform: handle compression and etag injection
-      try (ByteArrayOutputStream os = new ByteArrayOutputStream(bytes.length + etagBytes.length - 1)) {
-        OutputStream targetOs = (!embedded && bytes.length > MIN_COMPRESS_SIZE ? Payload.gzip(os) : os);
-        targetOs.write(bytes, 0, bytes.length - 1);
-        targetOs.write(etagBytes);
-        os.close();
-        targetOs.close();
+      // Serialize, calculate the ETag and compress
+      final ByteArrayOutputStream os = new ByteArrayOutputStream();
+      final EtagOutputStream etagStream = new EtagOutputStream(embedded ? os : new AdaptiveGzipOutputStream(os, MIN_COMPRESS_SIZE));
+      RESPONSE_WRITER.get().writeValue(etagStream, dataOut);
+      etagStream.close();
+
+      byte[] bytes;
+      if (etagStream.getHash().equals(ifNoneMatch)) {
+        final NotModifiedResponse notModifiedResponse = new NotModifiedResponse();
+        notModifiedResponse.setEtag(etagStream.getHash());
+        bytes = notModifiedResponse.serialize().getBytes();
+      } else {
         bytes = os.toByteArray();
       }
 
@@ -215,6 +235,45 @@ public abstract class AbstractConnectorHandler implements RequestStreamHandler {
     }
   }
 
+  /**
+   * Write a streamed feature collection to the output stream. The feature collection is already serialized, compressed and contains the
+   * e-tag.
+   */
+  private void writeStreamedDataOut(OutputStream output, StreamedFeatureCollection dataOut, String ifNoneMatch) {
+    try {
+      byte[] bytes = dataOut.toByteArray();
+      logger.info("{} - Writing data out for streamed response with {} bytes", streamId, dataOut.getByteSize());
+
+      if (dataOut.getEtag().equals(ifNoneMatch)) {
+        final NotModifiedResponse notModifiedResponse = new NotModifiedResponse();
+        notModifiedResponse.setEtag(dataOut.getEtag());
+        bytes = notModifiedResponse.serialize().getBytes();
+      }
+
+      // Relocate
+      if (!embedded && bytes.length > MAX_RESPONSE_SIZE) {
+        bytes = relocationClient.relocate(streamId, bytes);
+      }
+
+      // Write result
+      output.write(bytes);
+    } catch (Exception e) {
+      logger.error("{} - Unexpected exception occurred: {}\n{}", streamId, e.getMessage(), e.getStackTrace());
+    }
+  }
+
+  /**
+   * Creates a new feature collection, into which the features can be written directly as JSON. The collection is compressed, unless the
+   * connector is running in embedded mode.
+   *
+   * @return the new feature collection.
+   * @throws IOException if the collection could not be initialized.
+   */
+  @SuppressWarnings("WeakerAccess")
+  protected StreamedFeatureCollection newStreamedFeatureCollection() throws IOException {
+    return new StreamedFeatureCollection(!embedded);
+  }
+
   /**
    * The event processor.
    *
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.connectors;
+
+import com.here.xyz.Payload;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream, which keeps the written bytes uncompressed until the given threshold is exceeded. Afterwards all bytes are compressed
+ * with gzip. Small responses are therefore sent uncompressed, while large responses never exist uncompressed in memory.
+ */
+class AdaptiveGzipOutputStream extends OutputStream {
+
+  private final OutputStream target;
+  private final int threshold;
+  private ByteArrayOutputStream pending;
+  private OutputStream out;
+  private boolean compressed;
+
+  AdaptiveGzipOutputStream(OutputStream target, int threshold) {
+    this.target = target;
+    this.threshold = threshold;
+    this.pending = new ByteArrayOutputStream();
+    this.out = pending;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    out.write(b);
+    checkThreshold();
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    out.write(b, off, len);
+    checkThreshold();
+  }
+
+  private void checkThreshold() throws IOException {
+    if (pending != null && pending.size() > threshold) {
+      out = Payload.gzip(target);
+      pending.writeTo(out);
+      pending = null;
+      compressed = true;
+    }
+  }
+
+  /**
+   * Returns true, if the written bytes are compressed.
+   */
+  boolean isCompressed() {
+    return compressed;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (pending != null) {
+      pending.writeTo(target);
+      pending = null;
+      out = target;
+    }
+    out.close();
+  }
+}
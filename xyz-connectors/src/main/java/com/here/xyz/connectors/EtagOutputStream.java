@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.connectors;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An output stream for serialized JSON objects, which calculates the e-tag of the object while it is written. The last byte (the closing
+ * bracket of the object) is held back and replaced with the e-tag property, when the stream is closed.
+ */
+@SuppressWarnings("UnstableApiUsage")
+class EtagOutputStream extends FilterOutputStream {
+
+  private static final String ETAG_STRING = ",\"etag\":\"_\"}";
+
+  private final Hasher hasher = Hashing.murmur3_128().newHasher();
+  private int last = -1;
+  private long count;
+  private String hash;
+
+  EtagOutputStream(OutputStream out) {
+    super(out);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    hasher.putByte((byte) b);
+    if (last != -1) {
+      out.write(last);
+    }
+    last = b & 0xFF;
+    count++;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (len <= 0) {
+      return;
+    }
+    hasher.putBytes(b, off, len);
+    if (last != -1) {
+      out.write(last);
+    }
+    out.write(b, off, len - 1);
+    last = b[off + len - 1] & 0xFF;
+    count += len;
+  }
+
+  /**
+   * Completes the hash calculation and writes the e-tag property instead of the last byte, which was written.
+   */
+  void finish() throws IOException {
+    if (hash != null) {
+      return;
+    }
+    hash = hasher.hash().toString();
+    if (count > 0) {
+      out.write(ETAG_STRING.replace("_", hash).getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    finish();
+    super.close();
+  }
+
+  /**
+   * Returns the e-tag of all bytes written into this stream.
+   *
+   * @return the e-tag or null, if the stream was not yet finished.
+   */
+  String getHash() {
+    return hash;
+  }
+
+  /**
+   * Returns the number of bytes written into this stream.
+   *
+   * @return the number of bytes written into this stream.
+   */
+  long getCount() {
+    return count;
+  }
+}
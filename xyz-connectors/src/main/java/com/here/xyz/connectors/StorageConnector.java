@@ -28,6 +28,7 @@ import com.here.xyz.events.GetFeaturesByBBoxEvent;
 import com.here.xyz.events.GetFeaturesByGeometryEvent;
 import com.here.xyz.events.GetFeaturesByIdEvent;
 import com.here.xyz.events.GetFeaturesByTileEvent;
+import com.here.xyz.events.GetIterationPartitionsEvent;
 import com.here.xyz.events.GetStatisticsEvent;
 import com.here.xyz.events.HealthCheckEvent;
 import com.here.xyz.events.IterateFeaturesEvent;
@@ -90,6 +91,9 @@ public abstract class StorageConnector extends AbstractConnectorHandler {
     if (event instanceof GetStatisticsEvent) {
       return processGetStatistics((GetStatisticsEvent) event);
     }
+    if (event instanceof GetIterationPartitionsEvent) {
+      return processGetIterationPartitionsEvent((GetIterationPartitionsEvent) event);
+    }
     if (event instanceof HealthCheckEvent) {
       return processHealthCheckEvent((HealthCheckEvent) event);
     }
@@ -133,6 +137,17 @@ public abstract class StorageConnector extends AbstractConnectorHandler {
   @SuppressWarnings("WeakerAccess")
   protected abstract XyzResponse processGetStatistics(GetStatisticsEvent event) throws Exception;
 
+  /**
+   * Processes a GetIterationPartitions event. The default implementation returns an error, as partitioned iterations are optional.
+   */
+  @SuppressWarnings("WeakerAccess")
+  protected XyzResponse processGetIterationPartitionsEvent(GetIterationPartitionsEvent event) throws Exception {
+    return new ErrorResponse()
+        .withStreamId(streamId)
+        .withError(XyzError.NOT_IMPLEMENTED)
+        .withErrorMessage("Partitioned iterations are not supported by this storage connector.");
+  }
+
   /**
    * Processes a GetFeaturesById event.
    */
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.connectors;
+
+import com.here.xyz.Payload;
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.models.geojson.implementation.FeatureCollection;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+
+/**
+ * A feature collection, whose features are written by the connector as raw JSON directly into the (adaptively compressed) response
+ * buffer, instead of being collected in memory and serialized afterwards. The e-tag is calculated while the features are written.
+ *
+ * The collection is completed by the {@link AbstractConnectorHandler}, so the handle may be set until the response is written out.
+ */
+public class StreamedFeatureCollection extends FeatureCollection {
+
+  private static final byte[] PREFIX = "{\"type\":\"FeatureCollection\",\"features\":[".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] HANDLE = "],\"handle\":".getBytes(StandardCharsets.UTF_8);
+
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+  private final EtagOutputStream etagStream;
+  private boolean empty = true;
+  private boolean finished;
+
+  StreamedFeatureCollection(boolean compressible) throws IOException {
+    this.etagStream = new EtagOutputStream(
+        compressible ? new AdaptiveGzipOutputStream(buffer, AbstractConnectorHandler.MIN_COMPRESS_SIZE) : buffer);
+    etagStream.write(PREFIX);
+  }
+
+  /**
+   * Returns the stream into which the next feature has to be written as JSON object.
+   *
+   * @return the stream into which the next feature has to be written.
+   * @throws IOException if writing the separator failed.
+   */
+  public OutputStream nextFeature() throws IOException {
+    if (finished) {
+      throw new IllegalStateException("The feature collection is already completed.");
+    }
+    if (!empty) {
+      etagStream.write(',');
+    }
+    empty = false;
+    return etagStream;
+  }
+
+  /**
+   * Completes the feature collection. No further features can be added afterwards.
+   */
+  void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    if (getHandle() != null) {
+      etagStream.write(HANDLE);
+      etagStream.write(XyzSerializable.DEFAULT_MAPPER.get().writeValueAsBytes(getHandle()));
+    } else {
+      etagStream.write(']');
+    }
+    etagStream.write('}');
+    etagStream.close();
+    setEtag(etagStream.getHash());
+  }
+
+  /**
+   * Returns the bytes of the completed feature collection including the e-tag.
+   */
+  byte[] toByteArray() throws IOException {
+    finish();
+    return buffer.toByteArray();
+  }
+
+  /**
+   * Returns the number of uncompressed bytes of the feature collection.
+   */
+  long getByteSize() {
+    return etagStream.getCount();
+  }
+
+  @Override
+  public String serialize() {
+    try {
+      InputStream is = Payload.prepareInputStream(new ByteArrayInputStream(toByteArray()));
+      try (Scanner scanner = new Scanner(is, StandardCharsets.UTF_8.name())) {
+        return scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
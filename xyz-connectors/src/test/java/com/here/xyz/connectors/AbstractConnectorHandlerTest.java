@@ -19,6 +19,7 @@
 
 package com.here.xyz.connectors;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -40,6 +41,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -47,10 +49,21 @@ import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.Assume;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class AbstractConnectorHandlerTest {
 
+  private static final Logger logger = LoggerFactory.getLogger(AbstractConnectorHandlerTest.class);
+
+  /**
+   * The system property, which enables the benchmarks, e.g. {@code mvn test -DskipTests=false -Dtest=AbstractConnectorHandlerTest
+   * -Dbenchmark=true}. The 100MB benchmark requires enough heap (e.g. -Xmx2g in the argLine).
+   */
+  private static final String BENCHMARK = "benchmark";
+
   private String HealthCheckEventString = "{\"type\":\"HealthCheckEvent\", \"streamId\":\"STREAM_ID_EXAMPLE\"}";
 
   private static FeatureCollection generateRandomFeatures(int featureCount, int propertyCount) throws JsonProcessingException {
@@ -130,6 +143,67 @@ public class AbstractConnectorHandlerTest {
     FeatureCollection result = XyzSerializable.deserialize(stringBuilder.toString());
   }
 
+  @Test
+  public void testWriteStreamedDataOut() throws Exception {
+    TestStorageConnector testStorageConnector = new TestStorageConnector();
+    StreamedFeatureCollection fc = testStorageConnector.newStreamedFeatureCollection();
+    for (Feature feature : generateRandomFeatures(10, 5).getFeatures()) {
+      feature.setId(RandomStringUtils.randomAlphanumeric(8));
+      fc.nextFeature().write(feature.serialize().getBytes(StandardCharsets.UTF_8));
+    }
+    fc.setHandle("10");
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+    testStorageConnector.writeDataOut(os, fc, null);
+
+    FeatureCollection result = XyzSerializable.deserialize(Payload.prepareInputStream(new ByteArrayInputStream(os.toByteArray())));
+    assertEquals(10, result.getFeatures().size());
+    assertEquals("10", result.getHandle());
+    assertEquals(fc.getEtag(), result.getEtag());
+  }
+
+  @Test
+  public void benchmarkWriteDataOut10MB() throws Exception {
+    benchmarkWriteDataOut(10);
+  }
+
+  @Test
+  public void benchmarkWriteDataOut100MB() throws Exception {
+    benchmarkWriteDataOut(100);
+  }
+
+  private void benchmarkWriteDataOut(int megaBytes) throws Exception {
+    Assume.assumeTrue("The benchmarks are enabled with -D" + BENCHMARK + "=true", Boolean.getBoolean(BENCHMARK));
+    // A feature with 100 properties has roughly 2.5KB
+    FeatureCollection fc = generateRandomFeatures(megaBytes * 420, 100);
+    long size = fc.serialize().length();
+    TestStorageConnector testStorageConnector = new TestStorageConnector();
+    int maxResponseSize = AbstractConnectorHandler.MAX_RESPONSE_SIZE;
+    AbstractConnectorHandler.MAX_RESPONSE_SIZE = Integer.MAX_VALUE;
+    try {
+      com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      long threadId = Thread.currentThread().getId();
+      for (boolean embedded : new boolean[]{false, true}) {
+        testStorageConnector.setEmbedded(embedded);
+        for (int i = 0; i < 5; i++) {
+          ByteArrayOutputStream os = new ByteArrayOutputStream();
+          long allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+          long start = System.nanoTime();
+          testStorageConnector.writeDataOut(os, fc, null);
+          long time = System.nanoTime() - start;
+          allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocated;
+
+          assertTrue(os.size() > 0);
+          logger.info("{}MB{}: {} bytes written as {} bytes in {}ms ({} MB/s), {} bytes allocated ({} per byte)", megaBytes,
+              embedded ? " embedded" : "", size, os.size(), time / 1_000_000, String.format("%.1f", size / 1024d / 1024d / (time / 1e9)),
+              allocated, String.format("%.2f", allocated / (double) size));
+        }
+      }
+    } finally {
+      AbstractConnectorHandler.MAX_RESPONSE_SIZE = maxResponseSize;
+    }
+  }
+
   //This is a test for the relocation client. To run it, an S3 bucket and valid credentials are required.
   //@Test
   public void testRelocatedEvent() throws Exception {
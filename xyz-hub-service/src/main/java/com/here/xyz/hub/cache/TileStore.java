@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.cache;
+
+import com.here.xyz.models.geojson.WebMercatorTile;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The store of the pre-rendered MVT tiles. The tiles of a space are stored together with the content version of the space, for which they
+ * were rendered. Tiles of another content version are never returned, so that a content change invalidates the tiles immediately.
+ *
+ * <p>The store is bounded by the total size of the stored tiles. When it is exceeded, the tiles of the least recently used spaces are
+ * removed. The tiles of a space, which were not accessed for a week, are removed as well.</p>
+ */
+public class TileStore {
+
+  /**
+   * The maximal total size of the stored tiles in bytes.
+   */
+  static final long MAX_BYTES = 256L * 1024 * 1024;
+  private static final long EXPIRATION = TimeUnit.DAYS.toMillis(7);
+
+  private static final TileStore instance = new TileStore(MAX_BYTES, EXPIRATION);
+
+  private final long maxBytes;
+  private final long expiration;
+  private final LinkedHashMap<String, Tiles> spaces = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes;
+
+  TileStore(long maxBytes, long expiration) {
+    this.maxBytes = maxBytes;
+    this.expiration = expiration;
+  }
+
+  /**
+   * Returns the pre-rendered tile or null, if the tile was not pre-rendered for the given content version.
+   *
+   * @param spaceId the space ID.
+   * @param version the content version of the space.
+   * @param tile the tile.
+   */
+  public static byte[] get(String spaceId, long version, WebMercatorTile tile) {
+    return instance.getTile(spaceId, version, tile.asQuadkey());
+  }
+
+  /**
+   * Returns true, if the tiles of the given content version are stored.
+   */
+  public static boolean contains(String spaceId, long version) {
+    return instance.getTiles(spaceId, version) != null;
+  }
+
+  /**
+   * Replaces the stored tiles of a space.
+   *
+   * @param spaceId the space ID.
+   * @param version the content version of the space, for which the tiles were rendered.
+   * @param tiles the tiles by quadkey.
+   */
+  public static void put(String spaceId, long version, Map<String, byte[]> tiles) {
+    instance.putTiles(spaceId, version, tiles);
+  }
+
+  public static void remove(String spaceId) {
+    instance.removeTiles(spaceId);
+  }
+
+  byte[] getTile(String spaceId, long version, String quadkey) {
+    final Tiles tiles = getTiles(spaceId, version);
+    return tiles == null ? null : tiles.tiles.get(quadkey);
+  }
+
+  synchronized Tiles getTiles(String spaceId, long version) {
+    final Tiles tiles = spaces.get(spaceId);
+    if (tiles == null) {
+      return null;
+    }
+    final long now = System.currentTimeMillis();
+    if (now - tiles.accessedAt > expiration) {
+      removeTiles(spaceId);
+      return null;
+    }
+    tiles.accessedAt = now;
+    return tiles.version == version ? tiles : null;
+  }
+
+  synchronized void putTiles(String spaceId, long version, Map<String, byte[]> tiles) {
+    removeTiles(spaceId);
+    final Tiles entry = new Tiles(version, tiles);
+    if (entry.bytes > maxBytes) {
+      return;
+    }
+    spaces.put(spaceId, entry);
+    bytes += entry.bytes;
+
+    // Removes the least recently used spaces
+    final Iterator<Tiles> eldest = spaces.values().iterator();
+    while (bytes > maxBytes) {
+      bytes -= eldest.next().bytes;
+      eldest.remove();
+    }
+  }
+
+  synchronized void removeTiles(String spaceId) {
+    final Tiles tiles = spaces.remove(spaceId);
+    if (tiles != null) {
+      bytes -= tiles.bytes;
+    }
+  }
+
+  /**
+   * Returns the total size of the stored tiles in bytes.
+   */
+  synchronized long bytes() {
+    return bytes;
+  }
+
+  static class Tiles {
+
+    final long version;
+    final Map<String, byte[]> tiles;
+    final long bytes;
+    long accessedAt = System.currentTimeMillis();
+
+    Tiles(long version, Map<String, byte[]> tiles) {
+      this.version = version;
+      this.tiles = tiles;
+      long bytes = 0;
+      for (byte[] tile : tiles.values()) {
+        bytes += tile.length;
+      }
+      this.bytes = bytes;
+    }
+  }
+}
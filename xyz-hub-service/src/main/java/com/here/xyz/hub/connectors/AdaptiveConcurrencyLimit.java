@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.connectors;
+
+/**
+ * An adaptive limit for the number of concurrent calls to a remote function (AIMD). The limit grows by one per round trip, as long as
+ * the calls are completed in time and the limit is actually used. It shrinks multiplicatively, when a call fails or the short-term
+ * latency rises clearly above the long-term latency, which is the sign of a remote function starting to queue requests internally.
+ *
+ * <p>The limit is decreased at most once per round trip, so that all the calls, which were already in flight when the remote function
+ * slowed down, account for one decrease only.</p>
+ */
+public class AdaptiveConcurrencyLimit {
+
+  /**
+   * The factor, which is applied to the limit on a decrease.
+   */
+  static final double BACKOFF_RATIO = 0.9d;
+
+  /**
+   * The factor by which the short-term latency may exceed the long-term latency, before the limit is decreased.
+   */
+  static final double LATENCY_TOLERANCE = 2d;
+
+  private static final double SHORT_RTT_RELEVANCE = 0.1d;
+  private static final double LONG_RTT_RELEVANCE = 0.01d;
+
+  private double limit;
+  private double shortRtt;
+  private double longRtt;
+  private boolean decreased;
+  private long lastDecrease;
+
+  /**
+   * @param initialLimit the limit, before any call was measured.
+   */
+  public AdaptiveConcurrencyLimit(int initialLimit) {
+    this.limit = initialLimit;
+  }
+
+  /**
+   * Returns the current limit, which is always between the given bounds.
+   *
+   * @param minLimit the lower bound of the limit, which is at least 1.
+   * @param maxLimit the upper bound of the limit.
+   */
+  public synchronized int getLimit(int minLimit, int maxLimit) {
+    return (int) Math.max(Math.max(1, minLimit), Math.min(maxLimit, limit));
+  }
+
+  /**
+   * Returns the sliding average of the recent round trip times in nanoseconds or 0, if no call was measured yet.
+   */
+  public synchronized double getShortRtt() {
+    return shortRtt;
+  }
+
+  /**
+   * Updates the limit with the measurement of a completed call.
+   *
+   * @param rtt the round trip time of the call in nanoseconds.
+   * @param failed whether the call failed.
+   * @param inFlight the number of calls, which were in flight when the call completed, including the call itself.
+   * @param minLimit the lower bound of the limit.
+   * @param maxLimit the upper bound of the limit.
+   * @param now the current value of {@link System#nanoTime()}.
+   */
+  public synchronized void onSample(long rtt, boolean failed, int inFlight, int minLimit, int maxLimit, long now) {
+    if (!failed) {
+      shortRtt = shortRtt == 0 ? rtt : shortRtt * (1d - SHORT_RTT_RELEVANCE) + rtt * SHORT_RTT_RELEVANCE;
+      longRtt = longRtt == 0 ? rtt : longRtt * (1d - LONG_RTT_RELEVANCE) + rtt * LONG_RTT_RELEVANCE;
+    }
+
+    if (failed || shortRtt > longRtt * LATENCY_TOLERANCE) {
+      if (!decreased || now - lastDecrease >= shortRtt) {
+        decreased = true;
+        lastDecrease = now;
+        limit = limit * BACKOFF_RATIO;
+      }
+    }
+    else if (inFlight * 2 >= limit) {
+      limit = limit + 1d / limit;
+    }
+    limit = Math.max(Math.max(1, minLimit), Math.min(maxLimit, limit));
+  }
+}
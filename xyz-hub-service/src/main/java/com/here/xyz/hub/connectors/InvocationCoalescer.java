@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.connectors;
+
+import com.here.xyz.events.Event;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps track of the callers, which wait for the response of a pending invocation of a remote function, so that identical events, which
+ * are executed concurrently, invoke the remote function only once.
+ */
+public class InvocationCoalescer {
+
+  /**
+   * The handlers of the callers, which wait for the response of an invocation, by the coalescing key of the invoked event.
+   */
+  private final ConcurrentHashMap<String, ConcurrentLinkedQueue<Handler<AsyncResult<byte[]>>>> pendingInvocations =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Returns the key, by which an event is coalesced with other events.
+   *
+   * <p>The cache key of a task covers all properties of the event, which are part of its hash. The properties, which are excluded from
+   * the hash, but still change the response of the connector, are added here: The e-tag of the caller, which may result in a not modified
+   * response, the data source preference and for trusted connectors the tenant and application, which the connector receives.</p>
+   *
+   * @param cacheKey the cache key of the task, which executes the event
+   * @param event the event to be executed
+   * @param trusted whether the event is executed by a trusted connector
+   * @return the coalescing key or null, if the event must always be invoked
+   */
+  public static String key(String cacheKey, Event event, boolean trusted) {
+    if (cacheKey == null) {
+      return null;
+    }
+    final StringBuilder key = new StringBuilder(cacheKey)
+        .append("|ifNoneMatch=").append(event.getIfNoneMatch())
+        .append("|preferPrimaryDataSource=").append(event.getPreferPrimaryDataSource());
+    if (trusted) {
+      key.append("|tid=").append(event.getTid()).append("|aid=").append(event.getAid());
+    }
+    return key.toString();
+  }
+
+  /**
+   * Registers the handler for the response of the invocation with the given key.
+   *
+   * @return true, if there was no pending invocation for the key, so that the caller has to invoke the remote function
+   */
+  public boolean join(String key, Handler<AsyncResult<byte[]>> handler) {
+    final boolean[] isFirst = {false};
+    pendingInvocations.compute(key, (k, handlers) -> {
+      if (handlers == null) {
+        handlers = new ConcurrentLinkedQueue<>();
+        isFirst[0] = true;
+      }
+      handlers.add(handler);
+      return handlers;
+    });
+    return isFirst[0];
+  }
+
+  /**
+   * Completes the pending invocation with the given key and returns the handlers, which are waiting for its response. Callers, which
+   * join afterwards, have to invoke the remote function again.
+   */
+  public Collection<Handler<AsyncResult<byte[]>>> complete(String key) {
+    final Collection<Handler<AsyncResult<byte[]>>> handlers = pendingInvocations.remove(key);
+    return handlers == null ? Collections.emptyList() : handlers;
+  }
+}
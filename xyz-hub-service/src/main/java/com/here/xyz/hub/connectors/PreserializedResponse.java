@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.connectors;
+
+import static com.here.xyz.hub.rest.Api.HeaderValues.APPLICATION_GEO_JSON;
+
+import com.here.xyz.responses.BinaryResponse;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wraps the response bytes of a storage connector, which are already serialized as a feature collection, into a {@link BinaryResponse},
+ * so that they can be passed through to the client without being parsed and serialized again by the service.
+ *
+ * <p>Only the head and the tail of the bytes are inspected. The head tells, whether the response is a feature collection at all, the tail
+ * contains the e-tag property, which the connectors append as last property of the response.</p>
+ */
+public class PreserializedResponse {
+
+  private static final byte[] FEATURE_COLLECTION_PREFIX = "{\"type\":\"FeatureCollection\"".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] ETAG_PREFIX = ",\"etag\":\"".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] ETAG_SUFFIX = "\"}".getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * The maximal length of an e-tag, which is searched for in the tail of the response.
+   */
+  private static final int MAX_ETAG_LENGTH = 64;
+
+  /**
+   * Returns the given bytes as binary GeoJSON response, if they are a serialized feature collection.
+   *
+   * @param bytes the uncompressed response bytes of the connector.
+   * @return the binary response or null, if the bytes are not a feature collection (e.g. an error, a relocated event or a not modified
+   *     response), so that they have to be parsed.
+   */
+  public static BinaryResponse of(byte[] bytes) {
+    if (bytes == null || !startsWith(bytes, FEATURE_COLLECTION_PREFIX)) {
+      return null;
+    }
+
+    final BinaryResponse response = new BinaryResponse().withBytes(bytes).withMimeType(APPLICATION_GEO_JSON);
+    response.setEtag(etag(bytes));
+    return response;
+  }
+
+  private static String etag(byte[] bytes) {
+    final int end = bytes.length - ETAG_SUFFIX.length;
+    if (end < FEATURE_COLLECTION_PREFIX.length || !regionMatches(bytes, end, ETAG_SUFFIX)) {
+      return null;
+    }
+    for (int start = end - 1; start >= Math.max(FEATURE_COLLECTION_PREFIX.length, end - MAX_ETAG_LENGTH); start--) {
+      if (bytes[start] == '"') {
+        final int prefixStart = start + 1 - ETAG_PREFIX.length;
+        return prefixStart >= 0 && regionMatches(bytes, prefixStart, ETAG_PREFIX)
+            ? new String(bytes, start + 1, end - start - 1, StandardCharsets.UTF_8) : null;
+      }
+    }
+    return null;
+  }
+
+  private static boolean startsWith(byte[] bytes, byte[] prefix) {
+    return bytes.length >= prefix.length && regionMatches(bytes, 0, prefix);
+  }
+
+  private static boolean regionMatches(byte[] bytes, int offset, byte[] region) {
+    for (int i = 0; i < region.length; i++) {
+      if (bytes[offset + i] != region[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
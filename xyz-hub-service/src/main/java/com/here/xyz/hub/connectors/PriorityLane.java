@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.connectors;
+
+import com.here.xyz.events.DeleteFeaturesByTagEvent;
+import com.here.xyz.events.Event;
+import com.here.xyz.events.GetFeaturesByGeometryEvent;
+import com.here.xyz.events.GetFeaturesByIdEvent;
+import com.here.xyz.events.HealthCheckEvent;
+import com.here.xyz.events.LoadFeaturesEvent;
+import com.here.xyz.events.ModifyFeaturesEvent;
+import com.here.xyz.events.ModifySpaceEvent;
+import com.here.xyz.events.SpatialQueryEvent;
+import com.here.xyz.hub.connectors.models.Connector.ConnectionSettings;
+import java.util.Map;
+
+/**
+ * The priority lanes of the queue of a remote function. Calls, which have to wait for a free connection, are queued in the lane of their
+ * event. Whenever a connection becomes free, the next call is taken from the lanes in a weighted fair manner, so that latency sensitive
+ * reads keep flowing while the queue is filled with bulk writes.
+ */
+public enum PriorityLane {
+
+  /**
+   * Interactive reads of an area, e.g. tiles or bounding boxes.
+   */
+  AREA_READ(8),
+
+  /**
+   * Reads of features by their IDs.
+   */
+  ID_READ(8),
+
+  /**
+   * All other reads, e.g. searches, iterations and statistics.
+   */
+  READ(4),
+
+  /**
+   * Writes of features and modifications of spaces.
+   */
+  WRITE(2),
+
+  /**
+   * Background calls, e.g. the warm-up health checks.
+   */
+  BACKGROUND(1);
+
+  /**
+   * The share of the dequeued calls, which is taken from this lane, if not configured otherwise for the connector.
+   */
+  public final int defaultWeight;
+
+  PriorityLane(int defaultWeight) {
+    this.defaultWeight = defaultWeight;
+  }
+
+  /**
+   * Returns the lane of the given event.
+   */
+  public static PriorityLane of(Event event) {
+    if (event instanceof SpatialQueryEvent || event instanceof GetFeaturesByGeometryEvent) {
+      return AREA_READ;
+    }
+    if (event instanceof GetFeaturesByIdEvent || event instanceof LoadFeaturesEvent) {
+      return ID_READ;
+    }
+    if (event instanceof ModifyFeaturesEvent || event instanceof DeleteFeaturesByTagEvent || event instanceof ModifySpaceEvent) {
+      return WRITE;
+    }
+    if (event instanceof HealthCheckEvent) {
+      return BACKGROUND;
+    }
+    return READ;
+  }
+
+  /**
+   * Returns the weights of the lanes, which are configured in the given connection settings, in the order of the lanes.
+   */
+  public static int[] weights(ConnectionSettings connectionSettings) {
+    final Map<String, Integer> configured = connectionSettings == null ? null : connectionSettings.laneWeights;
+    final PriorityLane[] lanes = values();
+    final int[] weights = new int[lanes.length];
+    for (int i = 0; i < lanes.length; i++) {
+      final Integer weight = configured == null ? null : configured.get(lanes[i].name());
+      weights[i] = weight != null && weight > 0 ? weight : lanes[i].defaultWeight;
+    }
+    return weights;
+  }
+}
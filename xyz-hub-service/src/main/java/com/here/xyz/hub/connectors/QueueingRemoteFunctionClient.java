@@ -19,13 +19,15 @@
 
 package com.here.xyz.hub.connectors;
 
+import static io.netty.handler.codec.http.HttpResponseStatus.GATEWAY_TIMEOUT;
 import static io.netty.handler.codec.http.HttpResponseStatus.TOO_MANY_REQUESTS;
 
 import com.here.xyz.hub.Service;
 import com.here.xyz.hub.connectors.models.Connector;
 import com.here.xyz.hub.rest.HttpException;
 import com.here.xyz.hub.util.ByteSizeAware;
-import com.here.xyz.hub.util.LimitedQueue;
+import com.here.xyz.hub.util.Histogram;
+import com.here.xyz.hub.util.WeightedFairQueue;
 import com.here.xyz.hub.util.logging.Logging;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
@@ -53,6 +55,10 @@ public abstract class QueueingRemoteFunctionClient extends RemoteFunctionClient
   public static final float CONNECTION_SLOTS_RELEVANCE = 0.5f;
   public static final float REQUEST_RELEVANCE_FACTOR = 100;
   private static final int SIZE_ADJUSTMENT_INTERVAL = 3000; //3 seconds
+  /**
+   * The upper bounds of the buckets of the queue wait time histogram in milliseconds.
+   */
+  private static final long[] QUEUE_WAIT_TIME_BUCKETS = {1, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000};
   private static Set<QueueingRemoteFunctionClient> clientInstances = new HashSet<>();
   private static LongAdder globalMinConnectionSum = new LongAdder();
   private static AtomicLong lastSizeAdjustment;
@@ -66,11 +72,20 @@ public abstract class QueueingRemoteFunctionClient extends RemoteFunctionClient
    * the remote function.
    */
   private double rateOfService;
-  private LimitedQueue<FunctionCall> queue = new LimitedQueue<>(0,0);
+  private WeightedFairQueue<FunctionCall> queue = new WeightedFairQueue<>(PriorityLane.weights(connectorConfig.connectionSettings), 0, 0);
+  /**
+   * The adaptive limit of concurrent calls, which is kept between the minimum and maximum connections of the connector.
+   */
+  private final AdaptiveConcurrencyLimit connectionLimit;
+  /**
+   * The time in milliseconds, which the calls have waited in the queue before they were invoked or expired.
+   */
+  private final Histogram queueWaitTime = new Histogram(QUEUE_WAIT_TIME_BUCKETS);
 
 
   public QueueingRemoteFunctionClient(Connector connectorConfig) {
     super(connectorConfig);
+    connectionLimit = new AdaptiveConcurrencyLimit(getMaxConnections());
     recalculateRateOfService();
 
     clientInstances.add(this);
@@ -83,12 +98,7 @@ public abstract class QueueingRemoteFunctionClient extends RemoteFunctionClient
     However, this behavior will be optimized in the future.
      */
     adjustQueueByteSizes();
-    /*
-    For simplicity also here just set the value to maximum long. That means that we don't take the performance of the
-    connector into account for defining the maximum queue length. Doing so this would just be a performance- / cost-
-    optimization.
-     */
-    queue.setMaxSize(Long.MAX_VALUE);
+    adjustQueueElementCount();
   }
 
   private static boolean compareAndIncrementUpTo(int maxExpect, AtomicInteger i) {
@@ -122,6 +132,8 @@ public abstract class QueueingRemoteFunctionClient extends RemoteFunctionClient
 
   public static long getGlobalMaxConnections() { return clientInstances.stream().mapToLong(c -> c.getMaxConnections()).sum(); }
 
+  public static long getGlobalConnectionLimit() { return clientInstances.stream().mapToLong(c -> c.getConnectionLimit()).sum(); }
+
   public static long getGlobalUsedConnections() { return clientInstances.stream().mapToLong(c -> c.getUsedConnections()).sum(); }
 
   public static Set<QueueingRemoteFunctionClient> getInstances() {
@@ -129,7 +141,13 @@ public abstract class QueueingRemoteFunctionClient extends RemoteFunctionClient
   }
 
   @Override
-  protected void submit(final Marker marker, byte[] bytes, final Handler<AsyncResult<byte[]>> callback) {
+  protected void updateStorageConfig() {
+    super.updateStorageConfig();
+    queue.setWeights(PriorityLane.weights(connectorConfig.connectionSettings));
+  }
+
+  @Override
+  protected void submit(final Marker marker, byte[] bytes, PriorityLane lane, final Handler<AsyncResult<byte[]>> callback) {
     Handler<AsyncResult<byte[]>> cb = r -> {
       //This is the point where the request's response came back so measure the throughput
       invokeCompleted();
@@ -139,52 +157,77 @@ public abstract class QueueingRemoteFunctionClient extends RemoteFunctionClient
     //This is the point where new requests arrive so measure the arrival time
     invokeStarted();
 
-    if (!compareAndIncrementUpTo(getMaxConnections(), usedConnections)) {
-      enqueue(marker, bytes, cb);
+    if (!compareAndIncrementUpTo(getConnectionLimit(), usedConnections)) {
+      enqueue(marker, bytes, lane, cb);
+      //A connection could have been freed while enqueueing
+      invokeQueued();
       return;
     }
     _invoke(marker, bytes, cb);
   }
 
   private void _invoke(final Marker marker, byte[] bytes, final Handler<AsyncResult<byte[]>> callback) {
-    //long start = System.nanoTime();
+    long start = System.nanoTime();
     invoke(marker, bytes, r -> {
-      //long end = System.nanoTime();
-      //TODO: Activate performance calculation once it's implemented completely
-      //recalculatePerformance(end - start, TimeUnit.NANOSECONDS);
-      //Look into queue if there is something further to do
-      FunctionCall fc = queue.remove();
-      if (fc == null)
-        usedConnections.getAndDecrement(); //Free the connection only in case it's not needed for the next invocation
+      long end = System.nanoTime();
+      recalculatePerformance(end - start, TimeUnit.NANOSECONDS, r.failed(), end);
+      usedConnections.getAndDecrement();
       try {
         callback.handle(r);
       }
       catch (Exception e) {
         logger().error(marker, "Error while calling response handler", e);
       }
-      //In case there has been an enqueued element invoke the it
-      if (fc != null) {
-        _invoke(fc.marker, fc.bytes, fc.callback);
-      }
+      //Look into queue if there is something further to do
+      invokeQueued();
     });
   }
 
-  private void recalculatePerformance(long executionTime, TimeUnit timeUnit) {
+  /**
+   * Invokes the enqueued calls as long as there are free connections within the current connection limit.
+   */
+  private void invokeQueued() {
+    while (queue.getSize() > 0 && compareAndIncrementUpTo(getConnectionLimit(), usedConnections)) {
+      FunctionCall fc = queue.remove();
+      if (fc == null) {
+        usedConnections.getAndDecrement();
+        return;
+      }
+      long now = System.currentTimeMillis();
+      queueWaitTime.record(now - fc.enqueuedAt);
+      if (!canFinishInTime(fc, now)) {
+        usedConnections.getAndDecrement();
+        expired(fc);
+        continue;
+      }
+      _invoke(fc.marker, fc.bytes, fc.callback);
+    }
+  }
+
+  /**
+   * Returns whether the call can still be completed before its deadline, if it gets invoked now. The expected execution time is the
+   * sliding average of the recent calls.
+   */
+  private boolean canFinishInTime(FunctionCall fc, long now) {
+    return now + (long) (SARET * 1000d) <= fc.deadline;
+  }
+
+  private void recalculatePerformance(long executionTime, TimeUnit timeUnit, boolean failed, long now) {
+    connectionLimit.onSample(timeUnit.toNanos(executionTime), failed, usedConnections.get(), getMinConnections(), getMaxConnections(),
+        now);
     recalculateSARET(executionTime, timeUnit);
     recalculateRateOfService();
     adjustQueueElementCount();
   }
 
-  private void recalculateSARET(long executionTime, TimeUnit timeUnit) {
+  private synchronized void recalculateSARET(long executionTime, TimeUnit timeUnit) {
     double executionTimeSeconds = (double) (timeUnit.toMicros(executionTime)) / 1_000_000d;
-    double requestRelevance = 1 / (rateOfService * REQUEST_RELEVANCE_FACTOR);
+    double requestRelevance = Math.min(1d, 1 / (rateOfService * REQUEST_RELEVANCE_FACTOR));
     SARET = executionTimeSeconds * requestRelevance + SARET * (1d - requestRelevance);
-
-
   }
 
   public void recalculateRateOfService() {
-    rateOfService = getMaxConnections() / SARET;
+    rateOfService = getConnectionLimit() / SARET;
   }
 
   public double getRateOfService() { return rateOfService; }
@@ -193,6 +236,11 @@ public abstract class QueueingRemoteFunctionClient extends RemoteFunctionClient
 
   public int getMaxConnections() { return connectorConfig.getMaxConnectionsPerInstance(); }
 
+  /**
+   * Returns the current limit of concurrent calls, which is adapted to the latency and the errors of the remote function.
+   */
+  public int getConnectionLimit() { return connectionLimit.getLimit(getMinConnections(), getMaxConnections()); }
+
   public int getUsedConnections() { return usedConnections.intValue(); }
 
   public double getPriority() {
@@ -203,22 +251,34 @@ public abstract class QueueingRemoteFunctionClient extends RemoteFunctionClient
 
   public long getQueueSize() { return queue.getSize(); }
 
+  public long getQueueSize(PriorityLane lane) { return queue.getSize(lane.ordinal()); }
+
   public long getMaxQueueByteSize() { return queue.getMaxByteSize(); }
 
   public long getQueueByteSize() { return queue.getByteSize(); }
 
+  public Histogram getQueueWaitTime() { return queueWaitTime; }
+
   /**
    * Sets the maximum feasible element count of the queue with respect to the {@link #REQUEST_TIMEOUT} and the
-   * {@link #rateOfService} of this RemoteFunctionClient.
+   * {@link #rateOfService} of this RemoteFunctionClient. Calls, which could not be served within the timeout anyways, are discarded.
    */
   private void adjustQueueElementCount() {
-    long maxFeasibleElements = (long) Math.ceil(rateOfService * REQUEST_TIMEOUT);
-    queue.setMaxSize(maxFeasibleElements);
+    long maxFeasibleElements = (long) Math.ceil(rateOfService * REQUEST_TIMEOUT / 1000d);
+    queue.setMaxSize(maxFeasibleElements).forEach(QueueingRemoteFunctionClient::discarded);
   }
 
-  private void enqueue(final Marker marker, byte[] bytes, final Handler<AsyncResult<byte[]>> callback) {
+  private void enqueue(final Marker marker, byte[] bytes, PriorityLane lane, final Handler<AsyncResult<byte[]>> callback) {
     FunctionCall fc = new FunctionCall(marker,bytes,callback);
 
+    //Fail the calls, which can not be completed in time anymore, before they take the space of the new one. As all calls have the same
+    //timeout, those are the oldest ones at the heads of the lanes.
+    long now = System.currentTimeMillis();
+    queue.discardWhile(queuedFc -> !canFinishInTime(queuedFc, now)).forEach(expiredFc -> {
+      queueWaitTime.record(now - expiredFc.enqueuedAt);
+      expired(expiredFc);
+    });
+
     /*if (System.currentTimeMillis() > lastSizeAdjustment.get() + SIZE_ADJUSTMENT_INTERVAL
         && fc.getByteSize() + queue.getByteSize() > queue.getMaxByteSize()) {
       //Element won't fit into queue so we try to enlarge it
@@ -226,12 +286,21 @@ public abstract class QueueingRemoteFunctionClient extends RemoteFunctionClient
     }*/
 
     //In any case add the element to the queue
-    queue.add(fc)
-        .stream()
-        //Send timeout for discarded (old) calls
-        .forEach(timeoutFc ->
-            timeoutFc.callback
-                .handle(Future.failedFuture(new HttpException(TOO_MANY_REQUESTS, "Remote function is busy or cannot be invoked."))));
+    queue.add(lane.ordinal(), fc).forEach(QueueingRemoteFunctionClient::discarded);
+  }
+
+  /**
+   * Sends the timeout for a discarded (old) call.
+   */
+  private static void discarded(FunctionCall fc) {
+    fc.callback.handle(Future.failedFuture(new HttpException(TOO_MANY_REQUESTS, "Remote function is busy or cannot be invoked.")));
+  }
+
+  /**
+   * Sends the timeout for a call, which waited in the queue for too long to be completed in time.
+   */
+  private static void expired(FunctionCall fc) {
+    fc.callback.handle(Future.failedFuture(new HttpException(GATEWAY_TIMEOUT, "Remote function call expired while waiting in the queue.")));
   }
 
   public static class FunctionCall implements ByteSizeAware {
@@ -239,10 +308,21 @@ public abstract class QueueingRemoteFunctionClient extends RemoteFunctionClient
     final Marker marker;
     final byte[] bytes;
     final Handler<AsyncResult<byte[]>> callback;
+    /**
+     * The point in time in milliseconds when the call was enqueued.
+     */
+    final long enqueuedAt;
+    /**
+     * The point in time in milliseconds until which the response of the call is awaited.
+     */
+    final long deadline;
+
     public FunctionCall(Marker marker, byte[] bytes, Handler<AsyncResult<byte[]>> callback) {
       this.marker = marker;
       this.bytes = bytes;
       this.callback = callback;
+      this.enqueuedAt = System.currentTimeMillis();
+      this.deadline = enqueuedAt + REQUEST_TIMEOUT;
     }
 
     @Override
@@ -106,6 +106,15 @@ public abstract class RemoteFunctionClient {
     }
 
     protected void submit(final Marker marker, byte[] bytes, final Handler<AsyncResult<byte[]>> callback) {
+        submit(marker, bytes, PriorityLane.READ, callback);
+    }
+
+    /**
+     * Submits a call of the remote function.
+     *
+     * @param lane the priority lane, in which the call is queued, if it has to wait for a free connection.
+     */
+    protected void submit(final Marker marker, byte[] bytes, PriorityLane lane, final Handler<AsyncResult<byte[]>> callback) {
         invoke(marker, bytes, r -> {
             //This is the point where the request's response came back so measure the throughput
             invokeCompleted();
@@ -61,6 +61,7 @@ public class RpcClient implements Logging {
    */
   protected volatile Connector connector;
   private RemoteFunctionClient functionClient;
+  private final InvocationCoalescer coalescer = new InvocationCoalescer();
 
   /**
    * Creates a new connector client.
@@ -112,7 +113,7 @@ public class RpcClient implements Logging {
     return connector;
   }
 
-  private void invokeWithRelocation(final Marker marker, byte[] bytes, final Handler<AsyncResult<byte[]>> callback) {
+  private void invokeWithRelocation(final Marker marker, byte[] bytes, PriorityLane lane, final Handler<AsyncResult<byte[]>> callback) {
     try {
       if (bytes.length > connector.capabilities.maxPayloadSize) { // If the payload is too large to send directly to the connector
         // If relocation is supported, use the relocation client to transfer the event to the connector
@@ -127,7 +128,7 @@ public class RpcClient implements Logging {
           return;
         }
       }
-      functionClient.submit(marker, bytes, callback);
+      functionClient.submit(marker, bytes, lane, callback);
     } catch (Exception e) {
       callback.handle(Future.failedFuture(e));
     }
@@ -142,18 +143,49 @@ public class RpcClient implements Logging {
    */
   @SuppressWarnings("rawtypes")
   public void execute(final Marker marker, final Event event, final Handler<AsyncResult<XyzResponse>> callback) {
-    event.setConnectorParams(connector.params);
-    final String eventJson = event.serialize();
-    final byte[] bytes = eventJson.getBytes();
-    logger().info(marker, "Invoking remote function \"{}\". Total uncompressed event size: {}, Event: {}", this.storage().id, bytes.length,
-        preview(eventJson, 4092));
+    execute(marker, event, null, callback);
+  }
 
-    invokeWithRelocation(marker, bytes, bytesResult -> {
+  /**
+   * Executes an event and returns the parsed FeatureCollection response. Events with the same coalescing key, which are executed while an
+   * invocation for that key is in flight, do not invoke the remote function again, but receive the response of the pending invocation.
+   *
+   * @param marker the log marker
+   * @param event the event
+   * @param coalescingKey the key, which identifies the response of the event, or null if the event must always be invoked
+   * @param callback the callback handler
+   */
+  @SuppressWarnings("rawtypes")
+  public void execute(final Marker marker, final Event event, String coalescingKey, final Handler<AsyncResult<XyzResponse>> callback) {
+    execute(marker, event, coalescingKey, false, callback);
+  }
+
+  /**
+   * Executes an event and returns the response. If the response may be passed through, a feature collection, which was serialized by the
+   * connector, is returned as {@link com.here.xyz.responses.BinaryResponse} without being parsed. All other responses are parsed.
+   *
+   * @param marker the log marker
+   * @param event the event
+   * @param coalescingKey the key, which identifies the response of the event, or null if the event must always be invoked
+   * @param passthrough whether a serialized feature collection may be returned without being parsed
+   * @param callback the callback handler
+   * @see PreserializedResponse
+   */
+  @SuppressWarnings("rawtypes")
+  public void execute(final Marker marker, final Event event, String coalescingKey, boolean passthrough,
+      final Handler<AsyncResult<XyzResponse>> callback) {
+    final Handler<AsyncResult<byte[]>> bytesHandler = bytesResult -> {
       if (bytesResult.failed()) {
         callback.handle(Future.failedFuture(bytesResult.cause()));
         return;
       }
 
+      final XyzResponse preserialized = passthrough ? PreserializedResponse.of(bytesResult.result()) : null;
+      if (preserialized != null) {
+        callback.handle(Future.succeededFuture(preserialized));
+        return;
+      }
+
       parseResponse(marker, bytesResult.result(), r -> {
         if (r.failed()) {
           logger().error(marker, "Unable to decode the response.", r.cause());
@@ -162,7 +194,30 @@ public class RpcClient implements Logging {
         }
         callback.handle(Future.succeededFuture(r.result()));
       });
-    });
+    };
+
+    //The event is serialized before joining, so that a failing serialization does not leave a pending invocation, which is never completed
+    event.setConnectorParams(connector.params);
+    final String eventJson = event.serialize();
+    final byte[] bytes = eventJson.getBytes();
+
+    if (coalescingKey != null && !coalescer.join(coalescingKey, bytesHandler)) {
+      logger().info(marker, "Joining the pending invocation of remote function \"{}\" for key {}", this.storage().id, coalescingKey);
+      return;
+    }
+
+    logger().info(marker, "Invoking remote function \"{}\". Total uncompressed event size: {}, Event: {}", this.storage().id, bytes.length,
+        preview(eventJson, 4092));
+
+    invokeWithRelocation(marker, bytes, PriorityLane.of(event), coalescingKey == null ? bytesHandler : bytesResult ->
+        //Every waiter parses the response on its own, as the response objects are modified while the tasks are processed
+        coalescer.complete(coalescingKey).forEach(handler -> {
+          try {
+            handler.handle(bytesResult);
+          } catch (Exception e) {
+            logger().error(marker, "Error while calling response handler", e);
+          }
+        }));
   }
 
   private String preview(String eventJson, @SuppressWarnings("SameParameterValue") int previewLength) {
@@ -182,7 +237,7 @@ public class RpcClient implements Logging {
    */
   public void send(final Marker marker, @SuppressWarnings("rawtypes") final Event event) {
     event.setConnectorParams(connector.params);
-    invokeWithRelocation(marker, event.serialize().getBytes(), r -> {
+    invokeWithRelocation(marker, event.serialize().getBytes(), PriorityLane.of(event), r -> {
       if (r.failed()) {
         logger().error(marker, "Failed to send event to remote function {}.", connector.remoteFunction.id);
       }
@@ -147,6 +147,11 @@ public class Connector {
      */
     public boolean enableAutoCache;
 
+    /**
+     * Whether the connector can encode the features of a tile as Mapbox Vector Tile itself. (Only applicable for storage connectors)
+     */
+    public boolean mvtSupport;
+
     /**
      * A list of supported clustering types / algorithms. (Only applicable for storage connectors)
      */
@@ -174,13 +179,20 @@ public class Connector {
     public int maxConnections = 32;
     private int minConnections = 0;
 
+    /**
+     * The weights of the priority lanes of the queue by the name of the lane. Lanes, which are not configured, keep their default weight.
+     * See: {@link com.here.xyz.hub.connectors.PriorityLane}
+     */
+    public Map<String, Integer> laneWeights;
+
     @Override
     public boolean equals(Object o) {
       if (this == o) return true;
       if (o == null || getClass() != o.getClass()) return false;
       ConnectionSettings that = (ConnectionSettings) o;
       return minConnections == that.minConnections &&
-          maxConnections == that.maxConnections;
+          maxConnections == that.maxConnections &&
+          Objects.equals(laneWeights, that.laneWeights);
     }
 
     /**
@@ -38,7 +38,6 @@ import static io.vertx.core.http.HttpHeaders.CONTENT_TYPE;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.here.xyz.hub.XYZHubRESTVerticle;
 import com.here.xyz.hub.auth.JWTPayload;
-import com.here.xyz.hub.connectors.models.BinaryResponse;
 import com.here.xyz.hub.connectors.models.Space.CacheProfile;
 import com.here.xyz.hub.task.FeatureTask;
 import com.here.xyz.hub.task.SpaceTask;
@@ -50,8 +49,10 @@ import com.here.xyz.models.geojson.implementation.XyzError;
 import com.here.xyz.models.hub.Space.Internal;
 import com.here.xyz.models.hub.Space.Public;
 import com.here.xyz.models.hub.Space.WithConnectors;
+import com.here.xyz.responses.BinaryResponse;
 import com.here.xyz.responses.CountResponse;
 import com.here.xyz.responses.ErrorResponse;
+import com.here.xyz.responses.IterationPartitionsResponse;
 import com.here.xyz.responses.StatisticsResponse;
 import com.here.xyz.responses.XyzResponse;
 import io.netty.handler.codec.compression.ZlibWrapper;
@@ -188,6 +189,12 @@ public abstract class Api implements Logging {
           sendGeoJsonResponse(task, response.serialize());
           return;
         }
+
+        // The feature collection was serialized by the storage connector already and is passed through as it is.
+        if (response instanceof BinaryResponse && APPLICATION_GEO_JSON.equals(((BinaryResponse) response).getMimeType())) {
+          sendResponse(task, OK, APPLICATION_GEO_JSON, ((BinaryResponse) response).getBytes());
+          return;
+        }
         break;
       }
 
@@ -231,6 +238,13 @@ public abstract class Api implements Logging {
         }
         break;
 
+      case ITERATION_PARTITIONS_RESPONSE:
+        if (response instanceof IterationPartitionsResponse) {
+          sendJsonResponse(task, Json.encode(response));
+          return;
+        }
+        break;
+
       case STATISTICS_RESPONSE:
         if (response instanceof StatisticsResponse) {
           sendJsonResponse(task, Json.encode(response));
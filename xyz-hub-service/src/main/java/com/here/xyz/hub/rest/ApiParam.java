@@ -118,6 +118,7 @@ public class ApiParam {
     static final String MARGIN = "margin";
     static final String EPSG = "epsg";
     static final String HANDLE = "handle";
+    static final String PARTITIONS = "partitions";
     static final String INCLUDE_RIGHTS = "includeRights";
     static final String INCLUDE_CONNECTORS = "includeConnectors";
     static final String OWNER = "owner";
@@ -34,5 +34,6 @@ public enum ApiResponseType {
   @Deprecated
   COUNT_RESPONSE,
   HEALTHY_RESPONSE,
-  STATISTICS_RESPONSE
+  STATISTICS_RESPONSE,
+  ITERATION_PARTITIONS_RESPONSE
 }
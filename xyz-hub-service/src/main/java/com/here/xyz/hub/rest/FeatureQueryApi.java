@@ -31,6 +31,7 @@ import com.here.xyz.events.CountFeaturesEvent;
 import com.here.xyz.events.GetFeaturesByBBoxEvent;
 import com.here.xyz.events.GetFeaturesByGeometryEvent;
 import com.here.xyz.events.GetFeaturesByTileEvent;
+import com.here.xyz.events.GetIterationPartitionsEvent;
 import com.here.xyz.events.GetStatisticsEvent;
 import com.here.xyz.events.IterateFeaturesEvent;
 import com.here.xyz.events.SearchForFeaturesEvent;
@@ -42,6 +43,7 @@ import com.here.xyz.hub.task.FeatureTask.CountQuery;
 import com.here.xyz.hub.task.FeatureTask.GeometryQuery;
 import com.here.xyz.hub.task.FeatureTask.GetStatistics;
 import com.here.xyz.hub.task.FeatureTask.IterateQuery;
+import com.here.xyz.hub.task.FeatureTask.IterationPartitionsQuery;
 import com.here.xyz.hub.task.FeatureTask.SearchQuery;
 import com.here.xyz.hub.task.FeatureTask.TileQuery;
 import com.here.xyz.hub.util.geo.GeoTools;
@@ -63,9 +65,11 @@ public class FeatureQueryApi extends Api {
   /**
    * The default limit for the number of features to load from the connector.
    */
-  private final static int DEFAULT_FEATURE_LIMIT = 30_000;
+  public final static int DEFAULT_FEATURE_LIMIT = 30_000;
   private final static int MIN_LIMIT = 1;
   private final static int HARD_LIMIT = 100_000;
+  private final static int DEFAULT_PARTITIONS = 8;
+  private final static int MAX_PARTITIONS = 256;
 
   public FeatureQueryApi(OpenAPI3RouterFactory routerFactory) {
     routerFactory.addHandlerByOperationId("getFeaturesBySpatial", this::getFeaturesBySpatial);
@@ -75,6 +79,7 @@ public class FeatureQueryApi extends Api {
     routerFactory.addHandlerByOperationId("getFeaturesCount", this::getFeaturesCount);
     routerFactory.addHandlerByOperationId("getStatistics", this::getStatistics);
     routerFactory.addHandlerByOperationId("iterateFeatures", this::iterateFeatures);
+    routerFactory.addHandlerByOperationId("getIterationPartitions", this::getIterationPartitions);
     routerFactory.addHandlerByOperationId("searchForFeatures", this::searchForFeatures);
   }
 
@@ -133,6 +138,21 @@ public class FeatureQueryApi extends Api {
     }
   }
 
+  /**
+   * Splits the content of the space into partitions, which can be iterated concurrently.
+   */
+  private void getIterationPartitions(final RoutingContext context) {
+    final int partitions = Query.getInteger(context, Query.PARTITIONS, DEFAULT_PARTITIONS);
+    if (partitions < MIN_LIMIT || partitions > MAX_PARTITIONS) {
+      sendErrorResponse(context, new HttpException(BAD_REQUEST,
+          "The parameter partitions must be between " + MIN_LIMIT + " and " + MAX_PARTITIONS + "."));
+      return;
+    }
+    new IterationPartitionsQuery(new GetIterationPartitionsEvent().withPartitions(partitions), context,
+        ApiResponseType.ITERATION_PARTITIONS_RESPONSE)
+        .execute(this::sendResponse, this::sendErrorResponse);
+  }
+
   /**
    *  Retrieves the features by intersecting with the provided geometry.
    */
@@ -32,6 +32,7 @@ import com.here.xyz.events.GetFeaturesByBBoxEvent;
 import com.here.xyz.events.GetFeaturesByGeometryEvent;
 import com.here.xyz.events.GetFeaturesByIdEvent;
 import com.here.xyz.events.GetFeaturesByTileEvent;
+import com.here.xyz.events.GetIterationPartitionsEvent;
 import com.here.xyz.events.GetStatisticsEvent;
 import com.here.xyz.events.IterateFeaturesEvent;
 import com.here.xyz.events.LoadFeaturesEvent;
@@ -347,6 +348,8 @@ public abstract class FeatureTask<T extends Event, X extends FeatureTask<T, ?>>
           .then(FeatureTaskHandler::resolveSpace)
           .then(FeatureAuthorization::authorize)
           .then(FeatureTaskHandler::validate)
+          .then(FeatureTaskHandler::readTileStore)
+          .then(FeatureTaskHandler::delegateMvtEncoding)
           .then(FeatureTaskHandler::readCache)
           .then(FeatureTaskHandler::invoke)
           .then(FeatureTaskHandler::transformResponse)
@@ -441,6 +444,21 @@ public abstract class FeatureTask<T extends Event, X extends FeatureTask<T, ?>>
     }
   }
 
+  public static class IterationPartitionsQuery extends FeatureTask<GetIterationPartitionsEvent, IterationPartitionsQuery> {
+
+    public IterationPartitionsQuery(GetIterationPartitionsEvent event, RoutingContext context, ApiResponseType apiResponseTypeType) {
+      super(event, context, apiResponseTypeType, true);
+    }
+
+    @Override
+    public TaskPipeline<IterationPartitionsQuery> getPipeline() {
+      return TaskPipeline.create(this)
+          .then(FeatureTaskHandler::resolveSpace)
+          .then(FeatureAuthorization::authorize)
+          .then(FeatureTaskHandler::invoke);
+    }
+  }
+
   public static class DeleteOperation extends FeatureTask<DeleteFeaturesByTagEvent, DeleteOperation> {
 
     public DeleteOperation(DeleteFeaturesByTagEvent event, RoutingContext context, ApiResponseType apiResponseTypeType) {
@@ -19,6 +19,7 @@
 
 package com.here.xyz.hub.task;
 
+import static com.here.xyz.hub.rest.Api.HeaderValues.APPLICATION_GEO_JSON;
 import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static io.netty.handler.codec.http.HttpResponseStatus.CONFLICT;
 import static io.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
@@ -33,10 +34,12 @@ import com.here.xyz.events.CountFeaturesEvent;
 import com.here.xyz.events.Event;
 import com.here.xyz.events.EventNotification;
 import com.here.xyz.events.GetFeaturesByBBoxEvent;
+import com.here.xyz.events.GetFeaturesByTileEvent;
 import com.here.xyz.events.ModifyFeaturesEvent;
 import com.here.xyz.hub.Service;
+import com.here.xyz.hub.cache.TileStore;
+import com.here.xyz.hub.connectors.InvocationCoalescer;
 import com.here.xyz.hub.connectors.RpcClient;
-import com.here.xyz.hub.connectors.models.BinaryResponse;
 import com.here.xyz.hub.connectors.models.Connector;
 import com.here.xyz.hub.connectors.models.Space;
 import com.here.xyz.hub.connectors.models.Space.CacheProfile;
@@ -52,7 +55,7 @@ import com.here.xyz.hub.task.FeatureTask.TileQuery;
 import com.here.xyz.hub.task.ModifyOp.Entry;
 import com.here.xyz.hub.task.ModifyOp.ModifyOpError;
 import com.here.xyz.hub.task.TaskPipeline.Callback;
-import com.here.xyz.hub.util.geo.MapBoxVectorTileBuilder;
+import com.here.xyz.hub.util.geo.MapBoxVectorTileEncoder;
 import com.here.xyz.hub.util.geo.MapBoxVectorTileFlattenedBuilder;
 import com.here.xyz.hub.util.logging.Logging;
 import com.here.xyz.models.geojson.WebMercatorTile;
@@ -61,6 +64,7 @@ import com.here.xyz.models.geojson.implementation.Feature;
 import com.here.xyz.models.geojson.implementation.FeatureCollection;
 import com.here.xyz.models.geojson.implementation.Properties;
 import com.here.xyz.models.geojson.implementation.XyzNamespace;
+import com.here.xyz.responses.BinaryResponse;
 import com.here.xyz.responses.CountResponse;
 import com.here.xyz.responses.ErrorResponse;
 import com.here.xyz.responses.ModifiedEventResponse;
@@ -145,7 +149,9 @@ public class FeatureTaskHandler implements Logging {
       setAdditionalEventProps(task, task.storage, eventToExecute);
 
       try {
-        RpcClient.getInstanceFor(task.storage).execute(task.getMarker(), eventToExecute, storageResult -> {
+        final String coalescingKey = coalescingKey(task, eventToExecute);
+        final boolean passthrough = isPassthroughPossible(task, eventToExecute, eventType);
+        RpcClient.getInstanceFor(task.storage).execute(task.getMarker(), eventToExecute, coalescingKey, passthrough, storageResult -> {
           if (storageResult.failed()) {
             handleFailure(task.getMarker(), storageResult.cause(), callback);
             return;
@@ -206,7 +212,8 @@ public class FeatureTaskHandler implements Logging {
     byte[] type = new byte[1];
     if (value instanceof BinaryResponse) {
       byteValue = ((BinaryResponse) value).getBytes();
-      type[0] = BINARY_VALUE;
+      //A feature collection, which was passed through from the connector, is cached as JSON to keep its e-tag
+      type[0] = APPLICATION_GEO_JSON.equals(((BinaryResponse) value).getMimeType()) ? JSON_VALUE : BINARY_VALUE;
     }
     else {
       byteValue = value.serialize().getBytes();
@@ -315,6 +322,44 @@ public class FeatureTaskHandler implements Logging {
     }
   }
 
+  /**
+   * Returns the key, by which identical read events of concurrent tasks are coalesced into one invocation of the storage connector, or null
+   * if the event must be invoked for the task alone. Events, which were modified by a pre-processor, are always invoked.
+   *
+   * @see InvocationCoalescer#key(String, Event, boolean)
+   */
+  private static <T extends FeatureTask> String coalescingKey(T task, Event eventToExecute) {
+    if (eventToExecute != task.getEvent() || task instanceof FeatureTask.ConditionalOperation || task instanceof FeatureTask.DeleteOperation
+        || task instanceof FeatureTask.ModifySpaceQuery) {
+      return null;
+    }
+    return InvocationCoalescer.key(task.getCacheKey(), eventToExecute, task.storage.trusted);
+  }
+
+  /**
+   * Returns true, if the feature collection, which is returned by the storage connector, can be sent to the client as it was serialized by
+   * the connector. That is the case for read queries, if the connector supports pre-serialized responses and no processors or listeners
+   * are registered for the response, which would need the parsed response.
+   */
+  private static <T extends FeatureTask> boolean isPassthroughPossible(T task, Event eventToExecute, String eventType) {
+    if (!task.storage.capabilities.preserializedResponseSupport || !(task instanceof FeatureTask.ReadQuery)
+        || ApiResponseType.FEATURE_COLLECTION != task.responseType || eventToExecute != task.getEvent()) {
+      return false;
+    }
+    final String notificationEventType = eventType + ".response";
+    return !hasConnectors(task, ConnectorType.PROCESSOR, notificationEventType)
+        && !hasConnectors(task, ConnectorType.LISTENER, notificationEventType);
+  }
+
+  private static <T extends FeatureTask> boolean hasConnectors(T task, ConnectorType connectorType, String notificationEventType) {
+    return hasConnectors(task.space, connectorType, notificationEventType);
+  }
+
+  private static boolean hasConnectors(Space space, ConnectorType connectorType, String notificationEventType) {
+    Map<String, List<ResolvableListenerConnectorRef>> connectorMap = space.getEventTypeConnectorRefsMap(connectorType);
+    return connectorMap != null && connectorMap.get(notificationEventType) != null && !connectorMap.get(notificationEventType).isEmpty();
+  }
+
   static <T extends FeatureTask> void setAdditionalEventProps(T task, Connector connector, Event event) {
     event.setMetadata(task.getJwt().metadata);
     if (connector.trusted) {
@@ -800,7 +845,49 @@ public class FeatureTaskHandler implements Logging {
     }
   }
 
+  /**
+   * Answers MVT requests for pre-rendered tiles from the tile store and registers the space for pre-rendering.
+   */
+  static void readTileStore(TileQuery task, Callback<TileQuery> callback) {
+    if (TilePrerenderer.isPrerendered(task)) {
+      TilePrerenderer.register(task.space.getId());
+      final GetFeaturesByTileEvent event = task.getEvent();
+      final byte[] tile = TileStore.get(task.space.getId(), task.space.getContentUpdatedAt(),
+          WebMercatorTile.forWeb(event.getLevel(), event.getX(), event.getY()));
+      if (tile != null) {
+        task.setCacheHit(true);
+        task.setResponse(new BinaryResponse().withBytes(tile));
+      }
+    }
+    callback.call(task);
+  }
+
+  /**
+   * Requests the tile encoded as Mapbox Vector Tile from the storage connector, if the connector supports it. The flattened MVT format is
+   * always encoded by the service.
+   */
+  static void delegateMvtEncoding(TileQuery task, Callback<TileQuery> callback) {
+    if (isMvtEncodingDelegable(task.responseType, task.storage, task.space)) {
+      task.getEvent().setResponseType(GetFeaturesByTileEvent.ResponseType.MVT);
+    }
+    callback.call(task);
+  }
+
+  /**
+   * Returns true, if the MVT encoding can be done by the storage connector. That is not the case, if processors or listeners are
+   * registered for the response, because they need the feature collection instead of the encoded tile.
+   */
+  static boolean isMvtEncodingDelegable(ApiResponseType responseType, Connector storage, Space space) {
+    if (ApiResponseType.MVT != responseType || !storage.capabilities.mvtSupport) {
+      return false;
+    }
+    final String notificationEventType = GetFeaturesByTileEvent.class.getSimpleName() + ".response";
+    return !hasConnectors(space, ConnectorType.PROCESSOR, notificationEventType)
+        && !hasConnectors(space, ConnectorType.LISTENER, notificationEventType);
+  }
+
   static void transformResponse(TileQuery task, Callback<TileQuery> callback) {
+    // A binary response was already encoded by the storage connector.
     if ((ApiResponseType.MVT != task.responseType && ApiResponseType.MVT_FLATTENED != task.responseType)
         || !(task.getResponse() instanceof FeatureCollection)) {
       callback.call(task);
@@ -815,8 +902,8 @@ public class FeatureTaskHandler implements Logging {
       try {
         byte[] mvt;
         if (ApiResponseType.MVT == task.responseType) {
-          mvt = new MapBoxVectorTileBuilder()
-              .build(WebMercatorTile.forWeb(task.getEvent().getLevel(), task.getEvent().getX(), task.getEvent().getY()),
+          mvt = new MapBoxVectorTileEncoder()
+              .encode(WebMercatorTile.forWeb(task.getEvent().getLevel(), task.getEvent().getX(), task.getEvent().getY()),
                   task.getEvent().getMargin(), task.space.getId(), ((FeatureCollection) task.getResponse()).getFeatures());
         } else {
           mvt = new MapBoxVectorTileFlattenedBuilder()
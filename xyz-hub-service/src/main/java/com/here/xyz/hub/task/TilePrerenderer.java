@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.task;
+
+import com.here.xyz.events.GetFeaturesByTileEvent;
+import com.here.xyz.events.GetFeaturesByTileEvent.ResponseType;
+import com.here.xyz.hub.Service;
+import com.here.xyz.hub.cache.TileStore;
+import com.here.xyz.hub.connectors.RpcClient;
+import com.here.xyz.hub.connectors.models.Connector;
+import com.here.xyz.hub.connectors.models.Space;
+import com.here.xyz.hub.rest.ApiResponseType;
+import com.here.xyz.hub.rest.FeatureQueryApi;
+import com.here.xyz.hub.task.FeatureTask.TileQuery;
+import com.here.xyz.hub.util.geo.MapBoxVectorTileEncoder;
+import com.here.xyz.hub.util.logging.Logging;
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.geojson.implementation.FeatureCollection;
+import com.here.xyz.responses.BinaryResponse;
+import com.here.xyz.responses.XyzResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * The background thread that pre-renders the MVT tiles of the lower levels for spaces, which have pre-rendering enabled, and stores them in
+ * the {@link TileStore}. The tiles of a space are rendered once its content settled, the more volatile a space is, the longer the pre-renderer
+ * waits after the last content update.
+ *
+ * <p>Only spaces, which received tile requests recently, are pre-rendered. Tile requests for pre-rendered levels without any additional
+ * query parameters are then answered from the tile store.</p>
+ */
+public class TilePrerenderer extends Thread implements Logging {
+
+  public static final String name = TilePrerenderer.class.getSimpleName();
+
+  /**
+   * The maximum level, which is pre-rendered. Level 6 consists of 4096 tiles.
+   */
+  public static final int MAX_LEVEL = 6;
+
+  private static final long CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+  private static final long MIN_SETTLE_TIME = 2 * Space.CONTENT_UPDATED_AT_INTERVAL_MILLIS;
+  private static final long MAX_VOLATILITY_PENALTY = TimeUnit.HOURS.toMillis(6);
+  private static final long SPACE_EXPIRATION = TimeUnit.DAYS.toMillis(1);
+
+  private static TilePrerenderer instance;
+
+  /**
+   * The spaces with pre-rendering enabled and the time of their last tile request.
+   */
+  private static final Map<String, Long> spaces = new ConcurrentHashMap<>();
+
+  /**
+   * The spaces, which are currently pre-rendered.
+   */
+  private static final Set<String> rendering = ConcurrentHashMap.newKeySet();
+
+  private TilePrerenderer() {
+    super(name);
+    if (instance != null) {
+      throw new IllegalStateException("Singleton tile pre-renderer thread has already been instantiated.");
+    }
+    TilePrerenderer.instance = this;
+    this.setDaemon(true);
+    this.start();
+    logger().info("Starting thread {}", name);
+  }
+
+  public static void initialize() {
+    if (instance == null) {
+      instance = new TilePrerenderer();
+    }
+  }
+
+  /**
+   * Returns true, if the tile of the query is pre-rendered for its space. This is only the case for MVT requests of pre-rendered levels,
+   * which use the default parameters.
+   */
+  static boolean isPrerendered(TileQuery task) {
+    return isPrerendered(task.getEvent(), task.space, task.responseType, task.skipCache);
+  }
+
+  static boolean isPrerendered(GetFeaturesByTileEvent event, com.here.xyz.models.hub.Space space, ApiResponseType responseType,
+      boolean skipCache) {
+    return responseType == ApiResponseType.MVT
+        && !skipCache
+        && space.getPrerenderTilesMaxLevel() != null
+        && event.getLevel() <= Math.min(space.getPrerenderTilesMaxLevel(), MAX_LEVEL)
+        && (space.getProcessors() == null || space.getProcessors().isEmpty())
+        && WebMercatorTile.forWeb(event.getLevel(), event.getX(), event.getY()).asQuadkey().equals(event.getQuadkey())
+        && event.getClip()
+        && event.getMargin() == 0
+        && event.getClusteringType() == null
+        && event.getSimplificationLevel() < 0
+        && event.getLimit() == FeatureQueryApi.DEFAULT_FEATURE_LIMIT
+        && (event.getTags() == null || event.getTags().isEmpty())
+        && (event.getPropertiesQuery() == null || event.getPropertiesQuery().isEmpty())
+        && event.getSelection() == null;
+  }
+
+  /**
+   * Registers a space for pre-rendering.
+   */
+  static void register(String spaceId) {
+    spaces.put(spaceId, System.currentTimeMillis());
+  }
+
+  private void onSpace(Marker marker, String spaceId, Space space) {
+    if (space == null || space.getPrerenderTilesMaxLevel() == null || space.getPrerenderTilesMaxLevel() < 0) {
+      spaces.remove(spaceId);
+      TileStore.remove(spaceId);
+      return;
+    }
+
+    final long version = space.getContentUpdatedAt();
+    if (TileStore.contains(spaceId, version) || !isSettled(space) || !rendering.add(spaceId)) {
+      return;
+    }
+
+    Space.resolveConnector(marker, space.getStorage().getId(), arStorage -> {
+      if (arStorage.failed()) {
+        rendering.remove(spaceId);
+        return;
+      }
+      final List<WebMercatorTile> tiles = new ArrayList<>();
+      for (int level = 0; level <= Math.min(space.getPrerenderTilesMaxLevel(), MAX_LEVEL); level++) {
+        for (int x = 0; x < 1 << level; x++) {
+          for (int y = 0; y < 1 << level; y++) {
+            tiles.add(WebMercatorTile.forWeb(level, x, y));
+          }
+        }
+      }
+      logger().info(marker, "Pre-rendering {} tiles of space {} for content version {}", tiles.size(), spaceId, version);
+      render(marker, space, arStorage.result(), version, tiles, new HashMap<>());
+    });
+  }
+
+  /**
+   * Returns true, if the content of the space was not updated for a time, which depends on the volatility of the space.
+   */
+  private static boolean isSettled(Space space) {
+    final double volatility = space.getVolatility();
+    final long settleTime = MIN_SETTLE_TIME + (long) (volatility * volatility * MAX_VOLATILITY_PENALTY);
+    return System.currentTimeMillis() - space.getContentUpdatedAt() >= settleTime;
+  }
+
+  /**
+   * Renders the remaining tiles one after another and stores all tiles, once the last one was rendered.
+   */
+  private void render(Marker marker, Space space, Connector storage, long version, List<WebMercatorTile> tiles,
+      Map<String, byte[]> rendered) {
+    if (rendered.size() == tiles.size()) {
+      TileStore.put(space.getId(), version, rendered);
+      rendering.remove(space.getId());
+      logger().info(marker, "Pre-rendered {} tiles of space {} for content version {}", rendered.size(), space.getId(), version);
+      return;
+    }
+
+    final WebMercatorTile tile = tiles.get(rendered.size());
+    final GetFeaturesByTileEvent event = new GetFeaturesByTileEvent()
+        .withClip(true)
+        .withMargin(0)
+        .withSimplificationLevel(-1)
+        .withLimit(FeatureQueryApi.DEFAULT_FEATURE_LIMIT);
+    event.setBbox(tile.getExtendedBBox(0));
+    event.setLevel(tile.level);
+    event.setX(tile.x);
+    event.setY(tile.y);
+    event.setQuadkey(tile.asQuadkey());
+    event.setSpace(space.getId());
+    event.setParams(space.getStorage().getParams());
+    event.setStreamId(marker.getName());
+    if (storage.capabilities.mvtSupport) {
+      event.setResponseType(ResponseType.MVT);
+    }
+
+    try {
+      RpcClient.getInstanceFor(storage).execute(marker, event, ar -> {
+        final byte[] bytes = ar.succeeded() ? toMvt(space, tile, ar.result()) : null;
+        if (bytes == null) {
+          logger().info(marker, "Pre-rendering of space {} failed for tile {}", space.getId(), tile.asQuadkey(), ar.cause());
+          rendering.remove(space.getId());
+          return;
+        }
+        rendered.put(tile.asQuadkey(), bytes);
+        render(marker, space, storage, version, tiles, rendered);
+      });
+    } catch (Exception e) {
+      logger().error(marker, "Unable to pre-render the tiles of space {}", space.getId(), e);
+      rendering.remove(space.getId());
+    }
+  }
+
+  private static byte[] toMvt(Space space, WebMercatorTile tile, XyzResponse response) {
+    if (response instanceof BinaryResponse) {
+      return ((BinaryResponse) response).getBytes();
+    }
+    if (response instanceof FeatureCollection) {
+      try {
+        return new MapBoxVectorTileEncoder().encode(tile, 0, space.getId(), ((FeatureCollection) response).getFeatures());
+      } catch (Exception e) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void run() {
+    // Stay alive as long as the service is alive.
+    while (true) {
+      try {
+        Thread.sleep(CHECK_INTERVAL);
+
+        final long expired = System.currentTimeMillis() - SPACE_EXPIRATION;
+        for (Map.Entry<String, Long> entry : spaces.entrySet()) {
+          final String spaceId = entry.getKey();
+          if (entry.getValue() < expired) {
+            spaces.remove(spaceId);
+            TileStore.remove(spaceId);
+            continue;
+          }
+          if (rendering.contains(spaceId)) {
+            continue;
+          }
+          final Marker marker = MarkerFactory.getMarker(UUID.randomUUID().toString());
+          Service.spaceConfigClient.get(marker, spaceId, ar -> {
+            if (ar.succeeded()) {
+              onSpace(marker, spaceId, ar.result());
+            }
+          });
+        }
+      } catch (InterruptedException e) {
+        // We expect that this may happen and ignore it.
+      } catch (Exception e) {
+        logger().error("Unexpected error in tile pre-renderer background thread", e);
+      }
+    }
+  }
+}
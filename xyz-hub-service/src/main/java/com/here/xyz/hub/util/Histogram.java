@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram with fixed buckets, which can be updated concurrently. Every bucket counts the values, which are less than or equal to its
+ * upper bound and greater than the upper bound of the previous bucket. An additional bucket counts the values above the largest bound.
+ */
+public class Histogram {
+
+  private final long[] upperBounds;
+  private final LongAdder[] counts;
+  private final LongAdder sum = new LongAdder();
+
+  /**
+   * @param upperBounds the upper bounds of the buckets in ascending order.
+   */
+  public Histogram(long... upperBounds) {
+    for (int i = 1; i < upperBounds.length; i++) {
+      if (upperBounds[i] <= upperBounds[i - 1]) {
+        throw new IllegalArgumentException("The upper bounds of the buckets must be in ascending order.");
+      }
+    }
+    this.upperBounds = upperBounds.clone();
+    this.counts = new LongAdder[upperBounds.length + 1];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = new LongAdder();
+    }
+  }
+
+  public void record(long value) {
+    int bucket = Arrays.binarySearch(upperBounds, value);
+    counts[bucket < 0 ? -bucket - 1 : bucket].increment();
+    sum.add(value);
+  }
+
+  /**
+   * Returns the number of values in the bucket with the given index.
+   */
+  public long getCount(int bucket) {
+    return counts[bucket].sum();
+  }
+
+  /**
+   * Returns the number of all recorded values.
+   */
+  public long getCount() {
+    return Arrays.stream(counts).mapToLong(LongAdder::sum).sum();
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  /**
+   * Returns the counts of the buckets by their upper bound, the bucket above the largest bound has the key "+Inf".
+   */
+  public Map<String, Long> toMap() {
+    Map<String, Long> map = new LinkedHashMap<>();
+    for (int i = 0; i < upperBounds.length; i++) {
+      map.put(String.valueOf(upperBounds[i]), counts[i].sum());
+    }
+    map.put("+Inf", counts[upperBounds.length].sum());
+    return map;
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A queue with multiple lanes and limits on the number of elements and their size. Elements are removed from the lanes by smooth
+ * weighted round-robin: of every sequence of removals, each non-empty lane gets a share according to its weight, and removals from the
+ * same lane are spread evenly. Within a lane the elements are removed in the order they were added.
+ *
+ * <p>When the limits are exceeded, the oldest elements across all lanes are discarded.</p>
+ */
+public class WeightedFairQueue<E extends ByteSizeAware> implements ByteSizeAware {
+
+  private final ArrayDeque<Entry<E>>[] lanes;
+  private final int[] weights;
+  private final long[] currentWeights;
+  private long sequence;
+  private long size;
+  private long byteSize;
+  private long maxSize;
+  private long maxByteSize;
+
+  @SuppressWarnings("unchecked")
+  public WeightedFairQueue(int[] weights, long maxSize, long maxByteSize) {
+    this.lanes = new ArrayDeque[weights.length];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = new ArrayDeque<>();
+    }
+    this.weights = new int[weights.length];
+    this.currentWeights = new long[weights.length];
+    setWeights(weights);
+    this.maxSize = maxSize;
+    this.maxByteSize = maxByteSize;
+  }
+
+  /**
+   * Sets the weights of the lanes.
+   *
+   * @param weights the positive weights in the order of the lanes.
+   */
+  public synchronized void setWeights(int[] weights) {
+    if (weights.length != lanes.length) throw new IllegalArgumentException("A weight must be provided for each of the lanes.");
+    for (int i = 0; i < weights.length; i++) {
+      if (weights[i] <= 0) throw new IllegalArgumentException("The weights of the lanes must be positive.");
+      this.weights[i] = weights[i];
+    }
+  }
+
+  /**
+   * Adds an element to the given lane and optionally returns the elements, which had to be discarded to accommodate the new one.
+   *
+   * @return The elements, which had to be discarded to accommodate the new one.
+   */
+  public synchronized List<E> add(int lane, E element) {
+    // If the maximum queue size is not large enough to fit the element, then the new element needs to be discarded.
+    if (element.getByteSize() > maxByteSize) {
+      return Collections.singletonList(element);
+    }
+
+    lanes[lane].add(new Entry<>(sequence++, element));
+    size++;
+    byteSize += element.getByteSize();
+
+    return discard();
+  }
+
+  /**
+   * Removes the next element according to the weights of the lanes and returns it.
+   *
+   * @return The next element or null if the queue is empty
+   */
+  public synchronized E remove() {
+    int next = -1;
+    long totalWeight = 0;
+    for (int i = 0; i < lanes.length; i++) {
+      if (lanes[i].isEmpty()) {
+        // An empty lane does not save up a share for later
+        currentWeights[i] = 0;
+        continue;
+      }
+      currentWeights[i] += weights[i];
+      totalWeight += weights[i];
+      if (next == -1 || currentWeights[i] > currentWeights[next]) {
+        next = i;
+      }
+    }
+    if (next == -1) {
+      return null;
+    }
+    currentWeights[next] -= totalWeight;
+    return removeFrom(next);
+  }
+
+  /**
+   * Removes the elements from the heads of the lanes as long as they match the given predicate and returns them.
+   *
+   * @return The removed elements.
+   */
+  public synchronized List<E> discardWhile(Predicate<? super E> predicate) {
+    List<E> discardedElements = new ArrayList<>();
+    for (int i = 0; i < lanes.length; i++) {
+      while (!lanes[i].isEmpty() && predicate.test(lanes[i].peek().element)) {
+        discardedElements.add(removeFrom(i));
+      }
+    }
+    return discardedElements;
+  }
+
+  private E removeFrom(int lane) {
+    E removed = lanes[lane].poll().element;
+    size--;
+    byteSize -= removed.getByteSize();
+    return removed;
+  }
+
+  private List<E> discard() {
+    List<E> discardedElements = new ArrayList<>();
+
+    // Check if the oldest elements need to be discarded to make space for the new one.
+    while (byteSize > maxByteSize || size > maxSize) {
+      int oldest = -1;
+      for (int i = 0; i < lanes.length; i++) {
+        if (!lanes[i].isEmpty() && (oldest == -1 || lanes[i].peek().sequence < lanes[oldest].peek().sequence)) {
+          oldest = i;
+        }
+      }
+      discardedElements.add(removeFrom(oldest));
+    }
+
+    return discardedElements;
+  }
+
+  public synchronized List<E> setMaxByteSize(long byteSize) {
+    if (byteSize < 0) throw new IllegalArgumentException("The maximum byte size of a queue can not be negative.");
+    maxByteSize = byteSize;
+    return discard();
+  }
+
+  public synchronized long getMaxByteSize() {
+    return maxByteSize;
+  }
+
+  public synchronized List<E> setMaxSize(long size) {
+    if (size < 0) throw new IllegalArgumentException("The maximum size of a queue can not be negative.");
+    maxSize = size;
+    return discard();
+  }
+
+  public synchronized long getMaxSize() {
+    return maxSize;
+  }
+
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the number of elements in the given lane.
+   */
+  public synchronized long getSize(int lane) {
+    return lanes[lane].size();
+  }
+
+  @Override
+  public synchronized long getByteSize() {
+    return byteSize;
+  }
+
+  private static class Entry<E> {
+
+    final long sequence;
+    final E element;
+
+    Entry(long sequence, E element) {
+      this.sequence = sequence;
+      this.element = element;
+    }
+  }
+}
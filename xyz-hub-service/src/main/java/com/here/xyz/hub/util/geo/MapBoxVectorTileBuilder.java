@@ -49,7 +49,11 @@ import org.opengis.referencing.operation.TransformException;
 
 /**
  * A helper class to build a pixel based MapBox Vector Tiles.
+ *
+ * @deprecated Replaced by the {@link MapBoxVectorTileEncoder}, which encodes multi geometries as a single feature instead of one feature
+ *     per member. This class is only kept as the baseline of the encoder benchmark.
  */
+@Deprecated
 public class MapBoxVectorTileBuilder implements IUserDataConverter, IGeometryFilter {
 
   private Feature feature;
@@ -0,0 +1,939 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.util.geo;
+
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.geojson.coordinates.LineStringCoordinates;
+import com.here.xyz.models.geojson.coordinates.LinearRingCoordinates;
+import com.here.xyz.models.geojson.coordinates.PointCoordinates;
+import com.here.xyz.models.geojson.coordinates.PolygonCoordinates;
+import com.here.xyz.models.geojson.coordinates.Position;
+import com.here.xyz.models.geojson.implementation.Feature;
+import com.here.xyz.models.geojson.implementation.Geometry;
+import com.here.xyz.models.geojson.implementation.GeometryCollection;
+import com.here.xyz.models.geojson.implementation.GeometryItem;
+import com.here.xyz.models.geojson.implementation.LineString;
+import com.here.xyz.models.geojson.implementation.MultiLineString;
+import com.here.xyz.models.geojson.implementation.MultiPoint;
+import com.here.xyz.models.geojson.implementation.MultiPolygon;
+import com.here.xyz.models.geojson.implementation.Point;
+import com.here.xyz.models.geojson.implementation.Polygon;
+import com.vividsolutions.jts.geom.Coordinate;
+import io.vertx.core.json.Json;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A MapBox Vector Tile encoder, which works directly on the GeoJSON coordinates. It produces the same layer as the {@link
+ * MapBoxVectorTileBuilder}, but projects the coordinates with the closed-form Web Mercator formulas into the tile, clips them against the
+ * clip rectangle and writes the protocol buffer messages without intermediate objects.
+ *
+ * <p>The validity of polygons is checked on the encoded rings in tile coordinates. Only if that cheap check fails, the polygon is
+ * converted into a JTS geometry and, if it is not valid, repaired by {@link GeoTools#validate}. The repaired polygons are then encoded
+ * like all other polygons.</p>
+ *
+ * <p>Unlike the {@link MapBoxVectorTileBuilder}, which splits multi geometries into one feature per member, a multi geometry is encoded as
+ * a single feature with multiple parts, as recommended by the MVT specification.</p>
+ *
+ * <p>An encoder keeps its buffers between the features of a tile and must not be used concurrently.</p>
+ */
+public class MapBoxVectorTileEncoder {
+
+  /**
+   * The extent of the tile in tile coordinates.
+   */
+  public static final int EXTENT = 4096;
+
+  private static final double MAX_LATITUDE = 85.05112878;
+
+  private static final int GEOM_TYPE_POINT = 1;
+  private static final int GEOM_TYPE_LINESTRING = 2;
+  private static final int GEOM_TYPE_POLYGON = 3;
+
+  private static final int CMD_MOVE_TO = 1;
+  private static final int CMD_LINE_TO = 2;
+  private static final int CMD_CLOSE_PATH = 7;
+
+  private static final int WIRE_VARINT = 0;
+  private static final int WIRE_FIXED64 = 1;
+  private static final int WIRE_LENGTH_DELIMITED = 2;
+  private static final int WIRE_FIXED32 = 5;
+
+  private final ProtobufWriter layer = new ProtobufWriter(4096);
+  private final Map<String, Integer> keys = new LinkedHashMap<>();
+  private final Map<Object, Integer> values = new LinkedHashMap<>();
+
+  private int[] tags = new int[32];
+  private int tagsLength;
+  private int[] geometry = new int[256];
+  private int geometryLength;
+  private int cursorX;
+  private int cursorY;
+
+  // The projected coordinates of the current ring and the buffers of the clipper
+  private double[] xs = new double[256];
+  private double[] ys = new double[256];
+  private double[] clipXs = new double[256];
+  private double[] clipYs = new double[256];
+  private int[] ringXs = new int[256];
+  private int[] ringYs = new int[256];
+
+  // The decoded vertices, the rings and the sorted segments of the polygon validity check
+  private int[] vertexXs = new int[256];
+  private int[] vertexYs = new int[256];
+  private int[] nextVertex = new int[256];
+  private int[] ringStarts = new int[16];
+  private long[] segments = new long[256];
+
+  private double scale;
+  private double offsetX;
+  private double offsetY;
+  private double clipMin;
+  private double clipMax;
+
+  /**
+   * Create a new tile with only one layer that contains the given features.
+   */
+  public byte[] encode(WebMercatorTile wmTile, int margin, String layerName, List<Feature> featureList) {
+    reset(wmTile, margin);
+    layer.writeString(1, layerName);
+
+    if (featureList != null) {
+      for (int f = 0; f < featureList.size(); f++) {
+        final Feature feature = featureList.get(f);
+        if (feature == null || feature.getGeometry() == null) {
+          continue;
+        }
+        tagsLength = 0;
+        addProperty("", "id", feature.getId());
+        if (feature.getProperties() != null) {
+          addProperties(feature.getProperties().asMap());
+        }
+        addGeometry(feature.getGeometry());
+      }
+    }
+
+    for (String key : keys.keySet()) {
+      layer.writeString(3, key);
+    }
+    for (Object value : values.keySet()) {
+      writeValue(value);
+    }
+    layer.writeTag(5, WIRE_VARINT);
+    layer.writeVarint(EXTENT);
+    layer.writeTag(15, WIRE_VARINT);
+    layer.writeVarint(2);
+
+    final ProtobufWriter tile = new ProtobufWriter(layer.size() + 8);
+    tile.writeTag(3, WIRE_LENGTH_DELIMITED);
+    tile.writeVarint(layer.size());
+    tile.writeBytes(layer.buffer, 0, layer.size());
+    return tile.toByteArray();
+  }
+
+  private void reset(WebMercatorTile wmTile, int margin) {
+    layer.reset();
+    keys.clear();
+    values.clear();
+
+    scale = (double) EXTENT * (1L << wmTile.level);
+    offsetX = (double) wmTile.x * EXTENT;
+    offsetY = (double) wmTile.y * EXTENT;
+
+    // Like the MapBoxVectorTileBuilder, the clip envelope is extended by margin * level meters.
+    final double buffer = (double) margin * wmTile.level * EXTENT / (wmTile.right - wmTile.left);
+    clipMin = -buffer;
+    clipMax = EXTENT + buffer;
+  }
+
+  private void addGeometry(Geometry geometry) {
+    if (geometry instanceof Point) {
+      beginGeometry();
+      addPoints(null, ((Point) geometry).getCoordinates());
+      writeFeature(GEOM_TYPE_POINT);
+    } else if (geometry instanceof MultiPoint) {
+      beginGeometry();
+      addPoints(((MultiPoint) geometry).getCoordinates(), null);
+      writeFeature(GEOM_TYPE_POINT);
+    } else if (geometry instanceof LineString) {
+      beginGeometry();
+      addLine(((LineString) geometry).getCoordinates());
+      writeFeature(GEOM_TYPE_LINESTRING);
+    } else if (geometry instanceof MultiLineString) {
+      beginGeometry();
+      for (LineStringCoordinates line : ((MultiLineString) geometry).getCoordinates()) {
+        addLine(line);
+      }
+      writeFeature(GEOM_TYPE_LINESTRING);
+    } else if (geometry instanceof Polygon || geometry instanceof MultiPolygon) {
+      beginGeometry();
+      if (geometry instanceof Polygon) {
+        addPolygon(((Polygon) geometry).getCoordinates());
+      } else {
+        for (PolygonCoordinates polygon : ((MultiPolygon) geometry).getCoordinates()) {
+          addPolygon(polygon);
+        }
+      }
+      if (!isValidPolygon() && !geometry.getJTSGeometry().isValid()) {
+        beginGeometry();
+        addRepairedPolygons(GeoTools.validate(geometry.getJTSGeometry()));
+      }
+      writeFeature(GEOM_TYPE_POLYGON);
+    } else if (geometry instanceof GeometryCollection) {
+      // The geometries of a collection may have different types, therefore each one is encoded as own feature.
+      final List<GeometryItem> geometries = ((GeometryCollection) geometry).getGeometries();
+      if (geometries != null) {
+        for (GeometryItem member : geometries) {
+          if (member != null) {
+            addGeometry(member);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds the points, which are inside of the clip rectangle, with a single MoveTo command.
+   */
+  private void addPoints(List<PointCoordinates> points, Position point) {
+    final int header = geometryLength;
+    appendGeometry(0);
+    int count = 0;
+    final int size = points != null ? points.size() : 1;
+    for (int i = 0; i < size; i++) {
+      final Position p = points != null ? points.get(i) : point;
+      if (p == null || p.size() < 2) {
+        continue;
+      }
+      final double x = projectX(p.get(0));
+      final double y = projectY(p.get(1));
+      if (x < clipMin || x > clipMax || y < clipMin || y > clipMax) {
+        continue;
+      }
+      appendPoint((int) Math.round(x), (int) Math.round(y));
+      count++;
+    }
+    if (count == 0) {
+      geometryLength = header;
+    } else {
+      geometry[header] = command(CMD_MOVE_TO, count);
+    }
+  }
+
+  /**
+   * Adds the parts of the line, which are inside of the clip rectangle. Each segment is clipped with the Liang-Barsky algorithm.
+   */
+  private void addLine(List<Position> line) {
+    if (line == null || project(line) < 2) {
+      return;
+    }
+    final int n = line.size();
+    int part = -1;
+    for (int i = 1; i < n; i++) {
+      final double x0 = xs[i - 1], y0 = ys[i - 1], dx = xs[i] - x0, dy = ys[i] - y0;
+      double t0 = 0, t1 = 1;
+      // The four borders as p * t <= q: left (-dx, x0 - clipMin), right (dx, clipMax - x0), bottom (-dy, ...) and top (dy, ...)
+      for (int k = 0; k < 4 && t0 <= t1; k++) {
+        final double p = k == 0 ? -dx : k == 1 ? dx : k == 2 ? -dy : dy;
+        final double q = k == 0 ? x0 - clipMin : k == 1 ? clipMax - x0 : k == 2 ? y0 - clipMin : clipMax - y0;
+        if (p == 0) {
+          if (q < 0) {
+            t0 = 1;
+            t1 = 0;
+          }
+        } else if (p < 0) {
+          t0 = Math.max(t0, q / p);
+        } else {
+          t1 = Math.min(t1, q / p);
+        }
+      }
+      if (t0 > t1) {
+        part = endLinePart(part);
+        continue;
+      }
+      if (part < 0 || t0 > 0) {
+        part = endLinePart(part);
+        part = beginLinePart((int) Math.round(x0 + t0 * dx), (int) Math.round(y0 + t0 * dy));
+      }
+      final int x = (int) Math.round(x0 + t1 * dx), y = (int) Math.round(y0 + t1 * dy);
+      if (x != cursorX || y != cursorY) {
+        appendPoint(x, y);
+        geometry[part + 3] += 1 << 3;
+      }
+      if (t1 < 1) {
+        part = endLinePart(part);
+      }
+    }
+    endLinePart(part);
+  }
+
+  /**
+   * Starts a part of a line with a MoveTo command and an empty LineTo command.
+   *
+   * @return the index of the part in the geometry.
+   */
+  private int beginLinePart(int x, int y) {
+    final int part = geometryLength;
+    appendGeometry(command(CMD_MOVE_TO, 1));
+    appendPoint(x, y);
+    appendGeometry(command(CMD_LINE_TO, 0));
+    return part;
+  }
+
+  /**
+   * Removes the part again, if no point was added after the first one.
+   *
+   * @return -1
+   */
+  private int endLinePart(int part) {
+    if (part >= 0 && geometry[part + 3] == command(CMD_LINE_TO, 0)) {
+      cursorX -= zigZagDecode(geometry[part + 1]);
+      cursorY -= zigZagDecode(geometry[part + 2]);
+      geometryLength = part;
+    }
+    return -1;
+  }
+
+  private void addPolygon(PolygonCoordinates polygon) {
+    if (polygon == null) {
+      return;
+    }
+    for (int r = 0; r < polygon.size(); r++) {
+      final LinearRingCoordinates ring = polygon.get(r);
+      if (ring == null) {
+        continue;
+      }
+      project(ring);
+      if (!addRing(ring.size(), r == 0) && r == 0) {
+        // The exterior ring is outside of the tile or degenerated, so are the holes.
+        return;
+      }
+    }
+  }
+
+  private void addRepairedPolygons(com.vividsolutions.jts.geom.Geometry repaired) {
+    if (repaired == null) {
+      return;
+    }
+    for (int g = 0; g < repaired.getNumGeometries(); g++) {
+      if (!(repaired.getGeometryN(g) instanceof com.vividsolutions.jts.geom.Polygon)) {
+        continue;
+      }
+      final com.vividsolutions.jts.geom.Polygon polygon = (com.vividsolutions.jts.geom.Polygon) repaired.getGeometryN(g);
+      project(polygon.getExteriorRing().getCoordinates());
+      if (!addRing(polygon.getExteriorRing().getNumPoints(), true)) {
+        continue;
+      }
+      for (int r = 0; r < polygon.getNumInteriorRing(); r++) {
+        project(polygon.getInteriorRingN(r).getCoordinates());
+        addRing(polygon.getInteriorRingN(r).getNumPoints(), false);
+      }
+    }
+  }
+
+  /**
+   * Clips the projected ring with the Sutherland-Hodgman algorithm, quantizes it and adds it in the winding order required for exterior
+   * rings or holes.
+   *
+   * @param n the number of projected coordinates.
+   * @param exterior true, if the ring is an exterior ring.
+   * @return true, if the ring was added; false, if it is outside of the tile or degenerated.
+   */
+  private boolean addRing(int n, boolean exterior) {
+    n = clip(n, 0, clipMin, false);
+    n = clip(n, 0, clipMax, true);
+    n = clip(n, 1, clipMin, false);
+    n = clip(n, 1, clipMax, true);
+
+    int m = 0;
+    for (int i = 0; i < n; i++) {
+      final int x = (int) Math.round(xs[i]), y = (int) Math.round(ys[i]);
+      if (m == 0 || x != ringXs[m - 1] || y != ringYs[m - 1]) {
+        ringXs[m] = x;
+        ringYs[m] = y;
+        m++;
+      }
+    }
+    while (m > 1 && ringXs[m - 1] == ringXs[0] && ringYs[m - 1] == ringYs[0]) {
+      m--;
+    }
+    if (m < 3) {
+      return false;
+    }
+
+    long area = 0;
+    for (int i = 0, j = m - 1; i < m; j = i++) {
+      area += (long) ringXs[j] * ringYs[i] - (long) ringXs[i] * ringYs[j];
+    }
+    if (area == 0) {
+      return false;
+    }
+
+    // The exterior ring has a positive area in tile coordinates, holes have a negative area.
+    final boolean reverse = exterior != area > 0;
+    appendGeometry(command(CMD_MOVE_TO, 1));
+    appendPoint(ringXs[reverse ? m - 1 : 0], ringYs[reverse ? m - 1 : 0]);
+    appendGeometry(command(CMD_LINE_TO, m - 1));
+    for (int i = 1; i < m; i++) {
+      final int k = reverse ? m - 1 - i : i;
+      appendPoint(ringXs[k], ringYs[k]);
+    }
+    appendGeometry(command(CMD_CLOSE_PATH, 1));
+    return true;
+  }
+
+  /**
+   * Checks cheaply, whether the rings of the current geometry form valid polygons in tile coordinates: No ring touches or crosses itself
+   * or another ring, every hole lies in its exterior ring and outside of the other holes and no polygon lies within another one. Segments,
+   * which overlap on the clip border, are created by the clipping and are accepted.
+   *
+   * <p>The check is conservative. If it fails, the polygon might still be valid, e.g. when it touches itself in a single point.</p>
+   */
+  private boolean isValidPolygon() {
+    // Decode the rings into absolute tile coordinates, the exterior rings are written with a positive area.
+    int n = 0, rings = 0, x = 0, y = 0;
+    for (int i = 0; i < geometryLength; ) {
+      final int command = geometry[i] & 0x7, count = geometry[i] >>> 3;
+      i++;
+      if (command == CMD_CLOSE_PATH) {
+        nextVertex[n - 1] = ringStarts[rings - 1];
+        continue;
+      }
+      if (command == CMD_MOVE_TO) {
+        if (rings + 1 >= ringStarts.length) {
+          ringStarts = Arrays.copyOf(ringStarts, ringStarts.length * 2);
+        }
+        ringStarts[rings++] = n;
+      }
+      ensureVertexCapacity(n + count);
+      for (int c = 0; c < count; c++) {
+        x += zigZagDecode(geometry[i++]);
+        y += zigZagDecode(geometry[i++]);
+        vertexXs[n] = x;
+        vertexYs[n] = y;
+        nextVertex[n] = n + 1;
+        n++;
+      }
+    }
+    ringStarts[rings] = n;
+
+    // Sweep the segments ordered by their minimal x coordinate and test the ones with overlapping x ranges for intersections.
+    for (int s = 0; s < n; s++) {
+      segments[s] = ((long) Math.min(vertexXs[s], vertexXs[nextVertex[s]]) << 32) | s;
+    }
+    Arrays.sort(segments, 0, n);
+    for (int a = 0; a < n; a++) {
+      final int s = (int) segments[a];
+      final int maxX = Math.max(vertexXs[s], vertexXs[nextVertex[s]]);
+      for (int b = a + 1; b < n && (segments[b] >> 32) <= maxX; b++) {
+        if (intersects(s, (int) segments[b])) {
+          return false;
+        }
+      }
+    }
+
+    // Without intersections a ring lies either completely within or outside of another ring, so testing one vertex is sufficient.
+    int exterior = -1;
+    for (int r = 0; r < rings; r++) {
+      final int start = ringStarts[r];
+      if (ringArea(r) > 0) {
+        exterior = r;
+        for (int other = 0; other < rings; other++) {
+          if (other != r && ringArea(other) > 0 && insidePolygon(vertexXs[start], vertexYs[start], other, rings)) {
+            return false;
+          }
+        }
+      } else {
+        if (exterior < 0 || !insideRing(vertexXs[start], vertexYs[start], exterior)) {
+          return false;
+        }
+        for (int hole = exterior + 1; hole < rings && ringArea(hole) < 0; hole++) {
+          if (hole != r && insideRing(vertexXs[start], vertexYs[start], hole)) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns true, if the segments, which start at the vertices s and t, touch or cross each other.
+   */
+  private boolean intersects(int s, int t) {
+    final int ax = vertexXs[s], ay = vertexYs[s], bx = vertexXs[nextVertex[s]], by = vertexYs[nextVertex[s]];
+    final int cx = vertexXs[t], cy = vertexYs[t], dx = vertexXs[nextVertex[t]], dy = vertexYs[nextVertex[t]];
+    if (Math.max(ay, by) < Math.min(cy, dy) || Math.max(cy, dy) < Math.min(ay, by)) {
+      return false;
+    }
+    final long d1 = orientation(cx, cy, dx, dy, ax, ay), d2 = orientation(cx, cy, dx, dy, bx, by);
+    final long d3 = orientation(ax, ay, bx, by, cx, cy), d4 = orientation(ax, ay, bx, by, dx, dy);
+
+    if (nextVertex[s] == t || nextVertex[t] == s) {
+      // Consecutive segments share a vertex, they are only invalid, if they overlap (a spike).
+      if (d3 != 0 || d4 != 0) {
+        return false;
+      }
+      final int sharedX = nextVertex[s] == t ? cx : ax, sharedY = nextVertex[s] == t ? cy : ay;
+      final int px = nextVertex[s] == t ? ax : bx, py = nextVertex[s] == t ? ay : by;
+      final int qx = nextVertex[s] == t ? dx : cx, qy = nextVertex[s] == t ? dy : cy;
+      return (long) (px - sharedX) * (qx - sharedX) + (long) (py - sharedY) * (qy - sharedY) > 0 && !onClipBorder(s, t);
+    }
+
+    if ((d1 > 0 && d2 < 0 || d1 < 0 && d2 > 0) && (d3 > 0 && d4 < 0 || d3 < 0 && d4 > 0)) {
+      return true;
+    }
+    final boolean touches = d1 == 0 && onSegment(cx, cy, dx, dy, ax, ay) || d2 == 0 && onSegment(cx, cy, dx, dy, bx, by)
+        || d3 == 0 && onSegment(ax, ay, bx, by, cx, cy) || d4 == 0 && onSegment(ax, ay, bx, by, dx, dy);
+    return touches && !onClipBorder(s, t);
+  }
+
+  private static long orientation(int ax, int ay, int bx, int by, int px, int py) {
+    final long o = (long) (bx - ax) * (py - ay) - (long) (by - ay) * (px - ax);
+    return Long.signum(o);
+  }
+
+  /**
+   * Returns true, if the point, which is collinear with the segment, lies on it.
+   */
+  private static boolean onSegment(int ax, int ay, int bx, int by, int px, int py) {
+    return Math.min(ax, bx) <= px && px <= Math.max(ax, bx) && Math.min(ay, by) <= py && py <= Math.max(ay, by);
+  }
+
+  /**
+   * Returns true, if both segments lie on the same border of the clip rectangle.
+   */
+  private boolean onClipBorder(int s, int t) {
+    final long min = Math.round(clipMin), max = Math.round(clipMax);
+    final int as = vertexXs[s], bs = vertexXs[nextVertex[s]], at = vertexXs[t], bt = vertexXs[nextVertex[t]];
+    final int ays = vertexYs[s], bys = vertexYs[nextVertex[s]], ayt = vertexYs[t], byt = vertexYs[nextVertex[t]];
+    for (long border : new long[]{min, max}) {
+      if (as == border && bs == border && at == border && bt == border
+          || ays == border && bys == border && ayt == border && byt == border) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns true, if the point lies within the polygon, whose exterior ring is the given ring, but outside of its holes.
+   */
+  private boolean insidePolygon(int x, int y, int exterior, int rings) {
+    if (!insideRing(x, y, exterior)) {
+      return false;
+    }
+    for (int hole = exterior + 1; hole < rings && ringArea(hole) < 0; hole++) {
+      if (insideRing(x, y, hole)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns true, if the point lies within the ring, using the even-odd rule.
+   */
+  private boolean insideRing(int x, int y, int ring) {
+    boolean inside = false;
+    for (int i = ringStarts[ring]; i < ringStarts[ring + 1]; i++) {
+      final int xi = vertexXs[i], yi = vertexYs[i], xj = vertexXs[nextVertex[i]], yj = vertexYs[nextVertex[i]];
+      if ((yi > y) != (yj > y) && x < (double) (xj - xi) * (y - yi) / (yj - yi) + xi) {
+        inside = !inside;
+      }
+    }
+    return inside;
+  }
+
+  /**
+   * Returns the doubled signed area of the ring.
+   */
+  private long ringArea(int ring) {
+    long area = 0;
+    for (int i = ringStarts[ring]; i < ringStarts[ring + 1]; i++) {
+      area += (long) vertexXs[i] * vertexYs[nextVertex[i]] - (long) vertexXs[nextVertex[i]] * vertexYs[i];
+    }
+    return area;
+  }
+
+  private void ensureVertexCapacity(int n) {
+    if (vertexXs.length < n) {
+      vertexXs = Arrays.copyOf(vertexXs, n * 2);
+      vertexYs = Arrays.copyOf(vertexYs, n * 2);
+      nextVertex = Arrays.copyOf(nextVertex, n * 2);
+      segments = new long[n * 2];
+    }
+  }
+
+  /**
+   * Clips the ring in xs / ys against one border of the clip rectangle.
+   *
+   * @param n the number of coordinates.
+   * @param axis 0 for x, 1 for y.
+   * @param border the coordinate of the border.
+   * @param max true, if the coordinates must be less or equal to the border, false if they must be greater or equal.
+   * @return the number of coordinates of the clipped ring.
+   */
+  private int clip(int n, int axis, double border, boolean max) {
+    if (n == 0) {
+      return 0;
+    }
+    ensureClipCapacity(2 * n);
+    int m = 0;
+    for (int i = 0; i < n; i++) {
+      final int j = i == 0 ? n - 1 : i - 1;
+      final double ci = axis == 0 ? xs[i] : ys[i], cj = axis == 0 ? xs[j] : ys[j];
+      final boolean inI = max ? ci <= border : ci >= border, inJ = max ? cj <= border : cj >= border;
+      if (inI != inJ) {
+        final double t = (border - cj) / (ci - cj);
+        clipXs[m] = axis == 0 ? border : xs[j] + t * (xs[i] - xs[j]);
+        clipYs[m] = axis == 1 ? border : ys[j] + t * (ys[i] - ys[j]);
+        m++;
+      }
+      if (inI) {
+        clipXs[m] = xs[i];
+        clipYs[m] = ys[i];
+        m++;
+      }
+    }
+    double[] swap = xs;
+    xs = clipXs;
+    clipXs = swap;
+    swap = ys;
+    ys = clipYs;
+    clipYs = swap;
+    return m;
+  }
+
+  /**
+   * Projects the positions into the tile coordinates.
+   *
+   * @return the number of projected positions.
+   */
+  private int project(List<Position> positions) {
+    final int n = positions.size();
+    ensureCoordinateCapacity(n);
+    for (int i = 0; i < n; i++) {
+      xs[i] = projectX(positions.get(i).get(0));
+      ys[i] = projectY(positions.get(i).get(1));
+    }
+    return n;
+  }
+
+  private void project(Coordinate[] coordinates) {
+    ensureCoordinateCapacity(coordinates.length);
+    for (int i = 0; i < coordinates.length; i++) {
+      xs[i] = projectX(coordinates[i].x);
+      ys[i] = projectY(coordinates[i].y);
+    }
+  }
+
+  private double projectX(double longitude) {
+    return (longitude + 180d) / 360d * scale - offsetX;
+  }
+
+  private double projectY(double latitude) {
+    final double sinLatitude = Math.sin(Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude))));
+    return (0.5d - Math.log((1d + sinLatitude) / (1d - sinLatitude)) / (4d * Math.PI)) * scale - offsetY;
+  }
+
+  private void beginGeometry() {
+    geometryLength = 0;
+    cursorX = 0;
+    cursorY = 0;
+  }
+
+  private void appendPoint(int x, int y) {
+    appendGeometry(zigZagEncode(x - cursorX));
+    appendGeometry(zigZagEncode(y - cursorY));
+    cursorX = x;
+    cursorY = y;
+  }
+
+  private void appendGeometry(int value) {
+    if (geometryLength == geometry.length) {
+      final int[] grown = new int[geometry.length * 2];
+      System.arraycopy(geometry, 0, grown, 0, geometryLength);
+      geometry = grown;
+    }
+    geometry[geometryLength++] = value;
+  }
+
+  private void ensureCoordinateCapacity(int n) {
+    if (xs.length < n) {
+      xs = new double[n * 2];
+      ys = new double[n * 2];
+    }
+    ensureClipCapacity(n);
+  }
+
+  private void ensureClipCapacity(int n) {
+    if (clipXs.length < n) {
+      final double[] grownXs = new double[n * 2], grownYs = new double[n * 2];
+      System.arraycopy(xs, 0, grownXs, 0, xs.length);
+      System.arraycopy(ys, 0, grownYs, 0, ys.length);
+      xs = grownXs;
+      ys = grownYs;
+      clipXs = new double[n * 2];
+      clipYs = new double[n * 2];
+    }
+    if (ringXs.length < n) {
+      ringXs = new int[n * 2];
+      ringYs = new int[n * 2];
+    }
+  }
+
+  /**
+   * Writes the feature with the current tags and geometry, unless the geometry is empty.
+   */
+  private void writeFeature(int type) {
+    if (geometryLength == 0) {
+      return;
+    }
+    int tagsSize = 0;
+    for (int i = 0; i < tagsLength; i++) {
+      tagsSize += ProtobufWriter.varintSize(tags[i]);
+    }
+    int geometrySize = 0;
+    for (int i = 0; i < geometryLength; i++) {
+      geometrySize += ProtobufWriter.varintSize(geometry[i] & 0xFFFFFFFFL);
+    }
+    final int size = (tagsLength > 0 ? 1 + ProtobufWriter.varintSize(tagsSize) + tagsSize : 0) + 2
+        + 1 + ProtobufWriter.varintSize(geometrySize) + geometrySize;
+
+    layer.writeTag(2, WIRE_LENGTH_DELIMITED);
+    layer.writeVarint(size);
+    if (tagsLength > 0) {
+      layer.writeTag(2, WIRE_LENGTH_DELIMITED);
+      layer.writeVarint(tagsSize);
+      for (int i = 0; i < tagsLength; i++) {
+        layer.writeVarint(tags[i]);
+      }
+    }
+    layer.writeTag(3, WIRE_VARINT);
+    layer.writeVarint(type);
+    layer.writeTag(4, WIRE_LENGTH_DELIMITED);
+    layer.writeVarint(geometrySize);
+    for (int i = 0; i < geometryLength; i++) {
+      layer.writeVarint(geometry[i] & 0xFFFFFFFFL);
+    }
+  }
+
+  private void writeValue(Object value) {
+    final ProtobufWriter writer = layer;
+    writer.writeTag(4, WIRE_LENGTH_DELIMITED);
+    if (value instanceof String) {
+      final byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+      writer.writeVarint(1 + ProtobufWriter.varintSize(bytes.length) + bytes.length);
+      writer.writeTag(1, WIRE_LENGTH_DELIMITED);
+      writer.writeVarint(bytes.length);
+      writer.writeBytes(bytes, 0, bytes.length);
+    } else if (value instanceof Float) {
+      writer.writeVarint(5);
+      writer.writeTag(2, WIRE_FIXED32);
+      writer.writeFixed32(Float.floatToIntBits((Float) value));
+    } else if (value instanceof Double) {
+      writer.writeVarint(9);
+      writer.writeTag(3, WIRE_FIXED64);
+      writer.writeFixed64(Double.doubleToLongBits((Double) value));
+    } else {
+      final long l = ((Number) value).longValue();
+      final long zigZag = (l << 1) ^ (l >> 63);
+      writer.writeVarint(1 + ProtobufWriter.varintSize(zigZag));
+      writer.writeTag(6, WIRE_VARINT);
+      writer.writeVarint(zigZag);
+    }
+  }
+
+  private void addProperties(Map<String, Object> map) {
+    for (Map.Entry<String, Object> entry : map.entrySet()) {
+      final String key = entry.getKey();
+      // Like in the MapBoxVectorTileBuilder the root properties named geometry and type are ignored.
+      if ("geometry".equals(key) || "type".equals(key)) {
+        continue;
+      }
+      final Object raw = entry.getValue();
+      if (raw instanceof Map || raw instanceof List) {
+        addProperty("", key, Json.encode(raw));
+      } else if (raw != null) {
+        addProperty("", key, raw);
+      }
+    }
+  }
+
+  private void addProperty(String prefix, String key, Object raw) {
+    final Object value;
+    if (raw instanceof Boolean) {
+      value = (Boolean) raw ? 1 : 0;
+    } else if (raw instanceof String || raw instanceof Integer || raw instanceof Long || raw instanceof Float || raw instanceof Double) {
+      value = raw;
+    } else if (raw instanceof Number) {
+      value = numberValue((Number) raw);
+    } else {
+      return;
+    }
+    if (key.indexOf('.') >= 0 || key.indexOf('~') >= 0) {
+      key = key.replace("~", "~~").replace(".", "~");
+    }
+    if (prefix.length() > 0) {
+      key = prefix + "." + key;
+    }
+    if (tagsLength + 2 > tags.length) {
+      final int[] grown = new int[tags.length * 2];
+      System.arraycopy(tags, 0, grown, 0, tagsLength);
+      tags = grown;
+    }
+    tags[tagsLength++] = index(keys, key);
+    tags[tagsLength++] = index(values, value);
+  }
+
+  /**
+   * Converts a number, which is not natively supported by the value encoding, into a long, if it is integral and in range, otherwise
+   * into a double.
+   */
+  private static Number numberValue(Number number) {
+    if (number instanceof Short || number instanceof Byte) {
+      return number.longValue();
+    }
+    if (number instanceof BigInteger) {
+      final BigInteger bigInteger = (BigInteger) number;
+      return bigInteger.bitLength() < 64 ? (Number) bigInteger.longValue() : (Number) bigInteger.doubleValue();
+    }
+    if (number instanceof BigDecimal) {
+      try {
+        return ((BigDecimal) number).longValueExact();
+      } catch (ArithmeticException e) {
+        // The value has a fractional part or is out of the long range.
+        return number.doubleValue();
+      }
+    }
+    return number.doubleValue();
+  }
+
+  private static <K> int index(Map<K, Integer> map, K key) {
+    final Integer index = map.get(key);
+    if (index != null) {
+      return index;
+    }
+    map.put(key, map.size());
+    return map.size() - 1;
+  }
+
+  private static int command(int id, int count) {
+    return (id & 0x7) | (count << 3);
+  }
+
+  private static int zigZagEncode(int n) {
+    return (n << 1) ^ (n >> 31);
+  }
+
+  private static int zigZagDecode(int n) {
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  /**
+   * A minimal writer of the protocol buffer wire format into a growing byte array.
+   */
+  static class ProtobufWriter {
+
+    private byte[] buffer;
+    private int size;
+
+    ProtobufWriter(int capacity) {
+      buffer = new byte[Math.max(16, capacity)];
+    }
+
+    void reset() {
+      size = 0;
+    }
+
+    int size() {
+      return size;
+    }
+
+    byte[] toByteArray() {
+      final byte[] bytes = new byte[size];
+      System.arraycopy(buffer, 0, bytes, 0, size);
+      return bytes;
+    }
+
+    void writeTag(int field, int wireType) {
+      writeVarint((field << 3) | wireType);
+    }
+
+    void writeVarint(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[size++] = (byte) value;
+    }
+
+    void writeFixed32(int value) {
+      ensureCapacity(4);
+      for (int i = 0; i < 4; i++) {
+        buffer[size++] = (byte) (value >>> (8 * i));
+      }
+    }
+
+    void writeFixed64(long value) {
+      ensureCapacity(8);
+      for (int i = 0; i < 8; i++) {
+        buffer[size++] = (byte) (value >>> (8 * i));
+      }
+    }
+
+    void writeBytes(byte[] bytes, int offset, int length) {
+      ensureCapacity(length);
+      System.arraycopy(bytes, offset, buffer, size, length);
+      size += length;
+    }
+
+    void writeString(int field, String value) {
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeTag(field, WIRE_LENGTH_DELIMITED);
+      writeVarint(bytes.length);
+      writeBytes(bytes, 0, bytes.length);
+    }
+
+    static int varintSize(long value) {
+      int size = 1;
+      while ((value & ~0x7FL) != 0) {
+        value >>>= 7;
+        size++;
+      }
+      return size;
+    }
+
+    private void ensureCapacity(int length) {
+      if (size + length > buffer.length) {
+        final byte[] grown = new byte[Math.max(buffer.length * 2, size + length)];
+        System.arraycopy(buffer, 0, grown, 0, size);
+        buffer = grown;
+      }
+    }
+  }
+}
@@ -22,6 +22,7 @@ package com.here.xyz.hub.util.health.checks;
 import static com.here.xyz.hub.util.health.schema.Status.Result.ERROR;
 import static com.here.xyz.hub.util.health.schema.Status.Result.OK;
 
+import com.here.xyz.hub.connectors.PriorityLane;
 import com.here.xyz.hub.connectors.QueueingRemoteFunctionClient;
 import com.here.xyz.hub.connectors.models.Connector.RemoteFunctionConfig;
 import com.here.xyz.hub.connectors.models.Connector.RemoteFunctionConfig.AWSLambda;
@@ -52,6 +53,7 @@ public class RemoteFunctionHealthChecks extends ExecutableCheck {
       r.setAdditionalProperty("globalArrivalRate", QueueingRemoteFunctionClient.getGlobalArrivalRate());
       r.setAdditionalProperty("globalThroughput", QueueingRemoteFunctionClient.getGlobalThroughput());
       r.setAdditionalProperty("globalMaxConnections", QueueingRemoteFunctionClient.getGlobalMaxConnections());
+      r.setAdditionalProperty("globalConnectionLimit", QueueingRemoteFunctionClient.getGlobalConnectionLimit());
       r.setAdditionalProperty("globalUsedConnections", QueueingRemoteFunctionClient.getGlobalUsedConnections());
       r.setAdditionalProperty("connectors", rfcData);
       setResponse(r);
@@ -77,10 +79,17 @@ public class RemoteFunctionHealthChecks extends ExecutableCheck {
       }
       d.put("maxQueueSize", rfc.getMaxQueueSize());
       d.put("queueSize", rfc.getQueueSize());
+      Map<String, Long> laneSizes = new HashMap<>();
+      for (PriorityLane lane : PriorityLane.values()) {
+        laneSizes.put(lane.name(), rfc.getQueueSize(lane));
+      }
+      d.put("laneQueueSizes", laneSizes);
       d.put("maxQueueByteSize", rfc.getMaxQueueByteSize());
       d.put("queueByteSize", rfc.getQueueByteSize());
+      d.put("queueWaitTime", rfc.getQueueWaitTime().toMap());
       d.put("minConnections", rfc.getMinConnections());
       d.put("maxConnections", rfc.getMaxConnections());
+      d.put("connectionLimit", rfc.getConnectionLimit());
       d.put("usedConnections", rfc.getUsedConnections());
       d.put("rateOfService", rfc.getRateOfService());
       d.put("arrivalRate", rfc.getArrivalRate());
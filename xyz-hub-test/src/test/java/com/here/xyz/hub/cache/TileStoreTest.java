@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class TileStoreTest {
+
+  private static final long EXPIRATION = TimeUnit.DAYS.toMillis(7);
+
+  @Test
+  public void getTile() {
+    TileStore store = new TileStore(1024, EXPIRATION);
+    store.putTiles("space", 1, tiles(10, "0", "1"));
+
+    assertArrayEquals(new byte[10], store.getTile("space", 1, "0"));
+    assertNull(store.getTile("space", 1, "2"));
+    assertNull(store.getTile("other", 1, "0"));
+    assertEquals(20, store.bytes());
+  }
+
+  @Test
+  public void versionInvalidation() {
+    TileStore store = new TileStore(1024, EXPIRATION);
+    store.putTiles("space", 1, tiles(10, "0"));
+
+    // A content change of the space invalidates its tiles
+    assertNull(store.getTile("space", 2, "0"));
+    assertNull(store.getTiles("space", 2));
+    assertNotNull(store.getTiles("space", 1));
+
+    // The tiles of the new version replace the old ones
+    store.putTiles("space", 2, tiles(30, "0"));
+    assertNull(store.getTile("space", 1, "0"));
+    assertEquals(30, store.getTile("space", 2, "0").length);
+    assertEquals(30, store.bytes());
+  }
+
+  @Test
+  public void boundedByBytes() {
+    TileStore store = new TileStore(100, EXPIRATION);
+    store.putTiles("a", 1, tiles(20, "0", "1"));
+    store.putTiles("b", 1, tiles(20, "0", "1"));
+    // Accessing the tiles of space a makes space b the least recently used one
+    assertNotNull(store.getTiles("a", 1));
+
+    store.putTiles("c", 1, tiles(20, "0", "1"));
+    assertNull(store.getTiles("b", 1));
+    assertNotNull(store.getTiles("a", 1));
+    assertNotNull(store.getTiles("c", 1));
+    assertEquals(80, store.bytes());
+
+    // Tiles, which exceed the store on their own, are not stored
+    store.putTiles("d", 1, tiles(101, "0"));
+    assertNull(store.getTiles("d", 1));
+    assertEquals(80, store.bytes());
+  }
+
+  @Test
+  public void expiration() {
+    TileStore store = new TileStore(1024, -1);
+    store.putTiles("space", 1, tiles(10, "0"));
+    assertNull(store.getTiles("space", 1));
+    assertEquals(0, store.bytes());
+  }
+
+  @Test
+  public void removeTiles() {
+    TileStore store = new TileStore(1024, EXPIRATION);
+    store.putTiles("space", 1, tiles(10, "0"));
+    store.removeTiles("space");
+    store.removeTiles("unknown");
+    assertFalse(store.getTiles("space", 1) != null);
+    assertEquals(0, store.bytes());
+    store.putTiles("empty", 1, Collections.emptyMap());
+    assertNotNull(store.getTiles("empty", 1));
+  }
+
+  private static Map<String, byte[]> tiles(int size, String... quadkeys) {
+    Map<String, byte[]> tiles = new HashMap<>();
+    for (String quadkey : quadkeys) {
+      tiles.put(quadkey, new byte[size]);
+    }
+    return tiles;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.connectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimitTest {
+
+  private static final long RTT = TimeUnit.MILLISECONDS.toNanos(100);
+
+  @Test
+  public void increaseWhenUsed() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10);
+    long now = 0;
+    for (int i = 0; i < 100; i++) {
+      limit.onSample(RTT, false, 10, 1, 100, now += RTT);
+    }
+    assertTrue("The limit must grow, when it is used.", limit.getLimit(1, 100) > 10);
+  }
+
+  @Test
+  public void keepWhenNotUsed() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10);
+    long now = 0;
+    for (int i = 0; i < 100; i++) {
+      limit.onSample(RTT, false, 2, 1, 100, now += RTT);
+    }
+    assertEquals("The limit must not grow, when it is not used.", 10, limit.getLimit(1, 100));
+  }
+
+  @Test
+  public void decreaseOnFailures() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100);
+    long now = 0;
+    for (int i = 0; i < 10; i++) {
+      limit.onSample(RTT, true, 100, 1, 100, now += RTT);
+    }
+    assertEquals(34, limit.getLimit(1, 100));
+  }
+
+  @Test
+  public void decreaseOncePerRoundTrip() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100);
+    limit.onSample(RTT, false, 100, 1, 100, 0);
+    for (int i = 0; i < 50; i++) {
+      limit.onSample(RTT, true, 100, 1, 100, 1 + i);
+    }
+    assertEquals("Failures within one round trip must decrease the limit only once.", 90, limit.getLimit(1, 100));
+  }
+
+  @Test
+  public void decreaseOnLatency() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100);
+    long now = 0;
+    for (int i = 0; i < 100; i++) {
+      limit.onSample(RTT, false, 100, 1, 100, now += RTT);
+    }
+    for (int i = 0; i < 100; i++) {
+      limit.onSample(10 * RTT, false, 100, 1, 100, now += 10 * RTT);
+    }
+    assertTrue("The limit must shrink, when the latency rises.", limit.getLimit(1, 100) < 50);
+  }
+
+  @Test
+  public void respectBounds() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10);
+    long now = 0;
+    for (int i = 0; i < 100; i++) {
+      limit.onSample(RTT, true, 10, 4, 100, now += RTT);
+    }
+    assertEquals(4, limit.getLimit(4, 100));
+    assertEquals(1, new AdaptiveConcurrencyLimit(0).getLimit(0, 100));
+    assertEquals(2, new AdaptiveConcurrencyLimit(10).getLimit(1, 2));
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.connectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.events.GetFeaturesByIdEvent;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class InvocationCoalescerTest {
+
+  private static final String CACHE_KEY = "3f2a";
+
+  @Test
+  public void coalesceIdenticalEvents() {
+    InvocationCoalescer coalescer = new InvocationCoalescer();
+    List<byte[]> responses = new ArrayList<>();
+    String key = InvocationCoalescer.key(CACHE_KEY, new GetFeaturesByIdEvent(), false);
+
+    assertTrue("The first caller must invoke the remote function.", coalescer.join(key, collect(responses)));
+    assertFalse("The second caller must join the pending invocation.", coalescer.join(key, collect(responses)));
+
+    byte[] response = bytes("{\"type\":\"FeatureCollection\",\"features\":[]}");
+    coalescer.complete(key).forEach(handler -> handler.handle(Future.succeededFuture(response)));
+    assertEquals(2, responses.size());
+    assertArrayEquals(response, responses.get(1));
+
+    assertTrue("A caller after the completion must invoke the remote function again.", coalescer.join(key, collect(responses)));
+  }
+
+  @Test
+  public void doNotCoalesceDifferentIfNoneMatch() {
+    InvocationCoalescer coalescer = new InvocationCoalescer();
+    List<byte[]> withEtag = new ArrayList<>();
+    List<byte[]> withoutEtag = new ArrayList<>();
+    String keyWithEtag = InvocationCoalescer.key(CACHE_KEY, new GetFeaturesByIdEvent().withIfNoneMatch("a1b2"), false);
+    String keyWithoutEtag = InvocationCoalescer.key(CACHE_KEY, new GetFeaturesByIdEvent(), false);
+    assertNotEquals(keyWithEtag, keyWithoutEtag);
+
+    // Both concurrent callers invoke the remote function, so the caller without an e-tag does not receive a not modified response.
+    assertTrue(coalescer.join(keyWithEtag, collect(withEtag)));
+    assertTrue(coalescer.join(keyWithoutEtag, collect(withoutEtag)));
+
+    coalescer.complete(keyWithEtag).forEach(handler -> handler.handle(Future.succeededFuture(bytes("{\"type\":\"NotModifiedResponse\"}"))));
+    assertEquals(1, withEtag.size());
+    assertTrue(withoutEtag.isEmpty());
+  }
+
+  @Test
+  public void doNotCoalesceDifferentTenantsOfTrustedConnectors() {
+    GetFeaturesByIdEvent event1 = new GetFeaturesByIdEvent();
+    event1.setTid("tenant1");
+    GetFeaturesByIdEvent event2 = new GetFeaturesByIdEvent();
+    event2.setTid("tenant2");
+
+    assertEquals(InvocationCoalescer.key(CACHE_KEY, event1, false), InvocationCoalescer.key(CACHE_KEY, event2, false));
+    assertNotEquals(InvocationCoalescer.key(CACHE_KEY, event1, true), InvocationCoalescer.key(CACHE_KEY, event2, true));
+  }
+
+  @Test
+  public void noKeyWithoutCacheKey() {
+    assertNull(InvocationCoalescer.key(null, new GetFeaturesByIdEvent(), false));
+  }
+
+  private static Handler<AsyncResult<byte[]>> collect(List<byte[]> responses) {
+    return r -> responses.add(r.result());
+  }
+
+  private static byte[] bytes(String json) {
+    return json.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.connectors;
+
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.models.geojson.coordinates.LinearRingCoordinates;
+import com.here.xyz.models.geojson.coordinates.PointCoordinates;
+import com.here.xyz.models.geojson.coordinates.PolygonCoordinates;
+import com.here.xyz.models.geojson.coordinates.Position;
+import com.here.xyz.models.geojson.implementation.Feature;
+import com.here.xyz.models.geojson.implementation.FeatureCollection;
+import com.here.xyz.models.geojson.implementation.Point;
+import com.here.xyz.models.geojson.implementation.Polygon;
+import com.here.xyz.models.geojson.implementation.Properties;
+import com.here.xyz.responses.XyzResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the CPU time, which the service spends on a feature collection returned by a storage connector, when it is parsed and
+ * serialized again with the time, when it is passed through as it was serialized by the connector. The secondary metric "megabytes"
+ * reports the time per served megabyte. Run with -prof gc to compare the allocation rate as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PreserializedResponseBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  public int featureCount;
+
+  private byte[] bytes;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(42);
+    final List<Feature> features = new ArrayList<>(featureCount);
+    for (int i = 0; i < featureCount; i++) {
+      final double lon = random.nextDouble() * 360 - 180;
+      final double lat = random.nextDouble() * 170 - 85;
+      final Properties properties = new Properties().with("name", "feature " + i).with("rank", i).with("height", random.nextDouble() * 100);
+
+      if (i % 2 == 0) {
+        features.add(new Feature().withId("p" + i).withProperties(properties)
+            .withGeometry(new Point().withCoordinates(new PointCoordinates(lon, lat))));
+      } else {
+        final LinearRingCoordinates ring = new LinearRingCoordinates();
+        for (int j = 0; j < 16; j++) {
+          final double angle = -2 * Math.PI * j / 16;
+          ring.add(new Position(lon + Math.cos(angle) * 0.01, lat + Math.sin(angle) * 0.01));
+        }
+        ring.add(ring.get(0));
+        final PolygonCoordinates polygon = new PolygonCoordinates();
+        polygon.add(ring);
+        features.add(new Feature().withId("y" + i).withProperties(properties).withGeometry(new Polygon().withCoordinates(polygon)));
+      }
+    }
+
+    // The response as it is written by the connectors, with the e-tag as last property
+    final String json = new FeatureCollection().withFeatures(features).serialize();
+    bytes = (json.substring(0, json.length() - 1) + ",\"etag\":\"6b4e9d3a0f1c2e5d7a8b9c0d1e2f3a4b\"}").getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public byte[] parseAndSerialize(ServedBytes served) throws Exception {
+    final XyzResponse response = XyzSerializable.deserialize(new String(bytes, StandardCharsets.UTF_8));
+    final byte[] result = response.serialize().getBytes();
+    served.add(result.length);
+    return result;
+  }
+
+  @Benchmark
+  public byte[] passthrough(ServedBytes served) {
+    final byte[] result = PreserializedResponse.of(bytes).getBytes();
+    served.add(result.length);
+    return result;
+  }
+
+  /**
+   * Counts the megabytes, which were served by the benchmark methods.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class ServedBytes {
+
+    private long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+
+    void add(int length) {
+      bytes += length;
+    }
+
+    public double megabytes() {
+      return bytes / (1024d * 1024d);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(PreserializedResponseBenchmark.class.getSimpleName()).build()).run();
+  }
+}
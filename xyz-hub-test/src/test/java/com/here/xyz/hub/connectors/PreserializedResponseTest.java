@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.connectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.here.xyz.responses.BinaryResponse;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class PreserializedResponseTest {
+
+  private static final String ETAG = "6b4e9d3a0f1c2e5d7a8b9c0d1e2f3a4b";
+
+  @Test
+  public void featureCollection() {
+    byte[] bytes = bytes("{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\",\"id\":\"a\"}],\"etag\":\"" + ETAG + "\"}");
+    BinaryResponse response = PreserializedResponse.of(bytes);
+    assertSame(bytes, response.getBytes());
+    assertEquals("application/geo+json", response.getMimeType());
+    assertEquals(ETAG, response.getEtag());
+  }
+
+  @Test
+  public void featureCollectionWithoutEtag() {
+    BinaryResponse response = PreserializedResponse.of(bytes("{\"type\":\"FeatureCollection\",\"features\":[]}"));
+    assertEquals("application/geo+json", response.getMimeType());
+    assertNull(response.getEtag());
+
+    response = PreserializedResponse.of(bytes("{\"type\":\"FeatureCollection\",\"features\":[{\"properties\":{\"etag\":\"x\"}}]}"));
+    assertNull(response.getEtag());
+  }
+
+  @Test
+  public void otherResponses() {
+    assertNull(PreserializedResponse.of(null));
+    assertNull(PreserializedResponse.of(new byte[0]));
+    assertNull(PreserializedResponse.of(bytes("{\"type\":\"ErrorResponse\",\"error\":\"Timeout\",\"errorMessage\":\"Timeout\"}")));
+    assertNull(PreserializedResponse.of(bytes("{\"type\":\"NotModifiedResponse\",\"etag\":\"" + ETAG + "\"}")));
+    assertNull(PreserializedResponse.of(bytes("{\"type\":\"RelocatedEvent\",\"location\":\"s3://bucket/key\"}")));
+    assertNull(PreserializedResponse.of(bytes("{\"features\":[],\"type\":\"FeatureCollection\"}")));
+  }
+
+  private static byte[] bytes(String json) {
+    return json.getBytes(StandardCharsets.UTF_8);
+  }
+}
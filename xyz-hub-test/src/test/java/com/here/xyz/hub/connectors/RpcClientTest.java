@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+
+package com.here.xyz.hub.connectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.here.xyz.events.SearchForFeaturesEvent;
+import com.here.xyz.hub.Service;
+import com.here.xyz.hub.connectors.models.Connector;
+import com.here.xyz.hub.connectors.models.Connector.RemoteFunctionConfig.Embedded;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RpcClientTest {
+
+  @BeforeClass
+  public static void setupClass() {
+    if (Service.configuration == null) {
+      Service.configuration = new Service.Config();
+      Service.configuration.GLOBAL_MAX_QUEUE_SIZE = 1024;
+      Service.configuration.REMOTE_FUNCTION_REQUEST_TIMEOUT = 30;
+      Service.configuration.INSTANCE_COUNT = 1;
+    }
+  }
+
+  @Test
+  public void failingSerializationDoesNotBlockTheCoalescingKey() {
+    final Connector connector = new Connector();
+    connector.id = "rpc-client-test";
+    connector.remoteFunction = new Embedded();
+    connector.remoteFunction.id = "rpc-client-test";
+    ((Embedded) connector.remoteFunction).className = "com.here.xyz.psql.PSQLXyzConnector";
+    final RpcClient client = RpcClient.getInstanceFor(connector);
+    final AtomicInteger callbacks = new AtomicInteger();
+
+    // Both callers must invoke the remote function, the second one must not join the invocation of the first one, which was never sent.
+    for (int i = 0; i < 2; i++) {
+      try {
+        client.execute(null, new UnserializableEvent(), "key", r -> callbacks.incrementAndGet());
+        fail("Expected was that the serialization fails.");
+      } catch (IllegalStateException e) {
+        assertEquals("Serialization failed", e.getMessage());
+      }
+    }
+    assertEquals(0, callbacks.get());
+  }
+
+  private static class UnserializableEvent extends SearchForFeaturesEvent {
+
+    @Override
+    public String serialize() {
+      throw new IllegalStateException("Serialization failed");
+    }
+  }
+}
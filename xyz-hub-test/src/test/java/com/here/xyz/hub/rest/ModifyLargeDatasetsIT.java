@@ -29,11 +29,21 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.FixMethodOrder;
+import org.junit.Test;
 import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 public class ModifyLargeDatasetsIT extends TestSpaceWithFeature {
 
+  private static final Logger logger = LoggerFactory.getLogger(ModifyLargeDatasetsIT.class);
+
+  /**
+   * The amount of features per request, which stays below the default bulk insert threshold of the PSQL connector.
+   */
+  private static final int BATCH_SIZE = 500;
+
   @BeforeClass
   public static void setupClass() {
     remove();
@@ -63,6 +73,31 @@ public class ModifyLargeDatasetsIT extends TestSpaceWithFeature {
     uploadData(featureCollection);
   }
 
+  @Test
+  public void postFeaturesWithCopy() {
+    FeatureCollection featureCollection = generateRandomFeatures(10000, 8);
+    final long start = System.currentTimeMillis();
+    uploadData(featureCollection);
+    logThroughput("COPY", featureCollection.getFeatures().size(), start);
+    countFeatures(10000);
+  }
+
+  @Test
+  public void postFeaturesInBatches() {
+    FeatureCollection featureCollection = generateRandomFeatures(10000, 8);
+    final long start = System.currentTimeMillis();
+    for (int i = 0; i < featureCollection.getFeatures().size(); i += BATCH_SIZE) {
+      uploadData(new FeatureCollection().withFeatures(featureCollection.getFeatures().subList(i, i + BATCH_SIZE)));
+    }
+    logThroughput("batch", featureCollection.getFeatures().size(), start);
+    countFeatures(10000);
+  }
+
+  private static void logThroughput(String path, int featureCount, long start) {
+    final long time = Math.max(1, System.currentTimeMillis() - start);
+    logger.info("Inserted {} features with the {} path in {} ms ({} features/s)", featureCount, path, time, featureCount * 1000L / time);
+  }
+
   private void uploadData(FeatureCollection featureCollection) {
     given().
         accept(APPLICATION_GEO_JSON).
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+
+package com.here.xyz.hub.task;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.hub.connectors.models.Connector;
+import com.here.xyz.hub.connectors.models.Space;
+import com.here.xyz.hub.connectors.models.Space.ResolvableListenerConnectorRef;
+import com.here.xyz.hub.rest.ApiResponseType;
+import com.here.xyz.models.hub.Space.ListenerConnectorRef;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class FeatureTaskHandlerTest {
+
+  @Test
+  public void delegateMvtEncoding() {
+    assertTrue(FeatureTaskHandler.isMvtEncodingDelegable(ApiResponseType.MVT, storage(true), new Space()));
+  }
+
+  @Test
+  public void encodeMvtWithoutStorageSupport() {
+    assertFalse(FeatureTaskHandler.isMvtEncodingDelegable(ApiResponseType.MVT, storage(false), new Space()));
+    assertFalse(FeatureTaskHandler.isMvtEncodingDelegable(ApiResponseType.MVT_FLATTENED, storage(true), new Space()));
+  }
+
+  @Test
+  public void encodeMvtForResponseProcessors() {
+    final Space space = new Space();
+    space.setProcessors(connectors("GetFeaturesByTileEvent.response"));
+    assertFalse(FeatureTaskHandler.isMvtEncodingDelegable(ApiResponseType.MVT, storage(true), space));
+  }
+
+  @Test
+  public void encodeMvtForResponseListeners() {
+    final Space space = new Space();
+    space.setListeners(connectors("GetFeaturesByTileEvent.response"));
+    assertFalse(FeatureTaskHandler.isMvtEncodingDelegable(ApiResponseType.MVT, storage(true), space));
+  }
+
+  @Test
+  public void delegateMvtEncodingWithRequestProcessors() {
+    final Space space = new Space();
+    space.setProcessors(connectors("GetFeaturesByTileEvent.request"));
+    assertTrue(FeatureTaskHandler.isMvtEncodingDelegable(ApiResponseType.MVT, storage(true), space));
+  }
+
+  private static Connector storage(boolean mvtSupport) {
+    final Connector storage = new Connector();
+    storage.capabilities.mvtSupport = mvtSupport;
+    return storage;
+  }
+
+  private static Map<String, List<ListenerConnectorRef>> connectors(String eventType) {
+    final ResolvableListenerConnectorRef ref = new ResolvableListenerConnectorRef();
+    ref.setId("processor");
+    ref.setEventTypes(Collections.singletonList(eventType));
+    return Collections.singletonMap("processor", Collections.singletonList(ref));
+  }
+}
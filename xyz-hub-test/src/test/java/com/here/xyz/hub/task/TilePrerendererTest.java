@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.task;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.events.GetFeaturesByTileEvent;
+import com.here.xyz.events.PropertiesQuery;
+import com.here.xyz.events.PropertyQuery;
+import com.here.xyz.events.PropertyQuery.QueryOperation;
+import com.here.xyz.events.PropertyQueryList;
+import com.here.xyz.hub.rest.ApiResponseType;
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.hub.Space;
+import java.util.Collections;
+import org.junit.Test;
+
+public class TilePrerendererTest {
+
+  private static final Space SPACE = new Space().withPrerenderTilesMaxLevel(4);
+
+  @Test
+  public void defaultRequest() {
+    assertTrue(TilePrerenderer.isPrerendered(event(4, 3, 5), SPACE, ApiResponseType.MVT, false));
+    assertTrue(TilePrerenderer.isPrerendered(event(0, 0, 0), SPACE, ApiResponseType.MVT, false));
+    assertTrue(TilePrerenderer.isPrerendered(event(0, 0, 0), new Space().withPrerenderTilesMaxLevel(0), ApiResponseType.MVT, false));
+  }
+
+  @Test
+  public void notConfigured() {
+    assertFalse(TilePrerenderer.isPrerendered(event(0, 0, 0), new Space(), ApiResponseType.MVT, false));
+  }
+
+  @Test
+  public void levelsAboveTheConfiguredLevel() {
+    assertFalse(TilePrerenderer.isPrerendered(event(5, 3, 5), SPACE, ApiResponseType.MVT, false));
+    assertFalse(TilePrerenderer.isPrerendered(event(4, 3, 5), new Space().withPrerenderTilesMaxLevel(-1), ApiResponseType.MVT, false));
+    // Levels above the maximal pre-rendered level are never pre-rendered
+    assertFalse(TilePrerenderer.isPrerendered(event(TilePrerenderer.MAX_LEVEL + 1, 0, 0),
+        new Space().withPrerenderTilesMaxLevel(TilePrerenderer.MAX_LEVEL + 2), ApiResponseType.MVT, false));
+  }
+
+  @Test
+  public void otherResponseTypes() {
+    assertFalse(TilePrerenderer.isPrerendered(event(4, 3, 5), SPACE, ApiResponseType.MVT_FLATTENED, false));
+    assertFalse(TilePrerenderer.isPrerendered(event(4, 3, 5), SPACE, ApiResponseType.FEATURE_COLLECTION, false));
+    assertFalse(TilePrerenderer.isPrerendered(event(4, 3, 5), SPACE, ApiResponseType.MVT, true));
+  }
+
+  @Test
+  public void queryParameters() {
+    assertFalse(TilePrerenderer.isPrerendered(event(4, 3, 5).withClip(false), SPACE, ApiResponseType.MVT, false));
+    assertFalse(TilePrerenderer.isPrerendered(event(4, 3, 5).withMargin(20), SPACE, ApiResponseType.MVT, false));
+    assertFalse(TilePrerenderer.isPrerendered(event(4, 3, 5).withSimplificationLevel(2), SPACE, ApiResponseType.MVT, false));
+    assertFalse(TilePrerenderer.isPrerendered(event(4, 3, 5).withLimit(10), SPACE, ApiResponseType.MVT, false));
+    assertFalse(TilePrerenderer.isPrerendered(event(4, 3, 5).withClusteringType("hexbin"), SPACE, ApiResponseType.MVT, false));
+    assertFalse(TilePrerenderer.isPrerendered(event(4, 3, 5).withSelection(Collections.singletonList("id")), SPACE,
+        ApiResponseType.MVT, false));
+
+    final PropertyQueryList propertyQueries = new PropertyQueryList();
+    propertyQueries.add(new PropertyQuery().withKey("properties.name").withOperation(QueryOperation.EQUALS)
+        .withValues(Collections.singletonList("a")));
+    final PropertiesQuery propertiesQuery = new PropertiesQuery();
+    propertiesQuery.add(propertyQueries);
+    final GetFeaturesByTileEvent withProperties = event(4, 3, 5);
+    withProperties.setPropertiesQuery(propertiesQuery);
+    assertFalse(TilePrerenderer.isPrerendered(withProperties, SPACE, ApiResponseType.MVT, false));
+  }
+
+  @Test
+  public void tileAddressedByAnotherQuadkey() {
+    final GetFeaturesByTileEvent event = event(4, 3, 5);
+    event.setQuadkey(WebMercatorTile.forWeb(4, 3, 6).asQuadkey());
+    assertFalse(TilePrerenderer.isPrerendered(event, SPACE, ApiResponseType.MVT, false));
+  }
+
+  private static GetFeaturesByTileEvent event(int level, int x, int y) {
+    final WebMercatorTile tile = WebMercatorTile.forWeb(level, x, y);
+    final GetFeaturesByTileEvent event = new GetFeaturesByTileEvent()
+        .withClip(true)
+        .withMargin(0)
+        .withSimplificationLevel(-1)
+        .withLimit(30_000);
+    event.setLevel(tile.level);
+    event.setX(tile.x);
+    event.setY(tile.y);
+    event.setQuadkey(tile.asQuadkey());
+    return event;
+  }
+}
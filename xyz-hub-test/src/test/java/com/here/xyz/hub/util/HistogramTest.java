@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import org.junit.Test;
+
+public class HistogramTest {
+
+  @Test
+  public void record() {
+    Histogram histogram = new Histogram(10, 100, 1000);
+    histogram.record(0);
+    histogram.record(10);
+    histogram.record(11);
+    histogram.record(1000);
+    histogram.record(5000);
+
+    assertEquals("Expected were 2 values up to the first bound.", 2, histogram.getCount(0));
+    assertEquals(1, histogram.getCount(1));
+    assertEquals(1, histogram.getCount(2));
+    assertEquals("Expected was 1 value above the largest bound.", 1, histogram.getCount(3));
+    assertEquals(5, histogram.getCount());
+    assertEquals(6021, histogram.getSum());
+  }
+
+  @Test
+  public void toMap() {
+    Histogram histogram = new Histogram(10, 100);
+    histogram.record(50);
+    histogram.record(500);
+
+    Map<String, Long> map = histogram.toMap();
+    assertEquals(3, map.size());
+    assertEquals(Long.valueOf(0), map.get("10"));
+    assertEquals(Long.valueOf(1), map.get("100"));
+    assertEquals(Long.valueOf(1), map.get("+Inf"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unorderedBounds() {
+    new Histogram(100, 10);
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import org.junit.Test;
+
+public class WeightedFairQueueTest {
+
+  public class TestElement implements ByteSizeAware {
+
+    private final int lane;
+    private final long byteSize;
+
+    TestElement(int lane, long byteSize) {
+      this.lane = lane;
+      this.byteSize = byteSize;
+    }
+
+    @Override
+    public long getByteSize() {
+      return byteSize;
+    }
+  }
+
+  @Test
+  public void removeByWeight() {
+    WeightedFairQueue<TestElement> queue = new WeightedFairQueue<>(new int[]{3, 1}, 100, 1000);
+    for (int i = 0; i < 20; i++) {
+      queue.add(0, new TestElement(0, 1));
+      queue.add(1, new TestElement(1, 1));
+    }
+
+    int[] removed = new int[2];
+    for (int i = 0; i < 8; i++) {
+      removed[queue.remove().lane]++;
+    }
+    assertEquals("Expected were 6 elements of the first lane.", 6, removed[0]);
+    assertEquals("Expected were 2 elements of the second lane.", 2, removed[1]);
+  }
+
+  @Test
+  public void removeFromNonEmptyLanes() {
+    WeightedFairQueue<TestElement> queue = new WeightedFairQueue<>(new int[]{3, 1}, 100, 1000);
+    TestElement element1 = new TestElement(1, 1);
+    TestElement element2 = new TestElement(1, 1);
+    queue.add(1, element1);
+    queue.add(1, element2);
+
+    assertEquals("Expected was that a lane gets all removals, when the others are empty.", element1, queue.remove());
+    assertEquals(element2, queue.remove());
+    assertNull(queue.remove());
+    assertEquals(0, queue.getSize());
+    assertEquals(0, queue.getByteSize());
+  }
+
+  @Test
+  public void discardOldest() {
+    WeightedFairQueue<TestElement> queue = new WeightedFairQueue<>(new int[]{1, 1}, 2, 1000);
+    TestElement element1 = new TestElement(1, 1);
+    TestElement element2 = new TestElement(0, 1);
+    queue.add(1, element1);
+    queue.add(0, element2);
+
+    List<TestElement> discarded = queue.add(0, new TestElement(0, 1));
+    assertEquals(1, discarded.size());
+    assertEquals("The oldest element across all lanes must be discarded.", element1, discarded.get(0));
+    assertEquals(0, queue.getSize(1));
+    assertEquals(2, queue.getSize(0));
+  }
+
+  @Test
+  public void addTooLargeElement() {
+    WeightedFairQueue<TestElement> queue = new WeightedFairQueue<>(new int[]{1}, 3, 100);
+    TestElement tooLargeElement = new TestElement(0, 101);
+    List<TestElement> discarded = queue.add(0, tooLargeElement);
+    assertEquals("The inserted element must be discarded.", tooLargeElement, discarded.get(0));
+    assertEquals(0, queue.getSize());
+  }
+
+  @Test
+  public void discardWhile() {
+    WeightedFairQueue<TestElement> queue = new WeightedFairQueue<>(new int[]{1, 1}, 10, 1000);
+    queue.add(0, new TestElement(0, 1));
+    queue.add(0, new TestElement(0, 50));
+    queue.add(1, new TestElement(1, 2));
+    queue.add(1, new TestElement(1, 3));
+
+    List<TestElement> discarded = queue.discardWhile(e -> e.getByteSize() < 10);
+    assertEquals("Expected were the heads of both lanes up to the first non matching element.", 3, discarded.size());
+    assertEquals(1, queue.getSize());
+    assertEquals(50, queue.getByteSize());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nonPositiveWeight() {
+    new WeightedFairQueue<TestElement>(new int[]{1, 0}, 10, 1000);
+  }
+}
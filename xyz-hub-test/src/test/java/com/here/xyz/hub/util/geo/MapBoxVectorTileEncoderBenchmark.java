@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.util.geo;
+
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.geojson.coordinates.LineStringCoordinates;
+import com.here.xyz.models.geojson.coordinates.LinearRingCoordinates;
+import com.here.xyz.models.geojson.coordinates.PointCoordinates;
+import com.here.xyz.models.geojson.coordinates.PolygonCoordinates;
+import com.here.xyz.models.geojson.coordinates.Position;
+import com.here.xyz.models.geojson.implementation.Feature;
+import com.here.xyz.models.geojson.implementation.LineString;
+import com.here.xyz.models.geojson.implementation.Point;
+import com.here.xyz.models.geojson.implementation.Polygon;
+import com.here.xyz.models.geojson.implementation.Properties;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the {@link MapBoxVectorTileBuilder} with the {@link MapBoxVectorTileEncoder} for a tile of level 12 with points, lines and
+ * polygons, which partially exceed the tile. Run with -prof gc to compare the allocation rate as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MapBoxVectorTileEncoderBenchmark {
+
+  private static final int MARGIN = 20;
+  private static final String LAYER = "default";
+
+  @Param({"100", "1000", "10000"})
+  public int featureCount;
+
+  private WebMercatorTile tile;
+  private List<Feature> features;
+  private MapBoxVectorTileBuilder builder;
+  private MapBoxVectorTileEncoder encoder;
+
+  @Setup
+  public void setup() {
+    tile = WebMercatorTile.forWeb(12, 2200, 1343);
+    builder = new MapBoxVectorTileBuilder();
+    encoder = new MapBoxVectorTileEncoder();
+    features = new ArrayList<>(featureCount);
+
+    // The features are placed in the tile and its neighbours, so that about half of the lines and polygons must be clipped.
+    final Random random = new Random(42);
+    final double width = tile.getBBox(false).widthInDegree(false);
+    final double height = tile.getBBox(false).heightInDegree();
+    final double west = tile.getBBox(false).minLon() - width;
+    final double south = tile.getBBox(false).minLat() - height;
+    for (int i = 0; i < featureCount; i++) {
+      final double lon = west + random.nextDouble() * 3 * width;
+      final double lat = south + random.nextDouble() * 3 * height;
+      final Properties properties = new Properties().with("name", "feature " + i).with("rank", i).with("height", random.nextDouble() * 100);
+
+      switch (i % 3) {
+        case 0:
+          features.add(new Feature().withId("p" + i).withProperties(properties)
+              .withGeometry(new Point().withCoordinates(new PointCoordinates(lon, lat))));
+          break;
+        case 1:
+          final LineStringCoordinates line = new LineStringCoordinates();
+          for (int j = 0; j < 20; j++) {
+            line.add(new Position(lon + j * width / 40, lat + (random.nextDouble() - 0.5) * height / 10));
+          }
+          features.add(new Feature().withId("l" + i).withProperties(properties).withGeometry(new LineString().withCoordinates(line)));
+          break;
+        default:
+          final LinearRingCoordinates ring = new LinearRingCoordinates();
+          for (int j = 0; j < 16; j++) {
+            final double angle = -2 * Math.PI * j / 16;
+            ring.add(new Position(lon + Math.cos(angle) * width / 8, lat + Math.sin(angle) * height / 8));
+          }
+          ring.add(ring.get(0));
+          final PolygonCoordinates polygon = new PolygonCoordinates();
+          polygon.add(ring);
+          features.add(new Feature().withId("y" + i).withProperties(properties).withGeometry(new Polygon().withCoordinates(polygon)));
+      }
+    }
+  }
+
+  @Benchmark
+  public byte[] builder() throws Exception {
+    return builder.build(tile, MARGIN, LAYER, features);
+  }
+
+  @Benchmark
+  public byte[] encoder() {
+    return encoder.encode(tile, MARGIN, LAYER, features);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(MapBoxVectorTileEncoderBenchmark.class.getSimpleName()).build()).run();
+  }
+}
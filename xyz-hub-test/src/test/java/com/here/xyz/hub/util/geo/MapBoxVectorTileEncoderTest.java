@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.hub.util.geo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.here.xyz.XyzSerializable;
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.geojson.implementation.Feature;
+import com.here.xyz.models.geojson.implementation.FeatureCollection;
+import com.wdtinc.mapbox_vector_tile.VectorTile;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import org.junit.Test;
+
+public class MapBoxVectorTileEncoderTest {
+
+  private static final String FEATURES = "{\"type\":\"FeatureCollection\",\"features\":["
+      + "{\"type\":\"Feature\",\"id\":\"p1\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[0.1,0.1]},"
+      + "\"properties\":{\"name\":\"x\",\"flag\":true,\"a.b\":5}},"
+      + "{\"type\":\"Feature\",\"id\":\"p2\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[-10,0.1]}},"
+      + "{\"type\":\"Feature\",\"id\":\"l1\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[-1,0.5],[5,0.5],[5,1],[-1,1]]}},"
+      + "{\"type\":\"Feature\",\"id\":\"y1\",\"geometry\":{\"type\":\"Polygon\",\"coordinates\":"
+      + "[[[-1,-1],[1,-1],[1,1],[-1,1],[-1,-1]],[[0.2,0.2],[0.4,0.2],[0.4,0.4],[0.2,0.4],[0.2,0.2]]]}}"
+      + "]}";
+
+  @Test
+  public void testEncode() throws Exception {
+    final FeatureCollection collection = XyzSerializable.deserialize(FEATURES);
+    final byte[] bytes = new MapBoxVectorTileEncoder().encode(WebMercatorTile.forWeb(8, 128, 127), 20, "test", collection.getFeatures());
+
+    final VectorTile.Tile.Layer layer = VectorTile.Tile.parseFrom(bytes).getLayers(0);
+    assertEquals("test", layer.getName());
+    assertEquals(4096, layer.getExtent());
+    assertEquals(2, layer.getVersion());
+
+    // The point outside of the tile is dropped.
+    assertEquals(3, layer.getFeaturesCount());
+    assertEquals(VectorTile.Tile.GeomType.POINT, layer.getFeatures(0).getType());
+    assertEquals(VectorTile.Tile.GeomType.LINESTRING, layer.getFeatures(1).getType());
+    assertEquals(VectorTile.Tile.GeomType.POLYGON, layer.getFeatures(2).getType());
+
+    final VectorTile.Tile.Feature point = layer.getFeatures(0);
+    assertEquals(8, point.getTagsCount());
+    assertEquals("id", layer.getKeys(point.getTags(0)));
+    assertEquals("p1", layer.getValues(point.getTags(1)).getStringValue());
+    assertTrue(layer.getKeysList().contains("a~b"));
+    assertTrue(layer.getKeysList().contains("flag"));
+
+    // The line leaves the clip rectangle twice and is therefore split into two parts.
+    final VectorTile.Tile.Feature line = layer.getFeatures(1);
+    assertEquals(2, countCommands(line, 1));
+
+    // The exterior ring is clockwise, the hole counter-clockwise.
+    final VectorTile.Tile.Feature polygon = layer.getFeatures(2);
+    assertEquals(2, countCommands(polygon, 7));
+    final long[] areas = ringAreas(polygon);
+    assertTrue(areas[0] > 0);
+    assertTrue(areas[1] < 0);
+  }
+
+  @Test
+  public void testRepairInvalidPolygon() throws Exception {
+    // A bow tie crosses itself and is repaired into two triangles.
+    final byte[] bytes = encode("{\"type\":\"Polygon\",\"coordinates\":[[[-1,-1],[1,1],[1,-1],[-1,1],[-1,-1]]]}");
+    final VectorTile.Tile.Feature polygon = VectorTile.Tile.parseFrom(bytes).getLayers(0).getFeatures(0);
+    final long[] areas = ringAreas(polygon);
+    assertEquals(2, areas.length);
+    assertTrue(areas[0] > 0);
+    assertTrue(areas[1] > 0);
+  }
+
+  @Test
+  public void testEncodeMultiPolygon() throws Exception {
+    // The members of a multi geometry are encoded as the parts of a single feature.
+    final byte[] bytes = encode("{\"type\":\"MultiPolygon\",\"coordinates\":["
+        + "[[[0.1,0.1],[0.3,0.1],[0.3,0.3],[0.1,0.3],[0.1,0.1]]],"
+        + "[[[0.5,0.5],[1,0.5],[1,1],[0.5,1],[0.5,0.5]],[[0.6,0.6],[0.6,0.9],[0.9,0.9],[0.9,0.6],[0.6,0.6]]]]}");
+    final VectorTile.Tile.Layer layer = VectorTile.Tile.parseFrom(bytes).getLayers(0);
+    assertEquals(1, layer.getFeaturesCount());
+    final long[] areas = ringAreas(layer.getFeatures(0));
+    assertEquals(3, areas.length);
+    assertTrue(areas[0] > 0);
+    assertTrue(areas[1] > 0);
+    assertTrue(areas[2] < 0);
+  }
+
+  @Test
+  public void testEncodeNumberProperties() throws Exception {
+    final Feature feature = XyzSerializable.deserialize(
+        "{\"type\":\"Feature\",\"id\":\"n\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[0.1,0.1]},\"properties\":{}}");
+    feature.getProperties()
+        .with("decimal", new BigDecimal("1.5"))
+        .with("integralDecimal", new BigDecimal("2.00"))
+        .with("bigInteger", BigInteger.valueOf(-3))
+        .with("hugeInteger", BigInteger.ONE.shiftLeft(70))
+        .with("short", (short) 4);
+    final byte[] bytes = new MapBoxVectorTileEncoder()
+        .encode(WebMercatorTile.forWeb(8, 128, 127), 20, "test", Collections.singletonList(feature));
+
+    final VectorTile.Tile.Layer layer = VectorTile.Tile.parseFrom(bytes).getLayers(0);
+    assertEquals(1.5d, value(layer, "decimal").getDoubleValue(), 0d);
+    assertEquals(2L, value(layer, "integralDecimal").getSintValue());
+    assertEquals(-3L, value(layer, "bigInteger").getSintValue());
+    assertEquals(Math.pow(2, 70), value(layer, "hugeInteger").getDoubleValue(), 0d);
+    assertEquals(4L, value(layer, "short").getSintValue());
+  }
+
+  private static VectorTile.Tile.Value value(VectorTile.Tile.Layer layer, String key) {
+    final VectorTile.Tile.Feature feature = layer.getFeatures(0);
+    for (int i = 0; i < feature.getTagsCount(); i += 2) {
+      if (key.equals(layer.getKeys(feature.getTags(i)))) {
+        return layer.getValues(feature.getTags(i + 1));
+      }
+    }
+    throw new AssertionError("Missing property " + key);
+  }
+
+  private static byte[] encode(String geometry) throws Exception {
+    final FeatureCollection collection = XyzSerializable.deserialize(
+        "{\"type\":\"FeatureCollection\",\"features\":[{\"type\":\"Feature\",\"id\":\"y\",\"geometry\":" + geometry + "}]}");
+    return new MapBoxVectorTileEncoder().encode(WebMercatorTile.forWeb(8, 128, 127), 20, "test", collection.getFeatures());
+  }
+
+  private static int countCommands(VectorTile.Tile.Feature feature, int id) {
+    int count = 0;
+    for (int i = 0; i < feature.getGeometryCount(); ) {
+      final int command = feature.getGeometry(i);
+      final int parameters = (command & 0x7) == 7 ? 0 : 2 * (command >> 3);
+      if ((command & 0x7) == id) {
+        count++;
+      }
+      i += 1 + parameters;
+    }
+    return count;
+  }
+
+  private static long[] ringAreas(VectorTile.Tile.Feature feature) {
+    final long[] areas = new long[countCommands(feature, 7)];
+    int ring = -1, x = 0, y = 0, startX = 0, startY = 0;
+    for (int i = 0; i < feature.getGeometryCount(); ) {
+      final int command = feature.getGeometry(i++);
+      if ((command & 0x7) == 7) {
+        areas[ring] += (long) x * startY - (long) startX * y;
+        continue;
+      }
+      for (int j = 0; j < command >> 3; j++) {
+        final int nx = x + decode(feature.getGeometry(i++)), ny = y + decode(feature.getGeometry(i++));
+        if ((command & 0x7) == 1) {
+          ring++;
+          startX = nx;
+          startY = ny;
+        } else {
+          areas[ring] += (long) x * ny - (long) nx * y;
+        }
+        x = nx;
+        y = ny;
+      }
+    }
+    return areas;
+  }
+
+  private static int decode(int n) {
+    return (n >>> 1) ^ -(n & 1);
+  }
+}
@@ -53,6 +53,7 @@ import java.util.Map;
     @JsonSubTypes.Type(value = GetFeaturesByTileEvent.class, name = "GetFeaturesByTileEvent"),
     @JsonSubTypes.Type(value = CountFeaturesEvent.class, name = "CountFeaturesEvent"),
     @JsonSubTypes.Type(value = GetStatisticsEvent.class, name = "GetStatisticsEvent"),
+    @JsonSubTypes.Type(value = GetIterationPartitionsEvent.class, name = "GetIterationPartitionsEvent"),
     @JsonSubTypes.Type(value = HealthCheckEvent.class, name = "HealthCheckEvent"),
     @JsonSubTypes.Type(value = GetFeaturesByIdEvent.class, name = "GetFeaturesByIdEvent"),
     @JsonSubTypes.Type(value = LoadFeaturesEvent.class, name = "LoadFeaturesEvent")
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+/**
+ * The request to split the content of a space into disjoint partitions, which can be iterated independently and concurrently using the
+ * {@link IterateFeaturesEvent}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonTypeName(value = "GetIterationPartitionsEvent")
+public final class GetIterationPartitionsEvent extends Event<GetIterationPartitionsEvent> {
+
+  private int partitions;
+
+  /**
+   * Returns the requested number of partitions. The storage connector may return less partitions, for example if the space contains only
+   * a few features.
+   *
+   * @return the requested number of partitions.
+   */
+  @SuppressWarnings("unused")
+  public int getPartitions() {
+    return partitions;
+  }
+
+  @SuppressWarnings("WeakerAccess")
+  public void setPartitions(int partitions) {
+    this.partitions = partitions;
+  }
+
+  @SuppressWarnings("unused")
+  public GetIterationPartitionsEvent withPartitions(int partitions) {
+    setPartitions(partitions);
+    return this;
+  }
+}
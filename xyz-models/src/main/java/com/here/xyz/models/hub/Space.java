@@ -183,6 +183,14 @@ public class Space {
   @JsonView(Public.class)
   private Map<String, Boolean> searchableProperties;
 
+  /**
+   * The maximum level of the MVT tiles, which are pre-rendered after the content of the space settled. If not set or negative, the
+   * pre-rendering is disabled.
+   */
+  @JsonInclude(Include.NON_NULL)
+  @JsonView(Public.class)
+  private Integer prerenderTilesMaxLevel;
+
   public String getId() {
     return id;
   }
@@ -443,6 +451,19 @@ public class Space {
     return this;
   }
 
+  public Integer getPrerenderTilesMaxLevel() {
+    return prerenderTilesMaxLevel;
+  }
+
+  public void setPrerenderTilesMaxLevel(final Integer prerenderTilesMaxLevel) {
+    this.prerenderTilesMaxLevel = prerenderTilesMaxLevel;
+  }
+
+  public Space withPrerenderTilesMaxLevel(final Integer prerenderTilesMaxLevel) {
+    this.prerenderTilesMaxLevel = prerenderTilesMaxLevel;
+    return this;
+  }
+
   @SuppressWarnings("WeakerAccess")
   public static class Public {
 
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.responses;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+/**
+ * A response with binary content, for example a vector tile, which was already encoded by the connector. The bytes are serialized as
+ * Base64 encoded string.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonTypeName(value = "BinaryResponse")
+public class BinaryResponse extends XyzResponse<BinaryResponse> {
+
+  private byte[] bytes;
+  private String mimeType;
+
+  /**
+   * Returns the binary content of the response.
+   *
+   * @return the bytes.
+   */
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  public void setBytes(byte[] bytes) {
+    this.bytes = bytes;
+  }
+
+  public BinaryResponse withBytes(byte[] bytes) {
+    setBytes(bytes);
+    return this;
+  }
+
+  /**
+   * Returns the mime type of the binary content.
+   *
+   * @return the mime type or null, if it is unknown.
+   */
+  @SuppressWarnings("unused")
+  public String getMimeType() {
+    return mimeType;
+  }
+
+  @SuppressWarnings("WeakerAccess")
+  public void setMimeType(String mimeType) {
+    this.mimeType = mimeType;
+  }
+
+  @SuppressWarnings("unused")
+  public BinaryResponse withMimeType(String mimeType) {
+    setMimeType(mimeType);
+    return this;
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.responses;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.here.xyz.events.GetIterationPartitionsEvent;
+import java.util.List;
+
+/**
+ * The response to a {@link GetIterationPartitionsEvent}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonTypeName(value = "IterationPartitionsResponse")
+public class IterationPartitionsResponse extends XyzResponse<IterationPartitionsResponse> {
+
+  private List<String> handles;
+
+  /**
+   * Returns the handles of the partitions. Each handle can be used as the start handle of an independent iteration, which returns only
+   * the features of the respective partition.
+   *
+   * @return the handles of the partitions.
+   */
+  @SuppressWarnings("unused")
+  public List<String> getHandles() {
+    return handles;
+  }
+
+  @SuppressWarnings("WeakerAccess")
+  public void setHandles(List<String> handles) {
+    this.handles = handles;
+  }
+
+  @SuppressWarnings("unused")
+  public IterationPartitionsResponse withHandles(List<String> handles) {
+    setHandles(handles);
+    return this;
+  }
+}
@@ -29,9 +29,11 @@ import com.here.xyz.models.geojson.implementation.FeatureCollection;
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonSubTypes({
+    @JsonSubTypes.Type(value = BinaryResponse.class, name = "BinaryResponse"),
     @JsonSubTypes.Type(value = CountResponse.class, name = "CountResponse"),
     @JsonSubTypes.Type(value = ErrorResponse.class, name = "ErrorResponse"),
     @JsonSubTypes.Type(value = HealthStatus.class, name = "HealthStatus"),
+    @JsonSubTypes.Type(value = IterationPartitionsResponse.class, name = "IterationPartitionsResponse"),
     @JsonSubTypes.Type(value = ModifiedEventResponse.class, name = "ModifiedEventResponse"),
     @JsonSubTypes.Type(value = ModifiedResponseResponse.class, name = "ModifiedResponseResponse"),
     @JsonSubTypes.Type(value = StatisticsResponse.class, name = "StatisticsResponse"),
@@ -108,6 +108,17 @@ public class JsonMappingTest {
     new ObjectMapper().convertValue(obj.getEvent(), ModifyFeaturesEvent.class);
   }
 
+  @Test
+  public void testSpacePrerenderTilesMaxLevel() throws Exception {
+    final ObjectMapper mapper = new ObjectMapper();
+    Space space = mapper.readValue(mapper.writeValueAsString(new Space().withPrerenderTilesMaxLevel(0)), Space.class);
+    assertEquals(Integer.valueOf(0), space.getPrerenderTilesMaxLevel());
+
+    final String json = mapper.writeValueAsString(new Space());
+    assertTrue(!json.contains("prerenderTilesMaxLevel"));
+    assertNull(mapper.readValue(json, Space.class).getPrerenderTilesMaxLevel());
+  }
+
   @Test
   public void testSpaceWithListenersAsList() throws Exception {
     ObjectMapper mapper = new ObjectMapper().configure(SerializationFeature.INDENT_OUTPUT, true);
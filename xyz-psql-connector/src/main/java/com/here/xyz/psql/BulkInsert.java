@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import com.here.xyz.models.geojson.implementation.Feature;
+import com.here.xyz.models.geojson.implementation.Geometry;
+import com.vividsolutions.jts.io.WKBWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+/**
+ * Streams features into a temporary staging table using the binary COPY protocol of PostgreSQL. The staging table is merged into the
+ * space table afterwards with a single INSERT ... SELECT statement.
+ */
+class BulkInsert {
+
+  static final String STAGING_TABLE = "xyz_bulk_insert";
+
+  private static final byte[] COPY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+  private static final short FIELD_COUNT = 3;
+  private static final byte JSONB_VERSION = 1;
+  private static final int INT8_LENGTH = 8;
+
+  /**
+   * Returns the statement, which creates the staging table including the key columns.
+   */
+  static String createStagingTableSql(KeyColumns keyColumns) {
+    return "CREATE TEMPORARY TABLE " + STAGING_TABLE + " (jsondata jsonb, geo bytea, geojson jsonb"
+        + keyColumns.join("%s bigint") + ") ON COMMIT DROP";
+  }
+
+  /**
+   * Returns the statement, which merges the staging table into the table of the space.
+   */
+  static String mergeSql(KeyColumns keyColumns) {
+    return "INSERT INTO ${schema}.${table} (jsondata, geo, geojson" + keyColumns.join("%s") + ") "
+        + "SELECT jsondata, CASE WHEN geo IS NULL THEN NULL ELSE ST_Force3D(ST_GeomFromWKB(geo,4326)) END, geojson"
+        + keyColumns.join("%s") + " FROM " + STAGING_TABLE;
+  }
+
+  private static String copySql(KeyColumns keyColumns) {
+    return "COPY " + STAGING_TABLE + " (jsondata, geo, geojson" + keyColumns.join("%s") + ") FROM STDIN (FORMAT binary)";
+  }
+
+  /**
+   * Writes the given features into the staging table of the provided connection. The staging table must have been created before
+   * within the current transaction.
+   *
+   * @param connection the connection on which the staging table was created.
+   * @param features the features to copy.
+   * @param keyColumns the key columns of the space.
+   * @throws SQLException if the COPY failed.
+   */
+  static void copyIn(Connection connection, List<Feature> features, KeyColumns keyColumns) throws SQLException {
+    final PGConnection pgConnection = connection.unwrap(PGConnection.class);
+    final WKBWriter wkbWriter = new WKBWriter(3);
+
+    try (final DataOutputStream out = new DataOutputStream(new PGCopyOutputStream(pgConnection, copySql(keyColumns), COPY_BUFFER_SIZE))) {
+      out.write(COPY_SIGNATURE);
+      out.writeInt(0); // flags
+      out.writeInt(0); // header extension length
+
+      for (Feature feature : features) {
+        final Geometry geometry = feature.getGeometry();
+        feature.setGeometry(null); // Do not serialize the geometry in the JSON object
+
+        final String json;
+        final String geojson;
+        try {
+          json = feature.serialize();
+          geojson = geometry != null ? geometry.serialize() : null;
+        } finally {
+          feature.setGeometry(geometry);
+        }
+
+        final com.vividsolutions.jts.geom.Geometry jtsGeometry = geometry == null ? null : geometry.getJTSGeometry();
+        out.writeShort(FIELD_COUNT + keyColumns.size());
+        writeJsonb(out, json);
+        writeBytes(out, jtsGeometry == null ? null : wkbWriter.write(jtsGeometry));
+        writeJsonb(out, geojson);
+        writeKeys(out, keyColumns.values(jtsGeometry));
+      }
+
+      out.writeShort(-1); // trailer
+    } catch (IOException e) {
+      throw new SQLException("Failed to copy the features into the staging table.", e);
+    }
+  }
+
+  private static void writeJsonb(DataOutputStream out, String json) throws IOException {
+    if (json == null) {
+      out.writeInt(-1);
+      return;
+    }
+    final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length + 1);
+    out.writeByte(JSONB_VERSION);
+    out.write(bytes);
+  }
+
+  private static void writeKeys(DataOutputStream out, Long[] keys) throws IOException {
+    for (Long key : keys) {
+      if (key == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(INT8_LENGTH);
+        out.writeLong(key);
+      }
+    }
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    if (bytes == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+}
@@ -123,6 +123,57 @@ class H3
           + "  ) outer_v ";
 
 
+  /* Replaces h3sqlMid and h3sqlEnd, when the cells are read from the precomputed hexbin pyramid. The pyramid only counts the features,
+     therefore it is only used without a statistical property. */
+  static String h3sqlPyramidMid =
+      "                    , oo.geo ) as omni, "
+          + "           oo.geo "
+          + "     from "
+          + "     ( "
+          + "      select to_hex(p.h3) as h3,"
+          + "              p.qty,"
+          + "              p.geo"
+          + "      from ${schema}.${hexbin} p "
+          + "      where p.res = %1$d and p.qty > 0 and p.geo && ",
+  h3sqlPyramidEnd =
+            "     ) oo "
+          + "     where 1 = 1 "
+          + "   ) "
+          + "   select * from h3cluster "
+          + "   where 1 = 1 "
+          + "     and omni = true "
+          + "     %1$s "
+          + "  ) outer_v ";
+
+  /* Replaces h3sqlMid and h3sqlEnd, when the cells of the features are stored in a column of the space table. */
+  static String h3sqlColumnMid =
+      "                    , oo.geo ) as omni, "
+          + "           oo.geo "
+          + "     from "
+          + "     ( "
+          + "      select to_hex(cc.h3) as h3,"
+          + "              count(1) as qty,"
+          + "              min(cc.cval) as min,"
+          + "              max(cc.cval) as max,"
+          + "              sum(cc.cval) as sum,"
+          + "              round( avg(cc.cval ),5) as avg,  "
+          + "              percentile_cont(0.5) within group (order by cc.cval) as median,"
+          + "              h3togeoboundarydeg(cc.h3)::geometry(Polygon, 4326) AS geo"
+          + "      from "
+          + "      ( "
+          + "        select %1$s as cval, %2$s as h3 ",
+  h3sqlColumnEnd =
+            "      ) cc "
+          + "      group by cc.h3 "
+          + "     ) oo "
+          + "     where 1 = 1 "
+          + "   ) "
+          + "   select * from h3cluster "
+          + "   where 1 = 1 "
+          + "     and omni = true "
+          + "     %1$s "
+          + "  ) outer_v ";
+
   static int[] MaxResForZoom = {2, 2, 2, 2, 3, 4, 4, 5, 6, 6, 7, 8, 9, 9, 10, 11, 11, 12, 13, 14, 14, 15, 15};
 
   static int zoom2resolution(int zoom) {
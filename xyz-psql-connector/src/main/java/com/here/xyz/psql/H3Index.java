@@ -0,0 +1,865 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Calculates H3 cell indexes in Java. This is a port of the point indexing of the H3 core library (geoToH3), equal to the function of
+ * the same name in h3Core.sql, so that the cells can be calculated while the features are written instead of per row in the database.
+ */
+class H3Index {
+
+  static final int MAX_RESOLUTION = 15;
+
+  /**
+   * The prefix of the columns, which contain the H3 index of the features for a resolution.
+   */
+  static final String COLUMN_PREFIX = "h3_";
+
+  private static final long H3_INIT = 35184372088831L;
+  private static final int H3_HEXAGON_MODE = 1;
+  private static final int H3_MODE_OFFSET = 59;
+  private static final int H3_BC_OFFSET = 45;
+  private static final int H3_RES_OFFSET = 52;
+  private static final int H3_PER_DIGIT_OFFSET = 3;
+  private static final long H3_DIGIT_MASK = 7L;
+
+  private static final int MAX_FACE_COORD = 2;
+  private static final int CENTER_DIGIT = 0;
+  private static final int K_AXES_DIGIT = 1;
+  private static final int J_AXES_DIGIT = 2;
+  private static final int JK_AXES_DIGIT = 3;
+  private static final int I_AXES_DIGIT = 4;
+  private static final int IK_AXES_DIGIT = 5;
+  private static final int IJ_AXES_DIGIT = 6;
+
+  private static final double M_SIN60 = 0.8660254037844386467637231707529361834714;
+  private static final double M_AP7_ROT_RADS = 0.333473172251832115336090755351601070065900389;
+  private static final double M_SQRT7 = 2.6457513110645905905016157536392604257102;
+  private static final double RES0_U_GNOMONIC = 0.38196601125010500003;
+  private static final double EPSILON = 0.0000000000000001;
+  private static final double M_2PI = 2 * Math.PI;
+
+  private static final int[][] UNIT_VECS = {{0, 0, 0}, {0, 0, 1}, {0, 1, 0}, {0, 1, 1}, {1, 0, 0}, {1, 0, 1}, {1, 1, 0}};
+
+  /**
+   * Returns the name of the column, which contains the H3 index for the given resolution.
+   */
+  static String column(int resolution) {
+    return COLUMN_PREFIX + resolution;
+  }
+
+  /**
+   * The SQL expression of the reference point of a feature, which is used to calculate its cell in the database.
+   */
+  static final String REFERENCE_POINT_SQL = "CASE ST_GeometryType(geo) WHEN 'ST_Point' THEN geo ELSE ST_ClosestPoint(geo, geo) END";
+
+  /**
+   * Returns the statement, which calculates the missing cells of the features, which were written before the column was added.
+   */
+  static String backfillSql(int resolution) {
+    return "UPDATE ${schema}.${table} SET " + column(resolution) + " = geoToH3Deg_p(" + REFERENCE_POINT_SQL + ", " + resolution + ") "
+        + "WHERE " + column(resolution) + " IS NULL AND geo IS NOT NULL";
+  }
+
+  /**
+   * Returns the SQL expression of the cell of a feature for the given resolution. The stored cell is used, if available, so that the result
+   * is correct, while the cells of older features are not yet calculated.
+   */
+  static String cellSql(int resolution) {
+    return "COALESCE(" + column(resolution) + ", geoToH3Deg_p(" + REFERENCE_POINT_SQL + ", " + resolution + "))";
+  }
+
+  /**
+   * Returns the H3 indexes of the reference point of the given geometry for the given resolutions. The reference point is the point itself
+   * for points, otherwise the first coordinate of the geometry.
+   *
+   * @param geometry the geometry or null.
+   * @param resolutions the resolutions.
+   * @return the H3 indexes in the order of the resolutions or null, if the geometry is null or empty.
+   */
+  static long[] cells(Geometry geometry, int[] resolutions) {
+    if (geometry == null || geometry.isEmpty()) {
+      return null;
+    }
+    final Coordinate reference = geometry.getCoordinate();
+    final long[] cells = new long[resolutions.length];
+    for (int i = 0; i < resolutions.length; i++) {
+      cells[i] = geoToH3(reference.y, reference.x, resolutions[i]);
+    }
+    return cells;
+  }
+
+  /**
+   * Returns the H3 index of the cell containing the given point.
+   *
+   * @param lat the latitude in degrees.
+   * @param lon the longitude in degrees.
+   * @param res the resolution between 0 and 15.
+   * @return the H3 index or 0, if the index can not be calculated.
+   */
+  static long geoToH3(double lat, double lon, int res) {
+    if (res < 0 || res > MAX_RESOLUTION || Double.isNaN(lat) || Double.isNaN(lon) || Double.isInfinite(lat) || Double.isInfinite(lon)) {
+      return 0;
+    }
+    final double latRads = Math.toRadians(lat);
+    final double lonRads = Math.toRadians(lon);
+
+    // Find the closest icosahedron face
+    final double z = Math.sin(latRads);
+    final double x = Math.cos(lonRads) * Math.cos(latRads);
+    final double y = Math.sin(lonRads) * Math.cos(latRads);
+    int face = 0;
+    double sqd = Double.MAX_VALUE;
+    for (int f = 0; f < FACE_CENTER_POINT.length; f++) {
+      final double dx = FACE_CENTER_POINT[f][0] - x;
+      final double dy = FACE_CENTER_POINT[f][1] - y;
+      final double dz = FACE_CENTER_POINT[f][2] - z;
+      final double sqdT = dx * dx + dy * dy + dz * dz;
+      if (sqdT < sqd) {
+        face = f;
+        sqd = sqdT;
+      }
+    }
+
+    // Project the point into the hex2d coordinate system of the face
+    double vx = 0;
+    double vy = 0;
+    double r = Math.acos(1 - sqd / 2);
+    if (r >= EPSILON) {
+      final double faceLat = FACE_CENTER_GEO[face][0];
+      final double faceLon = FACE_CENTER_GEO[face][1];
+      final double azimuth = Math.atan2(Math.cos(latRads) * Math.sin(lonRads - faceLon),
+          Math.cos(faceLat) * Math.sin(latRads) - Math.sin(faceLat) * Math.cos(latRads) * Math.cos(lonRads - faceLon));
+      double theta = posAngleRads(FACE_AXES_AZ_RADS_CII[face] - posAngleRads(azimuth));
+      if (isResClassIII(res)) {
+        theta = posAngleRads(theta - M_AP7_ROT_RADS);
+      }
+      r = Math.tan(r) / RES0_U_GNOMONIC;
+      for (int i = 0; i < res; i++) {
+        r *= M_SQRT7;
+      }
+      vx = r * Math.cos(theta);
+      vy = r * Math.sin(theta);
+    }
+
+    return faceIjkToH3(face, hex2dToCoordIJK(vx, vy), res);
+  }
+
+  private static boolean isResClassIII(int res) {
+    return res % 2 == 1;
+  }
+
+  private static double posAngleRads(double rads) {
+    double tmp = rads < 0 ? rads + M_2PI : rads;
+    if (rads >= M_2PI) {
+      tmp -= M_2PI;
+    }
+    return tmp;
+  }
+
+  private static int[] hex2dToCoordIJK(double x, double y) {
+    final int[] h = new int[3];
+    final double a1 = Math.abs(x);
+    final double a2 = Math.abs(y);
+
+    // first do a reverse conversion
+    final double x2 = a2 / M_SIN60;
+    final double x1 = a1 + x2 / 2.0;
+
+    // check if we have the center of a hex
+    final int m1 = (int) x1;
+    final int m2 = (int) x2;
+
+    // otherwise round correctly
+    final double r1 = x1 - m1;
+    final double r2 = x2 - m2;
+
+    if (r1 < 0.5) {
+      if (r1 < 1.0 / 3.0) {
+        h[0] = m1;
+        h[1] = r2 < (1.0 + r1) / 2.0 ? m2 : m2 + 1;
+      } else {
+        h[1] = r2 < (1.0 - r1) ? m2 : m2 + 1;
+        h[0] = (1.0 - r1) <= r2 && r2 < (2.0 * r1) ? m1 + 1 : m1;
+      }
+    } else {
+      if (r1 < 2.0 / 3.0) {
+        h[1] = r2 < (1.0 - r1) ? m2 : m2 + 1;
+        h[0] = (2.0 * r1 - 1.0) < r2 && r2 < (1.0 - r1) ? m1 : m1 + 1;
+      } else {
+        h[0] = m1 + 1;
+        h[1] = r2 < (r1 / 2.0) ? m2 : m2 + 1;
+      }
+    }
+
+    // now fold across the axes if necessary
+    if (x < 0.0) {
+      if ((h[1] % 2) == 0) {
+        final int axisi = h[1] / 2;
+        final int diff = h[0] - axisi;
+        h[0] = h[0] - 2 * diff;
+      } else {
+        final int axisi = (h[1] + 1) / 2;
+        final int diff = h[0] - axisi;
+        h[0] = h[0] - (2 * diff + 1);
+      }
+    }
+
+    if (y < 0.0) {
+      h[0] = h[0] - (2 * h[1] + 1) / 2;
+      h[1] = -1 * h[1];
+    }
+
+    normalize(h);
+    return h;
+  }
+
+  private static long faceIjkToH3(int face, int[] ijk, int res) {
+    long h = H3_INIT;
+    h = (h & ~(15L << H3_MODE_OFFSET)) | ((long) H3_HEXAGON_MODE << H3_MODE_OFFSET);
+    h = (h & ~(15L << H3_RES_OFFSET)) | ((long) res << H3_RES_OFFSET);
+
+    // build the H3Index from finest res up, adjusting the ijk coordinates of the cell as we go
+    for (int r = res - 1; r >= 0; r--) {
+      final int[] lastIJK = ijk.clone();
+      final int[] lastCenter;
+      if (isResClassIII(r + 1)) {
+        upAp7(ijk);
+        lastCenter = ijk.clone();
+        downAp7(lastCenter, new int[]{3, 0, 1}, new int[]{1, 3, 0}, new int[]{0, 1, 3});
+      } else {
+        upAp7r(ijk);
+        lastCenter = ijk.clone();
+        downAp7(lastCenter, new int[]{3, 1, 0}, new int[]{0, 3, 1}, new int[]{1, 0, 3});
+      }
+      final int[] diff = {lastIJK[0] - lastCenter[0], lastIJK[1] - lastCenter[1], lastIJK[2] - lastCenter[2]};
+      normalize(diff);
+      h = setDigit(h, r + 1, unitIjkToDigit(diff));
+    }
+
+    if (ijk[0] > MAX_FACE_COORD || ijk[1] > MAX_FACE_COORD || ijk[2] > MAX_FACE_COORD) {
+      return 0;
+    }
+
+    final int[] baseCellData = FACE_IJK_BASE_CELLS[face][ijk[0]][ijk[1]][ijk[2]];
+    final int baseCell = baseCellData[0];
+    final int numRots = baseCellData[1];
+    h = (h & ~(127L << H3_BC_OFFSET)) | ((long) baseCell << H3_BC_OFFSET);
+
+    if (BASE_CELL_DATA[baseCell][4] != 0) {
+      // force rotation out of missing k-axes sub-sequence
+      if (leadingNonZeroDigit(h, res) == K_AXES_DIGIT) {
+        if (BASE_CELL_DATA[baseCell][5] == face || BASE_CELL_DATA[baseCell][6] == face) {
+          h = rotate60cw(h, res);
+        } else {
+          h = rotate60ccw(h, res);
+        }
+      }
+      for (int i = 0; i < numRots; i++) {
+        h = rotatePent60ccw(h, res);
+      }
+    } else {
+      for (int i = 0; i < numRots; i++) {
+        h = rotate60ccw(h, res);
+      }
+    }
+    return h;
+  }
+
+  private static void normalize(int[] c) {
+    if (c[0] < 0) {
+      c[1] -= c[0];
+      c[2] -= c[0];
+      c[0] = 0;
+    }
+    if (c[1] < 0) {
+      c[0] -= c[1];
+      c[2] -= c[1];
+      c[1] = 0;
+    }
+    if (c[2] < 0) {
+      c[0] -= c[2];
+      c[1] -= c[2];
+      c[2] = 0;
+    }
+    final int min = Math.min(c[0], Math.min(c[1], c[2]));
+    if (min > 0) {
+      c[0] -= min;
+      c[1] -= min;
+      c[2] -= min;
+    }
+  }
+
+  /**
+   * Rounds half away from zero like lroundl in C.
+   */
+  private static int round(double value) {
+    return (int) (value < 0 ? -Math.floor(-value + 0.5) : Math.floor(value + 0.5));
+  }
+
+  private static void upAp7(int[] ijk) {
+    final int i = ijk[0] - ijk[2];
+    final int j = ijk[1] - ijk[2];
+    ijk[0] = round((3 * i - j) / 7.0);
+    ijk[1] = round((i + 2 * j) / 7.0);
+    ijk[2] = 0;
+    normalize(ijk);
+  }
+
+  private static void upAp7r(int[] ijk) {
+    final int i = ijk[0] - ijk[2];
+    final int j = ijk[1] - ijk[2];
+    ijk[0] = round((2 * i + j) / 7.0);
+    ijk[1] = round((3 * j - i) / 7.0);
+    ijk[2] = 0;
+    normalize(ijk);
+  }
+
+  private static void downAp7(int[] ijk, int[] iVec, int[] jVec, int[] kVec) {
+    final int i = ijk[0];
+    final int j = ijk[1];
+    final int k = ijk[2];
+    for (int n = 0; n < 3; n++) {
+      ijk[n] = iVec[n] * i + jVec[n] * j + kVec[n] * k;
+    }
+    normalize(ijk);
+  }
+
+  private static int unitIjkToDigit(int[] ijk) {
+    for (int digit = CENTER_DIGIT; digit < UNIT_VECS.length; digit++) {
+      if (UNIT_VECS[digit][0] == ijk[0] && UNIT_VECS[digit][1] == ijk[1] && UNIT_VECS[digit][2] == ijk[2]) {
+        return digit;
+      }
+    }
+    return UNIT_VECS.length;
+  }
+
+  private static int getDigit(long h, int res) {
+    return (int) ((h >> ((MAX_RESOLUTION - res) * H3_PER_DIGIT_OFFSET)) & H3_DIGIT_MASK);
+  }
+
+  private static long setDigit(long h, int res, int digit) {
+    final int offset = (MAX_RESOLUTION - res) * H3_PER_DIGIT_OFFSET;
+    return (h & ~(H3_DIGIT_MASK << offset)) | ((long) digit << offset);
+  }
+
+  private static int leadingNonZeroDigit(long h, int res) {
+    for (int r = 1; r <= res; r++) {
+      if (getDigit(h, r) != CENTER_DIGIT) {
+        return getDigit(h, r);
+      }
+    }
+    return CENTER_DIGIT;
+  }
+
+  private static int rotate60ccw(int digit) {
+    switch (digit) {
+      case K_AXES_DIGIT:
+        return IK_AXES_DIGIT;
+      case IK_AXES_DIGIT:
+        return I_AXES_DIGIT;
+      case I_AXES_DIGIT:
+        return IJ_AXES_DIGIT;
+      case IJ_AXES_DIGIT:
+        return J_AXES_DIGIT;
+      case J_AXES_DIGIT:
+        return JK_AXES_DIGIT;
+      case JK_AXES_DIGIT:
+        return K_AXES_DIGIT;
+      default:
+        return digit;
+    }
+  }
+
+  private static int rotate60cw(int digit) {
+    switch (digit) {
+      case K_AXES_DIGIT:
+        return JK_AXES_DIGIT;
+      case JK_AXES_DIGIT:
+        return J_AXES_DIGIT;
+      case J_AXES_DIGIT:
+        return IJ_AXES_DIGIT;
+      case IJ_AXES_DIGIT:
+        return I_AXES_DIGIT;
+      case I_AXES_DIGIT:
+        return IK_AXES_DIGIT;
+      case IK_AXES_DIGIT:
+        return K_AXES_DIGIT;
+      default:
+        return digit;
+    }
+  }
+
+  private static long rotate60ccw(long h, int res) {
+    for (int r = 1; r <= res; r++) {
+      h = setDigit(h, r, rotate60ccw(getDigit(h, r)));
+    }
+    return h;
+  }
+
+  private static long rotate60cw(long h, int res) {
+    for (int r = 1; r <= res; r++) {
+      h = setDigit(h, r, rotate60cw(getDigit(h, r)));
+    }
+    return h;
+  }
+
+  private static long rotatePent60ccw(long h, int res) {
+    // rotate in place; skips any leading 1 digits (k-axis)
+    boolean foundFirstNonZeroDigit = false;
+    for (int r = 1; r <= res; r++) {
+      h = setDigit(h, r, rotate60ccw(getDigit(h, r)));
+      // look for the first non-zero digit so we can adjust for deleted k-axes sequence if necessary
+      if (!foundFirstNonZeroDigit && getDigit(h, r) != 0) {
+        foundFirstNonZeroDigit = true;
+        // adjust for deleted k-axes sequence
+        if (leadingNonZeroDigit(h, res) == K_AXES_DIGIT) {
+          h = rotate60ccw(h, res);
+        }
+      }
+    }
+    return h;
+  }
+
+  // The base cell and its number of 60 degree ccw rotations for the face and ijk coordinates, see faceIjkBaseCells in h3Core.sql
+  private static final int[][][][][] FACE_IJK_BASE_CELLS = {
+    { // face 0
+      {{{16, 0}, {18, 0}, {24, 0}},
+       {{33, 0}, {30, 0}, {32, 3}},
+       {{49, 1}, {48, 3}, {50, 3}}},
+      {{{8, 0}, {5, 5}, {10, 5}},
+       {{22, 0}, {16, 0}, {18, 0}},
+       {{41, 1}, {33, 0}, {30, 0}}},
+      {{{4, 0}, {0, 5}, {2, 5}},
+       {{15, 1}, {8, 0}, {5, 5}},
+       {{31, 1}, {22, 0}, {16, 0}}}
+    },
+    { // face 1
+      {{{2, 0}, {6, 0}, {14, 0}},
+       {{10, 0}, {11, 0}, {17, 3}},
+       {{24, 1}, {23, 3}, {25, 3}}},
+      {{{0, 0}, {1, 5}, {9, 5}},
+       {{5, 0}, {2, 0}, {6, 0}},
+       {{18, 1}, {10, 0}, {11, 0}}},
+      {{{4, 1}, {3, 5}, {7, 5}},
+       {{8, 1}, {0, 0}, {1, 5}},
+       {{16, 1}, {5, 0}, {2, 0}}}
+    },
+    { // face 2
+      {{{7, 0}, {21, 0}, {38, 0}},
+       {{9, 0}, {19, 0}, {34, 3}},
+       {{14, 1}, {20, 3}, {36, 3}}},
+      {{{3, 0}, {13, 5}, {29, 5}},
+       {{1, 0}, {7, 0}, {21, 0}},
+       {{6, 1}, {9, 0}, {19, 0}}},
+      {{{4, 2}, {12, 5}, {26, 5}},
+       {{0, 1}, {3, 0}, {13, 5}},
+       {{2, 1}, {1, 0}, {7, 0}}}
+    },
+    { // face 3
+      {{{26, 0}, {42, 0}, {58, 0}},
+       {{29, 0}, {43, 0}, {62, 3}},
+       {{38, 1}, {47, 3}, {64, 3}}},
+      {{{12, 0}, {28, 5}, {44, 5}},
+       {{13, 0}, {26, 0}, {42, 0}},
+       {{21, 1}, {29, 0}, {43, 0}}},
+      {{{4, 3}, {15, 5}, {31, 5}},
+       {{3, 1}, {12, 0}, {28, 5}},
+       {{7, 1}, {13, 0}, {26, 0}}}
+    },
+    { // face 4
+      {{{31, 0}, {41, 0}, {49, 0}},
+       {{44, 0}, {53, 0}, {61, 3}},
+       {{58, 1}, {65, 3}, {75, 3}}},
+      {{{15, 0}, {22, 5}, {33, 5}},
+       {{28, 0}, {31, 0}, {41, 0}},
+       {{42, 1}, {44, 0}, {53, 0}}},
+      {{{4, 4}, {8, 5}, {16, 5}},
+       {{12, 1}, {15, 0}, {22, 5}},
+       {{26, 1}, {28, 0}, {31, 0}}}
+    },
+    { // face 5
+      {{{50, 0}, {48, 0}, {49, 3}},
+       {{32, 0}, {30, 3}, {33, 3}},
+       {{24, 3}, {18, 3}, {16, 3}}},
+      {{{70, 0}, {67, 0}, {66, 3}},
+       {{52, 3}, {50, 0}, {48, 0}},
+       {{37, 3}, {32, 0}, {30, 3}}},
+      {{{83, 0}, {87, 3}, {85, 3}},
+       {{74, 3}, {70, 0}, {67, 0}},
+       {{57, 1}, {52, 3}, {50, 0}}}
+    },
+    { // face 6
+      {{{25, 0}, {23, 0}, {24, 3}},
+       {{17, 0}, {11, 3}, {10, 3}},
+       {{14, 3}, {6, 3}, {2, 3}}},
+      {{{45, 0}, {39, 0}, {37, 3}},
+       {{35, 3}, {25, 0}, {23, 0}},
+       {{27, 3}, {17, 0}, {11, 3}}},
+      {{{63, 0}, {59, 3}, {57, 3}},
+       {{56, 3}, {45, 0}, {39, 0}},
+       {{46, 3}, {35, 3}, {25, 0}}}
+    },
+    { // face 7
+      {{{36, 0}, {20, 0}, {14, 3}},
+       {{34, 0}, {19, 3}, {9, 3}},
+       {{38, 3}, {21, 3}, {7, 3}}},
+      {{{55, 0}, {40, 0}, {27, 3}},
+       {{54, 3}, {36, 0}, {20, 0}},
+       {{51, 3}, {34, 0}, {19, 3}}},
+      {{{72, 0}, {60, 3}, {46, 3}},
+       {{73, 3}, {55, 0}, {40, 0}},
+       {{71, 3}, {54, 3}, {36, 0}}}
+    },
+    { // face 8
+      {{{64, 0}, {47, 0}, {38, 3}},
+       {{62, 0}, {43, 3}, {29, 3}},
+       {{58, 3}, {42, 3}, {26, 3}}},
+      {{{84, 0}, {69, 0}, {51, 3}},
+       {{82, 3}, {64, 0}, {47, 0}},
+       {{76, 3}, {62, 0}, {43, 3}}},
+      {{{97, 0}, {89, 3}, {71, 3}},
+       {{98, 3}, {84, 0}, {69, 0}},
+       {{96, 3}, {82, 3}, {64, 0}}}
+    },
+    { // face 9
+      {{{75, 0}, {65, 0}, {58, 3}},
+       {{61, 0}, {53, 3}, {44, 3}},
+       {{49, 3}, {41, 3}, {31, 3}}},
+      {{{94, 0}, {86, 0}, {76, 3}},
+       {{81, 3}, {75, 0}, {65, 0}},
+       {{66, 3}, {61, 0}, {53, 3}}},
+      {{{107, 0}, {104, 3}, {96, 3}},
+       {{101, 3}, {94, 0}, {86, 0}},
+       {{85, 3}, {81, 3}, {75, 0}}}
+    },
+    { // face 10
+      {{{57, 0}, {59, 0}, {63, 3}},
+       {{74, 0}, {78, 3}, {79, 3}},
+       {{83, 3}, {92, 3}, {95, 3}}},
+      {{{37, 0}, {39, 3}, {45, 3}},
+       {{52, 0}, {57, 0}, {59, 0}},
+       {{70, 3}, {74, 0}, {78, 3}}},
+      {{{24, 0}, {23, 3}, {25, 3}},
+       {{32, 3}, {37, 0}, {39, 3}},
+       {{50, 3}, {52, 0}, {57, 0}}}
+    },
+    { // face 11
+      {{{46, 0}, {60, 0}, {72, 3}},
+       {{56, 0}, {68, 3}, {80, 3}},
+       {{63, 3}, {77, 3}, {90, 3}}},
+      {{{27, 0}, {40, 3}, {55, 3}},
+       {{35, 0}, {46, 0}, {60, 0}},
+       {{45, 3}, {56, 0}, {68, 3}}},
+      {{{14, 0}, {20, 3}, {36, 3}},
+       {{17, 3}, {27, 0}, {40, 3}},
+       {{25, 3}, {35, 0}, {46, 0}}}
+    },
+    { // face 12
+      {{{71, 0}, {89, 0}, {97, 3}},
+       {{73, 0}, {91, 3}, {103, 3}},
+       {{72, 3}, {88, 3}, {105, 3}}},
+      {{{51, 0}, {69, 3}, {84, 3}},
+       {{54, 0}, {71, 0}, {89, 0}},
+       {{55, 3}, {73, 0}, {91, 3}}},
+      {{{38, 0}, {47, 3}, {64, 3}},
+       {{34, 3}, {51, 0}, {69, 3}},
+       {{36, 3}, {54, 0}, {71, 0}}}
+    },
+    { // face 13
+      {{{96, 0}, {104, 0}, {107, 3}},
+       {{98, 0}, {110, 3}, {115, 3}},
+       {{97, 3}, {111, 3}, {119, 3}}},
+      {{{76, 0}, {86, 3}, {94, 3}},
+       {{82, 0}, {96, 0}, {104, 0}},
+       {{84, 3}, {98, 0}, {110, 3}}},
+      {{{58, 0}, {65, 3}, {75, 3}},
+       {{62, 3}, {76, 0}, {86, 3}},
+       {{64, 3}, {82, 0}, {96, 0}}}
+    },
+    { // face 14
+      {{{85, 0}, {87, 0}, {83, 3}},
+       {{101, 0}, {102, 3}, {100, 3}},
+       {{107, 3}, {112, 3}, {114, 3}}},
+      {{{66, 0}, {67, 3}, {70, 3}},
+       {{81, 0}, {85, 0}, {87, 0}},
+       {{94, 3}, {101, 0}, {102, 3}}},
+      {{{49, 0}, {48, 3}, {50, 3}},
+       {{61, 3}, {66, 0}, {67, 3}},
+       {{75, 3}, {81, 0}, {85, 0}}}
+    },
+    { // face 15
+      {{{95, 0}, {92, 0}, {83, 0}},
+       {{79, 0}, {78, 0}, {74, 3}},
+       {{63, 1}, {59, 3}, {57, 3}}},
+      {{{109, 0}, {108, 0}, {100, 5}},
+       {{93, 1}, {95, 0}, {92, 0}},
+       {{77, 1}, {79, 0}, {78, 0}}},
+      {{{117, 4}, {118, 5}, {114, 5}},
+       {{106, 1}, {109, 0}, {108, 0}},
+       {{90, 1}, {93, 1}, {95, 0}}}
+    },
+    { // face 16
+      {{{90, 0}, {77, 0}, {63, 0}},
+       {{80, 0}, {68, 0}, {56, 3}},
+       {{72, 1}, {60, 3}, {46, 3}}},
+      {{{106, 0}, {93, 0}, {79, 5}},
+       {{99, 1}, {90, 0}, {77, 0}},
+       {{88, 1}, {80, 0}, {68, 0}}},
+      {{{117, 3}, {109, 5}, {95, 5}},
+       {{113, 1}, {106, 0}, {93, 0}},
+       {{105, 1}, {99, 1}, {90, 0}}}
+    },
+    { // face 17
+      {{{105, 0}, {88, 0}, {72, 0}},
+       {{103, 0}, {91, 0}, {73, 3}},
+       {{97, 1}, {89, 3}, {71, 3}}},
+      {{{113, 0}, {99, 0}, {80, 5}},
+       {{116, 1}, {105, 0}, {88, 0}},
+       {{111, 1}, {103, 0}, {91, 0}}},
+      {{{117, 2}, {106, 5}, {90, 5}},
+       {{121, 1}, {113, 0}, {99, 0}},
+       {{119, 1}, {116, 1}, {105, 0}}}
+    },
+    { // face 18
+      {{{119, 0}, {111, 0}, {97, 0}},
+       {{115, 0}, {110, 0}, {98, 3}},
+       {{107, 1}, {104, 3}, {96, 3}}},
+      {{{121, 0}, {116, 0}, {103, 5}},
+       {{120, 1}, {119, 0}, {111, 0}},
+       {{112, 1}, {115, 0}, {110, 0}}},
+      {{{117, 1}, {113, 5}, {105, 5}},
+       {{118, 1}, {121, 0}, {116, 0}},
+       {{114, 1}, {120, 1}, {119, 0}}}
+    },
+    { // face 19
+      {{{114, 0}, {112, 0}, {107, 0}},
+       {{100, 0}, {102, 0}, {101, 3}},
+       {{83, 1}, {87, 3}, {85, 3}}},
+      {{{118, 0}, {120, 0}, {115, 5}},
+       {{108, 1}, {114, 0}, {112, 0}},
+       {{92, 1}, {100, 0}, {102, 0}}},
+      {{{117, 0}, {121, 5}, {119, 5}},
+       {{109, 1}, {118, 0}, {120, 0}},
+       {{95, 1}, {108, 1}, {114, 0}}}
+    }
+  };
+
+  // The home face, i, j, k, pentagon flag and the clockwise offset faces of the base cells
+  private static final int[][] BASE_CELL_DATA = {
+      {1, 1, 0, 0, 0, 0, 0},
+      {2, 1, 1, 0, 0, 0, 0},
+      {1, 0, 0, 0, 0, 0, 0},
+      {2, 1, 0, 0, 0, 0, 0},
+      {0, 2, 0, 0, 1, -1, -1},
+      {1, 1, 1, 0, 0, 0, 0},
+      {1, 0, 0, 1, 0, 0, 0},
+      {2, 0, 0, 0, 0, 0, 0},
+      {0, 1, 0, 0, 0, 0, 0},
+      {2, 0, 1, 0, 0, 0, 0},
+      {1, 0, 1, 0, 0, 0, 0},
+      {1, 0, 1, 1, 0, 0, 0},
+      {3, 1, 0, 0, 0, 0, 0},
+      {3, 1, 1, 0, 0, 0, 0},
+      {11, 2, 0, 0, 1, 2, 6},
+      {4, 1, 0, 0, 0, 0, 0},
+      {0, 0, 0, 0, 0, 0, 0},
+      {6, 0, 1, 0, 0, 0, 0},
+      {0, 0, 0, 1, 0, 0, 0},
+      {2, 0, 1, 1, 0, 0, 0},
+      {7, 0, 0, 1, 0, 0, 0},
+      {2, 0, 0, 1, 0, 0, 0},
+      {0, 1, 1, 0, 0, 0, 0},
+      {6, 0, 0, 1, 0, 0, 0},
+      {10, 2, 0, 0, 1, 1, 5},
+      {6, 0, 0, 0, 0, 0, 0},
+      {3, 0, 0, 0, 0, 0, 0},
+      {11, 1, 0, 0, 0, 0, 0},
+      {4, 1, 1, 0, 0, 0, 0},
+      {3, 0, 1, 0, 0, 0, 0},
+      {0, 0, 1, 1, 0, 0, 0},
+      {4, 0, 0, 0, 0, 0, 0},
+      {5, 0, 1, 0, 0, 0, 0},
+      {0, 0, 1, 0, 0, 0, 0},
+      {7, 0, 1, 0, 0, 0, 0},
+      {11, 1, 1, 0, 0, 0, 0},
+      {7, 0, 0, 0, 0, 0, 0},
+      {10, 1, 0, 0, 0, 0, 0},
+      {12, 2, 0, 0, 1, 3, 7},
+      {6, 1, 0, 1, 0, 0, 0},
+      {7, 1, 0, 1, 0, 0, 0},
+      {4, 0, 0, 1, 0, 0, 0},
+      {3, 0, 0, 1, 0, 0, 0},
+      {3, 0, 1, 1, 0, 0, 0},
+      {4, 0, 1, 0, 0, 0, 0},
+      {6, 1, 0, 0, 0, 0, 0},
+      {11, 0, 0, 0, 0, 0, 0},
+      {8, 0, 0, 1, 0, 0, 0},
+      {5, 0, 0, 1, 0, 0, 0},
+      {14, 2, 0, 0, 1, 0, 9},
+      {5, 0, 0, 0, 0, 0, 0},
+      {12, 1, 0, 0, 0, 0, 0},
+      {10, 1, 1, 0, 0, 0, 0},
+      {4, 0, 1, 1, 0, 0, 0},
+      {12, 1, 1, 0, 0, 0, 0},
+      {7, 1, 0, 0, 0, 0, 0},
+      {11, 0, 1, 0, 0, 0, 0},
+      {10, 0, 0, 0, 0, 0, 0},
+      {13, 2, 0, 0, 1, 4, 8},
+      {10, 0, 0, 1, 0, 0, 0},
+      {11, 0, 0, 1, 0, 0, 0},
+      {9, 0, 1, 0, 0, 0, 0},
+      {8, 0, 1, 0, 0, 0, 0},
+      {6, 2, 0, 0, 1, 11, 15},
+      {8, 0, 0, 0, 0, 0, 0},
+      {9, 0, 0, 1, 0, 0, 0},
+      {14, 1, 0, 0, 0, 0, 0},
+      {5, 1, 0, 1, 0, 0, 0},
+      {16, 0, 1, 1, 0, 0, 0},
+      {8, 1, 0, 1, 0, 0, 0},
+      {5, 1, 0, 0, 0, 0, 0},
+      {12, 0, 0, 0, 0, 0, 0},
+      {7, 2, 0, 0, 1, 12, 16},
+      {12, 0, 1, 0, 0, 0, 0},
+      {10, 0, 1, 0, 0, 0, 0},
+      {9, 0, 0, 0, 0, 0, 0},
+      {13, 1, 0, 0, 0, 0, 0},
+      {16, 0, 0, 1, 0, 0, 0},
+      {15, 0, 1, 1, 0, 0, 0},
+      {15, 0, 1, 0, 0, 0, 0},
+      {16, 0, 1, 0, 0, 0, 0},
+      {14, 1, 1, 0, 0, 0, 0},
+      {13, 1, 1, 0, 0, 0, 0},
+      {5, 2, 0, 0, 1, 10, 19},
+      {8, 1, 0, 0, 0, 0, 0},
+      {14, 0, 0, 0, 0, 0, 0},
+      {9, 1, 0, 1, 0, 0, 0},
+      {14, 0, 0, 1, 0, 0, 0},
+      {17, 0, 0, 1, 0, 0, 0},
+      {12, 0, 0, 1, 0, 0, 0},
+      {16, 0, 0, 0, 0, 0, 0},
+      {17, 0, 1, 1, 0, 0, 0},
+      {15, 0, 0, 1, 0, 0, 0},
+      {16, 1, 0, 1, 0, 0, 0},
+      {9, 1, 0, 0, 0, 0, 0},
+      {15, 0, 0, 0, 0, 0, 0},
+      {13, 0, 0, 0, 0, 0, 0},
+      {8, 2, 0, 0, 1, 13, 17},
+      {13, 0, 1, 0, 0, 0, 0},
+      {17, 1, 0, 1, 0, 0, 0},
+      {19, 0, 1, 0, 0, 0, 0},
+      {14, 0, 1, 0, 0, 0, 0},
+      {19, 0, 1, 1, 0, 0, 0},
+      {17, 0, 1, 0, 0, 0, 0},
+      {13, 0, 0, 1, 0, 0, 0},
+      {17, 0, 0, 0, 0, 0, 0},
+      {16, 1, 0, 0, 0, 0, 0},
+      {9, 2, 0, 0, 1, 14, 18},
+      {15, 1, 0, 1, 0, 0, 0},
+      {15, 1, 0, 0, 0, 0, 0},
+      {18, 0, 1, 1, 0, 0, 0},
+      {18, 0, 0, 1, 0, 0, 0},
+      {19, 0, 0, 1, 0, 0, 0},
+      {17, 1, 0, 0, 0, 0, 0},
+      {19, 0, 0, 0, 0, 0, 0},
+      {18, 0, 1, 0, 0, 0, 0},
+      {18, 1, 0, 1, 0, 0, 0},
+      {19, 2, 0, 0, 1, -1, -1},
+      {19, 1, 0, 0, 0, 0, 0},
+      {18, 0, 0, 0, 0, 0, 0},
+      {19, 1, 0, 1, 0, 0, 0},
+      {18, 1, 0, 0, 0, 0, 0}
+  };
+
+  // The latitude and longitude of the face centers in radians
+  private static final double[][] FACE_CENTER_GEO = {
+      {0.803582649718989942, 1.248397419617396099},
+      {1.307747883455638156, 2.536945009877921159},
+      {1.054751253523952054, -1.347517358900396623},
+      {0.600191595538186799, -0.450603909469755746},
+      {0.491715428198773866, 0.401988202911306943},
+      {0.172745327415618701, 1.678146885280433686},
+      {0.605929321571350690, 2.953923329812411617},
+      {0.427370518328979641, -1.888876200336285401},
+      {-0.079066118549212831, -0.733429513380867741},
+      {-0.230961644455383637, 0.506495587332349035},
+      {0.079066118549212831, 2.408163140208925497},
+      {0.230961644455383637, -2.635097066257444203},
+      {-0.172745327415618701, -1.463445768309359553},
+      {-0.605929321571350690, -0.187669323777381622},
+      {-0.427370518328979641, 1.252716453253507838},
+      {-0.600191595538186799, 2.690988744120037492},
+      {-0.491715428198773866, -2.739604450678486295},
+      {-0.803582649718989942, -1.893195233972397139},
+      {-1.307747883455638156, -0.604647643711872080},
+      {-1.054751253523952054, 1.794075294689396615}
+  };
+
+  // The face centers as 3D vectors on the unit sphere
+  private static final double[][] FACE_CENTER_POINT = {
+      {0.2199307791404606, 0.6583691780274996, 0.7198475378926182},
+      {-0.2139234834501421, 0.1478171829550703, 0.9656017935214205},
+      {0.1092625278784797, -0.4811951572873210, 0.8697775121287253},
+      {0.7428567301586791, -0.3593941678278028, 0.5648005936517033},
+      {0.8112534709140969, 0.3448953237639384, 0.4721387736413930},
+      {-0.1055498149613921, 0.9794457296411413, 0.1718874610009365},
+      {-0.8075407579970092, 0.1533552485898818, 0.5695261994882688},
+      {-0.2846148069787907, -0.8644080972654206, 0.4144792552473539},
+      {0.7405621473854482, -0.6673299564565524, -0.0789837646326737},
+      {0.8512303986474293, 0.4722343788582681, -0.2289137388687808},
+      {-0.7405621473854481, 0.6673299564565524, 0.0789837646326737},
+      {-0.8512303986474292, -0.4722343788582682, 0.2289137388687808},
+      {0.1055498149613919, -0.9794457296411413, -0.1718874610009365},
+      {0.8075407579970092, -0.1533552485898819, -0.5695261994882688},
+      {0.2846148069787908, 0.8644080972654204, -0.4144792552473539},
+      {-0.7428567301586791, 0.3593941678278027, -0.5648005936517033},
+      {-0.8112534709140971, -0.3448953237639382, -0.4721387736413930},
+      {-0.2199307791404607, -0.6583691780274996, -0.7198475378926182},
+      {0.2139234834501420, -0.1478171829550704, -0.9656017935214205},
+      {-0.1092625278784796, 0.4811951572873210, -0.8697775121287253}
+  };
+
+  // The azimuth of the i axis of the Class II faces in radians
+  private static final double[] FACE_AXES_AZ_RADS_CII = {
+      5.619958268523939882,
+      5.760339081714187279,
+      0.780213654393430055,
+      0.430469363979999913,
+      6.130269123335111400,
+      2.692877706530642877,
+      2.982963003477243874,
+      3.532912002790141181,
+      3.494305004259568154,
+      3.003214169499538391,
+      5.930472956509811562,
+      0.138378484090254847,
+      0.448714947059150361,
+      0.158629650112549365,
+      5.891865957979238535,
+      2.711123289609793325,
+      3.294508837434268316,
+      3.804819692245439833,
+      3.664438879055192436,
+      2.361378999196363184
+  };
+}
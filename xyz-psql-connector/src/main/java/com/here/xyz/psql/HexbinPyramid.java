@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The precomputed hexbin aggregation pyramid of a space. For every H3 cell of the resolutions 2 to 15 the pyramid contains the number of
+ * features, which have their reference point in the cell.
+ *
+ * <p>The pyramid only serves requests, which count the features. The statistics of a property always contain the median, which can not
+ * be maintained incrementally, therefore they are always aggregated live.</p>
+ *
+ * <p>The pyramid is maintained incrementally by triggers on the table of the space within the transaction of the write. From PostgreSQL 10
+ * on, statement triggers aggregate the differences of all written rows from the transition tables per cell, so that every cell is updated
+ * once per statement. Older versions apply the difference of every written row with a row trigger.</p>
+ */
+class HexbinPyramid {
+
+  static final int MIN_RESOLUTION = 2;
+  static final int MAX_RESOLUTION = 15;
+
+  /**
+   * The name of the replacement for the pyramid table.
+   */
+  static final String TABLE = "hexbin";
+
+  /**
+   * The suffix of the pyramid table, which is appended to the table of the space.
+   */
+  static final String TABLE_SUFFIX = "_hexbin";
+
+  /**
+   * The name of the replacement for the trigger function, which maintains the pyramid.
+   */
+  static final String TRIGGER = "hexbin_trigger";
+
+  /**
+   * The suffix of the trigger function and the row trigger, which is appended to the table of the space.
+   */
+  static final String TRIGGER_SUFFIX = "_hexbin_trigger";
+
+  /**
+   * The name of the replacement for the trigger, which truncates the pyramid together with the table of the space.
+   */
+  static final String TRUNCATE_TRIGGER = "hexbin_truncate";
+
+  static final String TRUNCATE_TRIGGER_SUFFIX = "_hexbin_truncate";
+
+  static final String CREATE_TABLE_SQL = "CREATE TABLE ${schema}.${hexbin} (res smallint NOT NULL, h3 bigint NOT NULL, qty bigint NOT NULL, "
+      + "geo geometry(Polygon, 4326), PRIMARY KEY (res, h3))";
+
+  static final String CREATE_INDEX_SQL = "CREATE INDEX ${idx_hexbin_geo} ON ${schema}.${hexbin} USING gist ((geo))";
+
+  static final String DROP_TABLE_SQL = "DROP TABLE IF EXISTS ${schema}.${hexbin}";
+
+  /**
+   * Drops the trigger function together with the triggers on the table of the space.
+   */
+  static final String DROP_TRIGGER_SQL = "DROP FUNCTION IF EXISTS ${schema}.${hexbin_trigger}() CASCADE";
+
+  static final String CREATE_TRIGGER_SQL = "CREATE TRIGGER ${hexbin_trigger} AFTER INSERT OR UPDATE OF geo OR DELETE "
+      + "ON ${schema}.${table} FOR EACH ROW EXECUTE PROCEDURE ${schema}.${hexbin_trigger}()";
+
+  /**
+   * The statement triggers with transition tables, which are created instead of the row trigger from PostgreSQL 10 on. A trigger with
+   * transition tables can only be defined for a single event.
+   */
+  static final List<String> CREATE_STATEMENT_TRIGGERS_SQL = Arrays.asList(
+      "CREATE TRIGGER hexbin_insert AFTER INSERT ON ${schema}.${table} REFERENCING NEW TABLE AS new_rows "
+          + "FOR EACH STATEMENT EXECUTE PROCEDURE ${schema}.${hexbin_trigger}()",
+      "CREATE TRIGGER hexbin_update AFTER UPDATE ON ${schema}.${table} REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows "
+          + "FOR EACH STATEMENT EXECUTE PROCEDURE ${schema}.${hexbin_trigger}()",
+      "CREATE TRIGGER hexbin_delete AFTER DELETE ON ${schema}.${table} REFERENCING OLD TABLE AS old_rows "
+          + "FOR EACH STATEMENT EXECUTE PROCEDURE ${schema}.${hexbin_trigger}()");
+
+  static final String CREATE_TRUNCATE_TRIGGER_SQL = "CREATE TRIGGER ${hexbin_truncate} AFTER TRUNCATE "
+      + "ON ${schema}.${table} FOR EACH STATEMENT EXECUTE PROCEDURE ${schema}.${hexbin_trigger}()";
+
+  static final String EXISTS_SQL = "SELECT to_regclass(?) IS NOT NULL";
+
+  private static final String CELL_GEOMETRY = "h3ToGeoBoundaryDeg(%s)::geometry(Polygon, 4326)";
+
+  /**
+   * The cell of the reference point of a geometry at the maximal resolution.
+   */
+  private static final String CELL = "geoToH3Deg_p(CASE ST_GeometryType(%1$s) WHEN 'ST_Point' THEN %1$s "
+      + "ELSE ST_ClosestPoint(%1$s, %1$s) END, " + MAX_RESOLUTION + ")";
+
+  private static final String RESOLUTIONS = "generate_series(" + MIN_RESOLUTION + ", " + MAX_RESOLUTION + ") r";
+
+  /**
+   * The trigger function of the row trigger. An update, which does not change the cell of the row, is skipped.
+   */
+  static final String TRIGGER_FUNCTION_SQL = "CREATE OR REPLACE FUNCTION ${schema}.${hexbin_trigger}() RETURNS trigger AS $BODY$\n"
+      + "DECLARE\n"
+      + "  old_h3 bigint; new_h3 bigint;\n"
+      + "BEGIN\n"
+      + "  IF TG_OP = 'TRUNCATE' THEN\n"
+      + "    TRUNCATE ${schema}.${hexbin};\n"
+      + "    RETURN NULL;\n"
+      + "  END IF;\n"
+      + "  IF TG_OP != 'INSERT' AND OLD.geo IS NOT NULL THEN\n"
+      + "    old_h3 := " + String.format(CELL, "OLD.geo") + ";\n"
+      + "  END IF;\n"
+      + "  IF TG_OP != 'DELETE' AND NEW.geo IS NOT NULL THEN\n"
+      + "    new_h3 := " + String.format(CELL, "NEW.geo") + ";\n"
+      + "  END IF;\n"
+      + "  IF old_h3 IS NOT DISTINCT FROM new_h3 THEN\n"
+      + "    RETURN NULL;\n"
+      + "  END IF;\n"
+      + apply("SELECT -1 AS sign, old_h3 AS h3 WHERE old_h3 IS NOT NULL UNION ALL SELECT 1, new_h3 WHERE new_h3 IS NOT NULL")
+      + "  RETURN NULL;\n"
+      + "END\n"
+      + "$BODY$ LANGUAGE plpgsql VOLATILE";
+
+  /**
+   * The trigger function of the statement triggers, which reads the written rows from the transition tables.
+   */
+  static final String STATEMENT_TRIGGER_FUNCTION_SQL = "CREATE OR REPLACE FUNCTION ${schema}.${hexbin_trigger}() RETURNS trigger AS "
+      + "$BODY$\n"
+      + "BEGIN\n"
+      + "  IF TG_OP = 'TRUNCATE' THEN\n"
+      + "    TRUNCATE ${schema}.${hexbin};\n"
+      + "  ELSIF TG_OP = 'INSERT' THEN\n"
+      + apply(contributions(1, "new_rows"))
+      + "  ELSIF TG_OP = 'UPDATE' THEN\n"
+      + apply(contributions(-1, "old_rows") + " UNION ALL " + contributions(1, "new_rows"))
+      + "  ELSE\n"
+      + apply(contributions(-1, "old_rows"))
+      + "  END IF;\n"
+      + "  RETURN NULL;\n"
+      + "END\n"
+      + "$BODY$ LANGUAGE plpgsql VOLATILE";
+
+  /**
+   * Returns the statements, which create the trigger function and the triggers maintaining the pyramid.
+   *
+   * @param transitionTables whether the database supports statement triggers with transition tables.
+   */
+  static List<String> triggerSql(boolean transitionTables) {
+    final List<String> sql = new ArrayList<>();
+    if (transitionTables) {
+      sql.add(STATEMENT_TRIGGER_FUNCTION_SQL);
+      sql.addAll(CREATE_STATEMENT_TRIGGERS_SQL);
+    } else {
+      sql.add(TRIGGER_FUNCTION_SQL);
+      sql.add(CREATE_TRIGGER_SQL);
+    }
+    sql.add(CREATE_TRUNCATE_TRIGGER_SQL);
+    return sql;
+  }
+
+  /**
+   * Returns the query of the signed cells of the rows of a transition table.
+   */
+  private static String contributions(int sign, String rows) {
+    return "SELECT " + sign + " AS sign, " + String.format(CELL, "geo") + " AS h3 FROM " + rows + " WHERE geo IS NOT NULL";
+  }
+
+  /**
+   * Returns the statement, which adds the signed cells of the given query to the pyramid. The differences are summed up per cell, so that
+   * every cell is updated once, and the cells are updated in a fixed order to avoid deadlocks between concurrent writers.
+   */
+  private static String apply(String contributions) {
+    return "    INSERT INTO ${schema}.${hexbin} AS p (res, h3, qty, geo)\n"
+        + "      SELECT d.res, d.h3, d.qty, " + String.format(CELL_GEOMETRY, "d.h3") + " FROM (\n"
+        + "        SELECT r AS res, h3ToParent(c.h3, r) AS h3, sum(c.sign) AS qty FROM (" + contributions + ") c, " + RESOLUTIONS + "\n"
+        + "        GROUP BY 1, 2 HAVING sum(c.sign) != 0) d ORDER BY 1, 2\n"
+        + "    ON CONFLICT (res, h3) DO UPDATE SET qty = p.qty + EXCLUDED.qty;\n";
+  }
+
+  /**
+   * Creates the statement, which fills the empty pyramid with the contributions of all features.
+   */
+  static SQLQuery build() {
+    final SQLQuery query = new SQLQuery("INSERT INTO ${schema}.${hexbin} (res, h3, qty, geo)");
+    query.append("SELECT res, h3, qty, " + String.format(CELL_GEOMETRY, "h3") + " FROM (");
+    query.append("SELECT r AS res, h3ToParent(c.h3, r) AS h3, count(*) AS qty");
+    query.append("FROM (SELECT " + String.format(CELL, "geo") + " AS h3 FROM ${schema}.${table} WHERE geo IS NOT NULL) c,");
+    query.append(RESOLUTIONS + " GROUP BY 1, 2");
+    query.append(") n");
+    return query;
+  }
+}
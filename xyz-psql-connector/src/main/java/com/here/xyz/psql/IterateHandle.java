@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The handle of an iteration. Three formats are supported:
+ *
+ * <ul>
+ * <li>Legacy handles are plain numbers. Without a search they contain the last returned serial (i), with a search they contain the
+ * offset of the next page.</li>
+ * <li>Keyset handles have the format {@code k1_<i>_<filter>}. They contain the last returned serial and a hash of the search, with
+ * which the iteration was started.</li>
+ * <li>Partition handles have the format {@code p1_<i>_<max>}. They contain the last returned serial and the inclusive upper bound of the
+ * serial range, which is iterated.</li>
+ * </ul>
+ */
+class IterateHandle {
+
+  private static final String KEYSET_PREFIX = "k1_";
+  private static final String PARTITION_PREFIX = "p1_";
+
+  /**
+   * The last returned serial or the offset of the next page, depending on the format of the handle.
+   */
+  final long value;
+
+  /**
+   * The hash of the search, for keyset handles, otherwise null.
+   */
+  final String filterHash;
+
+  /**
+   * The inclusive upper bound of the serial range for partition handles, otherwise null.
+   */
+  final Long upperBound;
+
+  private IterateHandle(long value, String filterHash, Long upperBound) {
+    this.value = value;
+    this.filterHash = filterHash;
+    this.upperBound = upperBound;
+  }
+
+  /**
+   * Returns true, if this handle contains the last returned serial of a search.
+   */
+  boolean isKeyset() {
+    return filterHash != null;
+  }
+
+  /**
+   * Returns true, if this handle belongs to a partition of the space.
+   */
+  boolean isPartition() {
+    return upperBound != null;
+  }
+
+  /**
+   * Parses the given handle.
+   *
+   * @param handle the handle.
+   * @return the parsed handle or null, if the provided handle is null.
+   * @throws IllegalArgumentException if the handle is invalid.
+   */
+  static IterateHandle parse(String handle) {
+    if (handle == null) {
+      return null;
+    }
+    try {
+      if (handle.startsWith(KEYSET_PREFIX) || handle.startsWith(PARTITION_PREFIX)) {
+        final int separator = handle.indexOf('_', KEYSET_PREFIX.length());
+        if (separator < 0) {
+          throw new IllegalArgumentException("Invalid handle: " + handle);
+        }
+        final long value = Long.parseLong(handle.substring(KEYSET_PREFIX.length(), separator));
+        final String suffix = handle.substring(separator + 1);
+        if (handle.startsWith(PARTITION_PREFIX)) {
+          return new IterateHandle(value, null, Long.parseLong(suffix));
+        }
+        return new IterateHandle(value, suffix, null);
+      }
+      return new IterateHandle(Long.parseLong(handle), null, null);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid handle: " + handle);
+    }
+  }
+
+  /**
+   * Creates a keyset handle.
+   *
+   * @param lastSerial the last returned serial.
+   * @param filterHash the hash of the search.
+   * @return the handle.
+   */
+  static String keyset(long lastSerial, String filterHash) {
+    return KEYSET_PREFIX + lastSerial + "_" + filterHash;
+  }
+
+  /**
+   * Creates a partition handle.
+   *
+   * @param lastSerial the last returned serial.
+   * @param upperBound the inclusive upper bound of the partition.
+   * @return the handle.
+   */
+  static String partition(long lastSerial, long upperBound) {
+    return PARTITION_PREFIX + lastSerial + "_" + upperBound;
+  }
+
+  /**
+   * Calculates the hash of the given search query, which is stored in keyset handles.
+   *
+   * @param searchQuery the search query.
+   * @return the hash of the search query.
+   */
+  @SuppressWarnings("UnstableApiUsage")
+  static String filterHash(SQLQuery searchQuery) {
+    return Hashing.murmur3_32().hashString(searchQuery.text() + searchQuery.parameters(), StandardCharsets.UTF_8).toString();
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+
+package com.here.xyz.psql;
+
+import com.here.xyz.events.Event;
+import com.vividsolutions.jts.geom.Geometry;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The columns of a space table, which contain keys calculated from the geometries of the features while they are written: the H3 cells
+ * of the configured resolutions and the Morton key of the configured tile level. The keys are stored in bigint columns with a B-tree
+ * index, so that clustering and tile queries can use them instead of spatial functions.
+ */
+class KeyColumns {
+
+  private static final String UNDEFINED_COLUMN = "42703";
+
+  /**
+   * The query, which lists the key columns of a table. The parameters are the schema and the table.
+   */
+  static final String COLUMNS_SQL = "SELECT column_name FROM information_schema.columns WHERE table_schema = ? AND table_name = ? "
+      + "AND (column_name LIKE '" + like(H3Index.COLUMN_PREFIX) + "' OR column_name LIKE '" + like(MortonKey.COLUMN_PREFIX) + "')";
+
+  private final int[] h3Resolutions;
+  private final int mortonLevel;
+  private final List<String> names = new ArrayList<>();
+
+  KeyColumns(int[] h3Resolutions, int mortonLevel) {
+    this.h3Resolutions = h3Resolutions;
+    this.mortonLevel = mortonLevel;
+    for (int resolution : h3Resolutions) {
+      names.add(H3Index.column(resolution));
+    }
+    if (mortonLevel > 0) {
+      names.add(MortonKey.column(mortonLevel));
+    }
+  }
+
+  /**
+   * Returns the key columns, which are configured for the space of the given event.
+   */
+  static KeyColumns of(Event event) {
+    return new KeyColumns(PSQLConfig.h3Resolutions(event), PSQLConfig.mortonLevel(event));
+  }
+
+  /**
+   * Returns the names of the columns.
+   */
+  List<String> names() {
+    return Collections.unmodifiableList(names);
+  }
+
+  int size() {
+    return names.size();
+  }
+
+  boolean isEmpty() {
+    return names.isEmpty();
+  }
+
+  /**
+   * Repeats the given pattern for every column, each repetition prefixed with a comma. The column name is available as first format
+   * argument of the pattern, for example {@code join("%1$s = ?")} returns {@code ", h3_5 = ?, mortonkey_16 = ?"}.
+   */
+  String join(String pattern) {
+    final StringBuilder sb = new StringBuilder();
+    for (String name : names) {
+      sb.append(", ").append(String.format(pattern, name));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Calculates the keys of the given geometry.
+   *
+   * @param geometry the geometry or null.
+   * @return the keys in the order of the columns, a key is null, if it can not be calculated for the geometry.
+   */
+  Long[] values(Geometry geometry) {
+    final Long[] values = new Long[names.size()];
+    final long[] cells = H3Index.cells(geometry, h3Resolutions);
+    for (int i = 0; i < h3Resolutions.length; i++) {
+      values[i] = cells == null || cells[i] == 0 ? null : cells[i];
+    }
+    if (mortonLevel > 0) {
+      values[h3Resolutions.length] = MortonKey.key(geometry, mortonLevel);
+    }
+    return values;
+  }
+
+  /**
+   * Returns the statements, which add the missing columns and their indexes to the table of the space.
+   *
+   * @param indexName a function, which returns the quoted name of the index for the given suffix.
+   */
+  List<String> createSql(Function<String, String> indexName) {
+    final List<String> statements = new ArrayList<>();
+    for (String name : names) {
+      statements.add("ALTER TABLE ${schema}.${table} ADD COLUMN IF NOT EXISTS " + name + " bigint");
+      statements.add("CREATE INDEX IF NOT EXISTS " + indexName.apply(name) + " ON ${schema}.${table} USING btree (" + name + ")");
+    }
+    if (mortonLevel > 0) {
+      statements.add(MortonKey.createSpatialIndexSql(mortonLevel, indexName.apply(MortonKey.column(mortonLevel) + "_geo")));
+    }
+    return statements;
+  }
+
+  /**
+   * Returns the statements, which calculate the missing keys of the features, which were written before the columns were added.
+   */
+  List<String> backfillSql() {
+    final List<String> statements = new ArrayList<>();
+    for (int resolution : h3Resolutions) {
+      statements.add(H3Index.backfillSql(resolution));
+    }
+    if (mortonLevel > 0) {
+      statements.add(MortonKey.backfillSql(mortonLevel));
+    }
+    return statements;
+  }
+
+  static String dropColumnSql(String column) {
+    return "ALTER TABLE ${schema}.${table} DROP COLUMN IF EXISTS " + column;
+  }
+
+  /**
+   * Returns true, if the given exception or any of its causes reports a missing column.
+   */
+  static boolean isUndefinedColumn(Throwable e) {
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      if (t instanceof SQLException && UNDEFINED_COLUMN.equals(((SQLException) t).getSQLState())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String like(String prefix) {
+    return prefix.replace("_", "\\_") + "%";
+  }
+}
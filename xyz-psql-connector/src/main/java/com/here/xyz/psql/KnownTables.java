@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The tables of a database, which are known to exist. Only existing tables are remembered, because the tables are created lazily and a
+ * missing table may be created by another instance at any time. A table is forgotten when its space is deleted or when a statement fails,
+ * because the table does not exist.
+ */
+class KnownTables {
+
+  private static final String UNDEFINED_TABLE = "42P01";
+  private static final String INVALID_SCHEMA_NAME = "3F000";
+
+  private final Set<String> tables = ConcurrentHashMap.newKeySet();
+  private final AtomicLong checks = new AtomicLong();
+  private final AtomicLong avoidedChecks = new AtomicLong();
+
+  /**
+   * Returns true, if the given table is known to exist, so that the check in the database can be skipped.
+   *
+   * @param table the name of the table.
+   * @return true, if the table is known to exist.
+   */
+  boolean contains(String table) {
+    if (table != null && tables.contains(table)) {
+      avoidedChecks.incrementAndGet();
+      return true;
+    }
+    checks.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Remembers that the given table exists.
+   */
+  void add(String table) {
+    if (table != null) {
+      tables.add(table);
+    }
+  }
+
+  /**
+   * Forgets the given table.
+   */
+  void remove(String table) {
+    if (table != null) {
+      tables.remove(table);
+    }
+  }
+
+  /**
+   * Returns the number of table checks, which were done in the database.
+   */
+  long getChecks() {
+    return checks.get();
+  }
+
+  /**
+   * Returns the number of table checks, which were avoided, because the table was known to exist.
+   */
+  long getAvoidedChecks() {
+    return avoidedChecks.get();
+  }
+
+  /**
+   * Returns true, if the given exception or any of its causes reports a missing table or schema.
+   */
+  static boolean isUndefinedTable(Throwable e) {
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      if (t instanceof SQLException) {
+        final String state = ((SQLException) t).getSQLState();
+        if (UNDEFINED_TABLE.equals(state) || INVALID_SCHEMA_NAME.equals(state)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("tables=%d, checks=%d, avoidedChecks=%d", tables.size(), checks.get(), avoidedChecks.get());
+  }
+}
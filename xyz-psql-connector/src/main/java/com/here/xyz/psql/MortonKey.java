@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import com.here.xyz.models.geojson.HQuad.MortonUtlis;
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.geojson.coordinates.BBox;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Morton key of the Web Mercator tile, which contains a point. The key interleaves the bits of the column (even bits) and the row (odd
+ * bits) of the tile, which equals the quadkey of the tile read as a number in base 4. Therefore all tiles of a lower level map to one
+ * contiguous range of keys, so that the points in a tile can be found with a range predicate on a B-tree index.
+ *
+ * <p>Only points have a Morton key. The key of other geometries is null, they are found with the spatial index.</p>
+ */
+class MortonKey {
+
+  static final int MAX_LEVEL = 30;
+
+  /**
+   * The prefix of the column, which contains the Morton keys, the level is appended.
+   */
+  static final String COLUMN_PREFIX = "mortonkey_";
+
+  /**
+   * The maximal number of tiles, which are used to cover a bounding box. If more tiles would be needed, the tiles of a lower level are
+   * used.
+   */
+  private static final int MAX_COVERING_TILES = 16;
+
+  /**
+   * Returns the name of the column, which contains the Morton keys of the given level.
+   */
+  static String column(int level) {
+    return COLUMN_PREFIX + level;
+  }
+
+  /**
+   * Returns the Morton key of the given geometry.
+   *
+   * @param geometry the geometry or null.
+   * @param level the level of the tiles.
+   * @return the Morton key or null, if the geometry is not a point.
+   */
+  static Long key(Geometry geometry, int level) {
+    if (!(geometry instanceof Point) || geometry.isEmpty()) {
+      return null;
+    }
+    final Point point = (Point) geometry;
+    return key(point.getX(), point.getY(), level);
+  }
+
+  /**
+   * Returns the Morton key of the tile, which contains the given position. The calculation equals xyz_qk_point2mortonkey.
+   *
+   * @param lon the longitude in degrees.
+   * @param lat the latitude in degrees.
+   * @param level the level of the tiles.
+   * @return the Morton key.
+   */
+  static long key(double lon, double lat, int level) {
+    final long numRowsCols = 1L << level;
+    final double latitude = WebMercatorTile.clip(lat, WebMercatorTile.MinLatitude, WebMercatorTile.MaxLatitude);
+    final double sinLatitude = Math.sin(latitude * Math.PI / 180);
+    final long x = (long) WebMercatorTile.clip(Math.floor((lon + 180) / 360 * numRowsCols), 0, numRowsCols - 1);
+    final long y = (long) WebMercatorTile.clip(
+        Math.floor((0.5 - Math.log((1 + sinLatitude) / (1 - sinLatitude)) / (4 * Math.PI)) * numRowsCols), 0, numRowsCols - 1);
+    return MortonUtlis.convertXYToLongKey((int) x, (int) y);
+  }
+
+  /**
+   * Returns the statement, which calculates the missing Morton keys of the points, which were written before the column was added.
+   */
+  static String backfillSql(int level) {
+    return "UPDATE ${schema}.${table} SET " + column(level) + " = xyz_qk_point2mortonkey(geo, " + level + ") "
+        + "WHERE " + column(level) + " IS NULL AND ST_GeometryType(geo) = 'ST_Point'";
+  }
+
+  /**
+   * Returns the partial spatial index over the features without Morton key, which is used to find the geometries, which are not points.
+   */
+  static String createSpatialIndexSql(int level, String indexName) {
+    return "CREATE INDEX IF NOT EXISTS " + indexName + " ON ${schema}.${table} USING gist ((geo)) WHERE " + column(level) + " IS NULL";
+  }
+
+  /**
+   * Returns the ranges of Morton keys of the given level, which cover the given bounding box. The bounding box is covered by at most
+   * {@link #MAX_COVERING_TILES} tiles, adjacent ranges are merged.
+   *
+   * @param bbox the bounding box.
+   * @param level the level of the Morton keys.
+   * @return the inclusive ranges, every range as an array of its first and its last key, or null, if the bounding box can not be covered,
+   * because it crosses the antimeridian.
+   */
+  static List<long[]> ranges(BBox bbox, int level) {
+    if (bbox.minLon() > bbox.maxLon() || bbox.minLat() > bbox.maxLat()) {
+      return null;
+    }
+
+    int coveringLevel = level + 1;
+    long minKey, maxKey;
+    int x0, y0, x1, y1;
+    do {
+      coveringLevel--;
+      minKey = key(bbox.minLon(), bbox.maxLat(), coveringLevel);
+      maxKey = key(bbox.maxLon(), bbox.minLat(), coveringLevel);
+      x0 = MortonUtlis.getX(minKey);
+      y0 = MortonUtlis.getY(minKey);
+      x1 = MortonUtlis.getX(maxKey);
+      y1 = MortonUtlis.getY(maxKey);
+    } while ((long) (x1 - x0 + 1) * (y1 - y0 + 1) > MAX_COVERING_TILES && coveringLevel > 1);
+
+    final int shift = 2 * (level - coveringLevel);
+    final long[] tiles = new long[(x1 - x0 + 1) * (y1 - y0 + 1)];
+    int i = 0;
+    for (int x = x0; x <= x1; x++) {
+      for (int y = y0; y <= y1; y++) {
+        tiles[i++] = MortonUtlis.convertXYToLongKey(x, y);
+      }
+    }
+    Arrays.sort(tiles);
+
+    final List<long[]> ranges = new ArrayList<>();
+    for (long tile : tiles) {
+      final long first = tile << shift;
+      final long last = ((tile + 1) << shift) - 1;
+      if (!ranges.isEmpty() && ranges.get(ranges.size() - 1)[1] + 1 == first) {
+        ranges.get(ranges.size() - 1)[1] = last;
+      } else {
+        ranges.add(new long[]{first, last});
+      }
+    }
+    return ranges;
+  }
+
+  /**
+   * Creates the predicate, which selects the features with a Morton key in one of the given ranges.
+   */
+  static SQLQuery rangePredicate(int level, List<long[]> ranges) {
+    final SQLQuery query = new SQLQuery("(");
+    for (int i = 0; i < ranges.size(); i++) {
+      query.append((i > 0 ? "OR " : "") + column(level) + " BETWEEN ? AND ?", ranges.get(i)[0], ranges.get(i)[1]);
+    }
+    query.append(")");
+    return query;
+  }
+}
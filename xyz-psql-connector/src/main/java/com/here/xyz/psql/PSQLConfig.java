@@ -28,6 +28,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -155,9 +156,10 @@ class PSQLConfig {
   }
 
   /**
-   * Returns the host of the PostgreSQL service.
+   * Returns the hosts of the read replicas as a comma separated list, every host optionally followed by its weight, e.g.
+   * {@code replica-1,replica-2*2}.
    *
-   * @return the host of the PostgreSQL service.
+   * @return the hosts of the read replicas.
    */
   String replica() {
     return readEnv(PSQL_REPLICA_HOST);
@@ -225,6 +227,231 @@ class PSQLConfig {
 
   static String INCLUDE_OLD_STATES = "includeOldStates"; // read from event params
 
+  /**
+   * The connector parameter, which defines the minimal amount of inserted features for which the COPY based bulk insert is used.
+   */
+  static final String BULK_INSERT_THRESHOLD = "bulkInsertThreshold";
+
+  private static final int DEFAULT_BULK_INSERT_THRESHOLD = 1000;
+
+  /**
+   * Returns the minimal amount of inserted features for which the COPY based bulk insert is used.
+   *
+   * @return the minimal amount of inserted features for which the COPY based bulk insert is used.
+   */
+  static int bulkInsertThreshold(Event event) {
+    if (event == null || event.getConnectorParams() == null || !(event.getConnectorParams().get(BULK_INSERT_THRESHOLD) instanceof Number)) {
+      return DEFAULT_BULK_INSERT_THRESHOLD;
+    }
+    return ((Number) event.getConnectorParams().get(BULK_INSERT_THRESHOLD)).intValue();
+  }
+
+  /**
+   * The connector parameter, which defines the maximal number of prepared statements cached by the connection pool.
+   */
+  static final String MAX_STATEMENTS = "maxStatements";
+
+  private static final int DEFAULT_MAX_STATEMENTS = 100;
+
+  /**
+   * Returns the maximal number of prepared statements cached by the connection pool, zero disables the statement cache.
+   *
+   * @return the maximal number of cached prepared statements.
+   */
+  static int maxStatements(Event event) {
+    if (event == null || event.getConnectorParams() == null || !(event.getConnectorParams().get(MAX_STATEMENTS) instanceof Number)) {
+      return DEFAULT_MAX_STATEMENTS;
+    }
+    return Math.max(0, ((Number) event.getConnectorParams().get(MAX_STATEMENTS)).intValue());
+  }
+
+  /**
+   * The connector parameter, which defines the number of connections to be opened when the connection pool is created.
+   */
+  static final String WARM_UP_CONNECTIONS = "warmUpConnections";
+
+  /**
+   * Returns the number of connections to be opened when the connection pool is created.
+   *
+   * @return the number of connections to be opened when the connection pool is created.
+   */
+  static int warmUpConnections(Event event) {
+    if (event == null || event.getConnectorParams() == null || !(event.getConnectorParams().get(WARM_UP_CONNECTIONS) instanceof Number)) {
+      return 0;
+    }
+    return Math.max(0, ((Number) event.getConnectorParams().get(WARM_UP_CONNECTIONS)).intValue());
+  }
+
+  /**
+   * The connector parameter, which enables the streaming of query results directly into the response.
+   */
+  static final String STREAMING_RESPONSE = "streamingResponse";
+
+  /**
+   * Returns true, if the features of read requests should be fetched with a cursor and written directly into the response.
+   *
+   * @return true, if the features should be streamed into the response.
+   */
+  static boolean streamingResponse(Event event) {
+    return event != null && event.getConnectorParams() != null && event.getConnectorParams().get(STREAMING_RESPONSE) == Boolean.TRUE;
+  }
+
+  /**
+   * The connector parameter, which enables the set-based execution of updates and deletes.
+   */
+  static final String SET_BASED_MODIFY = "setBasedModify";
+
+  /**
+   * Returns true, if updates and deletes should be executed with one statement per operation type instead of one statement per feature.
+   *
+   * @return true, if updates and deletes should be executed set-based.
+   */
+  static boolean setBasedModify(Event event) {
+    return event != null && event.getConnectorParams() != null && event.getConnectorParams().get(SET_BASED_MODIFY) == Boolean.TRUE;
+  }
+
+  /**
+   * The connector or space parameter, which defines the maximal accepted replication lag in milliseconds for reads from a replica.
+   */
+  static final String REPLICA_MAX_LAG = "replicaMaxLag";
+
+  private static final long DEFAULT_REPLICA_MAX_LAG = 10_000;
+
+  /**
+   * Returns the maximal accepted replication lag in milliseconds. The space parameter takes precedence over the connector parameter.
+   *
+   * @return the maximal accepted replication lag in milliseconds.
+   */
+  static long replicaMaxLag(Event event) {
+    if (event == null) {
+      return DEFAULT_REPLICA_MAX_LAG;
+    }
+    if (event.getParams() != null && event.getParams().get(REPLICA_MAX_LAG) instanceof Number) {
+      return Math.max(0, ((Number) event.getParams().get(REPLICA_MAX_LAG)).longValue());
+    }
+    if (event.getConnectorParams() != null && event.getConnectorParams().get(REPLICA_MAX_LAG) instanceof Number) {
+      return Math.max(0, ((Number) event.getConnectorParams().get(REPLICA_MAX_LAG)).longValue());
+    }
+    return DEFAULT_REPLICA_MAX_LAG;
+  }
+
+  /**
+   * The space parameter, which enables the precomputed hexbin aggregation pyramid.
+   */
+  static final String HEXBIN_PYRAMID = "hexbinPyramid";
+
+  /**
+   * Returns true, if the hexbin aggregation pyramid should be maintained and used for the space.
+   *
+   * @return true, if the hexbin aggregation pyramid is enabled.
+   */
+  static boolean hexbinPyramid(Event event) {
+    return event != null && event.getParams() != null && event.getParams().get(HEXBIN_PYRAMID) == Boolean.TRUE;
+  }
+
+  /**
+   * The space parameter, which defines the H3 resolutions for which the cell of every feature is stored in an indexed column.
+   */
+  static final String H3_RESOLUTIONS = "h3Resolutions";
+
+  /**
+   * Returns the H3 resolutions for which the cells of the features are stored in columns of the space table.
+   *
+   * @return the distinct resolutions in ascending order, which is empty, if no resolution is configured.
+   */
+  static int[] h3Resolutions(Event event) {
+    if (event == null || event.getParams() == null || !(event.getParams().get(H3_RESOLUTIONS) instanceof List)) {
+      return new int[0];
+    }
+    return ((List<?>) event.getParams().get(H3_RESOLUTIONS)).stream()
+        .filter(r -> r instanceof Number)
+        .mapToInt(r -> ((Number) r).intValue())
+        .filter(r -> r >= 0 && r <= H3Index.MAX_RESOLUTION)
+        .distinct()
+        .sorted()
+        .toArray();
+  }
+
+  /**
+   * The space parameter, which defines the level of the Web Mercator tiles, for which the Morton key of every point is stored in an indexed
+   * column.
+   */
+  static final String MORTON_LEVEL = "mortonLevel";
+
+  /**
+   * Returns the level of the tiles, for which the Morton keys of the points are stored in a column of the space table.
+   *
+   * @return the level or 0, if no Morton keys are stored.
+   */
+  static int mortonLevel(Event event) {
+    if (event == null || event.getParams() == null || !(event.getParams().get(MORTON_LEVEL) instanceof Number)) {
+      return 0;
+    }
+    final int level = ((Number) event.getParams().get(MORTON_LEVEL)).intValue();
+    return level < 1 || level > MortonKey.MAX_LEVEL ? 0 : level;
+  }
+
+  /**
+   * The space parameter, which enables the incremental quad counters.
+   */
+  static final String QUAD_COUNTER = "quadCounter";
+
+  /**
+   * Returns true, if the quad counters should be maintained and used for exact quad counts of the space.
+   *
+   * @return true, if the quad counters are enabled.
+   */
+  static boolean quadCounter(Event event) {
+    return event != null && event.getParams() != null && event.getParams().get(QUAD_COUNTER) == Boolean.TRUE;
+  }
+
+  /**
+   * The space parameter, which defines the simplification levels for which the simplified geometries of the features are precomputed.
+   */
+  static final String SIMPLIFICATION_LEVELS = "simplificationLevels";
+
+  /**
+   * Returns the simplification levels for which the simplified geometries of the features are stored in a side table of the space.
+   *
+   * @return the distinct levels in ascending order, which is empty, if no level is configured.
+   */
+  static int[] simplificationLevels(Event event) {
+    if (event == null || event.getParams() == null || !(event.getParams().get(SIMPLIFICATION_LEVELS) instanceof List)) {
+      return new int[0];
+    }
+    return ((List<?>) event.getParams().get(SIMPLIFICATION_LEVELS)).stream()
+        .filter(l -> l instanceof Number)
+        .mapToInt(l -> ((Number) l).intValue())
+        .filter(l -> l > 0 && l <= SimplifiedGeometries.MAX_LEVEL)
+        .distinct()
+        .sorted()
+        .toArray();
+  }
+
+  /**
+   * The space parameter, which defines the maximal number of vertices of a query geometry before it gets subdivided.
+   */
+  static final String GEOMETRY_SEARCH_SUBDIVIDE = "geometrySearchSubdivide";
+
+  /**
+   * The smallest number of vertices per part, which is supported by ST_Subdivide.
+   */
+  private static final int MIN_SUBDIVIDE_VERTICES = 5;
+
+  /**
+   * Returns the maximal number of vertices of a query geometry of a geometry search. Larger query geometries are subdivided into parts
+   * with at most this number of vertices, so that every part can use the spatial index with a tight bounding box.
+   *
+   * @return the maximal number of vertices or 0, if query geometries are never subdivided.
+   */
+  static int geometrySearchSubdivide(Event event) {
+    if (event == null || event.getParams() == null || !(event.getParams().get(GEOMETRY_SEARCH_SUBDIVIDE) instanceof Number)) {
+      return 0;
+    }
+    final int vertices = ((Number) event.getParams().get(GEOMETRY_SEARCH_SUBDIVIDE)).intValue();
+    return vertices <= 0 ? 0 : Math.max(MIN_SUBDIVIDE_VERTICES, vertices);
+  }
+
   private String applicationName;
 
   PSQLConfig(Event event, Context context){
@@ -22,8 +22,11 @@ package com.here.xyz.psql;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.here.xyz.connectors.ErrorResponseException;
 import com.here.xyz.connectors.StorageConnector;
+import com.here.xyz.events.DeleteFeaturesByTagEvent;
 import com.here.xyz.events.Event;
 import com.here.xyz.events.HealthCheckEvent;
+import com.here.xyz.events.ModifyFeaturesEvent;
+import com.here.xyz.events.ModifySpaceEvent;
 import com.here.xyz.events.QueryEvent;
 import com.here.xyz.models.geojson.implementation.XyzError;
 import com.here.xyz.responses.CountResponse;
@@ -36,9 +39,11 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.sql.Array;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -46,10 +51,12 @@ import java.util.stream.Collectors;
 import javax.sql.DataSource;
 import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.commons.dbutils.StatementConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.mchange.v2.c3p0.ComboPooledDataSource;
 import com.mchange.v2.c3p0.C3P0Registry;
+import com.mchange.v2.c3p0.PooledDataSource;
 
 
 @SuppressWarnings("SqlDialectInspection")
@@ -86,9 +93,19 @@ public abstract class PSQLRequestStreamHandler extends StorageConnector {
   private static Map<String, DataSource> dataSources = new HashMap<>();
 
   /**
-   * The data source connections factory.
+   * The routers of the read replicas.
    */
-  private static Map<String, DataSource> replicaDataSources = new HashMap<>();
+  private static Map<String, ReplicaRouter> replicaRouters = new HashMap<>();
+
+  /**
+   * The metrics of the prepared statement caches.
+   */
+  private static Map<String, StatementCacheMetrics> statementCacheMetrics = new HashMap<>();
+
+  /**
+   * The tables, which are known to exist.
+   */
+  private static Map<String, KnownTables> knownTablesCache = new HashMap<>();
 
   /**
    * The write data source for the current event.
@@ -105,11 +122,27 @@ public abstract class PSQLRequestStreamHandler extends StorageConnector {
    */
   PSQLConfig config;
 
+  /**
+   * The metrics of the prepared statement cache for the current event.
+   */
+  StatementCacheMetrics statementCache;
+
+  /**
+   * The tables, which are known to exist in the database of the current event.
+   */
+  KnownTables knownTables;
+
+  /**
+   * The router of the read replicas for the current event, if replicas are configured.
+   */
+  private ReplicaRouter replicaRouter;
+
   private static final String TIMEOUT_EXCEPTION_STRING = "canceling statement due to statement timeout";
   private static final String XYZ_CONFIG_SCHEMA = "xyz_config";
   private static final int IDX_MIN_THRESHOLD = 10000;
   protected static final String C3P0EXT_CONFIG_SCHEMA = "config.schema()";
   protected static int ON_DEMAND_IDX_LIM = 4;
+  private static final int REPLICA_CHECKOUT_TIMEOUT = 5_000;
 
   @Override
   public XyzResponse processEvent(Event event) throws Exception {
@@ -133,38 +166,74 @@ public abstract class PSQLRequestStreamHandler extends StorageConnector {
       logger.info("{} - Create new config and data source for ECPS string: '{}'", streamId, ecps);
       final PSQLConfig config = initializeConfig(event, context);
 
+      final int maxStatements = PSQLConfig.maxStatements(event);
       final ComboPooledDataSource source = getComboPooledDataSource(config.host(), config.port(), config.database(), config.user(),
-          config.password(), config.applicationName(), config.maxPostgreSQLConnections());
+          config.password(), config.applicationName(), config.maxPostgreSQLConnections(), maxStatements);
       dataSources.put(ecps, source);
 
       Map<String,String> m = new HashMap<>();
       m.put( C3P0EXT_CONFIG_SCHEMA ,config.schema());
       source.setExtensions( m );
 
-      if (config.replica() != null) {
-        final ComboPooledDataSource replicaDataSource = getComboPooledDataSource(config.replica(), config.port(), config.database(),
-            config.user(), config.password(), config.applicationName(), config.maxPostgreSQLConnections());
-        replicaDataSources.put(ecps, replicaDataSource);
-
+      final List<ReplicaRouter.Replica> replicas = new ArrayList<>();
+      for (Map.Entry<String, Integer> replica : ReplicaRouter.parseHosts(config.replica()).entrySet()) {
+        final ComboPooledDataSource replicaDataSource = getComboPooledDataSource(replica.getKey(), config.port(), config.database(),
+            config.user(), config.password(), config.applicationName(), config.maxPostgreSQLConnections(), maxStatements);
+        // Fail fast, so that the read can be done on the primary instead.
+        replicaDataSource.setCheckoutTimeout(REPLICA_CHECKOUT_TIMEOUT);
         replicaDataSource.setExtensions( m );
+        replicas.add(new ReplicaRouter.Replica(replica.getKey(), replica.getValue(), replicaDataSource));
+      }
+      if (!replicas.isEmpty()) {
+        replicaRouters.put(ecps, new ReplicaRouter(replicas));
       }
 
+      statementCacheMetrics.put(ecps, new StatementCacheMetrics());
+      knownTablesCache.put(ecps, new KnownTables());
       configs.put(ecps, config);
+
+      final int warmUpConnections = Math.min(PSQLConfig.warmUpConnections(event), config.maxPostgreSQLConnections());
+      warmUp(source, warmUpConnections);
+      if (replicaRouters.containsKey(ecps)) {
+        for (ReplicaRouter.Replica replica : replicaRouters.get(ecps).replicas()) {
+          warmUp(replica.dataSource, warmUpConnections);
+        }
+      }
     }
 
     // Set the for write operations
     dataSource = dataSources.get(ecps);
     // Set the data source for read operations.
-    readDataSource = (replicaDataSources.containsKey(ecps) && (event.getPreferPrimaryDataSource() == null
-        || event.getPreferPrimaryDataSource() == Boolean.FALSE)) ? replicaDataSources.get(ecps) : dataSource;
+    replicaRouter = replicaRouters.get(ecps);
+    readDataSource = dataSource;
+    if (replicaRouter != null) {
+      if (isWrite(event)) {
+        replicaRouter.recordWrite(event.getSpace());
+      } else if (event.getPreferPrimaryDataSource() == null || event.getPreferPrimaryDataSource() == Boolean.FALSE) {
+        replicaRouter.refreshLags();
+        final DataSource replica = replicaRouter.select(event.getSpace(), PSQLConfig.replicaMaxLag(event));
+        if (replica != null) {
+          readDataSource = replica;
+        }
+      }
+    }
 
     config = configs.get(ecps);
+    statementCache = statementCacheMetrics.get(ecps);
+    knownTables = knownTablesCache.get(ecps);
     logger.info("{} - Connect to database: jdbc:postgresql://{}:{}/{}?user={}&password=***  |ecps={}", streamId, config.host(),
         config.port(), config.database(), config.user(), ecps);
   }
 
+  /**
+   * Returns true, if the given event modifies the space.
+   */
+  private static boolean isWrite(Event event) {
+    return event instanceof ModifyFeaturesEvent || event instanceof DeleteFeaturesByTagEvent || event instanceof ModifySpaceEvent;
+  }
+
   private ComboPooledDataSource getComboPooledDataSource(String host, int port, String database, String user,
-      String password, String applicationName, int maxPostgreSQLConnections) {
+      String password, String applicationName, int maxPostgreSQLConnections, int maxStatements) {
     final ComboPooledDataSource cpds = new ComboPooledDataSource();
 
     cpds.setJdbcUrl( String.format("jdbc:postgresql://%1$s:%2$d/%3$s?ApplicationName=%4$s&tcpKeepAlive=true",host,port,database,applicationName) );
@@ -176,19 +245,46 @@ public abstract class PSQLRequestStreamHandler extends StorageConnector {
     cpds.setMinPoolSize(1);
     cpds.setAcquireIncrement(1);
     cpds.setMaxPoolSize(maxPostgreSQLConnections);
+    cpds.setMaxStatements(maxStatements);
 
     cpds.setConnectionCustomizerClassName( PSQLXyzConnector.XyzConnectionCustomizer.class.getName() );
 
     return cpds;
   }
 
+  /**
+   * Opens the given number of connections at once, so that the first requests do not have to wait for the connection setup.
+   */
+  private void warmUp(DataSource dataSource, int connections) {
+    if (connections <= 0) {
+      return;
+    }
+    final long start = System.currentTimeMillis();
+    final List<Connection> opened = new ArrayList<>(connections);
+    try {
+      for (int i = 0; i < connections; i++) {
+        opened.add(dataSource.getConnection());
+      }
+    } catch (SQLException e) {
+      logger.warn("{} - Failed to warm up the connection pool: {}", streamId, e.getMessage());
+    } finally {
+      for (Connection connection : opened) {
+        try {
+          connection.close();
+        } catch (SQLException ignored) {
+        }
+      }
+    }
+    logger.info("{} - Warmed up {} connections in {}ms", streamId, opened.size(), System.currentTimeMillis() - start);
+  }
+
   /**
    * Returns the configuration bound to the given context.
    */
   public abstract PSQLConfig initializeConfig(Event event, Context context) throws Exception;
 
   private synchronized void setup() {
-    final int xyz_ext_version = 122;
+    final int xyz_ext_version = 123;
     boolean functionsUpToDate = false;
     boolean hasPropertySearch = (event.getConnectorParams() != null && event.getConnectorParams().get("propertySearch") == Boolean.TRUE);
 
@@ -428,6 +524,13 @@ public abstract class PSQLRequestStreamHandler extends StorageConnector {
         Thread.sleep(targetResponseTime - now);
       }
 
+      if (dataSource instanceof PooledDataSource) {
+        final PooledDataSource pool = (PooledDataSource) dataSource;
+        logger.info("{} - Statement cache: {}, statements={}, checkedOut={}, connections={}", streamId, statementCache,
+            pool.getStatementCacheNumStatementsAllUsers(), pool.getStatementCacheNumCheckedOutStatementsAllUsers(),
+            pool.getStatementCacheNumConnectionsWithCachedStatementsAllUsers());
+      }
+      logger.info("{} - Known tables: {}", streamId, knownTables);
       return new HealthStatus().withStatus("OK");
     } catch (Exception e) {
       return new ErrorResponse().withStreamId(streamId).withError(XyzError.EXCEPTION).withErrorMessage(e.getMessage());
@@ -455,7 +558,29 @@ public abstract class PSQLRequestStreamHandler extends StorageConnector {
    * Executes the given query and returns the processed by the handler result.
    */
   <T> T executeQuery(SQLQuery query, ResultSetHandler<T> handler) throws SQLException {
-    return executeQuery(query, handler, readDataSource);
+    try {
+      return executeQuery(query, handler, readDataSource);
+    } catch (SQLException e) {
+      if (!failOverToPrimary(e)) {
+        throw e;
+      }
+      return executeQuery(query, handler, dataSource);
+    }
+  }
+
+  /**
+   * Switches the reads of the current event to the primary, if the given exception was caused by a failed connection to a replica.
+   *
+   * @return true, if the read should be repeated on the primary.
+   */
+  private boolean failOverToPrimary(SQLException e) {
+    if (readDataSource == dataSource || !ReplicaRouter.isConnectionError(e)) {
+      return false;
+    }
+    logger.warn("{} - Failed to connect to the replica, falling back to the primary: {}", streamId, e.getMessage());
+    replicaRouter.markFailed(readDataSource);
+    readDataSource = dataSource;
+    return true;
   }
 
   /**
@@ -464,7 +589,7 @@ public abstract class PSQLRequestStreamHandler extends StorageConnector {
   private <T> T executeQuery(SQLQuery query, ResultSetHandler<T> handler, DataSource  dataSource) throws SQLException {
     final long start = System.currentTimeMillis();
     try {
-      final QueryRunner run = new QueryRunner(dataSource);
+      final QueryRunner run = queryRunner(dataSource, null);
       query.setText(replaceVars(query.text()));
       final String queryText = query.text();
       final List<Object> queryParameters = query.parameters();
@@ -476,6 +601,41 @@ public abstract class PSQLRequestStreamHandler extends StorageConnector {
     }
   }
 
+  /**
+   * Executes the given query using a cursor, so that the rows are fetched in chunks of the given size and can be processed by the handler
+   * without loading the whole result into memory.
+   */
+  <T> T executeStreamingQuery(SQLQuery query, ResultSetHandler<T> handler, int fetchSize) throws SQLException {
+    final long start = System.currentTimeMillis();
+    Connection readConnection;
+    try {
+      readConnection = readDataSource.getConnection();
+    } catch (SQLException e) {
+      if (!failOverToPrimary(e)) {
+        throw e;
+      }
+      readConnection = dataSource.getConnection();
+    }
+    try (final Connection connection = readConnection) {
+      // The PostgreSQL driver only uses a cursor, if the statement is executed within a transaction.
+      connection.setAutoCommit(false);
+      try {
+        final QueryRunner run = queryRunner(null, new StatementConfiguration(null, fetchSize, null, null, null));
+        query.setText(replaceVars(query.text()));
+        final String queryText = query.text();
+        final List<Object> queryParameters = query.parameters();
+        logger.info("{} - executeStreamingQuery: {} - Parameter: {}", streamId, queryText, queryParameters);
+        return run.query(connection, queryText, handler, queryParameters.toArray());
+      } finally {
+        connection.rollback();
+        connection.setAutoCommit(true);
+      }
+    } finally {
+      final long end = System.currentTimeMillis();
+      logger.info("{} - query time: {}ms", streamId, (end - start));
+    }
+  }
+
   /**
    * Executes the given update or delete query and returns the number of deleted or updated records.
    *
@@ -486,7 +646,7 @@ public abstract class PSQLRequestStreamHandler extends StorageConnector {
   int executeUpdate(SQLQuery query) throws SQLException {
     final long start = System.currentTimeMillis();
     try {
-      final QueryRunner run = new QueryRunner(dataSource);
+      final QueryRunner run = queryRunner(dataSource, null);
       query.setText(replaceVars(query.text()));
       final String queryText = query.text();
       final List<Object> queryParameters = query.parameters();
@@ -499,21 +659,30 @@ public abstract class PSQLRequestStreamHandler extends StorageConnector {
   }
 
   /**
-   * Creates a SQL Array of the given type.
+   * Creates a query runner, which records the prepared statements in the statement cache metrics.
    */
-  public Array createArray(final Long[] longs, String type) throws SQLException {
-    try (Connection conn = dataSource.getConnection()) {
-      return conn.createArrayOf(type, longs);
-    }
+  private QueryRunner queryRunner(DataSource dataSource, StatementConfiguration statementConfiguration) {
+    final StatementCacheMetrics statementCache = this.statementCache;
+    return new QueryRunner(dataSource, statementConfiguration) {
+      @Override
+      protected PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+        return statementCache.record(super.prepareStatement(conn, sql));
+      }
+    };
   }
 
   /**
-   * Creates a SQL Array of the given type.
+   * Creates a SQL Array of the given type. The array does not require a connection, it is resolved by the connection executing the query.
    */
-  public Array createSQLArray(final String[] strings, String type) throws SQLException {
-    try (Connection conn = dataSource.getConnection()) {
-      return conn.createArrayOf(type, strings);
-    }
+  public Array createArray(final Long[] longs, String type) {
+    return new SQLArray(type, longs);
+  }
+
+  /**
+   * Creates a SQL Array of the given type. The array does not require a connection, it is resolved by the connection executing the query.
+   */
+  public Array createSQLArray(final String[] strings, String type) {
+    return new SQLArray(type, strings);
   }
 
   /**
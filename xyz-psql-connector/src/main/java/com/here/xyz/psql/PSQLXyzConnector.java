@@ -23,6 +23,7 @@ import com.amazonaws.services.lambda.runtime.Context;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.here.xyz.XyzSerializable;
 import com.here.xyz.connectors.ErrorResponseException;
+import com.here.xyz.connectors.StreamedFeatureCollection;
 import com.here.xyz.events.CountFeaturesEvent;
 import com.here.xyz.events.DeleteFeaturesByTagEvent;
 import com.here.xyz.events.Event;
@@ -32,6 +33,7 @@ import com.here.xyz.events.GetFeaturesByIdEvent;
 import com.here.xyz.events.GetFeaturesByTileEvent;
 import com.here.xyz.events.GetStatisticsEvent;
 import com.here.xyz.events.HealthCheckEvent;
+import com.here.xyz.events.GetIterationPartitionsEvent;
 import com.here.xyz.events.IterateFeaturesEvent;
 import com.here.xyz.events.LoadFeaturesEvent;
 import com.here.xyz.events.ModifyFeaturesEvent;
@@ -45,14 +47,15 @@ import com.here.xyz.events.TagList;
 import com.here.xyz.events.TagsQuery;
 import com.here.xyz.models.geojson.WebMercatorTile;
 import com.here.xyz.models.geojson.coordinates.BBox;
-import com.here.xyz.models.geojson.coordinates.WKTHelper;
 import com.here.xyz.models.geojson.implementation.Feature;
 import com.here.xyz.models.geojson.implementation.FeatureCollection;
 import com.here.xyz.models.geojson.implementation.FeatureCollection.ModificationFailure;
 import com.here.xyz.models.geojson.implementation.Geometry;
 import com.here.xyz.models.geojson.implementation.XyzError;
+import com.here.xyz.responses.BinaryResponse;
 import com.here.xyz.responses.CountResponse;
 import com.here.xyz.responses.ErrorResponse;
+import com.here.xyz.responses.IterationPartitionsResponse;
 import com.here.xyz.responses.StatisticsResponse;
 import com.here.xyz.responses.StatisticsResponse.PropertiesStatistics;
 import com.here.xyz.responses.StatisticsResponse.PropertiesStatistics.Searchable;
@@ -62,19 +65,25 @@ import com.here.xyz.responses.SuccessResponse;
 import com.here.xyz.responses.XyzResponse;
 import com.mchange.v2.c3p0.AbstractConnectionCustomizer;
 import com.vividsolutions.jts.io.WKBWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -99,12 +108,20 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
   private static final long EQUATOR_LENGTH = 40_075_016;
   private static final long TILE_SIZE = 256;
   private static final int MAX_PRECISE_STATS_COUNT = 10_000;
+  private static final int STREAMING_FETCH_SIZE = 1000;
+  private static final int MIN_PARTITION_SIZE = 10_000;
+  private static final byte[] GEOMETRY_PROPERTY = ",\"geometry\":".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] NULL_VALUE = "null".getBytes(StandardCharsets.UTF_8);
+  private static final String UPDATE_CONFLICT_MESSAGE = "The object does not exist.";
+  private static final String DELETE_CONFLICT_MESSAGE = "The object does not exist or its hash does not match.";
+  private static final String DELETE_ERROR_MESSAGE = "Failed to delete the object.";
   private static final List<String> GEOMETRY_TYPES = Arrays
       .asList("Point", "LineString", "Polygon", "MultiPoint", "MultiLineString", "MultiPolygon");
   private static Pattern pattern = Pattern.compile("^BOX\\(([-\\d\\.]*)\\s([-\\d\\.]*),([-\\d\\.]*)\\s([-\\d\\.]*)\\)$");
   private static Map<String, Boolean> initialized = new HashMap<>();
   protected Map<String, String> replacements = new HashMap<>();
   private boolean retryAttempted;
+  private boolean simplifiedGeometriesUnavailable;
 
   private static SQLQuery getGeoTypesQuery() {
     int system_rows = 1000;
@@ -142,6 +159,7 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
       }
     }
     retryAttempted = false;
+    simplifiedGeometriesUnavailable = false;
 
     replacements.put("idx_serial", "idx_" + config.table(event) + "_serial");
     replacements.put("idx_id", "idx_" + config.table(event) + "_id");
@@ -149,6 +167,16 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
     replacements.put("idx_geo", "idx_" + config.table(event) + "_geo");
     replacements.put("idx_createdAt", "idx_" + config.table(event) + "_createdAt");
     replacements.put("idx_updatedAt", "idx_" + config.table(event) + "_updatedAt");
+    replacements.put(HexbinPyramid.TABLE, config.table(event) + HexbinPyramid.TABLE_SUFFIX);
+    replacements.put("idx_hexbin_geo", "idx_" + config.table(event) + "_hexbin_geo");
+    replacements.put(HexbinPyramid.TRIGGER, config.table(event) + HexbinPyramid.TRIGGER_SUFFIX);
+    replacements.put(HexbinPyramid.TRUNCATE_TRIGGER, config.table(event) + HexbinPyramid.TRUNCATE_TRIGGER_SUFFIX);
+    replacements.put(QuadCounter.TABLE, config.table(event) + QuadCounter.TABLE_SUFFIX);
+    replacements.put(QuadCounter.TRIGGER, config.table(event) + QuadCounter.TRIGGER_SUFFIX);
+    replacements.put(QuadCounter.TRUNCATE_TRIGGER, config.table(event) + QuadCounter.TRUNCATE_TRIGGER_SUFFIX);
+    replacements.put(SimplifiedGeometries.TABLE, config.table(event) + SimplifiedGeometries.TABLE_SUFFIX);
+    replacements.put(SimplifiedGeometries.TRIGGER, config.table(event) + SimplifiedGeometries.TRIGGER_SUFFIX);
+    replacements.put(SimplifiedGeometries.TRUNCATE_TRIGGER, config.table(event) + SimplifiedGeometries.TRUNCATE_TRIGGER_SUFFIX);
   }
 
   public static class XyzConnectionCustomizer extends AbstractConnectionCustomizer { // handle initialization per db connection
@@ -172,18 +200,21 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
   }
 
   /**
-   * A helper method that will test if the table for the space does exist.
+   * A helper method that will test if the table for the space does exist. Tables, which are known to exist, are not checked again.
    *
    * @return true if the table for the space exists; false otherwise.
    * @throws SQLException if the test fails due to any SQL error.
    */
   private boolean hasTable() throws SQLException {
-    QueryRunner run = new QueryRunner(dataSource);
     if (event instanceof HealthCheckEvent) {
       return true;
     }
 
     PSQLConfig pConfig = (PSQLConfig) config;
+    if (knownTables.contains(pConfig.table(event))) {
+      return true;
+    }
+
     long start = System.currentTimeMillis();
     try (final Connection conn = dataSource.getConnection()) {
       try (final ResultSet rs = conn.getMetaData()
@@ -191,6 +222,7 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
         if (rs.next()) {
           long end = System.currentTimeMillis();
           logger.info("{} - Time for table check: " + (end - start) + "ms", streamId);
+          knownTables.add(pConfig.table(event));
           return true;
         }
       }
@@ -247,8 +279,31 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
           query = replaceVars(query, replacements);
           stmt.addBatch(query);
 
+          for (String statement : KeyColumns.of(event).createSql(this::keyIndexName)) {
+            stmt.addBatch(replaceVars(statement));
+          }
+
+          // The hexbin pyramid, the quad counters and the simplified geometries might have been created together with the space, before
+          // its table existed.
+          if (PSQLConfig.hexbinPyramid(event) && exists(connection, hexbinSchemaTable())) {
+            for (String sql : hexbinTriggerSql(connection)) {
+              stmt.addBatch(sql);
+            }
+          }
+          if (PSQLConfig.quadCounter(event) && exists(connection, quadCounterSchemaTable())) {
+            for (String sql : quadCounterTriggerSql(connection)) {
+              stmt.addBatch(sql);
+            }
+          }
+          if (PSQLConfig.simplificationLevels(event).length > 0 && exists(connection, simplifiedSchemaTable())) {
+            for (String sql : simplifiedTriggerSql()) {
+              stmt.addBatch(sql);
+            }
+          }
+
           stmt.executeBatch();
           connection.commit();
+          knownTables.add(tableName);
           logger.info("{} - Successfully created table for space '{}'", streamId, event.getSpace());
         }
       } catch (Exception e) {
@@ -264,6 +319,25 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
     }
   }
 
+  /**
+   * Returns true, if the database supports statement triggers with transition tables, which were introduced with PostgreSQL 10.
+   */
+  private static boolean supportsTransitionTables(Connection connection) throws SQLException {
+    return connection.getMetaData().getDatabaseMajorVersion() >= 10;
+  }
+
+  /**
+   * Checks, whether the given table exists, using the given connection, so that the check is part of its transaction.
+   */
+  private boolean exists(Connection connection, String schemaTable) throws SQLException {
+    try (PreparedStatement stmt = statementCache.record(connection.prepareStatement(HexbinPyramid.EXISTS_SQL))) {
+      stmt.setString(1, schemaTable);
+      try (ResultSet rs = stmt.executeQuery()) {
+        return rs.next() && rs.getBoolean(1);
+      }
+    }
+  }
+
   protected byte[] resultSetStreamHandler(ResultSet rs) throws SQLException {
     byte[] resultStream = null;
     while (rs.next()) {
@@ -316,6 +390,47 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
     return featureCollection;
   }
 
+  /**
+   * The handler for streamed results. The features are written as UTF-8 bytes directly into the response, without creating intermediate
+   * strings.
+   *
+   * @param rs the result set.
+   * @return the streamed feature collection.
+   * @throws SQLException when any unexpected error happened.
+   */
+  private FeatureCollection streamingResultSetHandler(ResultSet rs) throws SQLException {
+    final boolean isIterate = (event instanceof IterateFeaturesEvent);
+    long nextHandle = 0;
+    int numFeatures = 0;
+
+    try {
+      final StreamedFeatureCollection featureCollection = newStreamedFeatureCollection();
+      while (rs.next()) {
+        final OutputStream os = featureCollection.nextFeature();
+        // The driver returns the text representation of the jsonb column as raw UTF-8 bytes.
+        final byte[] json = rs.getBytes(1);
+        final byte[] geom = rs.getBytes(2);
+        os.write(json, 0, json.length - 1);
+        os.write(GEOMETRY_PROPERTY);
+        os.write(geom == null ? NULL_VALUE : geom);
+        os.write('}');
+
+        numFeatures++;
+        if (isIterate) {
+          nextHandle = rs.getLong(3);
+        }
+      }
+
+      if (isIterate && numFeatures > 0 && numFeatures == ((IterateFeaturesEvent) event).getLimit()) {
+        featureCollection.setHandle("" + nextHandle);
+      }
+      logger.info("{} - Streamed {} features into the response", streamId, numFeatures);
+      return featureCollection;
+    } catch (IOException e) {
+      throw new SQLException("Failed to write the features into the response.", e);
+    }
+  }
+
   /**
    * handler for delete by tags results.
    *
@@ -363,9 +478,31 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
   }
 
   private FeatureCollection executeQueryWithRetry(SQLQuery query) throws SQLException {
+    if (PSQLConfig.streamingResponse(event)) {
+      return executeStreamingQueryWithRetry(query);
+    }
     return executeQueryWithRetry(query, this::resultSetHandler);
   }
 
+  /**
+   * Executes the query with a cursor and writes the features directly into the response. Reattempts to execute the query, after the
+   * table was created.
+   */
+  private FeatureCollection executeStreamingQueryWithRetry(SQLQuery query) throws SQLException {
+    try {
+      return executeStreamingQuery(query, this::streamingResultSetHandler, STREAMING_FETCH_SIZE);
+    } catch (Exception e) {
+      try {
+        if (canRetryAttempt(e)) {
+          return executeStreamingQuery(query, this::streamingResultSetHandler, STREAMING_FETCH_SIZE);
+        }
+      } catch (Exception e1) {
+        throw e;
+      }
+      throw e;
+    }
+  }
+
   /**
    * Executes the query and reattempt to execute the query, after
    */
@@ -374,7 +511,7 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
       return executeQuery(query, handler);
     } catch (Exception e) {
       try {
-        if (canRetryAttempt()) {
+        if (canRetryAttempt(e)) {
           return executeQuery(query, handler);
         }
       } catch (Exception e1) {
@@ -389,7 +526,7 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
       return executeUpdate(query);
     } catch (Exception e) {
       try {
-        if (canRetryAttempt()) {
+        if (canRetryAttempt(e)) {
           return executeUpdate(query);
         }
       } catch (Exception e1) {
@@ -399,10 +536,24 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
     }
   }
 
-  protected FeatureCollection processGetFeaturesByTileEvent(GetFeaturesByTileEvent event) throws Exception {
+  protected XyzResponse processGetFeaturesByTileEvent(GetFeaturesByTileEvent event) throws Exception {
+    if (VectorTile.canEncode(event)) {
+      return executeQueryWithRetry(VectorTile.query(event, generateSearchQuery(event)), this::vectorTileResultSetHandler);
+    }
     return processGetFeaturesByBBoxEvent(event);
   }
 
+  /**
+   * The result handler for a tile encoded as Mapbox Vector Tile.
+   *
+   * @param rs the result set.
+   * @return the binary response containing the tile.
+   */
+  private BinaryResponse vectorTileResultSetHandler(ResultSet rs) throws SQLException {
+    final byte[] bytes = rs.next() ? rs.getBytes(1) : null;
+    return new BinaryResponse().withBytes(bytes != null ? bytes : new byte[0]).withMimeType(VectorTile.MIME_TYPE);
+  }
+
   /**** Begin - HEXBIN related section ******/
 
   private FeatureCollection processHexbinGetFeaturesByBBoxEvent(GetFeaturesByBBoxEvent event, BBox bbox, boolean isBigQuery, Map<String, Object> clusteringParams) throws Exception {
@@ -445,19 +596,37 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
 
     query.append(expBboxSql);
 
-    if (!statisticalPropertyProvided) {
-      query.append(new SQLQuery(String.format(H3.h3sqlMid, h3res, "(0.0)::numeric", zLevel, H3.pxSize)));
+    // The pyramid only counts the features, as the median of the statistics of a property can not be maintained incrementally.
+    if (searchQuery == null && !statisticalPropertyProvided && PSQLConfig.hexbinPyramid(event) && hasHexbinPyramid()) {
+      query.append(new SQLQuery(String.format(H3.h3sqlPyramidMid, h3res)));
+      query.append(expBboxSql);
+      query.append(String.format(H3.h3sqlPyramidEnd, filterEmptyGeo));
+      query.append("LIMIT ?", event.getLimit());
+      query.setText(replaceVars(query.text(), replacements));
+      return executeQueryWithRetry(query);
+    }
+
+    // When the cells of the resolution are stored with the features, the features are grouped by the indexed column.
+    final boolean h3Column = Arrays.stream(PSQLConfig.h3Resolutions(event)).anyMatch(r -> r == h3res);
+    final String cval = statisticalPropertyProvided ? "(jsondata#>> ?)::numeric" : "(0.0)::numeric";
+
+    if (h3Column) {
+      query.append(new SQLQuery(String.format(H3.h3sqlColumnMid, cval, H3Index.cellSql(h3res))));
     } else {
+      query.append(new SQLQuery(String.format(H3.h3sqlMid, h3res, cval, zLevel, H3.pxSize)));
+    }
+
+    if (statisticalPropertyProvided) {
       ArrayList<String> jpath = new ArrayList<>();
       jpath.add("properties");
       jpath.addAll(Arrays.asList(statisticalProperty.split("\\.")));
-
-      query.append(new SQLQuery(String.format(H3.h3sqlMid, h3res, "(jsondata#>> ?)::numeric", zLevel, H3.pxSize)));
       query.addParameter(createSQLArray(jpath.toArray(new String[]{}), "text"));
     }
 
     //query.append(" case st_geometrytype(geo) when 'ST_Point' then geo else st_intersection( geo ," ); query.append( expBboxSql ); query.append(" ) end as geo ");
-    query.append(" case st_geometrytype(geo) when 'ST_Point' then geo else st_closestpoint( geo, geo ) end as refpt ");
+    if (!h3Column) {
+      query.append(" case st_geometrytype(geo) when 'ST_Point' then geo else st_closestpoint( geo, geo ) end as refpt ");
+    }
     query.append(" from ${schema}.${table} v where 1 = 1 and geo && ");
     query.append(expBboxSql);
     query.append(" and st_intersects( geo ,");
@@ -471,7 +640,7 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
 
     //query.append("limit ?", 1000);
 
-    query.append( String.format(H3.h3sqlEnd,filterEmptyGeo) );
+    query.append( String.format(h3Column ? H3.h3sqlColumnEnd : H3.h3sqlEnd, filterEmptyGeo) );
     query.append("LIMIT ?", event.getLimit());
 
 /*
@@ -483,6 +652,93 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
 
     return executeQueryWithRetry(query);
   }
+
+  /**
+   * Checks, if the hexbin pyramid of the space exists.
+   *
+   * @return true, if the cells can be read from the pyramid.
+   */
+  private boolean hasHexbinPyramid() {
+    try {
+      return executeQuery(new SQLQuery(HexbinPyramid.EXISTS_SQL, hexbinSchemaTable()), rs -> rs.next() && rs.getBoolean(1));
+    } catch (SQLException e) {
+      logger.info("{} - The hexbin pyramid is not available, using the live aggregation: {}", streamId, e.getMessage());
+      return false;
+    }
+  }
+
+  private String hexbinSchemaTable() {
+    return sqlQuote(config.schema()) + "." + sqlQuote(config.table(event) + HexbinPyramid.TABLE_SUFFIX);
+  }
+
+  /**
+   * Returns the statements, which create the triggers maintaining the hexbin pyramid on the table of the space.
+   */
+  private List<String> hexbinTriggerSql(Connection connection) throws SQLException {
+    return HexbinPyramid.triggerSql(supportsTransitionTables(connection)).stream().map(sql -> replaceVars(sql, replacements))
+        .collect(Collectors.toList());
+  }
+
+  private String hexbinTriggerFunction() {
+    return sqlQuote(config.schema()) + "." + sqlQuote(config.table(event) + HexbinPyramid.TRIGGER_SUFFIX) + "()";
+  }
+
+  /**
+   * Builds the hexbin pyramid of the space, unless it already exists and is maintained by its triggers. The triggers are created in the
+   * same transaction, which builds the pyramid, so that no concurrent write is missed.
+   */
+  private void ensureHexbinPyramid() throws SQLException {
+    final boolean upToDate = executeQuery(new SQLQuery(HexbinPyramid.EXISTS_SQL + " AND to_regprocedure(?) IS NOT NULL", hexbinSchemaTable(),
+        hexbinTriggerFunction()), rs -> rs.next() && rs.getBoolean(1));
+    if (upToDate) {
+      return;
+    }
+
+    final long start = System.currentTimeMillis();
+    try (final Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        final boolean hasTable = hasTable();
+        try (Statement stmt = connection.createStatement()) {
+          stmt.execute(replaceVars(HexbinPyramid.DROP_TRIGGER_SQL, replacements));
+          stmt.execute(replaceVars(HexbinPyramid.DROP_TABLE_SQL, replacements));
+          stmt.execute(replaceVars(HexbinPyramid.CREATE_TABLE_SQL, replacements));
+          stmt.execute(replaceVars(HexbinPyramid.CREATE_INDEX_SQL, replacements));
+          if (hasTable) {
+            for (String sql : hexbinTriggerSql(connection)) {
+              stmt.execute(sql);
+            }
+          }
+        }
+        if (hasTable) {
+          final SQLQuery build = HexbinPyramid.build();
+          try (PreparedStatement stmt = createStatement(connection, replaceVars(build.text(), replacements))) {
+            for (int i = 0; i < build.parameters().size(); i++) {
+              stmt.setObject(i + 1, build.parameters().get(i));
+            }
+            stmt.executeUpdate();
+          }
+        }
+        connection.commit();
+        logger.info("{} - Built the hexbin pyramid for space '{}' in {}ms", streamId, event.getSpace(), System.currentTimeMillis() - start);
+      } catch (SQLException e) {
+        connection.rollback();
+        logger.warn("{} - Failed to build the hexbin pyramid for space '{}': {}", streamId, event.getSpace(), e);
+      } finally {
+        connection.setAutoCommit(true);
+      }
+    }
+  }
+
+  private void dropHexbinPyramid() {
+    try {
+      executeUpdate(new SQLQuery(replaceVars(HexbinPyramid.DROP_TRIGGER_SQL, replacements)));
+      executeUpdate(new SQLQuery(replaceVars(HexbinPyramid.DROP_TABLE_SQL, replacements)));
+    } catch (SQLException e) {
+      logger.warn("{} - Failed to drop the hexbin pyramid: {}", streamId, e);
+    }
+  }
+
   /**** End - HEXBIN related section ******/
 
   private FeatureCollection processQuadCount(GetFeaturesByBBoxEvent event, BBox bbox, Map<String, Object> clusteringParams)   throws Exception  {
@@ -512,7 +768,170 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
         }
       }
     }
-    return executeQueryWithRetry(QuadClustering.generateQuadClusteringSQL(config.schema(),config.table(event),resolution,quadMode,propQuerySQL,tile));
+
+    if (PSQLConfig.quadCounter(event) && QuadClustering.QUADMODE_REAL.equalsIgnoreCase(quadMode)
+        && QuadCounter.canCount(tile.level, resolution, propQuerySQL)) {
+      try {
+        // Other geometries than points are counted in every tile they intersect, the counters can not answer that.
+        if (executeQuery(new SQLQuery(replaceVars(QuadCounter.POINTS_ONLY_SQL, replacements)), rs -> rs.next() && rs.getBoolean(1))) {
+          return executeQuery(QuadClustering.generateQuadClusteringSQL(config.schema(), config.table(event), resolution, quadMode, null,
+              tile, 0, true), this::resultSetHandler);
+        }
+      } catch (SQLException e) {
+        if (!KnownTables.isUndefinedTable(e)) {
+          throw e;
+        }
+        logger.info("{} - The quad counters are not available, counting the features: {}", streamId, e.getMessage());
+      }
+    }
+    return executeQueryWithRetry(QuadClustering.generateQuadClusteringSQL(config.schema(),config.table(event),resolution,quadMode,propQuerySQL,tile,
+        PSQLConfig.mortonLevel(event), false));
+  }
+
+  private String quadCounterSchemaTable() {
+    return sqlQuote(config.schema()) + "." + sqlQuote(config.table(event) + QuadCounter.TABLE_SUFFIX);
+  }
+
+  /**
+   * Returns the statements, which create the triggers maintaining the quad counters on the table of the space.
+   */
+  private List<String> quadCounterTriggerSql(Connection connection) throws SQLException {
+    return QuadCounter.triggerSql(supportsTransitionTables(connection)).stream().map(sql -> replaceVars(sql, replacements))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Builds the quad counters of the space, unless they already exist and are maintained by their trigger. The trigger is created in the
+   * same transaction, which builds the counters, so that no concurrent write is missed.
+   */
+  private void ensureQuadCounters() throws SQLException {
+    final String triggerFunction = sqlQuote(config.schema()) + "." + sqlQuote(config.table(event) + QuadCounter.TRIGGER_SUFFIX) + "()";
+    if (executeQuery(new SQLQuery(QuadCounter.EXISTS_SQL + " AND to_regprocedure(?) IS NOT NULL", quadCounterSchemaTable(), triggerFunction),
+        rs -> rs.next() && rs.getBoolean(1))) {
+      return;
+    }
+
+    final long start = System.currentTimeMillis();
+    try (final Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        final boolean hasTable = hasTable();
+        try (Statement stmt = connection.createStatement()) {
+          stmt.execute(replaceVars(QuadCounter.DROP_TRIGGER_SQL, replacements));
+          stmt.execute(replaceVars(QuadCounter.DROP_TABLE_SQL, replacements));
+          stmt.execute(replaceVars(QuadCounter.CREATE_TABLE_SQL, replacements));
+          if (hasTable) {
+            for (String sql : quadCounterTriggerSql(connection)) {
+              stmt.execute(sql);
+            }
+          }
+        }
+        if (hasTable) {
+          final SQLQuery build = QuadCounter.build();
+          try (PreparedStatement stmt = createStatement(connection, replaceVars(build.text(), replacements))) {
+            stmt.executeUpdate();
+          }
+        }
+        connection.commit();
+        logger.info("{} - Built the quad counters for space '{}' in {}ms", streamId, event.getSpace(), System.currentTimeMillis() - start);
+      } catch (SQLException e) {
+        connection.rollback();
+        logger.warn("{} - Failed to build the quad counters for space '{}': {}", streamId, event.getSpace(), e);
+      } finally {
+        connection.setAutoCommit(true);
+      }
+    }
+  }
+
+  private void dropQuadCounters() {
+    try {
+      executeUpdate(new SQLQuery(replaceVars(QuadCounter.DROP_TRIGGER_SQL, replacements)));
+      executeUpdate(new SQLQuery(replaceVars(QuadCounter.DROP_TABLE_SQL, replacements)));
+    } catch (SQLException e) {
+      logger.warn("{} - Failed to drop the quad counters: {}", streamId, e);
+    }
+  }
+
+  private String simplifiedSchemaTable() {
+    return sqlQuote(config.schema()) + "." + sqlQuote(config.table(event) + SimplifiedGeometries.TABLE_SUFFIX);
+  }
+
+  /**
+   * Returns the statements, which create the triggers maintaining the simplified geometries on the table of the space.
+   */
+  private List<String> simplifiedTriggerSql() {
+    final int[] levels = PSQLConfig.simplificationLevels(event);
+    return Stream.of(SimplifiedGeometries.triggerFunctionSql(levels, pixelSizes(levels)), SimplifiedGeometries.CREATE_TRIGGER_SQL,
+        SimplifiedGeometries.CREATE_TRUNCATE_TRIGGER_SQL).map(sql -> replaceVars(sql, replacements)).collect(Collectors.toList());
+  }
+
+  /**
+   * Builds the simplified geometries of the space, unless they already exist for the configured levels and are maintained by their
+   * trigger. The trigger is created in the same transaction, which builds the geometries, so that no concurrent write is missed.
+   */
+  private void ensureSimplifiedGeometries() throws SQLException {
+    final int[] levels = PSQLConfig.simplificationLevels(event);
+    final String triggerFunction = sqlQuote(config.schema()) + "." + sqlQuote(config.table(event) + SimplifiedGeometries.TRIGGER_SUFFIX)
+        + "()";
+    final boolean upToDate = executeQuery(new SQLQuery(SimplifiedGeometries.COMMENT_SQL + ", to_regprocedure(?) IS NOT NULL",
+        simplifiedSchemaTable(), triggerFunction), rs -> rs.next() && SimplifiedGeometries.comment(levels).equals(rs.getString(1))
+        && rs.getBoolean(2));
+    if (upToDate) {
+      return;
+    }
+
+    final long start = System.currentTimeMillis();
+    try (final Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        final boolean hasTable = hasTable();
+        try (Statement stmt = connection.createStatement()) {
+          stmt.execute(replaceVars(SimplifiedGeometries.DROP_TRIGGER_SQL, replacements));
+          stmt.execute(replaceVars(SimplifiedGeometries.DROP_TABLE_SQL, replacements));
+          stmt.execute(replaceVars(SimplifiedGeometries.CREATE_TABLE_SQL, replacements));
+          stmt.execute(replaceVars(SimplifiedGeometries.commentSql(levels), replacements));
+          if (hasTable) {
+            for (String sql : simplifiedTriggerSql()) {
+              stmt.execute(sql);
+            }
+          }
+        }
+        if (hasTable) {
+          final SQLQuery build = SimplifiedGeometries.build(levels, pixelSizes(levels));
+          try (PreparedStatement stmt = createStatement(connection, replaceVars(build.text(), replacements))) {
+            for (int i = 0; i < build.parameters().size(); i++) {
+              stmt.setObject(i + 1, build.parameters().get(i));
+            }
+            stmt.executeUpdate();
+          }
+        }
+        connection.commit();
+        logger.info("{} - Built the simplified geometries for space '{}' in {}ms", streamId, event.getSpace(),
+            System.currentTimeMillis() - start);
+      } catch (SQLException e) {
+        connection.rollback();
+        logger.warn("{} - Failed to build the simplified geometries for space '{}': {}", streamId, event.getSpace(), e);
+      } finally {
+        connection.setAutoCommit(true);
+      }
+    }
+  }
+
+  private void dropSimplifiedGeometries() {
+    try {
+      executeUpdate(new SQLQuery(replaceVars(SimplifiedGeometries.DROP_TRIGGER_SQL, replacements)));
+      executeUpdate(new SQLQuery(replaceVars(SimplifiedGeometries.DROP_TABLE_SQL, replacements)));
+    } catch (SQLException e) {
+      logger.warn("{} - Failed to drop the simplified geometries: {}", streamId, e);
+    }
+  }
+
+  private static double pixelSize(long simplificationLevel) {
+    return (double) EQUATOR_LENGTH / (TILE_SIZE << simplificationLevel);
+  }
+
+  private static double[] pixelSizes(int[] levels) {
+    return Arrays.stream(levels).mapToDouble(PSQLXyzConnector::pixelSize).toArray();
   }
 
   private FeatureCollection performGeometrySearch(GetFeaturesByGeometryEvent event)
@@ -524,9 +943,7 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
     final SQLQuery query;
     final SQLQuery searchQuery = generateSearchQuery(event);
 
-    final SQLQuery geoQuery = radius != 0 ? new SQLQuery("ST_Intersects(geo, ST_Buffer(ST_GeomFromText('"
-        +WKTHelper.geometryToWKB(geometry)+"')::geography, ? )::geometry)",radius) : new SQLQuery("ST_Intersects(geo, ST_GeomFromText('"
-            +WKTHelper.geometryToWKB(geometry)+"',4326))");
+    final SQLQuery geoQuery = geometrySearchQuery(event, geometry.getJTSGeometry(), radius);
 
     if (searchQuery == null) {
       query = new SQLQuery("SELECT");
@@ -543,6 +960,29 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
     return executeQueryWithRetry(query);
   }
 
+  /**
+   * Returns the condition of a geometry search. The query geometry is bound as WKB parameter. Query geometries with more vertices than
+   * configured for the space are subdivided, the matching features are then found per part through the spatial index.
+   */
+  private SQLQuery geometrySearchQuery(GetFeaturesByGeometryEvent event, com.vividsolutions.jts.geom.Geometry geometry, int radius) {
+    final SQLQuery queryGeometry = radius != 0
+        ? new SQLQuery("ST_Buffer(ST_GeomFromWKB(?,4326)::geography, ?)::geometry", new WKBWriter().write(geometry), radius)
+        : new SQLQuery("ST_GeomFromWKB(?,4326)", new WKBWriter().write(geometry));
+
+    final int maxVertices = PSQLConfig.geometrySearchSubdivide(event);
+    if (maxVertices <= 0 || geometry.getNumPoints() <= maxVertices) {
+      final SQLQuery query = new SQLQuery("ST_Intersects(geo,");
+      query.append(queryGeometry);
+      query.append(")");
+      return query;
+    }
+
+    final SQLQuery query = new SQLQuery("i IN (SELECT t.i FROM (SELECT ST_Subdivide(");
+    query.append(queryGeometry);
+    query.append(", ?) AS geo) p, ${schema}.${table} t WHERE ST_Intersects(t.geo, p.geo))", maxVertices);
+    return query;
+  }
+
   @Override
   protected FeatureCollection processGetFeaturesByGeometryEvent(GetFeaturesByGeometryEvent event)
       throws Exception {
@@ -566,9 +1006,29 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
     final SQLQuery searchQuery = generateSearchQuery(event);
     final SQLQuery geoQuery = new SQLQuery("ST_Intersects(geo, ST_MakeEnvelope(?, ?, ?, ?, 4326))",
         bbox.minLon(), bbox.minLat(), bbox.maxLon(), bbox.maxLat());
+    final int mortonLevel = PSQLConfig.mortonLevel(event);
+    final List<long[]> mortonRanges = mortonLevel > 0 ? MortonKey.ranges(bbox, mortonLevel) : null;
 
     final SQLQuery query;
-    if (searchQuery == null) {
+    if (searchQuery == null && mortonRanges != null) {
+      // Points are found by the ranges of their Morton keys, all other geometries by the partial spatial index.
+      query = new SQLQuery("SELECT");
+      query.append(selectJson(event.getSelection()));
+      query.append(",");
+      query.append(geometrySelectorForEvent(event));
+      query.append("FROM ${schema}.${table} WHERE");
+      query.append(MortonKey.rangePredicate(mortonLevel, mortonRanges));
+      query.append("AND");
+      query.append(geoQuery);
+      query.append("UNION ALL SELECT");
+      query.append(selectJson(event.getSelection()));
+      query.append(",");
+      query.append(geometrySelectorForEvent(event));
+      query.append("FROM ${schema}.${table} WHERE " + MortonKey.column(mortonLevel) + " IS NULL AND");
+      query.append(geoQuery);
+      query.append("LIMIT ?", event.getLimit());
+
+    } else if (searchQuery == null) {
       query = new SQLQuery("SELECT");
       query.append(selectJson(event.getSelection()));
       query.append(",");
@@ -587,7 +1047,18 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
       query = getCombinedQuery(event, geoQuery, searchQuery);
     }
 
-    return executeQueryWithRetry(query);
+    query.setText(replaceVars(query.text(), replacements));
+    try {
+      return executeQueryWithRetry(query);
+    } catch (SQLException e) {
+      if (!simplifiedGeometriesUnavailable && KnownTables.isUndefinedTable(e)
+          && SimplifiedGeometries.contains(PSQLConfig.simplificationLevels(event), event.getSimplificationLevel())) {
+        // The simplified geometries were not built yet.
+        simplifiedGeometriesUnavailable = true;
+        return processGetFeaturesByBBoxEvent(event);
+      }
+      throw e;
+    }
   }
 
   private SQLQuery getCombinedQuery(SearchForFeaturesEvent event, SQLQuery indexedQuery, SQLQuery secondaryQuery) throws SQLException {
@@ -616,25 +1087,43 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
    */
   private SQLQuery geometrySelectorForEvent(final GetFeaturesByBBoxEvent event) {
     final long simplificationLevel = Optional.ofNullable(event.getSimplificationLevel()).orElse(0L);
-    final double pixelSize = (double) EQUATOR_LENGTH / (TILE_SIZE << simplificationLevel);
 
     if (!event.getClip()) {
       if (simplificationLevel <= 0) {
         return new SQLQuery("geojson");
 
       }
-      return new SQLQuery("ST_AsGeoJson(ST_Transform(ST_MakeValid(ST_SnapToGrid(ST_Force2D(ST_Transform(geo,3857)),?)),4326))", pixelSize);
+      final SQLQuery query = new SQLQuery("ST_AsGeoJson(");
+      query.append(simplifiedGeometry(event, simplificationLevel));
+      query.append(")");
+      return query;
     }
 
     final BBox bbox = event.getBbox();
     if (simplificationLevel <= 0) {
-      return new SQLQuery("ST_AsGeoJson(ST_Intersection(ST_MakeValid(geo),ST_MakeEnvelope(?,?,?,?,4326)))",
+      // Features with their bounding box inside of the envelope are not clipped. The box is read from the header of the geometry.
+      final SQLQuery query = new SQLQuery("ST_AsGeoJson(CASE WHEN geo @ ST_MakeEnvelope(?,?,?,?,4326) THEN ST_MakeValid(geo)",
+          bbox.minLon(), bbox.minLat(), bbox.maxLon(), bbox.maxLat());
+      query.append("ELSE ST_Intersection(ST_MakeValid(geo),ST_MakeEnvelope(?,?,?,?,4326)) END)",
           bbox.minLon(), bbox.minLat(), bbox.maxLon(), bbox.maxLat());
+      return query;
     }
 
-    return new SQLQuery(
-        "ST_AsGeoJson(ST_Intersection(ST_Transform(ST_MakeValid(ST_SnapToGrid(ST_Force2D(ST_Transform(geo,3857)),?)),4326),ST_MakeEnvelope(?,?,?,?,4326)))",
-        pixelSize, bbox.minLon(), bbox.minLat(), bbox.maxLon(), bbox.maxLat());
+    final SQLQuery query = new SQLQuery("ST_AsGeoJson(ST_Intersection(");
+    query.append(simplifiedGeometry(event, simplificationLevel));
+    query.append(",ST_MakeEnvelope(?,?,?,?,4326)))", bbox.minLon(), bbox.minLat(), bbox.maxLon(), bbox.maxLat());
+    return query;
+  }
+
+  /**
+   * Returns the expression of the simplified geometry. The precomputed geometry is selected, if the level is configured for the space.
+   */
+  private SQLQuery simplifiedGeometry(final GetFeaturesByBBoxEvent event, long simplificationLevel) {
+    final double pixelSize = pixelSize(simplificationLevel);
+    if (!simplifiedGeometriesUnavailable && SimplifiedGeometries.contains(PSQLConfig.simplificationLevels(event), simplificationLevel)) {
+      return SimplifiedGeometries.select(simplificationLevel, pixelSize);
+    }
+    return new SQLQuery(String.format(SimplifiedGeometries.SIMPLIFY, "geo", "?"), pixelSize);
   }
 
   @Override
@@ -751,6 +1240,57 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
     return new CountResponse().withCount(count).withEstimated(count > MAX_PRECISE_STATS_COUNT);
   }
 
+  @Override
+  protected XyzResponse processGetIterationPartitionsEvent(GetIterationPartitionsEvent event) throws Exception {
+    final String schemaTable = sqlQuote(config.schema()) + "." + sqlQuote(config.table(event));
+    final SQLQuery query = new SQLQuery("SELECT min(i), max(i), (SELECT reltuples FROM pg_class WHERE oid =?::regclass)", schemaTable);
+    query.append("FROM ${schema}.${table}");
+    try {
+      return executeQueryWithRetry(query, rs -> partitionsResultSetHandler(rs, event.getPartitions()));
+    } catch (SQLException e) {
+      // The table is created lazy, so a missing table or schema means that the space is empty.
+      if ("42P01".equals(e.getSQLState()) || "3F000".equals(e.getSQLState())) {
+        return new IterationPartitionsResponse().withHandles(Collections.emptyList());
+      }
+      throw new SQLException(e);
+    }
+  }
+
+  /**
+   * The result handler for a GetIterationPartitions event. Splits the range of the serial column into disjoint partitions of equal size.
+   *
+   * @param rs the result set.
+   * @param partitions the requested number of partitions.
+   * @return the response with the handles of the partitions.
+   * @throws SQLException if any error occurred.
+   */
+  private IterationPartitionsResponse partitionsResultSetHandler(ResultSet rs, int partitions) throws SQLException {
+    rs.next();
+    final long min = rs.getLong(1);
+    if (rs.wasNull()) {
+      return new IterationPartitionsResponse().withHandles(Collections.emptyList());
+    }
+    final long max = rs.getLong(2);
+    final long span = max - min + 1;
+
+    // The statistics might not be available for tables, which were not yet analyzed
+    double estimatedCount = rs.getDouble(3);
+    if (estimatedCount <= 0) {
+      estimatedCount = span;
+    }
+
+    // Avoid tiny partitions, for which the overhead of an own iteration is not worth it
+    final long maxPartitions = (long) Math.ceil(estimatedCount / MIN_PARTITION_SIZE);
+    final int count = (int) Math.max(1, Math.min(Math.min(partitions, maxPartitions), span));
+    final long size = (span + count - 1) / count;
+
+    final List<String> handles = new ArrayList<>(count);
+    for (long from = min - 1; from < max; from += size) {
+      handles.add(IterateHandle.partition(from, Math.min(from + size, max)));
+    }
+    return new IterationPartitionsResponse().withHandles(handles);
+  }
+
   @Override
   protected XyzResponse processIterateFeaturesEvent(IterateFeaturesEvent event) throws Exception {
     return findFeatures(event, event.getHandle(), true);
@@ -786,33 +1326,61 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
     final SQLQuery searchQuery = generateSearchQuery(event);
     final boolean hasSearch = searchQuery != null;
     final boolean hasHandle = handle != null;
-    final long start = hasHandle ? Long.parseLong(handle) : 0L;
+    final IterateHandle iterateHandle;
+    try {
+      iterateHandle = IterateHandle.parse(handle);
+    } catch (IllegalArgumentException e) {
+      return new ErrorResponse().withStreamId(streamId).withError(XyzError.ILLEGAL_ARGUMENT)
+          .withErrorMessage("Invalid request parameters. The provided handle is invalid.");
+    }
+
+    // Searches are iterated by the serial, except for iterations, which were started with an offset based handle
+    final boolean useOffset = hasSearch && hasHandle && !iterateHandle.isKeyset() && !iterateHandle.isPartition();
+    final String filterHash = isIterate && hasSearch ? IterateHandle.filterHash(searchQuery) : null;
+    if (hasHandle && iterateHandle.isKeyset() && !iterateHandle.filterHash.equals(filterHash)) {
+      return new ErrorResponse().withStreamId(streamId).withError(XyzError.ILLEGAL_ARGUMENT)
+          .withErrorMessage("Invalid request parameters. The provided handle does not belong to this search.");
+    }
 
     if (hasSearch || hasHandle) {
       query.append("WHERE");
     }
 
     if (hasSearch) {
+      query.append("(");
       query.append(searchQuery);
+      query.append(")");
     }
 
-    if (hasHandle) {
+    if (hasHandle && !useOffset) {
       if (hasSearch) {
-        query.append("OFFSET ?", start);
-      } else {
-        query.append("i > ?", start);
+        query.append("AND");
+      }
+      query.append("i > ?", iterateHandle.value);
+      if (iterateHandle.isPartition()) {
+        query.append("AND i <= ?", iterateHandle.upperBound);
       }
     }
 
-    if (isIterate && !hasSearch) {
+    if (isIterate && !useOffset) {
       query.append("ORDER BY i");
     }
 
+    if (useOffset) {
+      query.append("OFFSET ?", iterateHandle.value);
+    }
+
     query.append("LIMIT ?", event.getLimit());
 
     FeatureCollection collection = executeQueryWithRetry(query);
-    if (isIterate && hasSearch && collection.getHandle() != null) {
-      collection.setHandle("" + (start + event.getLimit()));
+    if (isIterate && hasHandle && iterateHandle.isPartition() && collection.getHandle() != null) {
+      collection.setHandle(IterateHandle.partition(Long.parseLong(collection.getHandle()), iterateHandle.upperBound));
+    } else if (isIterate && hasSearch && collection.getHandle() != null) {
+      if (useOffset) {
+        collection.setHandle("" + (iterateHandle.value + event.getLimit()));
+      } else {
+        collection.setHandle(IterateHandle.keyset(Long.parseLong(collection.getHandle()), filterHash));
+      }
     }
 
     return collection;
@@ -835,12 +1403,14 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
     }
 
     boolean includeOldStates = event.getParams() != null && event.getParams().get(PSQLConfig.INCLUDE_OLD_STATES) == Boolean.TRUE;
+    final XyzResponse response;
     if (searchQuery != null && includeOldStates) {
       query.append(" RETURNING jsondata->'id' as id, geojson as geometry");
-      return executeQueryWithRetry(query, this::oldStatesResultSetHandler);
+      response = executeQueryWithRetry(query, this::oldStatesResultSetHandler);
+    } else {
+      response = new FeatureCollection().withCount((long) executeUpdateWithRetry(query));
     }
-
-    return new FeatureCollection().withCount((long) executeUpdateWithRetry(query));
+    return response;
   }
 
   @Override
@@ -896,13 +1466,16 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
     List<String> insertIds = inserts.stream().map(Feature::getId).filter(Objects::nonNull).collect(Collectors.toList());
     List<String> updateIds = updates.stream().map(Feature::getId).filter(Objects::nonNull).collect(Collectors.toList());
     List<String> deleteIds = new ArrayList<>(deletes.keySet());
+    List<ModificationFailure> notModified = new ArrayList<>();
+    boolean setBasedModify = PSQLConfig.setBasedModify(event);
+    KeyColumns keyColumns = KeyColumns.of(event);
 
     if (includeOldStates) {
       String[] idsToFetch = Stream.of(insertIds, updateIds, deleteIds).flatMap(List::stream).toArray(String[]::new);
 
       SQLQuery query = new SQLQuery("SELECT jsondata, geojson FROM ${schema}.${table} WHERE jsondata->>'id' = ANY(?)",
           createSQLArray(idsToFetch, "text"));
-      FeatureCollection oldFeaturesCollection = executeQueryWithRetry(query);
+      FeatureCollection oldFeaturesCollection = executeQueryWithRetry(query, this::resultSetHandler);
       if (oldFeaturesCollection != null) {
         oldFeatures = oldFeaturesCollection.getFeatures();
       }
@@ -917,7 +1490,31 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
         boolean firstConnectionAttempt = true;
 
         // DELETE
-        if (deletes.size() > 0) {
+        if (deletes.size() > 0 && setBasedModify) {
+          try {
+            final Set<String> deletedIds = executeSetBasedDelete(connection, deletes);
+            for (String id : deletes.keySet()) {
+              // A delete without hash is idempotent, only report those objects which were not deleted because of their state.
+              if (deletes.get(id) != null && !deletedIds.contains(id)) {
+                notModified.add(new ModificationFailure().withId(id).withMessage(DELETE_CONFLICT_MESSAGE));
+                deleteIds.remove(id);
+              }
+            }
+          } catch (Exception e) {
+            if (transaction) {
+              throw e;
+            }
+            if (firstConnectionAttempt && !retryAttempted) {
+              connection.close();
+              canRetryAttempt(e);
+              return executeModifyFeatures(event);
+            }
+            logger.error("{} - Failed to delete objects {}: {}", streamId, deleteIds, e);
+            deleteIds.forEach(id -> notModified.add(new ModificationFailure().withId(id).withMessage(DELETE_ERROR_MESSAGE)));
+            deleteIds.clear();
+          }
+          firstConnectionAttempt = false;
+        } else if (deletes.size() > 0) {
           final ArrayList<String> idsToDelete = new ArrayList<>();
 
           String deleteAtomicStmtSQL = "DELETE FROM ${schema}.${table} WHERE jsondata->>'id' = ? AND jsondata->'properties'->'@ns:com:here:xyz'->>'hash' = ?";
@@ -945,7 +1542,7 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
                   if (firstConnectionAttempt && !retryAttempted) {
                     deleteAtomicStmt.close();
                     connection.close();
-                    canRetryAttempt();
+                    canRetryAttempt(e);
                     return executeModifyFeatures(event);
                   }
 
@@ -975,7 +1572,7 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
                   if (firstConnectionAttempt && !retryAttempted) {
                     deleteStmt.close();
                     connection.close();
-                    canRetryAttempt();
+                    canRetryAttempt(e);
                     return executeModifyFeatures(event);
                   }
 
@@ -989,8 +1586,18 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
         }
 
         // INSERT
-        if (inserts.size() > 0) {
-          String insertStmtSQL = "INSERT INTO ${schema}.${table} (jsondata, geo, geojson) VALUES(?::jsonb, ST_Force3D(ST_GeomFromWKB(?,4326)), ?::jsonb)";
+        boolean bulkInserted = false;
+        if (inserts.size() > 0 && inserts.size() >= PSQLConfig.bulkInsertThreshold(event)) {
+          bulkInserted = executeBulkInsert(connection, inserts, keyColumns, transaction);
+          if (bulkInserted) {
+            collection.getFeatures().addAll(inserts);
+            firstConnectionAttempt = false;
+          }
+        }
+
+        if (inserts.size() > 0 && !bulkInserted) {
+          String insertStmtSQL = "INSERT INTO ${schema}.${table} (jsondata, geo, geojson" + keyColumns.join("%s")
+              + ") VALUES(?::jsonb, ST_Force3D(ST_GeomFromWKB(?,4326)), ?::jsonb" + keyColumns.join("?") + ")";
           insertStmtSQL = replaceVars(insertStmtSQL);
           boolean batchInsert = false;
 
@@ -1037,8 +1644,10 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
                 } else {
                   insertStmt.setObject(1, jsonbObject);
                   final WKBWriter wkbWriter = new WKBWriter(3);
-                  insertStmt.setBytes(2, wkbWriter.write(geometry.getJTSGeometry()));
+                  final com.vividsolutions.jts.geom.Geometry jtsGeometry = geometry.getJTSGeometry();
+                  insertStmt.setBytes(2, wkbWriter.write(jtsGeometry));
                   insertStmt.setObject(3, geojsonbObject);
+                  setKeys(insertStmt, 4, keyColumns.values(jtsGeometry));
 
                   if (transaction) {
                     insertStmt.addBatch();
@@ -1054,7 +1663,7 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
                     insertStmt.close();
                     insertWithoutGeometryStmt.close();
                     connection.close();
-                    canRetryAttempt();
+                    canRetryAttempt(e);
                     return executeModifyFeatures(event);
                   }
                   logger.error("{} - Failed to insert object #{}: {}", streamId, i, e);
@@ -1076,14 +1685,43 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
         }
 
         // UPDATE
-        if (updates.size() > 0) {
-          String updateStmtSQL = "UPDATE ${schema}.${table} SET jsondata = ?::jsonb, geo=ST_Force3D(ST_GeomFromWKB(?,4326)), geojson = ?::jsonb WHERE jsondata->>'id' = ?";
+        boolean rowWiseUpdate = updates.size() > 0;
+        if (updates.size() > 0 && setBasedModify) {
+          try {
+            final Set<String> updatedIds = executeSetBasedUpdate(connection, updates, keyColumns);
+            for (Feature feature : updates) {
+              if (updatedIds.contains(feature.getId())) {
+                collection.getFeatures().add(feature);
+              } else {
+                notModified.add(new ModificationFailure().withId(feature.getId()).withMessage(UPDATE_CONFLICT_MESSAGE));
+                updateIds.remove(feature.getId());
+              }
+            }
+            rowWiseUpdate = false;
+          } catch (Exception e) {
+            if (transaction) {
+              throw e;
+            }
+            if (firstConnectionAttempt && !retryAttempted) {
+              connection.close();
+              canRetryAttempt(e);
+              return executeModifyFeatures(event);
+            }
+            // Nothing was updated by the failed statement, the row-wise update reports the failures per object.
+            logger.warn("{} - Failed to update objects {}, updating them one by one: {}", streamId, updateIds, e);
+          }
+        }
+
+        if (rowWiseUpdate) {
+          String updateStmtSQL = "UPDATE ${schema}.${table} SET jsondata = ?::jsonb, geo=ST_Force3D(ST_GeomFromWKB(?,4326)), geojson = ?::jsonb"
+              + keyColumns.join("%1$s = ?") + " WHERE jsondata->>'id' = ?";
           updateStmtSQL = replaceVars(updateStmtSQL);
-          boolean batchUpdate = false;
+          final List<Feature> batchUpdates = new ArrayList<>();
 
-          String updateWithoutGeometryStmtSQL = "UPDATE ${schema}.${table} SET  jsondata = ?::jsonb, geo=NULL, geojson = NULL WHERE jsondata->>'id' = ?";
+          String updateWithoutGeometryStmtSQL = "UPDATE ${schema}.${table} SET  jsondata = ?::jsonb, geo=NULL, geojson = NULL"
+              + keyColumns.join("%1$s = NULL") + " WHERE jsondata->>'id' = ?";
           updateWithoutGeometryStmtSQL = replaceVars(updateWithoutGeometryStmtSQL);
-          boolean batchUpdateWithoutGeometry = false;
+          final List<Feature> batchUpdatesWithoutGeometry = new ArrayList<>();
 
           try (
               final PreparedStatement updateStmt = createStatement(connection, updateStmtSQL);
@@ -1115,36 +1753,44 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
                 geojsonbObject.setType("jsonb");
                 geojsonbObject.setValue(geojson);
 
+                boolean updated = true;
                 if (geometry == null) {
                   updateWithoutGeometryStmt.setObject(1, jsonbObject);
                   updateWithoutGeometryStmt.setString(2, id);
                   if (transaction) {
                     updateWithoutGeometryStmt.addBatch();
-                    batchUpdateWithoutGeometry = true;
+                    batchUpdatesWithoutGeometry.add(feature);
                   } else {
-                    updateWithoutGeometryStmt.execute();
+                    updated = updateWithoutGeometryStmt.executeUpdate() > 0;
                   }
                 } else {
                   updateStmt.setObject(1, jsonbObject);
                   final WKBWriter wkbWriter = new WKBWriter(3);
-                  updateStmt.setBytes(2, wkbWriter.write(geometry.getJTSGeometry()));
+                  final com.vividsolutions.jts.geom.Geometry jtsGeometry = geometry.getJTSGeometry();
+                  updateStmt.setBytes(2, wkbWriter.write(jtsGeometry));
                   updateStmt.setObject(3, geojsonbObject);
-                  updateStmt.setString(4, id);
+                  setKeys(updateStmt, 4, keyColumns.values(jtsGeometry));
+                  updateStmt.setString(4 + keyColumns.size(), id);
                   if (transaction) {
                     updateStmt.addBatch();
-                    batchUpdate = true;
+                    batchUpdates.add(feature);
                   } else {
-                    updateStmt.execute();
+                    updated = updateStmt.executeUpdate() > 0;
                   }
                 }
-                collection.getFeatures().add(feature);
+                if (updated) {
+                  collection.getFeatures().add(feature);
+                } else {
+                  notModified.add(new ModificationFailure().withId(id).withMessage(UPDATE_CONFLICT_MESSAGE));
+                  updateIds.remove(id);
+                }
               } catch (Exception e) {
                 if (!transaction) {
                   if (firstConnectionAttempt && !retryAttempted) {
                     updateStmt.close();
                     updateWithoutGeometryStmt.close();
                     connection.close();
-                    canRetryAttempt();
+                    canRetryAttempt(e);
                     return executeModifyFeatures(event);
                   }
                   logger.error("{} - Failed to update object #{}: {}", streamId, i, e);
@@ -1154,11 +1800,12 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
               }
               firstConnectionAttempt = false;
             }
-            if (batchUpdate) {
-              updateStmt.executeBatch();
+            if (batchUpdates.size() > 0) {
+              removeMissingUpdates(updateStmt.executeBatch(), batchUpdates, collection.getFeatures(), notModified, updateIds);
             }
-            if (batchUpdateWithoutGeometry) {
-              updateWithoutGeometryStmt.executeBatch();
+            if (batchUpdatesWithoutGeometry.size() > 0) {
+              removeMissingUpdates(updateWithoutGeometryStmt.executeBatch(), batchUpdatesWithoutGeometry, collection.getFeatures(),
+                  notModified, updateIds);
             }
           }
         }
@@ -1172,7 +1819,7 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
             connection.rollback();
             if (!retryAttempted) {
               connection.close();
-              canRetryAttempt();
+              canRetryAttempt(e);
               return executeModifyFeatures(event);
             }
           }
@@ -1187,6 +1834,10 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
         }
       }
 
+      if (notModified.size() > 0) {
+        fails = new ArrayList<>(fails);
+        fails.addAll(notModified);
+      }
       collection.setFailed(fails);
 
       if (insertIds.size() > 0) {
@@ -1219,10 +1870,187 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
     }
   }
 
-  private boolean canRetryAttempt() throws Exception {
+  /**
+   * Inserts the given features by streaming them with a binary COPY into a temporary staging table, which is then merged into the table
+   * of the space.
+   *
+   * @return true, if the features were inserted; false, if the bulk insert failed outside of a transaction and the features should be
+   * inserted row by row instead.
+   * @throws SQLException if the bulk insert failed within a transaction.
+   */
+  private boolean executeBulkInsert(Connection connection, List<Feature> inserts, KeyColumns keyColumns, boolean transaction)
+      throws SQLException {
+    final long start = System.currentTimeMillis();
+    final boolean autoCommit = connection.getAutoCommit();
+    try {
+      if (autoCommit) {
+        connection.setAutoCommit(false);
+      }
+
+      try (Statement stmt = connection.createStatement()) {
+        stmt.setQueryTimeout(STATEMENT_TIMEOUT_SECONDS);
+        stmt.execute(BulkInsert.createStagingTableSql(keyColumns));
+      }
+      BulkInsert.copyIn(connection, inserts, keyColumns);
+      try (Statement stmt = connection.createStatement()) {
+        stmt.setQueryTimeout(STATEMENT_TIMEOUT_SECONDS);
+        stmt.executeUpdate(replaceVars(BulkInsert.mergeSql(keyColumns)));
+      }
+
+      if (autoCommit) {
+        connection.commit();
+      }
+
+      final long time = Math.max(1, System.currentTimeMillis() - start);
+      logger.info("{} - Bulk inserted {} features in {}ms ({} features/s)", streamId, inserts.size(), time,
+          inserts.size() * 1000L / time);
+      return true;
+    } catch (SQLException e) {
+      if (transaction) {
+        throw e;
+      }
+      logger.warn("{} - Bulk insert of {} features failed, falling back to the row-wise insert: {}", streamId, inserts.size(), e);
+      connection.rollback();
+      return false;
+    } finally {
+      if (autoCommit) {
+        connection.setAutoCommit(true);
+      }
+    }
+  }
+
+  /**
+   * Updates the given features with a single statement. The ids, JSON documents, geometries and keys are bound as parallel arrays.
+   *
+   * @return the ids of the features, which were updated.
+   * @throws SQLException if the update failed.
+   */
+  /**
+   * Reports the batched updates, which did not update any row, because the object does not exist.
+   *
+   * @param counts the update counts of the batch.
+   * @param batch the updated features in the order of the batch.
+   * @param updated the features, which are returned as updated.
+   */
+  private static void removeMissingUpdates(int[] counts, List<Feature> batch, List<Feature> updated,
+      List<ModificationFailure> notModified, List<String> updateIds) {
+    for (int i = 0; i < counts.length && i < batch.size(); i++) {
+      if (counts[i] == 0) {
+        final Feature feature = batch.get(i);
+        updated.remove(feature);
+        notModified.add(new ModificationFailure().withId(feature.getId()).withMessage(UPDATE_CONFLICT_MESSAGE));
+        updateIds.remove(feature.getId());
+      }
+    }
+  }
+
+  private Set<String> executeSetBasedUpdate(Connection connection, List<Feature> updates, KeyColumns keyColumns) throws SQLException {
+    final String[] ids = new String[updates.size()];
+    final String[] jsons = new String[updates.size()];
+    final String[] geos = new String[updates.size()];
+    final String[] geojsons = new String[updates.size()];
+    final Long[][] keys = new Long[keyColumns.size()][updates.size()];
+    final WKBWriter wkbWriter = new WKBWriter(3);
+
+    for (int i = 0; i < updates.size(); i++) {
+      final Feature feature = updates.get(i);
+      if (feature.getId() == null) {
+        throw new NullPointerException("id");
+      }
+      final Geometry geometry = feature.getGeometry();
+      feature.setGeometry(null); // Do not serialize the geometry in the JSON object
+
+      try {
+        ids[i] = feature.getId();
+        jsons[i] = feature.serialize();
+        geojsons[i] = geometry != null ? geometry.serialize() : null;
+        final com.vividsolutions.jts.geom.Geometry jtsGeometry = geometry != null ? geometry.getJTSGeometry() : null;
+        geos[i] = jtsGeometry != null ? WKBWriter.toHex(wkbWriter.write(jtsGeometry)) : null;
+        final Long[] featureKeys = keyColumns.values(jtsGeometry);
+        for (int k = 0; k < featureKeys.length; k++) {
+          keys[k][i] = featureKeys[k];
+        }
+      } finally {
+        feature.setGeometry(geometry);
+      }
+    }
+
+    String updateStmtSQL = "UPDATE ${schema}.${table} t SET jsondata = u.jsondata::jsonb, "
+        + "geo = ST_Force3D(ST_GeomFromWKB(decode(u.geo,'hex'),4326)), geojson = u.geojson::jsonb"
+        + keyColumns.join("%1$s = u.%1$s") + " "
+        + "FROM unnest(?::text[], ?::text[], ?::text[], ?::text[]" + keyColumns.join("?::bigint[]") + ") "
+        + "AS u(id, jsondata, geo, geojson" + keyColumns.join("%s") + ") "
+        + "WHERE t.jsondata->>'id' = u.id RETURNING u.id";
+    updateStmtSQL = replaceVars(updateStmtSQL);
+
+    try (final PreparedStatement updateStmt = createStatement(connection, updateStmtSQL)) {
+      updateStmt.setArray(1, connection.createArrayOf("text", ids));
+      updateStmt.setArray(2, connection.createArrayOf("text", jsons));
+      updateStmt.setArray(3, connection.createArrayOf("text", geos));
+      updateStmt.setArray(4, connection.createArrayOf("text", geojsons));
+      for (int k = 0; k < keys.length; k++) {
+        updateStmt.setArray(5 + k, connection.createArrayOf("int8", keys[k]));
+      }
+      return readIds(updateStmt);
+    }
+  }
+
+  /**
+   * Deletes the objects with the given ids with a single statement. Objects for which a hash is provided are only deleted, if their
+   * current hash matches.
+   *
+   * @return the ids of the deleted objects.
+   * @throws SQLException if the delete failed.
+   */
+  private Set<String> executeSetBasedDelete(Connection connection, Map<String, String> deletes) throws SQLException {
+    final String[] ids = new String[deletes.size()];
+    final String[] hashes = new String[deletes.size()];
+    int i = 0;
+    for (Map.Entry<String, String> entry : deletes.entrySet()) {
+      ids[i] = entry.getKey();
+      hashes[i++] = entry.getValue();
+    }
+
+    String deleteStmtSQL = "DELETE FROM ${schema}.${table} t USING unnest(?::text[], ?::text[]) AS d(id, hash) "
+        + "WHERE t.jsondata->>'id' = d.id AND (d.hash IS NULL OR t.jsondata->'properties'->'@ns:com:here:xyz'->>'hash' = d.hash) "
+        + "RETURNING d.id";
+    deleteStmtSQL = replaceVars(deleteStmtSQL);
+
+    try (final PreparedStatement deleteStmt = createStatement(connection, deleteStmtSQL)) {
+      deleteStmt.setArray(1, connection.createArrayOf("text", ids));
+      deleteStmt.setArray(2, connection.createArrayOf("text", hashes));
+      return readIds(deleteStmt);
+    }
+  }
+
+  private Set<String> readIds(PreparedStatement stmt) throws SQLException {
+    final Set<String> ids = new HashSet<>();
+    try (final ResultSet rs = stmt.executeQuery()) {
+      while (rs.next()) {
+        ids.add(rs.getString(1));
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Checks, if the failed execution should be repeated, because the table of the space was missing and is created now.
+   *
+   * @param e the exception of the failed execution.
+   */
+  private boolean canRetryAttempt(Exception e) throws Exception {
     if (retryAttempted) {
       return false;
     }
+    if (KeyColumns.isUndefinedColumn(e) && !KeyColumns.of(event).isEmpty() && hasTable()) {
+      ensureKeyColumns();
+      retryAttempted = true;
+      logger.info("{} - The key columns were created. Retry the execution.", streamId);
+      return true;
+    }
+    if (KnownTables.isUndefinedTable(e)) {
+      knownTables.remove(config.table(event));
+    }
     if (hasTable()) {
       retryAttempted = true; // the table is there, do not retry
       return false;
@@ -1234,8 +2062,75 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
     return true;
   }
 
+  private void setKeys(PreparedStatement stmt, int parameterIndex, Long[] keys) throws SQLException {
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] == null) {
+        stmt.setNull(parameterIndex + i, Types.BIGINT);
+      } else {
+        stmt.setLong(parameterIndex + i, keys[i]);
+      }
+    }
+  }
+
+  private String keyIndexName(String suffix) {
+    return sqlQuote("idx_" + config.table(event) + "_" + suffix);
+  }
+
+  /**
+   * Adds the missing key columns and their indexes to the table of the space.
+   */
+  private void ensureKeyColumns() throws SQLException {
+    try (final Connection connection = dataSource.getConnection();
+        final Statement stmt = connection.createStatement()) {
+      for (String statement : KeyColumns.of(event).createSql(this::keyIndexName)) {
+        stmt.execute(replaceVars(statement));
+      }
+    }
+  }
+
+  /**
+   * Adapts the key columns of the space table to the configuration of the space. Columns, which are no longer configured, are dropped. The
+   * keys of features, which were written before a column was added, are calculated afterwards. If this fails, the H3 cells are calculated
+   * when the features are read and points without Morton key are found by the spatial index.
+   */
+  private void updateKeyColumns() throws SQLException {
+    if (!hasTable()) {
+      // The columns are created together with the table.
+      return;
+    }
+
+    final KeyColumns keyColumns = KeyColumns.of(event);
+    final List<String> columns = executeQuery(new SQLQuery(KeyColumns.COLUMNS_SQL, config.schema(), config.table(event)), rs -> {
+      final List<String> result = new ArrayList<>();
+      while (rs.next()) {
+        result.add(rs.getString(1));
+      }
+      return result;
+    });
+    columns.removeAll(keyColumns.names());
+
+    try (final Connection connection = dataSource.getConnection();
+        final Statement stmt = connection.createStatement()) {
+      for (String column : columns) {
+        stmt.execute(replaceVars(KeyColumns.dropColumnSql(sqlQuote(column))));
+        logger.info("{} - Dropped the column '{}' of space '{}'", streamId, column, event.getSpace());
+      }
+    }
+    ensureKeyColumns();
+
+    for (String statement : keyColumns.backfillSql()) {
+      final long start = System.currentTimeMillis();
+      try {
+        final int updated = executeUpdate(new SQLQuery(statement));
+        logger.info("{} - Calculated the missing keys of {} features in {}ms", streamId, updated, System.currentTimeMillis() - start);
+      } catch (SQLException e) {
+        logger.warn("{} - Failed to calculate the missing keys: {}", streamId, e);
+      }
+    }
+  }
+
   private PreparedStatement createStatement(Connection connection, String statement) throws SQLException {
-    final PreparedStatement preparedStatement = connection.prepareStatement(statement);
+    final PreparedStatement preparedStatement = statementCache.record(connection.prepareStatement(statement));
     preparedStatement.setQueryTimeout(STATEMENT_TIMEOUT_SECONDS);
     return preparedStatement;
   }
@@ -1392,13 +2287,37 @@ public class PSQLXyzConnector extends PSQLRequestStreamHandler {
       processSearchableProperties(event.getSpaceDefinition().getSearchableProperties(), event.getOperation());
     }
 
+    if (Operation.DELETE != event.getOperation()) {
+      updateKeyColumns();
+    }
+
+    if (Operation.DELETE != event.getOperation() && PSQLConfig.hexbinPyramid(event)) {
+      ensureHexbinPyramid();
+    } else if (Operation.CREATE != event.getOperation()) {
+      dropHexbinPyramid();
+    }
+
+    if (Operation.DELETE != event.getOperation() && PSQLConfig.quadCounter(event)) {
+      ensureQuadCounters();
+    } else if (Operation.CREATE != event.getOperation()) {
+      dropQuadCounters();
+    }
+
+    if (Operation.DELETE != event.getOperation() && PSQLConfig.simplificationLevels(event).length > 0) {
+      ensureSimplifiedGeometries();
+    } else if (Operation.CREATE != event.getOperation()) {
+      dropSimplifiedGeometries();
+    }
+
     if (Operation.DELETE == event.getOperation()) {
+      knownTables.remove(config.table(event));
       if (hasTable()) {
         try (final Connection connection = dataSource.getConnection()) {
           try (Statement stmt = connection.createStatement()) {
             String query = "DROP TABLE ${schema}.${table}";
             query = replaceVars(query);
             stmt.executeUpdate(query);
+            knownTables.remove(config.table(event));
 
             logger.info("{} - Successfully deleted table for space '{}'", streamId, event.getSpace());
           } catch (Exception e) {
@@ -31,7 +31,12 @@ public class QuadClustering {
         }
     }
 
-    public static SQLQuery generateQuadClusteringSQL(String schema, String space, int resolution, String quadMode, String propQuery, WebMercatorTile tile) {
+    /**
+     * Generates the quad count query. If the counters are used, the exact count of every child quadkey is looked up in the counter
+     * table of the space instead of being counted, which is only possible for the quadmode real without properties query.
+     */
+    public static SQLQuery generateQuadClusteringSQL(String schema, String space, int resolution, String quadMode, String propQuery, WebMercatorTile tile,
+                                                     int mortonLevel, boolean useCounters) {
         SQLQuery query = new SQLQuery("");
 
         String realCountCondition = "";
@@ -44,7 +49,7 @@ public class QuadClustering {
         switch (quadMode) {
             case QuadClustering.QUADMODE_REAL:
                 realCountCondition = "TRUE";
-                pureEstimation = "_postgis_selectivity( '"+schema+".\""+space+"\"'::regclass, 'geo',qkbbox)";
+                pureEstimation = useCounters ? "NULL::float" : "_postgis_selectivity( '"+schema+".\""+space+"\"'::regclass, 'geo',qkbbox)";
                 break;
             case QuadClustering.QUADMODE_ESTIMATED:
             case QuadClustering.QUADMODE_MIXED:
@@ -92,14 +97,49 @@ public class QuadClustering {
                         "    FROM "+
                         "    (SELECT cond_est_cnt,qk,qkbbox,qkxyz,"+
                         "        ("+
-                        "        CASE WHEN "+realCountCondition+" THEN "+
+                        "        CASE WHEN "+realCountCondition+" THEN ");
+
+        /** Look up the exact count in the counter table */
+        if(useCounters) {
+            query.append(
+                        "            COALESCE((select q.cnt from "+ schema+".\""+space+QuadCounter.TABLE_SUFFIX+"\" q"+
+                        "                WHERE q.lev = "+(tile.level+resolution)+" AND q.qk = c.qk), 0)");
+            return appendQuadClusteringEnd(query, resolution, estClac, pureEstimation, tile);
+        }
+
+        /** Count the points by the ranges of their Morton keys, if the keys are stored with a level, which is high enough */
+        final int shift = 2 * (mortonLevel - tile.level - resolution);
+        if(mortonLevel > 0 && shift >= 0) {
+            final String mortonColumn = MortonKey.column(mortonLevel);
+            query.append(
+                        "            (select count(1) from "+ schema+".\""+space+"\""+
+                        "                WHERE "+mortonColumn+" BETWEEN xyz_qk_qk2mortonkey(qk) << "+shift+
+                        "                AND ((xyz_qk_qk2mortonkey(qk) + 1) << "+shift+") - 1");
+            if(propQuery != null) {
+                query.append(" AND ");
+                query.append(propQuery);
+            }
+            query.append(") + ");
+        }
+
+        query.append(
                         "            (select count(1) from "+ schema+".\""+space+"\""+
                         "                WHERE ST_Intersects(geo, qkbbox)");
+        if(mortonLevel > 0 && shift >= 0) {
+            query.append(" AND "+MortonKey.column(mortonLevel)+" IS NULL");
+        }
         if(propQuery != null) {
             query.append(" AND ");
             query.append(propQuery);
         }
-        query.append(")"+
+        query.append(")");
+
+        return appendQuadClusteringEnd(query, resolution, estClac, pureEstimation, tile);
+    }
+
+    private static SQLQuery appendQuadClusteringEnd(SQLQuery query, int resolution, String estClac, String pureEstimation,
+                                                    WebMercatorTile tile) {
+        query.append(
                 "         ELSE "+
                 "          "+estClac+""+
                 "        END)::bigint as cnt_bbox_est"+
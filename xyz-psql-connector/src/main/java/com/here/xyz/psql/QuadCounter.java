@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The quad counters of a space. For every Web Mercator tile of the levels 0 to {@link #MAX_LEVEL} the counter table contains the number of
+ * points in the tile. All other geometries are only counted in the row of the level {@link #NON_POINT_LEVEL}, as the live count finds them
+ * in every tile they intersect. The counters are therefore only used for spaces, which contain nothing but points.
+ *
+ * <p>The counters are maintained incrementally by triggers on the table of the space within the transaction of the write. From PostgreSQL 10
+ * on, statement triggers aggregate the differences of all written rows from the transition tables per quadkey, so that every counter is
+ * updated once per statement. Older versions apply the difference of every written row with a row trigger. Exact quad counts are then
+ * answered with one lookup per child quadkey.</p>
+ */
+class QuadCounter {
+
+  static final int MAX_LEVEL = 22;
+
+  /**
+   * The name of the replacement for the counter table.
+   */
+  static final String TABLE = "quadcount";
+
+  /**
+   * The suffix of the counter table, which is appended to the table of the space.
+   */
+  static final String TABLE_SUFFIX = "_quadcount";
+
+  /**
+   * The level of the counter row, which counts the features with other geometries than points.
+   */
+  static final int NON_POINT_LEVEL = -1;
+
+  /**
+   * The quadkey of a point at the highest level or an empty string for all other geometries.
+   */
+  private static final String QUADKEY = "CASE ST_GeometryType(%1$s) WHEN 'ST_Point' THEN xyz_qk_point2qk(%1$s, " + MAX_LEVEL + ") "
+      + "ELSE '' END";
+
+  /**
+   * Joins every quadkey with the levels it is counted for: the quadkey of a point is counted with its prefixes for all levels, the empty
+   * quadkey of other geometries only for the non-point level.
+   */
+  private static final String LEVELS = "JOIN generate_series(" + NON_POINT_LEVEL + ", " + MAX_LEVEL + ") l ON (c.qk = '') = (l = "
+      + NON_POINT_LEVEL + ")";
+
+  /**
+   * The name of the replacement for the trigger function, which maintains the counters.
+   */
+  static final String TRIGGER = "quadcount_trigger";
+
+  /**
+   * The suffix of the trigger function and the row trigger, which is appended to the table of the space.
+   */
+  static final String TRIGGER_SUFFIX = "_quadcount_trigger";
+
+  /**
+   * The name of the replacement for the trigger, which truncates the counters together with the table of the space.
+   */
+  static final String TRUNCATE_TRIGGER = "quadcount_truncate";
+
+  static final String TRUNCATE_TRIGGER_SUFFIX = "_quadcount_truncate";
+
+  static final String CREATE_TABLE_SQL = "CREATE TABLE ${schema}.${quadcount} (lev smallint NOT NULL, qk text NOT NULL, "
+      + "cnt bigint NOT NULL, PRIMARY KEY (lev, qk))";
+
+  static final String DROP_TABLE_SQL = "DROP TABLE IF EXISTS ${schema}.${quadcount}";
+
+  /**
+   * Drops the trigger function together with the triggers on the table of the space.
+   */
+  static final String DROP_TRIGGER_SQL = "DROP FUNCTION IF EXISTS ${schema}.${quadcount_trigger}() CASCADE";
+
+  static final String CREATE_TRIGGER_SQL = "CREATE TRIGGER ${quadcount_trigger} AFTER INSERT OR UPDATE OF geo OR DELETE "
+      + "ON ${schema}.${table} FOR EACH ROW EXECUTE PROCEDURE ${schema}.${quadcount_trigger}()";
+
+  /**
+   * The statement triggers with transition tables, which are created instead of the row trigger from PostgreSQL 10 on. A trigger with
+   * transition tables can only be defined for a single event.
+   */
+  static final List<String> CREATE_STATEMENT_TRIGGERS_SQL = Arrays.asList(
+      "CREATE TRIGGER quadcount_insert AFTER INSERT ON ${schema}.${table} REFERENCING NEW TABLE AS new_rows "
+          + "FOR EACH STATEMENT EXECUTE PROCEDURE ${schema}.${quadcount_trigger}()",
+      "CREATE TRIGGER quadcount_update AFTER UPDATE ON ${schema}.${table} REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows "
+          + "FOR EACH STATEMENT EXECUTE PROCEDURE ${schema}.${quadcount_trigger}()",
+      "CREATE TRIGGER quadcount_delete AFTER DELETE ON ${schema}.${table} REFERENCING OLD TABLE AS old_rows "
+          + "FOR EACH STATEMENT EXECUTE PROCEDURE ${schema}.${quadcount_trigger}()");
+
+  static final String CREATE_TRUNCATE_TRIGGER_SQL = "CREATE TRIGGER ${quadcount_truncate} AFTER TRUNCATE "
+      + "ON ${schema}.${table} FOR EACH STATEMENT EXECUTE PROCEDURE ${schema}.${quadcount_trigger}()";
+
+  /**
+   * The trigger function of the row trigger.
+   */
+  static final String TRIGGER_FUNCTION_SQL = "CREATE OR REPLACE FUNCTION ${schema}.${quadcount_trigger}() RETURNS trigger AS $BODY$\n"
+      + "DECLARE\n"
+      + "  old_qk text; new_qk text;\n"
+      + "BEGIN\n"
+      + "  IF TG_OP = 'TRUNCATE' THEN\n"
+      + "    TRUNCATE ${schema}.${quadcount};\n"
+      + "    RETURN NULL;\n"
+      + "  END IF;\n"
+      + "  IF TG_OP != 'INSERT' AND OLD.geo IS NOT NULL THEN\n"
+      + "    old_qk := " + String.format(QUADKEY, "OLD.geo") + ";\n"
+      + "  END IF;\n"
+      + "  IF TG_OP != 'DELETE' AND NEW.geo IS NOT NULL THEN\n"
+      + "    new_qk := " + String.format(QUADKEY, "NEW.geo") + ";\n"
+      + "  END IF;\n"
+      + "  IF old_qk IS NOT DISTINCT FROM new_qk THEN\n"
+      + "    RETURN NULL;\n"
+      + "  END IF;\n"
+      + apply("SELECT -1 AS sign, old_qk AS qk WHERE old_qk IS NOT NULL UNION ALL SELECT 1, new_qk WHERE new_qk IS NOT NULL")
+      + "  RETURN NULL;\n"
+      + "END\n"
+      + "$BODY$ LANGUAGE plpgsql VOLATILE";
+
+  /**
+   * The trigger function of the statement triggers, which reads the written rows from the transition tables.
+   */
+  static final String STATEMENT_TRIGGER_FUNCTION_SQL = "CREATE OR REPLACE FUNCTION ${schema}.${quadcount_trigger}() RETURNS trigger AS "
+      + "$BODY$\n"
+      + "BEGIN\n"
+      + "  IF TG_OP = 'TRUNCATE' THEN\n"
+      + "    TRUNCATE ${schema}.${quadcount};\n"
+      + "  ELSIF TG_OP = 'INSERT' THEN\n"
+      + apply(contributions(1, "new_rows"))
+      + "  ELSIF TG_OP = 'UPDATE' THEN\n"
+      + apply(contributions(-1, "old_rows") + " UNION ALL " + contributions(1, "new_rows"))
+      + "  ELSE\n"
+      + apply(contributions(-1, "old_rows"))
+      + "  END IF;\n"
+      + "  RETURN NULL;\n"
+      + "END\n"
+      + "$BODY$ LANGUAGE plpgsql VOLATILE";
+
+  static final String EXISTS_SQL = "SELECT to_regclass(?) IS NOT NULL";
+
+  /**
+   * Checks, whether the space contains nothing but points, so that the counters are equal to the live count.
+   */
+  static final String POINTS_ONLY_SQL = "SELECT NOT EXISTS (SELECT 1 FROM ${schema}.${quadcount} WHERE lev = " + NON_POINT_LEVEL
+      + " AND cnt > 0)";
+
+  /**
+   * Returns the statements, which create the trigger function and the triggers maintaining the counters.
+   *
+   * @param transitionTables whether the database supports statement triggers with transition tables.
+   */
+  static List<String> triggerSql(boolean transitionTables) {
+    final List<String> sql = new ArrayList<>();
+    if (transitionTables) {
+      sql.add(STATEMENT_TRIGGER_FUNCTION_SQL);
+      sql.addAll(CREATE_STATEMENT_TRIGGERS_SQL);
+    } else {
+      sql.add(TRIGGER_FUNCTION_SQL);
+      sql.add(CREATE_TRIGGER_SQL);
+    }
+    sql.add(CREATE_TRUNCATE_TRIGGER_SQL);
+    return sql;
+  }
+
+  /**
+   * Returns the query of the signed quadkeys of the rows of a transition table.
+   */
+  private static String contributions(int sign, String rows) {
+    return "SELECT " + sign + " AS sign, " + String.format(QUADKEY, "geo") + " AS qk FROM " + rows + " WHERE geo IS NOT NULL";
+  }
+
+  /**
+   * Returns the statement, which adds the signed quadkeys of the given query to the counters. The differences are summed up per counter,
+   * so that every counter is updated once, and the counters are updated in a fixed order to avoid deadlocks between concurrent writers.
+   */
+  private static String apply(String contributions) {
+    return "    INSERT INTO ${schema}.${quadcount} AS p (lev, qk, cnt)\n"
+        + "      SELECT l, left(c.qk, l), sum(c.sign) FROM (" + contributions + ") c " + LEVELS + "\n"
+        + "      GROUP BY 1, 2 HAVING sum(c.sign) != 0 ORDER BY 1, 2\n"
+        + "    ON CONFLICT (lev, qk) DO UPDATE SET cnt = p.cnt + EXCLUDED.cnt;\n";
+  }
+
+  /**
+   * Creates the statement, which fills the empty counter table with the contributions of all features.
+   */
+  static SQLQuery build() {
+    final SQLQuery query = new SQLQuery("INSERT INTO ${schema}.${quadcount} (lev, qk, cnt)");
+    query.append("SELECT l AS lev, left(c.qk, l) AS qk, count(*) AS cnt");
+    query.append("FROM (SELECT " + String.format(QUADKEY, "geo") + " AS qk FROM ${schema}.${table} WHERE geo IS NOT NULL) c " + LEVELS);
+    query.append("GROUP BY 1, 2");
+    return query;
+  }
+
+  /**
+   * Returns true, if the counters can answer the quad count of the given request. Only the total number of features is counted, and only
+   * down to {@link #MAX_LEVEL}.
+   *
+   * @param level the level of the requested tile.
+   * @param resolution the number of levels of the children, which are counted.
+   * @param propQuery the properties query or null.
+   */
+  static boolean canCount(int level, int resolution, String propQuery) {
+    return propQuery == null && level + resolution <= MAX_LEVEL;
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import com.mchange.v2.resourcepool.ResourcePoolException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Routes read operations to the read replicas of a database. The replicas are selected by a weighted round robin, replicas, which lag
+ * behind the primary more than the accepted threshold or which recently failed, are skipped. Reads of a space, which was modified within
+ * the accepted threshold, are routed to the primary, so that a client always reads its own writes.
+ *
+ * <p>The replication lag is measured in the background, when {@link #refreshLags()} finds an outdated measurement. {@link #select(String,
+ * long)} only uses the last measured values, so that a request never waits for a replica.</p>
+ */
+class ReplicaRouter {
+
+  private static final Logger logger = LoggerFactory.getLogger(PSQLXyzConnector.class);
+
+  /**
+   * The time in milliseconds for which a measured replication lag is considered to be current.
+   */
+  private static final long LAG_CHECK_INTERVAL = 5_000;
+
+  /**
+   * The time in milliseconds for which a replica is not used after a connection error.
+   */
+  private static final long FAILURE_BACKOFF = 30_000;
+
+  /**
+   * The maximal number of spaces for which the time of the last write is remembered.
+   */
+  private static final int MAX_TRACKED_SPACES = 10_000;
+
+  /**
+   * The timeout in seconds of the query, which measures the replication lag.
+   */
+  private static final int LAG_QUERY_TIMEOUT = 1;
+
+  /**
+   * The thread, which measures the replication lags of all routers.
+   */
+  private static final ExecutorService LAG_CHECKS = Executors.newSingleThreadExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "replica-lag-check");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 "
+      + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+      + "ELSE COALESCE((EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint, 0) END";
+
+  static class Replica {
+
+    final String host;
+    final int weight;
+    final DataSource dataSource;
+    /**
+     * The last measured replication lag, a replica is not used until its lag was measured once.
+     */
+    private volatile long lag = Long.MAX_VALUE;
+    private final AtomicLong lagCheckedAt = new AtomicLong();
+    private volatile long failedUntil;
+    /**
+     * The current weight of the weighted round robin, guarded by the monitor of the router.
+     */
+    private int currentWeight;
+
+    Replica(String host, int weight, DataSource dataSource) {
+      this.host = host;
+      this.weight = weight;
+      this.dataSource = dataSource;
+    }
+  }
+
+  private final List<Replica> replicas;
+  private final Executor lagChecks;
+  private final Map<String, Long> lastWrites = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+      return size() > MAX_TRACKED_SPACES;
+    }
+  };
+
+  ReplicaRouter(List<Replica> replicas) {
+    this(replicas, LAG_CHECKS);
+  }
+
+  /**
+   * Creates a router, which measures the replication lags with the given executor.
+   */
+  ReplicaRouter(List<Replica> replicas, Executor lagChecks) {
+    this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+    this.lagChecks = lagChecks;
+  }
+
+  /**
+   * Parses the replica hosts, which are configured as a comma separated list. Every host can optionally be followed by a weight, separated
+   * by an asterisk, for example {@code replica-1,replica-2*2}. The default weight is one.
+   *
+   * @param hosts the configured replica hosts.
+   * @return a map of the hosts to their weights in the configured order.
+   */
+  static Map<String, Integer> parseHosts(String hosts) {
+    final Map<String, Integer> result = new LinkedHashMap<>();
+    if (hosts == null) {
+      return result;
+    }
+    for (String entry : hosts.split(",")) {
+      entry = entry.trim();
+      if (entry.isEmpty()) {
+        continue;
+      }
+      final int separator = entry.lastIndexOf('*');
+      int weight = 1;
+      if (separator > 0) {
+        try {
+          weight = Integer.parseInt(entry.substring(separator + 1).trim());
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("Invalid weight of the replica host: " + entry);
+        }
+        entry = entry.substring(0, separator).trim();
+      }
+      if (weight > 0) {
+        result.put(entry, weight);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns all replicas.
+   */
+  List<Replica> replicas() {
+    return replicas;
+  }
+
+  /**
+   * Records a write into the given space.
+   *
+   * @param space the space.
+   */
+  synchronized void recordWrite(String space) {
+    if (space != null) {
+      lastWrites.put(space, System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * Selects the data source for a read from the given space.
+   *
+   * @param space the space to read from.
+   * @param maxLag the maximal accepted replication lag in milliseconds.
+   * @return the data source of a replica or null, if the read should be done on the primary.
+   */
+  synchronized DataSource select(String space, long maxLag) {
+    // Called with the monitor held, therefore no I/O must be done here.
+    final long now = System.currentTimeMillis();
+    final Long lastWrite = space == null ? null : lastWrites.get(space);
+    if (lastWrite != null && now - lastWrite <= maxLag) {
+      return null;
+    }
+
+    Replica selected = null;
+    int totalWeight = 0;
+    for (Replica replica : replicas) {
+      if (replica.failedUntil > now || replica.lag > maxLag) {
+        continue;
+      }
+      replica.currentWeight += replica.weight;
+      totalWeight += replica.weight;
+      if (selected == null || replica.currentWeight > selected.currentWeight) {
+        selected = replica;
+      }
+    }
+
+    if (selected == null) {
+      return null;
+    }
+    selected.currentWeight -= totalWeight;
+    return selected.dataSource;
+  }
+
+  /**
+   * Excludes the replica with the given data source for a while, because it is not reachable.
+   *
+   * @param dataSource the data source of the replica.
+   */
+  void markFailed(DataSource dataSource) {
+    for (Replica replica : replicas) {
+      if (replica.dataSource == dataSource) {
+        logger.warn("Replica {} is not used for the next {}ms.", replica.host, FAILURE_BACKOFF);
+        fail(replica, System.currentTimeMillis());
+      }
+    }
+  }
+
+  /**
+   * Starts the measurement of the replication lag of the replicas, whose last measurement is outdated, and returns immediately. Every
+   * outdated replica is measured only once, until the measurement completes the last measured lag is used.
+   */
+  void refreshLags() {
+    final long now = System.currentTimeMillis();
+    for (Replica replica : replicas) {
+      final long checkedAt = replica.lagCheckedAt.get();
+      if (replica.failedUntil <= now && now - checkedAt > LAG_CHECK_INTERVAL && replica.lagCheckedAt.compareAndSet(checkedAt, now)) {
+        try {
+          lagChecks.execute(() -> refreshLag(replica));
+        } catch (RejectedExecutionException e) {
+          replica.lagCheckedAt.set(checkedAt);
+        }
+      }
+    }
+  }
+
+  private void refreshLag(Replica replica) {
+    try (final Connection connection = replica.dataSource.getConnection();
+        final Statement stmt = connection.createStatement()) {
+      stmt.setQueryTimeout(LAG_QUERY_TIMEOUT);
+      try (final ResultSet rs = stmt.executeQuery(LAG_QUERY)) {
+        replica.lag = rs.next() ? rs.getLong(1) : 0;
+      }
+    } catch (SQLException e) {
+      logger.warn("Failed to check the replication lag of replica {}: {}", replica.host, e.getMessage());
+      fail(replica, System.currentTimeMillis());
+    }
+  }
+
+  private synchronized void fail(Replica replica, long now) {
+    replica.failedUntil = now + FAILURE_BACKOFF;
+    replica.currentWeight = 0;
+  }
+
+  /**
+   * Returns true, if the given exception is caused by a failed connection rather than by the executed statement.
+   */
+  static boolean isConnectionError(SQLException e) {
+    return (e.getSQLState() != null && e.getSQLState().startsWith("08")) || e.getCause() instanceof ResourcePoolException;
+  }
+}
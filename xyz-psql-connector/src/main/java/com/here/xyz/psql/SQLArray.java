@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Map;
+
+/**
+ * An array parameter, which is created without a database connection. The PostgreSQL driver binds arrays of foreign implementations
+ * using the base type name and the array literal returned by {@link #toString()}, so the array is resolved on the connection, which
+ * executes the statement.
+ */
+class SQLArray implements Array {
+
+  private final String baseTypeName;
+  private final Object[] elements;
+  private final String literal;
+
+  SQLArray(String baseTypeName, Object[] elements) {
+    this.baseTypeName = baseTypeName;
+    this.elements = elements;
+    this.literal = toLiteral(elements);
+  }
+
+  /**
+   * Creates the PostgreSQL array literal for the given elements. All non-null elements are quoted, so that no element can be mistaken for
+   * a NULL or break the array syntax.
+   */
+  private static String toLiteral(Object[] elements) {
+    final StringBuilder sb = new StringBuilder("{");
+    for (int i = 0; i < elements.length; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      if (elements[i] == null) {
+        sb.append("NULL");
+        continue;
+      }
+      sb.append('"');
+      final String value = elements[i].toString();
+      for (int j = 0; j < value.length(); j++) {
+        final char c = value.charAt(j);
+        if (c == '"' || c == '\\') {
+          sb.append('\\');
+        }
+        sb.append(c);
+      }
+      sb.append('"');
+    }
+    return sb.append('}').toString();
+  }
+
+  @Override
+  public String getBaseTypeName() {
+    return baseTypeName;
+  }
+
+  @Override
+  public int getBaseType() throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public Object getArray() {
+    return elements;
+  }
+
+  @Override
+  public Object getArray(Map<String, Class<?>> map) {
+    return elements;
+  }
+
+  @Override
+  public Object getArray(long index, int count) {
+    final Object[] slice = new Object[count];
+    System.arraycopy(elements, (int) index - 1, slice, 0, count);
+    return slice;
+  }
+
+  @Override
+  public Object getArray(long index, int count, Map<String, Class<?>> map) {
+    return getArray(index, count);
+  }
+
+  @Override
+  public ResultSet getResultSet() throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public ResultSet getResultSet(Map<String, Class<?>> map) throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public ResultSet getResultSet(long index, int count) throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public ResultSet getResultSet(long index, int count, Map<String, Class<?>> map) throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public void free() {
+  }
+
+  @Override
+  public String toString() {
+    return literal;
+  }
+}
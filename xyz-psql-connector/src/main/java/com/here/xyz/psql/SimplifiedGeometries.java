@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * The precomputed simplified geometries of a space. For every configured simplification level the side table contains the geometry of
+ * every feature snapped to the pixel grid of that level, exactly as it is calculated for requests with a simplification level. Requests
+ * for a configured level select the stored geometry instead of simplifying the geometry again.
+ *
+ * <p>The geometries are maintained at write time by a trigger on the table of the space, which calculates the simplified geometries of
+ * every written row within the transaction of the write. The table carries the configured levels as comment, so that it is rebuilt
+ * together with the trigger, when the levels change.</p>
+ */
+class SimplifiedGeometries {
+
+  /**
+   * The highest level, which can be configured.
+   */
+  static final int MAX_LEVEL = 18;
+
+  /**
+   * The name of the replacement for the table of the simplified geometries.
+   */
+  static final String TABLE = "simplified";
+
+  /**
+   * The suffix of the table of the simplified geometries, which is appended to the table of the space.
+   */
+  static final String TABLE_SUFFIX = "_simplified";
+
+  /**
+   * The name of the replacement for the trigger function, which maintains the simplified geometries.
+   */
+  static final String TRIGGER = "simplified_trigger";
+
+  /**
+   * The suffix of the trigger function and the row trigger, which is appended to the table of the space.
+   */
+  static final String TRIGGER_SUFFIX = "_simplified_trigger";
+
+  /**
+   * The name of the replacement for the trigger, which truncates the simplified geometries together with the table of the space.
+   */
+  static final String TRUNCATE_TRIGGER = "simplified_truncate";
+
+  static final String TRUNCATE_TRIGGER_SUFFIX = "_simplified_truncate";
+
+  static final String CREATE_TABLE_SQL = "CREATE TABLE ${schema}.${simplified} (lev smallint NOT NULL, id text NOT NULL, "
+      + "geo geometry(Geometry, 4326), PRIMARY KEY (lev, id))";
+
+  static final String DROP_TABLE_SQL = "DROP TABLE IF EXISTS ${schema}.${simplified}";
+
+  /**
+   * Drops the trigger function together with the triggers on the table of the space.
+   */
+  static final String DROP_TRIGGER_SQL = "DROP FUNCTION IF EXISTS ${schema}.${simplified_trigger}() CASCADE";
+
+  static final String CREATE_TRIGGER_SQL = "CREATE TRIGGER ${simplified_trigger} AFTER INSERT OR UPDATE OF geo OR DELETE "
+      + "ON ${schema}.${table} FOR EACH ROW EXECUTE PROCEDURE ${schema}.${simplified_trigger}()";
+
+  static final String CREATE_TRUNCATE_TRIGGER_SQL = "CREATE TRIGGER ${simplified_truncate} AFTER TRUNCATE "
+      + "ON ${schema}.${table} FOR EACH STATEMENT EXECUTE PROCEDURE ${schema}.${simplified_trigger}()";
+
+  static final String COMMENT_SQL = "SELECT obj_description(to_regclass(?), 'pg_class')";
+
+  /**
+   * The expression, which simplifies the geometry of a feature. The parameter is the pixel size in meters.
+   */
+  static final String SIMPLIFY = "ST_Transform(ST_MakeValid(ST_SnapToGrid(ST_Force2D(ST_Transform(%s,3857)),%s)),4326)";
+
+  /**
+   * Returns the comment of the table, which identifies the configured levels.
+   */
+  static String comment(int[] levels) {
+    return Arrays.stream(levels).mapToObj(String::valueOf).collect(Collectors.joining(","));
+  }
+
+  /**
+   * Creates the statement, which stores the configured levels as comment of the table.
+   */
+  static String commentSql(int[] levels) {
+    return "COMMENT ON TABLE ${schema}.${simplified} IS '" + comment(levels) + "'";
+  }
+
+  /**
+   * Returns true, if the simplified geometries are stored for the given level.
+   */
+  static boolean contains(int[] levels, long level) {
+    return Arrays.stream(levels).anyMatch(l -> l == level);
+  }
+
+  /**
+   * Creates the statement, which calculates the simplified geometries of all features of the empty table.
+   *
+   * @param levels the configured levels.
+   * @param pixelSizes the pixel sizes of the levels in meters.
+   */
+  static SQLQuery build(int[] levels, double[] pixelSizes) {
+    final SQLQuery query = new SQLQuery("INSERT INTO ${schema}.${simplified} (lev, id, geo)");
+    query.append("SELECT s.lev, jsondata->>'id', " + String.format(SIMPLIFY, "geo", "s.px"));
+    query.append("FROM ${schema}.${table}, unnest(?::int[], ?::float8[]) AS s(lev, px) WHERE geo IS NOT NULL",
+        new SQLArray("int4", Arrays.stream(levels).boxed().toArray()), new SQLArray("float8", Arrays.stream(pixelSizes).boxed().toArray()));
+    return query;
+  }
+
+  /**
+   * Creates the trigger function, which replaces the simplified geometries of every inserted or updated row and deletes them for deleted
+   * rows and rows without geometry. The configured levels are part of the function, which is created again, when they change.
+   *
+   * @param levels the configured levels.
+   * @param pixelSizes the pixel sizes of the levels in meters.
+   */
+  static String triggerFunctionSql(int[] levels, double[] pixelSizes) {
+    final String levelArray = Arrays.stream(levels).mapToObj(String::valueOf).collect(Collectors.joining(",", "'{", "}'::int[]"));
+    final String pixelSizeArray = Arrays.stream(pixelSizes).mapToObj(String::valueOf)
+        .collect(Collectors.joining(",", "'{", "}'::float8[]"));
+    return "CREATE OR REPLACE FUNCTION ${schema}.${simplified_trigger}() RETURNS trigger AS $BODY$\n"
+        + "BEGIN\n"
+        + "  IF TG_OP = 'TRUNCATE' THEN\n"
+        + "    TRUNCATE ${schema}.${simplified};\n"
+        + "    RETURN NULL;\n"
+        + "  END IF;\n"
+        + "  IF TG_OP = 'DELETE' THEN\n"
+        + "    DELETE FROM ${schema}.${simplified} WHERE id = OLD.jsondata->>'id';\n"
+        + "    RETURN NULL;\n"
+        + "  END IF;\n"
+        + "  IF NEW.geo IS NULL THEN\n"
+        + "    IF TG_OP = 'UPDATE' THEN\n"
+        + "      DELETE FROM ${schema}.${simplified} WHERE id = NEW.jsondata->>'id';\n"
+        + "    END IF;\n"
+        + "    RETURN NULL;\n"
+        + "  END IF;\n"
+        + "  INSERT INTO ${schema}.${simplified} (lev, id, geo)\n"
+        + "    SELECT s.lev, NEW.jsondata->>'id', " + String.format(SIMPLIFY, "NEW.geo", "s.px") + "\n"
+        + "    FROM unnest(" + levelArray + ", " + pixelSizeArray + ") AS s(lev, px)\n"
+        + "  ON CONFLICT (lev, id) DO UPDATE SET geo = EXCLUDED.geo;\n"
+        + "  RETURN NULL;\n"
+        + "END\n"
+        + "$BODY$ LANGUAGE plpgsql VOLATILE";
+  }
+
+  /**
+   * Creates the expression, which selects the stored simplified geometry of the feature for the given level. If the geometry is not stored,
+   * it is simplified like without the table.
+   *
+   * @param level the simplification level.
+   * @param pixelSize the pixel size of the level in meters.
+   */
+  static SQLQuery select(long level, double pixelSize) {
+    final SQLQuery query = new SQLQuery("COALESCE((SELECT s.geo FROM ${schema}.${simplified} s WHERE s.lev = ? AND s.id = jsondata->>'id'),",
+        (int) level);
+    query.append(String.format(SIMPLIFY, "geo", "?") + ")", pixelSize);
+    return query;
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Counts the hits and misses of the prepared statement cache of a connection pool. The pool hands out a new proxy for every prepared
+ * statement, but a proxy for a cached statement wraps the same physical statement as before. A statement is therefore counted as hit, when
+ * its physical statement was seen before, and as miss otherwise.
+ */
+class StatementCacheMetrics {
+
+  /**
+   * The physical statements seen so far. They are only weakly referenced, so that statements evicted from the cache can be collected.
+   */
+  private final Map<PreparedStatement, Boolean> seen = new WeakHashMap<>();
+  private long hits;
+  private long misses;
+
+  /**
+   * Records the preparation of the given statement.
+   *
+   * @param statement the statement returned by the pool.
+   * @return the given statement.
+   */
+  PreparedStatement record(PreparedStatement statement) throws SQLException {
+    final PreparedStatement physical = statement.isWrapperFor(PreparedStatement.class) ? statement.unwrap(PreparedStatement.class)
+        : statement;
+    synchronized (this) {
+      if (seen.put(physical, Boolean.TRUE) != null) {
+        hits++;
+      } else {
+        misses++;
+      }
+    }
+    return statement;
+  }
+
+  /**
+   * Returns the number of prepared statements, which were served from the cache.
+   */
+  synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of prepared statements, which were newly created.
+   */
+  synchronized long getMisses() {
+    return misses;
+  }
+
+  @Override
+  public synchronized String toString() {
+    final long requests = hits + misses;
+    return String.format("hits=%d, misses=%d, hitRate=%.1f%%", hits, misses, requests == 0 ? 0d : hits * 100d / requests);
+  }
+}
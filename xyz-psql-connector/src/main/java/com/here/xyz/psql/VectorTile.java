@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import com.here.xyz.events.GetFeaturesByTileEvent;
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.geojson.coordinates.BBox;
+
+/**
+ * Encodes the features of a Web Mercator tile as Mapbox Vector Tile in the database (ST_AsMVTGeom and ST_AsMVT), so that only the encoded
+ * tile is transferred instead of the GeoJSON of all features. Like the tiles encoded by the service, the tile has one layer named after
+ * the space, the feature ID is stored in the attribute "id" and the properties of the feature are stored as further attributes.
+ */
+class VectorTile {
+
+  static final String MIME_TYPE = "application/vnd.mapbox-vector-tile";
+
+  /**
+   * The extent of the tile in tile coordinates.
+   */
+  static final int EXTENT = 4096;
+
+  /**
+   * The size of a tile in pixels, in which the margin of the event is defined.
+   */
+  private static final int TILE_SIZE_IN_PIXEL = 256;
+
+  /**
+   * Returns true, if the tile of the event can be encoded in the database. The selection of properties and clustering are only applied
+   * to the GeoJSON response, so that those tiles are encoded by the service.
+   */
+  static boolean canEncode(GetFeaturesByTileEvent event) {
+    return event.getResponseType() == GetFeaturesByTileEvent.ResponseType.MVT && event.getClusteringType() == null
+        && event.getSelection() == null;
+  }
+
+  /**
+   * Creates the query, which returns the encoded tile as single bytea value.
+   *
+   * @param event the tile event.
+   * @param searchQuery the search query or null.
+   */
+  static SQLQuery query(GetFeaturesByTileEvent event, SQLQuery searchQuery) {
+    final WebMercatorTile tile = WebMercatorTile.forWeb(event.getLevel(), event.getX(), event.getY());
+    final BBox bbox = event.getBbox();
+    final int buffer = event.getMargin() * EXTENT / TILE_SIZE_IN_PIXEL;
+
+    final SQLQuery query = new SQLQuery("SELECT ST_AsMVT(t, ?, " + EXTENT + ", 'geom') FROM (", event.getSpace());
+    query.append("SELECT jsondata->>'id' AS id, jsondata->'properties' AS properties,");
+    // The geometry is clipped to the requested area before it is projected, because the poles can not be projected to Web Mercator.
+    query.append("ST_AsMVTGeom(ST_Transform(ST_Force2D(ST_ClipByBox2D(geo, ST_MakeEnvelope(?, ?, ?, ?, 4326))), 3857),",
+        bbox.minLon(), bbox.minLat(), bbox.maxLon(), bbox.maxLat());
+    query.append("ST_MakeEnvelope(?, ?, ?, ?, 3857)::box2d, " + EXTENT + ", ?, true) AS geom", tile.left, tile.bottom, tile.right, tile.top,
+        buffer);
+    query.append("FROM ${schema}.${table} WHERE ST_Intersects(geo, ST_MakeEnvelope(?, ?, ?, ?, 4326))",
+        bbox.minLon(), bbox.minLat(), bbox.maxLon(), bbox.maxLat());
+    if (searchQuery != null) {
+      query.append("AND");
+      query.append(searchQuery);
+    }
+    query.append("LIMIT ?", event.getLimit());
+    query.append(") t WHERE geom IS NOT NULL");
+    return query;
+  }
+}
@@ -91,6 +91,8 @@
 -- xyz_qk_lrc2bbox							:	select ST_ASText(xyz_qk_lrc2bbox(3,2,3));
 -- xyz_qk_qk2bbox							:	select xyz_qk_qk2bbox( '001' );
 -- xyz_qk_point2qk							:	select xyz_qk_point2qk(ST_GeomFromText( 'POINT( -64.78767  32.29703)' ), 3)
+-- xyz_qk_point2mortonkey					:	select xyz_qk_point2mortonkey(ST_GeomFromText( 'POINT( -64.78767  32.29703)' ), 3)
+-- xyz_qk_qk2mortonkey						:	select xyz_qk_qk2mortonkey('032');
 -- xyz_qk_bbox2zooml						:	select xyz_qk_bbox2zooml(
 --													ST_GeomFromText('POLYGON((49.1430885846288 -122.003173828125,49.1430885846288 -122.001800537109,49.1439869452885
 --													-122.001800537109,49.1439869452885 -122.003173828125,49.1430885846288 -122.003173828125))' ));
@@ -138,7 +140,7 @@ DROP TYPE IF EXISTS rid_t;
 CREATE OR REPLACE FUNCTION xyz_ext_version()
   RETURNS integer AS
 $BODY$
- select 122
+ select 123
 $BODY$
   LANGUAGE sql IMMUTABLE;
 ------------------------------------------------
@@ -2381,6 +2383,45 @@ END;
 $$ LANGUAGE plpgsql IMMUTABLE;
 ------------------------------------------------
 ------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_qk_point2mortonkey( geo geometry, lev integer )
+	RETURNS bigint AS $$
+	/**
+	* Description: Returns the Morton key of the tile, which contains the point. The key interleaves the bits of the column (even bits)
+	*		and the row (odd bits) of the tile and equals the quadkey read as number in base 4.
+	*
+	* Parameters:
+	*   @geo	- the point
+	*   @lev	- the level of the tile
+	*/
+DECLARE
+    latitude    double precision := least(greatest(ST_Y( geo ), -85.05112878), 85.05112878);
+    sinLatitude double precision := sin( latitude * pi() / 180.0 );
+    numRowsCols constant bigint := 1::bigint << lev;
+    colX bigint;
+    rowY bigint;
+    mkey bigint := 0;
+BEGIN
+  colX := least(greatest(floor(((ST_X( geo ) + 180.0) / 360.0) * numRowsCols), 0), numRowsCols - 1);
+  rowY := least(greatest(floor((0.5 - ln((1 + sinLatitude) / (1 - sinLatitude)) / (4 * pi())) * numRowsCols), 0), numRowsCols - 1);
+
+  for i in 0 .. lev - 1 loop
+   mkey := mkey | (((colX >> i) & 1) << (2 * i)) | (((rowY >> i) & 1) << (2 * i + 1));
+  end loop;
+
+  return mkey;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+------------------------------------------------
+------------------------------------------------
+CREATE OR REPLACE FUNCTION xyz_qk_qk2mortonkey( qid text )
+	RETURNS bigint AS
+$body$
+ select coalesce(sum(substr( qid, i, 1 )::bigint << (2 * (length( qid ) - i))), 0)::bigint
+ from generate_series(1, length( qid )) i
+$body$
+LANGUAGE sql IMMUTABLE;
+------------------------------------------------
+------------------------------------------------
 CREATE OR REPLACE FUNCTION xyz_qk_bbox2zooml( geometry )
   RETURNS integer AS
 $body$ -- select round( ( ln( 360 ) - ln( st_xmax(i.env) - st_xmin(i.env) )  )/ ln(2) )::integer as zm
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class H3IndexTest {
+
+  @Test
+  public void publishedIndexes() {
+    // The examples of the READMEs of the H3 core library, h3-js and h3-py
+    assertEquals(0x8a2a1072b59ffffL, H3Index.geoToH3(40.689167, -74.044444, 10));
+    assertEquals(0x87283472bffffffL, H3Index.geoToH3(37.3615593, -122.0553238, 7));
+    assertEquals(0x89283082e73ffffL, H3Index.geoToH3(37.769377, -122.388903, 9));
+  }
+
+  @Test
+  public void pentagon() {
+    // The center of the pentagon base cell 4 is the center of its center child at every resolution
+    final double lat = 64.70000012793489;
+    final double lon = 10.536199075468373;
+    assertEquals(0x8009fffffffffffL, H3Index.geoToH3(lat, lon, 0));
+    assertEquals(0x85080003fffffffL, H3Index.geoToH3(lat, lon, 5));
+    assertEquals(0x8a0800000007fffL, H3Index.geoToH3(lat, lon, 10));
+    assertEquals(0x8f0800000000000L, H3Index.geoToH3(lat, lon, 15));
+  }
+
+  @Test
+  public void antimeridian() {
+    for (int res = 0; res <= H3Index.MAX_RESOLUTION; res++) {
+      assertEquals(H3Index.geoToH3(10d, -180d, res), H3Index.geoToH3(10d, 180d, res));
+      assertEquals(H3Index.geoToH3(-45d, -170d, res), H3Index.geoToH3(-45d, 190d, res));
+    }
+    assertEquals(0x805bfffffffffffL, H3Index.geoToH3(10d, 180d, 0));
+    assertEquals(0x8f5ba5c698aa099L, H3Index.geoToH3(10d, 180d, 15));
+  }
+
+  @Test
+  public void invalidInput() {
+    assertEquals(0, H3Index.geoToH3(50d, 8d, -1));
+    assertEquals(0, H3Index.geoToH3(50d, 8d, 16));
+    assertEquals(0, H3Index.geoToH3(Double.NaN, 8d, 5));
+    assertEquals(0, H3Index.geoToH3(50d, Double.POSITIVE_INFINITY, 5));
+  }
+}
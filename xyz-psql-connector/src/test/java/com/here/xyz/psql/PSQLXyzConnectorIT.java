@@ -34,13 +34,21 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.here.xyz.Payload;
 import com.here.xyz.XyzSerializable;
 import com.here.xyz.events.GetFeaturesByGeometryEvent;
+import com.here.xyz.events.GetFeaturesByTileEvent;
+import com.here.xyz.events.GetIterationPartitionsEvent;
 import com.here.xyz.events.GetStatisticsEvent;
 import com.here.xyz.events.HealthCheckEvent;
+import com.here.xyz.events.IterateFeaturesEvent;
 import com.here.xyz.events.ModifyFeaturesEvent;
+import com.here.xyz.events.ModifySpaceEvent;
+import com.here.xyz.events.ModifySpaceEvent.Operation;
 import com.here.xyz.events.PropertiesQuery;
 import com.here.xyz.events.PropertyQuery;
 import com.here.xyz.events.PropertyQuery.QueryOperation;
 import com.here.xyz.events.PropertyQueryList;
+import com.here.xyz.events.TagsQuery;
+import com.here.xyz.models.geojson.WebMercatorTile;
+import com.here.xyz.models.geojson.coordinates.BBox;
 import com.here.xyz.models.geojson.coordinates.LineStringCoordinates;
 import com.here.xyz.models.geojson.coordinates.LinearRingCoordinates;
 import com.here.xyz.models.geojson.coordinates.MultiPolygonCoordinates;
@@ -55,7 +63,10 @@ import com.here.xyz.models.geojson.implementation.MultiPolygon;
 import com.here.xyz.models.geojson.implementation.Point;
 import com.here.xyz.models.geojson.implementation.Polygon;
 import com.here.xyz.models.geojson.implementation.Properties;
+import com.here.xyz.models.geojson.implementation.XyzError;
+import com.here.xyz.responses.BinaryResponse;
 import com.here.xyz.responses.ErrorResponse;
+import com.here.xyz.responses.IterationPartitionsResponse;
 import com.here.xyz.responses.StatisticsResponse;
 import com.here.xyz.responses.StatisticsResponse.PropertiesStatistics;
 import com.here.xyz.responses.StatisticsResponse.PropertyStatistics;
@@ -74,9 +85,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -93,6 +107,13 @@ public class PSQLXyzConnectorIT {
 
   private static PSQLXyzConnector lambda;
 
+  private static final String HEXBIN_EVENT = "{\"type\": \"GetFeaturesByBBoxEvent\", \"space\": \"foo\", \"bbox\": [-170, -80, 170, 80],"
+      + " \"clusteringType\": \"hexbin\", \"clusteringParams\": {\"property\": \"value\"}, \"limit\": 30000, \"clip\": false,"
+      + " \"params\": %s}";
+
+  private static final String QUAD_EVENT = "{\"type\": \"GetFeaturesByBBoxEvent\", \"space\": \"foo\", \"bbox\": [0, 45, 11.25, 52.5],"
+      + " \"clusteringType\": \"quad\", \"clusteringParams\": {\"resolution\": 2, \"quadmode\": \"real\"}, \"params\": %s}";
+
   @BeforeClass
   public static void setupEnv() throws Exception {
     logger.info("Setup environment...");
@@ -367,6 +388,25 @@ public class PSQLXyzConnectorIT {
     assertEquals(new Integer(1), properties.get("foo2"));
     assertNull(properties.get("foo"));
     logger.info("Area Query with MULTIPOLYGON + SELECTION tested successfully");
+    // =========== QUERY WITH SUBDIVIDED MULTIPOLYGON ==========
+    final Map<String, Object> params = new HashMap<>();
+    params.put(PSQLConfig.GEOMETRY_SEARCH_SUBDIVIDE, 5);
+    geometryEvent = new GetFeaturesByGeometryEvent()
+        .withSpace("foo")
+        .withGeometry(geo)
+        .withParams(params);
+
+    queryResponse = invokeLambda(geometryEvent.serialize());
+    featureCollection = XyzSerializable.deserialize(queryResponse);
+    assertNotNull(featureCollection);
+    assertEquals(213, featureCollection.getFeatures().size());
+
+    geometryEvent.setPropertiesQuery(pq);
+    queryResponse = invokeLambda(geometryEvent.serialize());
+    featureCollection = XyzSerializable.deserialize(queryResponse);
+    assertNotNull(featureCollection);
+    assertEquals(121, featureCollection.getFeatures().size());
+    logger.info("Area Query with subdivided MULTIPOLYGON tested successfully");
   }
 
   /**
@@ -1181,6 +1221,525 @@ public class PSQLXyzConnectorIT {
     logger.info("Delete all features tested successfully");
   }
 
+  @Test
+  public void testBulkInsert() throws Exception {
+    final DocumentContext insertEventDoc = getEventFromResource("/events/InsertFeaturesEvent.json");
+    insertEventDoc.put("$", "connectorParams", Collections.singletonMap(PSQLConfig.BULK_INSERT_THRESHOLD, 1));
+    final String insertRequest = insertEventDoc.jsonString();
+    final String insertResponse = invokeLambda(insertRequest);
+    assertNoErrorInResponse(insertResponse);
+    assertRead(insertRequest, insertResponse, false);
+    logger.info("Bulk insert tested successfully");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testStreamingResponse() throws Exception {
+    assertNoErrorInResponse(invokeLambdaFromFile("/events/InsertFeaturesEvent.json"));
+
+    final String bboxEvent = "{\"type\": \"GetFeaturesByBBoxEvent\", \"space\": \"foo\", \"bbox\": [-180, -90, 180, 90],"
+        + " \"params\": {}, \"limit\": 30000}";
+    final String searchEvent = IOUtils.toString(GSContext.class.getResourceAsStream("/events/SearchForFeaturesEvent.json"));
+    for (String event : Arrays.asList(bboxEvent, searchEvent)) {
+      final String response = invokeLambda(event);
+      assertNoErrorInResponse(response);
+      final DocumentContext streamingEventDoc = JsonPath.parse(event);
+      streamingEventDoc.put("$", "connectorParams", Collections.singletonMap(PSQLConfig.STREAMING_RESPONSE, true));
+      final String streamingResponse = invokeLambda(streamingEventDoc.jsonString());
+      assertNoErrorInResponse(streamingResponse);
+
+      // The same features are returned
+      final List<Map<String, Object>> features = JsonPath.read(response, "$.features");
+      final List<Map<String, Object>> streamedFeatures = JsonPath.read(streamingResponse, "$.features");
+      assertFalse(features.isEmpty());
+      assertEquals(features.size(), streamedFeatures.size());
+      final Map<Object, Map<String, Object>> featuresById = new HashMap<>();
+      features.forEach(feature -> featuresById.put(feature.get("id"), feature));
+      for (Map<String, Object> streamedFeature : streamedFeatures) {
+        assertTrue(jsonCompare(featuresById.get(streamedFeature.get("id")), streamedFeature));
+      }
+
+      // The e-tag is stable and a matching If-None-Match results in a NotModifiedResponse
+      final String etag = JsonPath.read(streamingResponse, "$.etag");
+      assertNotNull(etag);
+      assertEquals(etag, JsonPath.read(invokeLambda(streamingEventDoc.jsonString()), "$.etag"));
+      streamingEventDoc.put("$", "ifNoneMatch", etag);
+      final String notModifiedResponse = invokeLambda(streamingEventDoc.jsonString());
+      assertEquals("NotModifiedResponse", JsonPath.read(notModifiedResponse, "$.type"));
+      assertEquals(etag, JsonPath.read(notModifiedResponse, "$.etag"));
+      streamingEventDoc.put("$", "ifNoneMatch", "outdated");
+      assertEquals(streamedFeatures.size(), JsonPath.<List>read(invokeLambda(streamingEventDoc.jsonString()), "$.features").size());
+    }
+    logger.info("Streaming response tested successfully");
+  }
+
+  @Test
+  public void testBulkInsertDefaultThreshold() throws Exception {
+    // Above the default threshold the insert is done with COPY
+    final ModifyFeaturesEvent mfevent = new ModifyFeaturesEvent();
+    mfevent.setSpace("foo");
+    mfevent.setTransaction(false);
+    mfevent.setInsertFeatures(pointGrid(1500));
+    final String insertResponse = invokeLambda(mfevent.serialize());
+    assertNoErrorInResponse(insertResponse);
+    assertEquals(1500, JsonPath.<List>read(insertResponse, "$.features").size());
+
+    final String countResponse = invokeLambda("{\"type\": \"CountFeaturesEvent\", \"space\": \"foo\"}");
+    assertEquals(1500, JsonPath.<Number>read(countResponse, "$.count").intValue());
+    logger.info("Bulk insert with the default threshold tested successfully");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testSetBasedModifyFeatures() throws Exception {
+    final String insertResponse = invokeLambdaFromFile("/events/InsertFeaturesEvent.json");
+    final List<Map<String, Object>> features = JsonPath.compile("$.features").read(insertResponse, jsonPathConf);
+    final List<String> ids = JsonPath.compile("$.features..id").read(insertResponse, jsonPathConf);
+
+    // =========== UPDATE ==========
+    features.forEach(feature -> ((Map<String, Object>) feature.get("properties")).put("test", "updated"));
+    final Map<String, Object> missingFeature = new HashMap<>(features.get(0));
+    missingFeature.put("id", "missing");
+    features.add(missingFeature);
+
+    final DocumentContext updateEventDoc = getEventFromResource("/events/InsertFeaturesEvent.json");
+    updateEventDoc.put("$", "connectorParams", Collections.singletonMap(PSQLConfig.SET_BASED_MODIFY, true));
+    updateEventDoc.delete("$.insertFeatures");
+    updateEventDoc.put("$", "updateFeatures", features);
+    final String updateResponse = invokeLambda(updateEventDoc.jsonString());
+    assertNoErrorInResponse(updateResponse);
+    assertEquals(ids.size(), JsonPath.<List>read(updateResponse, "$.features").size());
+    assertEquals(Collections.singletonList("missing"), JsonPath.read(updateResponse, "$.failed[*].id"));
+
+    // =========== DELETE ==========
+    final Map<String, String> idsMap = new HashMap<>();
+    ids.forEach(id -> idsMap.put(id, null));
+    idsMap.put(ids.get(0), "wrongHash");
+
+    final DocumentContext deleteEventDoc = getEventFromResource("/events/InsertFeaturesEvent.json");
+    deleteEventDoc.put("$", "connectorParams", Collections.singletonMap(PSQLConfig.SET_BASED_MODIFY, true));
+    deleteEventDoc.delete("$.insertFeatures");
+    deleteEventDoc.put("$", "deleteFeatures", idsMap);
+    final String deleteResponse = invokeLambda(deleteEventDoc.jsonString());
+    assertNoErrorInResponse(deleteResponse);
+    assertEquals(ids.size() - 1, JsonPath.<List>read(deleteResponse, "$.deleted").size());
+    assertEquals(Collections.singletonList(ids.get(0)), JsonPath.read(deleteResponse, "$.failed[*].id"));
+    logger.info("Set-based modify features tested successfully");
+  }
+
+  @Test
+  public void testUpdateMissingFeature() throws Exception {
+    insertFeatures(pointGrid(2), null);
+    final Feature missing = new Feature().withId("missing").withGeometry(new Point().withCoordinates(new PointCoordinates(8d, 50d)))
+        .withProperties(new Properties());
+    final Feature missingWithoutGeometry = new Feature().withId("missingWithoutGeometry").withProperties(new Properties());
+
+    for (boolean setBasedModify : new boolean[]{false, true}) {
+      for (boolean transaction : new boolean[]{false, true}) {
+        final ModifyFeaturesEvent updateEvent = new ModifyFeaturesEvent();
+        updateEvent.setSpace("foo");
+        updateEvent.setTransaction(transaction);
+        updateEvent.setConnectorParams(Collections.singletonMap(PSQLConfig.SET_BASED_MODIFY, setBasedModify));
+        updateEvent.setUpdateFeatures(new ArrayList<>(Arrays.asList(pointGrid(2).get(1), missing, missingWithoutGeometry)));
+        final String updateResponse = invokeLambda(updateEvent.serialize());
+        assertNoErrorInResponse(updateResponse);
+
+        final String mode = "setBasedModify=" + setBasedModify + ", transaction=" + transaction;
+        assertEquals(mode, Collections.singletonList("f1"), JsonPath.read(updateResponse, "$.features[*].id"));
+        assertEquals(mode, Collections.singletonList("f1"), JsonPath.read(updateResponse, "$.updated"));
+        assertEquals(mode, Arrays.asList("missing", "missingWithoutGeometry"), JsonPath.read(updateResponse, "$.failed[*].id"));
+        assertEquals(mode, Arrays.asList("The object does not exist.", "The object does not exist."),
+            JsonPath.read(updateResponse, "$.failed[*].message"));
+      }
+    }
+    logger.info("Update of missing features tested successfully");
+  }
+
+  @Test
+  public void testIterateWithSearch() throws Exception {
+    final List<Feature> featureList = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      featureList.add(new Feature().withProperties(new Properties().with("iterate", i % 2 == 0)));
+    }
+    final ModifyFeaturesEvent mfevent = new ModifyFeaturesEvent();
+    mfevent.setSpace("foo");
+    mfevent.setTransaction(true);
+    mfevent.setInsertFeatures(featureList);
+    assertNoErrorInResponse(invokeLambda(mfevent.serialize()));
+
+    final PropertiesQuery pq = new PropertiesQuery();
+    final PropertyQueryList pql = new PropertyQueryList();
+    pql.add(new PropertyQuery().withKey("properties.iterate").withOperation(QueryOperation.EQUALS)
+        .withValues(new ArrayList<>(Collections.singletonList(true))));
+    pq.add(pql);
+
+    final Set<String> ids = new HashSet<>();
+    String handle = null;
+    int pages = 0;
+    do {
+      final IterateFeaturesEvent iterateEvent = new IterateFeaturesEvent()
+          .withSpace("foo")
+          .withPropertiesQuery(pq)
+          .withLimit(5)
+          .withHandle(handle);
+      final FeatureCollection page = XyzSerializable.deserialize(invokeLambda(iterateEvent.serialize()));
+      page.getFeatures().forEach(f -> ids.add(f.getId()));
+      handle = page.getHandle();
+      if (handle != null) {
+        assertTrue(handle.startsWith("k1_"));
+      }
+      pages++;
+    } while (handle != null);
+    assertEquals(13, ids.size());
+    assertEquals(3, pages);
+
+    // A handle must not be used with a different search
+    final String otherHandle = XyzSerializable.<FeatureCollection>deserialize(invokeLambda(new IterateFeaturesEvent()
+        .withSpace("foo").withPropertiesQuery(pq).withLimit(5).serialize())).getHandle();
+    final String response = invokeLambda(new IterateFeaturesEvent().withSpace("foo").withLimit(5)
+        .withTags(TagsQuery.fromQueryParameter(Collections.singletonList("yellow"))).withHandle(otherHandle).serialize());
+    assertEquals(XyzError.ILLEGAL_ARGUMENT, XyzSerializable.<ErrorResponse>deserialize(response).getError());
+    logger.info("Iterate with search tested successfully");
+  }
+
+  @Test
+  public void testIterationPartitions() throws Exception {
+    final List<Feature> featureList = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      featureList.add(new Feature().withProperties(new Properties().with("partition", i)));
+    }
+    final ModifyFeaturesEvent mfevent = new ModifyFeaturesEvent();
+    mfevent.setSpace("foo");
+    mfevent.setTransaction(true);
+    mfevent.setInsertFeatures(featureList);
+    assertNoErrorInResponse(invokeLambda(mfevent.serialize()));
+
+    final String partitionsResponse = invokeLambda(new GetIterationPartitionsEvent().withSpace("foo").withPartitions(4).serialize());
+    assertNoErrorInResponse(partitionsResponse);
+    final List<String> handles = XyzSerializable.<IterationPartitionsResponse>deserialize(partitionsResponse).getHandles();
+    assertFalse(handles.isEmpty());
+
+    final Set<String> ids = new HashSet<>();
+    for (String partitionHandle : handles) {
+      String handle = partitionHandle;
+      do {
+        final FeatureCollection page = XyzSerializable.deserialize(invokeLambda(new IterateFeaturesEvent()
+            .withSpace("foo")
+            .withLimit(10)
+            .withHandle(handle).serialize()));
+        page.getFeatures().forEach(f -> assertTrue(ids.add(f.getId())));
+        handle = page.getHandle();
+      } while (handle != null);
+    }
+    assertEquals(25, ids.size());
+    logger.info("Iteration partitions tested successfully");
+  }
+
+  @Test
+  public void testHexbinPyramid() throws Exception {
+    final Map<String, Object> params = new HashMap<>();
+    params.put(PSQLConfig.HEXBIN_PYRAMID, true);
+    assertNoErrorInResponse(invokeLambda(new ModifySpaceEvent().withSpace("foo").withOperation(Operation.CREATE).withParams(params)
+        .serialize()));
+
+    insertFeatures(pointGrid(50), params);
+
+    final ModifyFeaturesEvent deleteEvent = new ModifyFeaturesEvent();
+    deleteEvent.setSpace("foo");
+    deleteEvent.setParams(params);
+    deleteEvent.setDeleteFeatures(pointGridIds(10));
+    assertNoErrorInResponse(invokeLambda(deleteEvent.serialize()));
+
+    // Counting is served by the pyramid
+    final String countEvent = HEXBIN_EVENT.replace("{\"property\": \"value\"}", "{}");
+    final List<Number> quantities = JsonPath.read(invokeWithParams(countEvent, params), "$.features[*].properties.aggregation.qty");
+    assertEquals(40, quantities.stream().mapToInt(Number::intValue).sum());
+    final List<Number> liveQuantities = JsonPath.read(invokeWithParams(countEvent, null), "$.features[*].properties.aggregation.qty");
+    assertEquals(liveQuantities.size(), quantities.size());
+
+    // The statistics of a property contain the median and are aggregated live
+    final String response = invokeWithParams(HEXBIN_EVENT, params);
+    assertHexbins(response, 40, 49);
+    final List<Object> medians = JsonPath.read(response, "$.features[*].properties.aggregation.median");
+    assertTrue(medians.stream().allMatch(Objects::nonNull));
+    logger.info("Hexbin pyramid tested successfully");
+  }
+
+  @Test
+  public void testH3Columns() throws Exception {
+    final Map<String, Object> params = new HashMap<>();
+    params.put(PSQLConfig.H3_RESOLUTIONS, Arrays.asList(2, 9));
+
+    insertFeatures(pointGrid(50), params);
+
+    // Adds the missing column of resolution 4 and calculates the cells of the existing features
+    params.put(PSQLConfig.H3_RESOLUTIONS, Arrays.asList(2, 4));
+    assertNoErrorInResponse(invokeLambda(new ModifySpaceEvent().withSpace("foo").withOperation(Operation.UPDATE).withParams(params)
+        .serialize()));
+
+    assertHexbins(invokeWithParams(HEXBIN_EVENT, params), 50, 49);
+    assertHexbins(invokeWithParams(HEXBIN_EVENT, null), 50, 49);
+    logger.info("H3 columns tested successfully");
+  }
+
+  @Test
+  public void testMortonKeys() throws Exception {
+    final Map<String, Object> params = new HashMap<>();
+    params.put(PSQLConfig.MORTON_LEVEL, 16);
+
+    final List<Feature> featureList = pointGrid(50);
+    final LineStringCoordinates lineCoordinates = new LineStringCoordinates();
+    lineCoordinates.add(new Position(7.5, 49.5));
+    lineCoordinates.add(new Position(8.3, 50.3));
+    featureList.add(new Feature().withId("line").withGeometry(new LineString().withCoordinates(lineCoordinates)));
+    insertFeatures(featureList, params);
+
+    final String bboxEvent = "{\"type\": \"GetFeaturesByBBoxEvent\", \"space\": \"foo\", \"bbox\": [8.1, 50.1, 8.5, 50.5],"
+        + " \"limit\": 30000, \"params\": %s}";
+    final String mortonResponse = invokeLambda(String.format(bboxEvent, new ObjectMapper().writeValueAsString(params)));
+    final String spatialResponse = invokeLambda(String.format(bboxEvent, "{}"));
+    assertNoErrorInResponse(mortonResponse);
+    assertNoErrorInResponse(spatialResponse);
+
+    final List<String> mortonIds = JsonPath.read(mortonResponse, "$.features[*].id");
+    final List<String> spatialIds = JsonPath.read(spatialResponse, "$.features[*].id");
+    assertTrue(mortonIds.contains("line"));
+    assertEquals(new HashSet<>(spatialIds), new HashSet<>(mortonIds));
+
+    assertEquals(quadCount(invokeWithParams(QUAD_EVENT, null)), quadCount(invokeWithParams(QUAD_EVENT, params)));
+    logger.info("Morton keys tested successfully");
+  }
+
+  @Test
+  public void testQuadCounters() throws Exception {
+    final Map<String, Object> params = new HashMap<>();
+    params.put(PSQLConfig.QUAD_COUNTER, true);
+    assertNoErrorInResponse(invokeLambda(new ModifySpaceEvent().withSpace("foo").withOperation(Operation.CREATE).withParams(params)
+        .serialize()));
+
+    insertFeatures(pointGrid(50), params);
+
+    // Moves one feature out of the tile and deletes ten others
+    final ModifyFeaturesEvent updateEvent = new ModifyFeaturesEvent();
+    updateEvent.setSpace("foo");
+    updateEvent.setParams(params);
+    updateEvent.setUpdateFeatures(Collections.singletonList(new Feature().withId("f10")
+        .withGeometry(new Point().withCoordinates(new PointCoordinates(-80d, 40d)))));
+    updateEvent.setDeleteFeatures(pointGridIds(10));
+    assertNoErrorInResponse(invokeLambda(updateEvent.serialize()));
+
+    assertEquals(39, quadCount(invokeWithParams(QUAD_EVENT, params)));
+    assertEquals(39, quadCount(invokeWithParams(QUAD_EVENT, null)));
+
+    // A line is counted in every tile it intersects, so that the counters must not be used anymore
+    final LineStringCoordinates lineCoordinates = new LineStringCoordinates();
+    lineCoordinates.add(new Position(1d, 46d));
+    lineCoordinates.add(new Position(10d, 52d));
+    insertFeatures(Collections.singletonList(new Feature().withId("line").withGeometry(new LineString().withCoordinates(lineCoordinates))),
+        params);
+    assertEquals(quadCount(invokeWithParams(QUAD_EVENT, null)), quadCount(invokeWithParams(QUAD_EVENT, params)));
+    logger.info("Quad counters tested successfully");
+  }
+
+  @Test
+  public void testQuadCounterWriteThroughput() throws Exception {
+    final Map<String, Object> params = new HashMap<>();
+    params.put(PSQLConfig.QUAD_COUNTER, true);
+    final List<Feature> features = new ArrayList<>();
+    final Random random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      features.add(new Feature().withId("f" + i).withGeometry(new Point().withCoordinates(
+          new PointCoordinates(random.nextDouble() * 11.25, 45d + random.nextDouble() * 7.5))));
+    }
+
+    final long withoutCounters = timedInsert(features, new HashMap<>());
+    invokeLambdaFromFile("/events/DeleteSpaceEvent.json");
+    assertNoErrorInResponse(invokeLambda(new ModifySpaceEvent().withSpace("foo").withOperation(Operation.CREATE).withParams(params)
+        .serialize()));
+    final long withCounters = timedInsert(features, params);
+    logger.info("Inserted {} points without quad counters in {}ms ({} features/s), with quad counters in {}ms ({} features/s)",
+        features.size(), withoutCounters, features.size() * 1000L / withoutCounters, withCounters, features.size() * 1000L / withCounters);
+
+    assertEquals(features.size(), quadCount(invokeWithParams(QUAD_EVENT, params)));
+  }
+
+  @Test
+  public void testSimplifiedGeometries() throws Exception {
+    final Map<String, Object> params = new HashMap<>();
+    params.put(PSQLConfig.SIMPLIFICATION_LEVELS, Collections.singletonList(5));
+    assertNoErrorInResponse(invokeLambda(new ModifySpaceEvent().withSpace("foo").withOperation(Operation.CREATE).withParams(params)
+        .serialize()));
+
+    final List<Feature> featureList = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      featureList.add(new Feature().withId("f" + i).withGeometry(circle(8d + i / 10d, 50d, 0.05d + i / 1000d)));
+    }
+    final ModifyFeaturesEvent mfevent = new ModifyFeaturesEvent();
+    mfevent.setSpace("foo");
+    mfevent.setParams(params);
+    mfevent.setTransaction(true);
+    mfevent.setInsertFeatures(featureList);
+    assertNoErrorInResponse(invokeLambda(mfevent.serialize()));
+    assertSimplifiedGeometries(params);
+
+    // Moves one feature and deletes another one
+    final ModifyFeaturesEvent updateEvent = new ModifyFeaturesEvent();
+    updateEvent.setSpace("foo");
+    updateEvent.setParams(params);
+    updateEvent.setUpdateFeatures(Collections.singletonList(new Feature().withId("f1").withGeometry(circle(9d, 51d, 0.2d))));
+    updateEvent.setDeleteFeatures(Collections.singletonMap("f2", null));
+    assertNoErrorInResponse(invokeLambda(updateEvent.serialize()));
+    assertSimplifiedGeometries(params);
+    logger.info("Simplified geometries tested successfully");
+  }
+
+  @Test
+  public void testClippedBBox() throws Exception {
+    final ModifyFeaturesEvent mfevent = new ModifyFeaturesEvent();
+    mfevent.setSpace("foo");
+    mfevent.setTransaction(true);
+    mfevent.setInsertFeatures(Arrays.asList(new Feature().withId("inside").withGeometry(circle(8d, 50d, 0.5d)),
+        new Feature().withId("crossing").withGeometry(circle(10d, 50d, 0.5d))));
+    assertNoErrorInResponse(invokeLambda(mfevent.serialize()));
+
+    final String response = invokeLambda("{\"type\": \"GetFeaturesByBBoxEvent\", \"space\": \"foo\", \"bbox\": [7, 49, 10, 51],"
+        + " \"clip\": true}");
+    assertNoErrorInResponse(response);
+    final FeatureCollection collection = XyzSerializable.deserialize(response);
+    assertEquals(2, collection.getFeatures().size());
+    for (Feature feature : collection.getFeatures()) {
+      final BBox bbox = feature.getGeometry().calculateBBox();
+      assertTrue(bbox.minLon() >= 7d && bbox.maxLon() <= 10d);
+      if ("inside".equals(feature.getId())) {
+        assertEquals(65, ((Polygon) feature.getGeometry()).getCoordinates().get(0).size());
+      } else {
+        assertEquals(10d, bbox.maxLon(), 0d);
+      }
+    }
+    logger.info("Clipped bounding box tested successfully");
+  }
+
+  /**
+   * Returns a diagonal line of points with the IDs f0 to f(n-1) and the property "value" set to their index.
+   */
+  private static List<Feature> pointGrid(int n) {
+    final List<Feature> features = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      features.add(new Feature().withId("f" + i)
+          .withGeometry(new Point().withCoordinates(new PointCoordinates(8d + i / 50d, 50d + i / 50d)))
+          .withProperties(new Properties().with("value", i)));
+    }
+    return features;
+  }
+
+  /**
+   * Returns the IDs of the first n features of the {@link #pointGrid(int)} as map of features to delete.
+   */
+  private static Map<String, String> pointGridIds(int n) {
+    final Map<String, String> ids = new HashMap<>();
+    for (int i = 0; i < n; i++) {
+      ids.put("f" + i, null);
+    }
+    return ids;
+  }
+
+  /**
+   * Inserts the features in batches of 1000 features and returns the time in milliseconds.
+   */
+  private long timedInsert(List<Feature> features, Map<String, Object> params) throws Exception {
+    final long start = System.currentTimeMillis();
+    for (int i = 0; i < features.size(); i += 1000) {
+      insertFeatures(features.subList(i, Math.min(i + 1000, features.size())), params);
+    }
+    return Math.max(1, System.currentTimeMillis() - start);
+  }
+
+  private void insertFeatures(List<Feature> features, Map<String, Object> params) throws Exception {
+    final ModifyFeaturesEvent mfevent = new ModifyFeaturesEvent();
+    mfevent.setSpace("foo");
+    mfevent.setParams(params);
+    mfevent.setTransaction(true);
+    mfevent.setInsertFeatures(features);
+    assertNoErrorInResponse(invokeLambda(mfevent.serialize()));
+  }
+
+  /**
+   * Invokes the given event template with the given space parameters or without any parameters, if they are null.
+   */
+  private String invokeWithParams(String eventTemplate, Map<String, Object> params) throws Exception {
+    final String response = invokeLambda(String.format(eventTemplate,
+        params == null ? "{}" : new ObjectMapper().writeValueAsString(params)));
+    assertNoErrorInResponse(response);
+    return response;
+  }
+
+  private static void assertHexbins(String response, int quantity, int maximum) {
+    final List<Number> quantities = JsonPath.read(response, "$.features[*].properties.aggregation.qty");
+    final List<Number> maxima = JsonPath.read(response, "$.features[*].properties.aggregation.max");
+    assertEquals(quantity, quantities.stream().mapToInt(Number::intValue).sum());
+    assertEquals(maximum, maxima.stream().mapToInt(Number::intValue).max().getAsInt());
+  }
+
+  private static long quadCount(String response) {
+    final List<Number> counts = JsonPath.read(response, "$.features[*].properties.count");
+    return counts.stream().mapToLong(Number::longValue).sum();
+  }
+
+  private void assertSimplifiedGeometries(Map<String, Object> params) throws Exception {
+    final String bboxEvent = "{\"type\": \"GetFeaturesByBBoxEvent\", \"space\": \"foo\", \"bbox\": [0, 45, 11.25, 52.5],"
+        + " \"simplificationLevel\": 5, \"params\": %s}";
+    final String storedResponse = invokeLambda(String.format(bboxEvent, new ObjectMapper().writeValueAsString(params)));
+    final String liveResponse = invokeLambda(String.format(bboxEvent, "{}"));
+    assertNoErrorInResponse(storedResponse);
+    assertNoErrorInResponse(liveResponse);
+
+    final FeatureCollection stored = XyzSerializable.deserialize(storedResponse);
+    final FeatureCollection live = XyzSerializable.deserialize(liveResponse);
+    assertEquals(live.getFeatures().size(), stored.getFeatures().size());
+    final Map<String, String> liveGeometries = new HashMap<>();
+    for (Feature feature : live.getFeatures()) {
+      liveGeometries.put(feature.getId(), feature.getGeometry().serialize());
+    }
+    for (Feature feature : stored.getFeatures()) {
+      assertEquals(liveGeometries.get(feature.getId()), feature.getGeometry().serialize());
+    }
+  }
+
+  private static Polygon circle(double lon, double lat, double radius) {
+    final LinearRingCoordinates ring = new LinearRingCoordinates();
+    for (int i = 0; i <= 64; i++) {
+      final double angle = 2 * Math.PI * (i % 64) / 64;
+      ring.add(new Position(lon + radius * Math.cos(angle), lat + radius * Math.sin(angle)));
+    }
+    final PolygonCoordinates coordinates = new PolygonCoordinates();
+    coordinates.add(ring);
+    return new Polygon().withCoordinates(coordinates);
+  }
+
+  @Test
+  public void testVectorTile() throws Exception {
+    insertFeatures(pointGrid(50), null);
+
+    final WebMercatorTile tile = WebMercatorTile.forWeb(8, 133, 86);
+    final GetFeaturesByTileEvent tileEvent = new GetFeaturesByTileEvent().withLevel(tile.level).withX(tile.x).withY(tile.y)
+        .withResponseType(GetFeaturesByTileEvent.ResponseType.MVT);
+    tileEvent.setSpace("foo");
+    tileEvent.setBbox(tile.getBBox(false));
+    tileEvent.setLimit(30000);
+    final String response = invokeLambda(tileEvent.serialize());
+    assertNoErrorInResponse(response);
+
+    final BinaryResponse binaryResponse = XyzSerializable.deserialize(response);
+    assertEquals("application/vnd.mapbox-vector-tile", binaryResponse.getMimeType());
+    assertTrue(binaryResponse.getBytes().length > 0);
+
+    // Without the response type the features are returned as GeoJSON
+    tileEvent.setResponseType(null);
+    final FeatureCollection featureCollection = XyzSerializable.deserialize(invokeLambda(tileEvent.serialize()));
+    assertTrue(featureCollection.getFeatures().size() > 0);
+    logger.info("Vector tile tested successfully");
+  }
+
   @Test
   public void testModifyFeaturesDefault() throws Exception {
     testModifyFeatures(false);
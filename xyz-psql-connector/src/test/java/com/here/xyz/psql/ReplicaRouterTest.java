@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.Test;
+
+public class ReplicaRouterTest {
+
+  @Test
+  public void parseEmptyHosts() {
+    assertTrue(ReplicaRouter.parseHosts(null).isEmpty());
+    assertTrue(ReplicaRouter.parseHosts("").isEmpty());
+    assertTrue(ReplicaRouter.parseHosts(" , ,").isEmpty());
+  }
+
+  @Test
+  public void parseHosts() {
+    final Map<String, Integer> expected = new LinkedHashMap<>();
+    expected.put("replica-1", 1);
+    expected.put("replica-2", 2);
+    assertEquals(expected, ReplicaRouter.parseHosts(" replica-1 ,, replica-2 * 2 ,replica-3*0"));
+    assertEquals(Arrays.asList("replica-1", "replica-2"), new ArrayList<>(ReplicaRouter.parseHosts("replica-1,replica-2*2").keySet()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parseInvalidWeight() {
+    ReplicaRouter.parseHosts("replica-1,replica-2*two");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parseMissingWeight() {
+    ReplicaRouter.parseHosts("replica-1*");
+  }
+
+  @Test
+  public void selectByWeight() {
+    final DataSource replica1 = dataSource(10, null);
+    final DataSource replica2 = dataSource(20, null);
+    final ReplicaRouter router = measuredRouter(new ReplicaRouter.Replica("replica-1", 1, replica1),
+        new ReplicaRouter.Replica("replica-2", 2, replica2));
+
+    final List<DataSource> selected = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      selected.add(router.select("space", 1000));
+    }
+    assertEquals(2, selected.stream().filter(ds -> ds == replica1).count());
+    assertEquals(4, selected.stream().filter(ds -> ds == replica2).count());
+  }
+
+  @Test
+  public void selectSkipsLaggingReplicas() {
+    final DataSource replica1 = dataSource(5000, null);
+    final DataSource replica2 = dataSource(10, null);
+    final ReplicaRouter router = measuredRouter(new ReplicaRouter.Replica("replica-1", 5, replica1),
+        new ReplicaRouter.Replica("replica-2", 1, replica2));
+
+    for (int i = 0; i < 3; i++) {
+      assertSame(replica2, router.select("space", 1000));
+    }
+  }
+
+  @Test
+  public void selectPrimaryWhenAllReplicasLag() {
+    final ReplicaRouter router = measuredRouter(new ReplicaRouter.Replica("replica-1", 1, dataSource(5000, null)),
+        new ReplicaRouter.Replica("replica-2", 1, dataSource(2000, null)));
+    assertNull(router.select("space", 1000));
+  }
+
+  @Test
+  public void selectPrimaryBeforeTheFirstMeasurement() {
+    final ReplicaRouter router = new ReplicaRouter(Arrays.asList(new ReplicaRouter.Replica("replica-1", 1, dataSource(0, null))),
+        Runnable::run);
+    assertNull(router.select("space", 1000));
+  }
+
+  @Test
+  public void selectPrimaryAfterWrite() {
+    final ReplicaRouter router = measuredRouter(new ReplicaRouter.Replica("replica-1", 1, dataSource(0, null)));
+    router.recordWrite("space");
+    assertNull(router.select("space", 1000));
+    assertNotNull(router.select("otherSpace", 1000));
+  }
+
+  @Test
+  public void selectPrimaryWhenTheMeasurementFails() {
+    final ReplicaRouter router = measuredRouter(new ReplicaRouter.Replica("replica-1", 1,
+        dataSource(0, new SQLException("Connection refused", "08001"))));
+    assertNull(router.select("space", 1000));
+  }
+
+  @Test
+  public void refreshLagsInTheBackground() {
+    final AtomicInteger connections = new AtomicInteger();
+    final DataSource replica = dataSource(0, null, connections);
+    final List<Runnable> tasks = new ArrayList<>();
+    final ReplicaRouter router = new ReplicaRouter(Arrays.asList(new ReplicaRouter.Replica("replica-1", 1, replica)), tasks::add);
+
+    router.refreshLags();
+    router.refreshLags();
+    assertEquals(0, connections.get());
+    assertEquals(1, tasks.size());
+    assertNull(router.select("space", 1000));
+
+    tasks.forEach(Runnable::run);
+    assertEquals(1, connections.get());
+    assertSame(replica, router.select("space", 1000));
+  }
+
+  /**
+   * Creates a router, which measures the lags of the given replicas immediately.
+   */
+  private static ReplicaRouter measuredRouter(ReplicaRouter.Replica... replicas) {
+    final ReplicaRouter router = new ReplicaRouter(Arrays.asList(replicas), Runnable::run);
+    router.refreshLags();
+    return router;
+  }
+
+  private static DataSource dataSource(long lag, SQLException failure) {
+    return dataSource(lag, failure, new AtomicInteger());
+  }
+
+  /**
+   * Creates a data source, whose connections return the given replication lag or fail with the given exception.
+   */
+  private static DataSource dataSource(long lag, SQLException failure, AtomicInteger connections) {
+    final ResultSet rs = proxy(ResultSet.class, (method, args) -> method.equals("next") ? true : method.equals("getLong") ? lag : null);
+    final Statement stmt = proxy(Statement.class, (method, args) -> method.equals("executeQuery") ? rs : null);
+    final Connection connection = proxy(Connection.class, (method, args) -> method.equals("createStatement") ? stmt : null);
+    return proxy(DataSource.class, (method, args) -> {
+      if (method.equals("getConnection")) {
+        connections.incrementAndGet();
+        if (failure != null) {
+          throw failure;
+        }
+        return connection;
+      }
+      return null;
+    });
+  }
+
+  interface Handler {
+
+    Object invoke(String method, Object[] args) throws Exception;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T proxy(Class<T> type, Handler handler) {
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == args[0];
+        case "toString":
+          return type.getSimpleName();
+        default:
+          return handler.invoke(method.getName(), args);
+      }
+    });
+  }
+}
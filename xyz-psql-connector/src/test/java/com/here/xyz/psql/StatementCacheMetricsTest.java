@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2017-2019 HERE Europe B.V.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ * License-Filename: LICENSE
+ */
+
+package com.here.xyz.psql;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import org.junit.Test;
+
+public class StatementCacheMetricsTest {
+
+  @Test
+  public void countsReusedPhysicalStatementsAsHits() throws Exception {
+    final StatementCacheMetrics metrics = new StatementCacheMetrics();
+    final PreparedStatement cached = physicalStatement();
+
+    metrics.record(proxy(cached));
+    metrics.record(proxy(cached));
+    metrics.record(proxy(physicalStatement()));
+    metrics.record(physicalStatement());
+
+    assertEquals(1, metrics.getHits());
+    assertEquals(3, metrics.getMisses());
+    assertEquals("hits=1, misses=3, hitRate=25.0%", metrics.toString());
+  }
+
+  /**
+   * Creates a statement, which is not a wrapper.
+   */
+  private static PreparedStatement physicalStatement() {
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class[]{PreparedStatement.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "isWrapperFor":
+              return false;
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  /**
+   * Creates a new proxy for the given physical statement, like the connection pool does for every prepared statement.
+   */
+  private static PreparedStatement proxy(PreparedStatement physical) {
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class[]{PreparedStatement.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "isWrapperFor":
+              return true;
+            case "unwrap":
+              return physical;
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+}
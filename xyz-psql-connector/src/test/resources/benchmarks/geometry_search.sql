@@ -0,0 +1,55 @@
+-- Compares the geometry search with a country-sized query polygon (20k vertices) on a table of 10M points: the polygon inlined as WKT,
+-- bound as WKB parameter of a prepared statement, and subdivided into parts of at most 256 vertices (space parameter
+-- geometrySearchSubdivide).
+--
+-- Run with: psql -v ON_ERROR_STOP=1 -f geometry_search.sql
+--
+-- The table is created in the schema "xyz_benchmark", which is dropped at the end.
+
+\timing on
+
+DROP SCHEMA IF EXISTS xyz_benchmark CASCADE;
+CREATE SCHEMA xyz_benchmark;
+SET search_path = xyz_benchmark, public;
+
+-- 10M points, 50% in the area of the query polygon, 50% distributed over the world
+CREATE TABLE points (jsondata jsonb, geo geometry(GeometryZ, 4326), i SERIAL, geojson jsonb);
+INSERT INTO points (jsondata, geo)
+SELECT jsonb_build_object('id', 'p' || n, 'type', 'Feature'),
+       CASE WHEN n % 2 = 0
+         THEN ST_SetSRID(ST_MakePoint(random() * 360 - 180, random() * 170 - 85, 0), 4326)
+         ELSE ST_SetSRID(ST_MakePoint(5.0 + random() * 10, 46.0 + random() * 10, 0), 4326)
+       END
+FROM generate_series(1, 10000000) n;
+
+CREATE INDEX idx_points_geo ON points USING gist ((geo));
+CREATE INDEX idx_points_serial ON points USING btree ((i));
+VACUUM ANALYZE points;
+
+-- A ragged polygon of roughly the size of Germany with 20k vertices
+CREATE TEMPORARY TABLE country AS
+SELECT ST_MakePolygon(ST_AddPoint(line, ST_StartPoint(line))) AS geo
+FROM (SELECT ST_MakeLine(ST_SetSRID(ST_MakePoint(10 + r * cos(a), 51 + r * 0.6 * sin(a)), 4326) ORDER BY n) AS line
+      FROM (SELECT n, 2 * pi() * n / 20000 AS a, 3.5 + 0.3 * sin(n / 7.0) + 0.2 * random() AS r FROM generate_series(0, 19999) n) v) l;
+
+SELECT ST_AsText(geo) AS wkt, encode(ST_AsBinary(geo), 'hex') AS wkb FROM country \gset
+
+-- Warm up the caches
+SELECT count(*) FROM points WHERE geo && ST_MakeEnvelope(5, 46, 15, 56, 4326);
+
+-- Inlined WKT, the polygon is parsed with every statement
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT jsondata, geojson FROM points WHERE ST_Intersects(geo, ST_GeomFromText(:'wkt', 4326));
+
+-- WKB parameter of a prepared statement
+PREPARE by_wkb(bytea) AS
+SELECT jsondata, geojson FROM points WHERE ST_Intersects(geo, ST_GeomFromWKB($1, 4326));
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE by_wkb(decode(:'wkb', 'hex'));
+
+-- WKB parameter subdivided into parts, every part uses the spatial index with its own bounding box
+PREPARE by_parts(bytea, int) AS
+SELECT jsondata, geojson FROM points WHERE i IN (SELECT t.i FROM (SELECT ST_Subdivide(ST_GeomFromWKB($1, 4326), $2) AS geo) p, points t
+                                                 WHERE ST_Intersects(t.geo, p.geo));
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE by_parts(decode(:'wkb', 'hex'), 256);
+
+DROP SCHEMA xyz_benchmark CASCADE;
@@ -0,0 +1,71 @@
+-- Compares the tile query with the spatial index (GiST, ST_Intersects) and with the ranges of the Morton keys (B-tree, BETWEEN) on a
+-- table of 10M points. Requires the xyz extension functions of the connector (xyz_ext.sql, version 123 or later).
+--
+-- Run with: psql -v ON_ERROR_STOP=1 -f morton_tile_query.sql
+--
+-- The table is created in the schema "xyz_benchmark", which is dropped at the end.
+
+\timing on
+
+DROP SCHEMA IF EXISTS xyz_benchmark CASCADE;
+CREATE SCHEMA xyz_benchmark;
+SET search_path = xyz_benchmark, public, h3;
+SET enable_seqscan = off;
+
+-- 10M points, 90% in a dense area around Berlin, 10% distributed over the world
+CREATE TABLE points (jsondata jsonb, geo geometry(GeometryZ, 4326), i SERIAL, geojson jsonb, mortonkey_20 bigint);
+INSERT INTO points (jsondata, geo)
+SELECT jsonb_build_object('id', 'p' || n, 'type', 'Feature'),
+       CASE WHEN n % 10 = 0
+         THEN ST_SetSRID(ST_MakePoint(random() * 360 - 180, random() * 170 - 85, 0), 4326)
+         ELSE ST_SetSRID(ST_MakePoint(13.0 + random() * 0.8, 52.3 + random() * 0.4, 0), 4326)
+       END
+FROM generate_series(1, 10000000) n;
+
+UPDATE points SET mortonkey_20 = xyz_qk_point2mortonkey(geo, 20);
+
+CREATE INDEX idx_points_geo ON points USING gist ((geo));
+CREATE INDEX idx_points_mortonkey_20 ON points USING btree (mortonkey_20);
+CREATE INDEX idx_points_mortonkey_20_geo ON points USING gist ((geo)) WHERE mortonkey_20 IS NULL;
+VACUUM ANALYZE points;
+
+-- Tiles of level 10, 12 and 14 in the dense area
+CREATE TEMPORARY TABLE tiles AS
+SELECT qk, xyz_qk_qk2bbox(qk) AS bbox, xyz_qk_qk2mortonkey(qk) << (2 * (20 - length(qk))) AS first_key,
+       ((xyz_qk_qk2mortonkey(qk) + 1) << (2 * (20 - length(qk)))) - 1 AS last_key
+FROM (SELECT xyz_qk_point2qk(ST_SetSRID(ST_MakePoint(13.4, 52.5), 4326), level) AS qk FROM unnest(ARRAY[10, 12, 14]) level) q;
+
+-- Warm up the caches
+SELECT count(*) FROM points WHERE mortonkey_20 IS NOT NULL;
+
+-- GiST: ST_Intersects with the tile
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT jsondata, geojson FROM points, tiles WHERE length(tiles.qk) = 10 AND ST_Intersects(geo, tiles.bbox);
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT jsondata, geojson FROM points, tiles WHERE length(tiles.qk) = 12 AND ST_Intersects(geo, tiles.bbox);
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT jsondata, geojson FROM points, tiles WHERE length(tiles.qk) = 14 AND ST_Intersects(geo, tiles.bbox);
+
+-- B-tree: range of the Morton keys of the tile, the partial spatial index finds the geometries without key
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT jsondata, geojson FROM points, tiles WHERE length(tiles.qk) = 10 AND mortonkey_20 BETWEEN tiles.first_key AND tiles.last_key
+UNION ALL
+SELECT jsondata, geojson FROM points, tiles WHERE length(tiles.qk) = 10 AND mortonkey_20 IS NULL AND ST_Intersects(geo, tiles.bbox);
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT jsondata, geojson FROM points, tiles WHERE length(tiles.qk) = 12 AND mortonkey_20 BETWEEN tiles.first_key AND tiles.last_key
+UNION ALL
+SELECT jsondata, geojson FROM points, tiles WHERE length(tiles.qk) = 12 AND mortonkey_20 IS NULL AND ST_Intersects(geo, tiles.bbox);
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT jsondata, geojson FROM points, tiles WHERE length(tiles.qk) = 14 AND mortonkey_20 BETWEEN tiles.first_key AND tiles.last_key
+UNION ALL
+SELECT jsondata, geojson FROM points, tiles WHERE length(tiles.qk) = 14 AND mortonkey_20 IS NULL AND ST_Intersects(geo, tiles.bbox);
+
+-- Quad counts of the children of a level 10 tile
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT qk, (SELECT count(1) FROM points WHERE ST_Intersects(geo, xyz_qk_qk2bbox(qk)))
+FROM unnest(xyz_qk_child_calculation((SELECT qk FROM tiles WHERE length(qk) = 10), 2, null)) qk;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT qk, (SELECT count(1) FROM points WHERE mortonkey_20 BETWEEN xyz_qk_qk2mortonkey(qk) << 16 AND ((xyz_qk_qk2mortonkey(qk) + 1) << 16) - 1)
+FROM unnest(xyz_qk_child_calculation((SELECT qk FROM tiles WHERE length(qk) = 10), 2, null)) qk;
+
+DROP SCHEMA xyz_benchmark CASCADE;